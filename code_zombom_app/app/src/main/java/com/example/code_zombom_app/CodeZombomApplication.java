@@ -0,0 +1,49 @@
+package com.example.code_zombom_app;
+
+import android.app.Application;
+import android.net.ConnectivityManager;
+import android.net.Network;
+
+import androidx.annotation.NonNull;
+
+import com.example.code_zombom_app.Helpers.Event.EventService;
+import com.example.code_zombom_app.Helpers.Offline.MutationQueue;
+import com.example.code_zombom_app.Helpers.Offline.OfflineFirestore;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+/**
+ * Sets up Firestore's offline cache before any screen uses it, sends the changes queued while
+ * offline when the app starts and whenever the network comes back, and writes out the buffered
+ * waiting list history when the app goes to the background.
+ *
+ * @version 1.0.0
+ */
+public class CodeZombomApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        OfflineFirestore.configure(FirebaseFirestore.getInstance());
+
+        MutationQueue mutations = MutationQueue.getInstance(this);
+        mutations.replay();
+
+        ConnectivityManager connectivity = getSystemService(ConnectivityManager.class);
+        if (connectivity != null) {
+            connectivity.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(@NonNull Network network) {
+                    mutations.replay();
+                }
+            });
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            EventService.flushSharedHistory();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.example.code_zombom_app.Entrant;
 
 import android.os.Bundle;
 import android.view.View;
+import android.widget.AbsListView;
 import android.widget.ArrayAdapter;
 import android.widget.ListView;
 import android.widget.ProgressBar;
@@ -11,9 +12,9 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.example.code_zombom_app.Helpers.Event.EntrantHistory;
 import com.example.code_zombom_app.R;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.Query;
 
 import java.text.DateFormat;
 import java.util.ArrayList;
@@ -21,16 +22,22 @@ import java.util.Date;
 import java.util.Locale;
 
 /**
- * Displays a simple chronological list of an entrant's event history.
+ * Displays a simple chronological list of an entrant's event history, loading a page at a time
+ * as the list is scrolled.
  */
 public class EntrantHistoryActivity extends AppCompatActivity {
 
     public static final String EXTRA_EMAIL = "Email";
 
+    // Rows left below the visible ones when the next page is asked for
+    private static final int LOAD_AHEAD_ROWS = 5;
+
     private final ArrayList<HistoryEntry> historyEntries = new ArrayList<>();
     private ArrayAdapter<HistoryEntry> adapter;
     private ProgressBar progressBar;
     private TextView emptyView;
+    private EntrantHistory.Pager pager;
+    private boolean loading;
 
     /**
      * Inflates the history layout and wires an ArrayAdapter that renders status and timestamp
@@ -68,6 +75,20 @@ public class EntrantHistoryActivity extends AppCompatActivity {
         };
 
         listView.setAdapter(adapter);
+        listView.setOnScrollListener(new AbsListView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(AbsListView view, int scrollState) {
+            }
+
+            @Override
+            public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount,
+                                 int totalItemCount) {
+                if (totalItemCount > 0
+                        && firstVisibleItem + visibleItemCount >= totalItemCount - LOAD_AHEAD_ROWS) {
+                    loadNextPage();
+                }
+            }
+        });
 
         String email = getIntent().getStringExtra(EXTRA_EMAIL);
         if (email == null || email.trim().isEmpty()) {
@@ -80,38 +101,48 @@ public class EntrantHistoryActivity extends AppCompatActivity {
     }
 
     /**
-     * Loads entrant history from Firestore ordered by the most recent update and displays it
-     * in the list. Shows an empty or error state on failure.
+     * Starts reading the entrant's history from Firestore, most recent update first, and displays
+     * its first page.
      *
      * @param email entrant identifier used as the Profile document id
      */
     private void loadHistory(@NonNull String email) {
+        historyEntries.clear();
+        adapter.notifyDataSetChanged();
+        pager = new EntrantHistory.Pager(FirebaseFirestore.getInstance(), email);
         progressBar.setVisibility(View.VISIBLE);
-        FirebaseFirestore.getInstance()
-                .collection("Profiles")
-                .document(email)
-                .collection("History")
-                .orderBy("updatedAt", Query.Direction.DESCENDING)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    historyEntries.clear();
-                    querySnapshot.getDocuments().forEach(doc -> {
-                        HistoryEntry entry = new HistoryEntry(
-                                doc.getString("eventId"),
-                                doc.getString("eventName"),
-                                doc.getString("status"),
-                                doc.getDate("updatedAt")
-                        );
-                        historyEntries.add(entry);
-                    });
+        loadNextPage();
+    }
+
+    /**
+     * Appends the next page of history to the list, unless a page is already loading or every
+     * entry is shown. Shows an empty or error state on failure of the first page.
+     */
+    private void loadNextPage() {
+        if (pager == null || loading || pager.isExhausted()) {
+            return;
+        }
+        loading = true;
+        pager.next()
+                .addOnSuccessListener(documents -> {
+                    loading = false;
+                    documents.forEach(doc -> historyEntries.add(new HistoryEntry(
+                            doc.getString("eventId"),
+                            doc.getString("eventName"),
+                            doc.getString("status"),
+                            doc.getDate("updatedAt")
+                    )));
                     adapter.notifyDataSetChanged();
                     progressBar.setVisibility(View.GONE);
                     emptyView.setVisibility(historyEntries.isEmpty() ? View.VISIBLE : View.GONE);
                 })
                 .addOnFailureListener(e -> {
+                    loading = false;
                     progressBar.setVisibility(View.GONE);
-                    emptyView.setVisibility(View.VISIBLE);
-                    emptyView.setText(R.string.history_load_error);
+                    if (historyEntries.isEmpty()) {
+                        emptyView.setVisibility(View.VISIBLE);
+                        emptyView.setText(R.string.history_load_error);
+                    }
                 });
     }
 
@@ -28,10 +28,15 @@ import com.example.code_zombom_app.Helpers.Event.Event;
 import com.example.code_zombom_app.Helpers.Event.EventListAdapter;
 import com.example.code_zombom_app.Helpers.Event.EventMapper;
 import com.example.code_zombom_app.Helpers.Event.EventService;
+import com.example.code_zombom_app.Helpers.Event.EventSummary;
+import com.example.code_zombom_app.Helpers.Event.IdempotencyKey;
+import com.example.code_zombom_app.Helpers.Event.MembershipIndex;
 import com.example.code_zombom_app.Helpers.Filter.EventFilter;
 import com.example.code_zombom_app.Helpers.MVC.GModel;
 import com.example.code_zombom_app.Helpers.MVC.TView;
+import com.example.code_zombom_app.Helpers.Offline.MutationQueue;
 import com.example.code_zombom_app.Helpers.Users.Entrant;
+import com.example.code_zombom_app.Helpers.Users.NotificationPreferenceResolver;
 import com.example.code_zombom_app.R;
 import com.example.code_zombom_app.organizer.EventForOrg;
 import com.google.firebase.firestore.FirebaseFirestore;
@@ -56,8 +61,9 @@ public class EntrantMainActivity extends AppCompatActivity implements TView<Entr
     //private EntrantEventListViewModel eventViewModel;
     private ActivityResultLauncher<Intent> filterLauncher;
     private EventListAdapter eventListAdapter;
-    private ArrayList<Event> events;
+    private ArrayList<EventSummary> events;
     private ListView listViewEvent;
+    private EventService eventService;
 
     private boolean isActive = false;
     private AlertDialog qrDialog;
@@ -65,18 +71,27 @@ public class EntrantMainActivity extends AppCompatActivity implements TView<Entr
     private Entrant entrant;
     private ListenerRegistration notificationListener;
     private boolean notificationsEnabled = true;
+    // Joins and leaves queued offline that the server rejected once they were sent
+    private final MutationQueue.RejectionListener rejectionListener =
+            rejection -> runOnUiThread(() -> showQueuedRejection(rejection));
 
     @Override
     protected void onStart() {
         super.onStart();
         isActive = true;
         loadNotificationPreferenceAndStartListener();
+        MutationQueue queue = MutationQueue.getInstance(this);
+        queue.addRejectionListener(rejectionListener);
+        for (MutationQueue.Rejection rejection : queue.takeRejections()) {
+            showQueuedRejection(rejection);
+        }
     }
 
     @Override
     protected void onStop() {
         super.onStop();
         isActive = false;
+        MutationQueue.getInstance(this).removeRejectionListener(rejectionListener);
         if (notificationListener != null) {
             notificationListener.remove();
             notificationListener = null;
@@ -100,6 +115,7 @@ public class EntrantMainActivity extends AppCompatActivity implements TView<Entr
         email = getIntent().getStringExtra("Email"); // Get the email address
 
         events = new ArrayList<>();
+        eventService = new EventService();
         eventListAdapter = new EventListAdapter(this, events, email);
         listViewEvent = findViewById(R.id.listViewEntrantEvent);
         listViewEvent.setAdapter(eventListAdapter);
@@ -159,14 +175,24 @@ public class EntrantMainActivity extends AppCompatActivity implements TView<Entr
 
         controller.bindView();
         model.addView(this);
-        model.loadEvents();
+        model.loadEventSummaries();
+        loadEntrantStatuses();
 
         listViewEvent.setOnItemClickListener((parent, view,
                                               position, id) -> {
-            Event event = events.get(position);
-            if (event != null) {
-                openEventPopUpFromEvent(event);
+            EventSummary summary = events.get(position);
+            if (summary == null) {
+                return;
             }
+            // The list only holds summaries, the full event is loaded when it is opened
+            eventService.loadEvent(summary.getEventId())
+                    .addOnSuccessListener(event -> {
+                        if (isActive) {
+                            openEventPopUpFromEvent(event);
+                        }
+                    })
+                    .addOnFailureListener(e -> Toast.makeText(this,
+                            "Error loading the event", Toast.LENGTH_SHORT).show());
         });
     }
 
@@ -185,7 +211,7 @@ public class EntrantMainActivity extends AppCompatActivity implements TView<Entr
         }
         else if (model.getState() == GModel.State.LOAD_EVENTS_SUCCESS) {
             events.clear();
-            events.addAll(model.getLoadedEvents());
+            events.addAll(model.getLoadedSummaries());
 
             android.util.Log.d("EVENT_LOAD", "Loaded " +
                     events.size() + " events into adapter");
@@ -339,7 +365,7 @@ public class EntrantMainActivity extends AppCompatActivity implements TView<Entr
                 datePickerEndDate.updateDate(nextDay.get(Calendar.YEAR), nextDay.get(Calendar.MONTH),
                         nextDay.get(Calendar.DAY_OF_MONTH));
 
-                model.loadEvents();
+                model.loadEventSummaries();
 
                 dialog.dismiss();
             }
@@ -366,7 +392,7 @@ public class EntrantMainActivity extends AppCompatActivity implements TView<Entr
                     filter.setFilterEndDate(null);
                 }
 
-                model.filterEvent(filter);
+                model.filterEventSummaries(filter);
                 dialog.dismiss();
             }
         });
@@ -427,43 +453,39 @@ public class EntrantMainActivity extends AppCompatActivity implements TView<Entr
         Button join = view.findViewById(R.id.button_entrant_event_full_details_joinWaitingList);
         Button leave = view.findViewById(R.id.button_entrant_event_full_details_leaveWaitingList);
 
-        EventService eventService = new EventService();
-
         if (event != null && event.isInWaitingList(email)) {
             join.setEnabled(false);
             leave.setEnabled(true);
         } else {
-            boolean alreadySelected = event != null && (event.getChosenList().contains(email)
-                    || event.getPendingList().contains(email)
-                    || event.getRegisteredList().contains(email));
+            boolean alreadySelected = event != null && event.hasBeenSelected(email);
             join.setEnabled(!alreadySelected);
             leave.setEnabled(false);
         }
 
+        // One key per join or leave, kept across double taps and renewed once the other button is used
+        final String[] joinRequestId = {IdempotencyKey.newKey()};
+        final String[] leaveRequestId = {IdempotencyKey.newKey()};
+
         join.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
                 try {
                     assert event != null;
-                    if (event.getChosenList().contains(email)
-                            || event.getPendingList().contains(email)
-                            || event.getRegisteredList().contains(email)) {
+                    if (event.hasBeenSelected(email)) {
                         Toast.makeText(v.getContext(),
                                 "You have already been selected for this event.",
                                 Toast.LENGTH_SHORT).show();
                         return;
                     }
                     event.joinWaitingList(email);
-                    for (Event e : events) {
-                        if (e.getEventId().equals(event.getEventId())) {
-                            e.joinWaitingList(email);
-                            break;
-                        }
-                    }
-                    eventService.addEntrantToWaitlist(event.getEventId(), email);
+                    MutationQueue.getInstance(v.getContext()).submit(new MutationQueue.Mutation(
+                            MutationQueue.Type.JOIN, event.getEventId(), email, joinRequestId[0]))
+                            .addOnFailureListener(EntrantMainActivity.this::showRejection);
+                    leaveRequestId[0] = IdempotencyKey.newKey();
                     leave.setEnabled(true);
                     join.setEnabled(false);
-                    eventListAdapter.notifyDataSetChanged();
+                    eventListAdapter.setEntrantStatus(event.getEventId(),
+                            MembershipIndex.Status.WAITING);
                     Toast.makeText(v.getContext(), "Join Waiting list successfully",
                             Toast.LENGTH_SHORT).show();
                 } catch (RuntimeException e) {
@@ -479,18 +501,15 @@ public class EntrantMainActivity extends AppCompatActivity implements TView<Entr
             public void onClick(View v) {
                 assert event != null;
                 event.leaveWaitingList(email);
-                eventService.removeEntrantFromWaitlist(event.getEventId(), email);
-                for (Event e : events) {
-                    if (e.getEventId().equals(event.getEventId())) {
-                        e.leaveWaitingList(email);
-                        break;
-                    }
-                }
+                MutationQueue.getInstance(v.getContext()).submit(new MutationQueue.Mutation(
+                        MutationQueue.Type.LEAVE, event.getEventId(), email, leaveRequestId[0]))
+                        .addOnFailureListener(EntrantMainActivity.this::showRejection);
+                joinRequestId[0] = IdempotencyKey.newKey();
                 leave.setEnabled(false);
                 join.setEnabled(true);
                 Toast.makeText(v.getContext(), "Leave waiting list successfully",
                         Toast.LENGTH_SHORT).show();
-                eventListAdapter.notifyDataSetChanged();
+                eventListAdapter.setEntrantStatus(event.getEventId(), null);
             }
         });
 
@@ -529,17 +548,42 @@ public class EntrantMainActivity extends AppCompatActivity implements TView<Entr
         qrDialog.show();
     }
 
+    private void loadEntrantStatuses() {
+        if (email == null) {
+            return;
+        }
+        eventService.loadEntrantStatuses(email)
+                .addOnSuccessListener(eventListAdapter::setEntrantStatuses)
+                .addOnFailureListener(e -> Log.e("EVENT_LOAD",
+                        "Cannot load the entrant's statuses", e));
+    }
+
+    /**
+     * Tell the entrant the server refused their join or leave, and show their real statuses
+     * again in place of the ones the screen assumed when they tapped.
+     */
+    private void showRejection(Exception e) {
+        Toast.makeText(this, e.getMessage() != null ? e.getMessage()
+                : "Could not update the waiting list", Toast.LENGTH_SHORT).show();
+        loadEntrantStatuses();
+    }
+
+    private void showQueuedRejection(MutationQueue.Rejection rejection) {
+        String error = rejection.getError().getMessage();
+        Toast.makeText(this, getString(R.string.offline_change_rejected,
+                error != null ? error : "Could not update the waiting list"),
+                Toast.LENGTH_LONG).show();
+        loadEntrantStatuses();
+    }
+
     private void loadNotificationPreferenceAndStartListener() {
         if (email == null || email.trim().isEmpty()) {
             return;
         }
-        FirebaseFirestore.getInstance()
-                .collection("Profiles")
-                .document(email)
-                .get()
-                .addOnSuccessListener(snapshot -> {
-                    Boolean enabled = snapshot.getBoolean("notificationEnabled");
-                    notificationsEnabled = enabled == null || enabled;
+        NotificationPreferenceResolver.getInstance()
+                .resolve(email)
+                .addOnSuccessListener(enabled -> {
+                    notificationsEnabled = enabled;
                     if (notificationsEnabled) {
                         startNotificationListener();
                     }
@@ -6,6 +6,9 @@ import com.example.code_zombom_app.Helpers.Event.Event;
 import com.example.code_zombom_app.Helpers.Models.EventModel;
 import com.example.code_zombom_app.Helpers.Filter.EventFilter;
 import com.example.code_zombom_app.Helpers.MVC.TView;
+import com.example.code_zombom_app.Helpers.Metrics.FirestoreCosts;
+import com.example.code_zombom_app.Helpers.Metrics.MetricsRegistry;
+import com.example.code_zombom_app.Helpers.Metrics.OperationMetrics;
 import com.example.code_zombom_app.Helpers.Models.LoadUploadProfileModel;
 import com.example.code_zombom_app.Helpers.Users.Entrant;
 import com.google.firebase.firestore.FirebaseFirestore;
@@ -19,6 +22,10 @@ import com.google.firebase.firestore.QueryDocumentSnapshot;
  * @see EventModel
  */
 public class EntrantMainModel extends EventModel {
+    private static final OperationMetrics FILTER_EVENT =
+            MetricsRegistry.getInstance().operation("EntrantMainModel.filterEvent");
+    private static final FirestoreCosts COSTS = FirestoreCosts.getInstance();
+
     private final String email;
     private Entrant entrant;
 
@@ -50,13 +57,18 @@ public class EntrantMainModel extends EventModel {
      * @see com.example.code_zombom_app.Helpers.Filter.EventFilter
      */
     public void filterEvent(EventFilter filter) {
+        long start = FILTER_EVENT.start();
         db.collection("Events")
                 .get()
                 .addOnSuccessListener(querySnapshot -> {
+                    FILTER_EVENT.succeeded(start, querySnapshot.size());
+                    COSTS.read("EntrantMainModel.filterEvent", querySnapshot);
                     loadedEvents.clear();
                     for (QueryDocumentSnapshot doc : querySnapshot) {
                         try {
+                            long parsing = FILTER_EVENT.start();
                             Event event = doc.toObject(Event.class);
+                            FILTER_EVENT.deserialized(parsing);
                             if (filter.passFilter(event))
                                 loadedEvents.add(event);
                         } // Safely-ignored any incompatible Event document for now
@@ -68,6 +80,7 @@ public class EntrantMainModel extends EventModel {
                     notifyViews();
                 })
                 .addOnFailureListener(e -> {
+                    FILTER_EVENT.failed(start);
                     Log.e("FirebaseFirestore Error", "Cannot query the events", e);
                     setState(State.LOAD_EVENTS_FAILURE);
                     errorMsg = "Cannot query the database for the events";
@@ -75,6 +88,16 @@ public class EntrantMainModel extends EventModel {
                 });
     }
 
+    /**
+     * Filter the events using their summaries only
+     *
+     * @param filter The applied filter
+     * @see #loadEventSummaries()
+     */
+    public void filterEventSummaries(EventFilter filter) {
+        loadEventSummaries(filter);
+    }
+
     /**
      * SUPER unprofessional method to load the profile, but IDGAF anymore
      */
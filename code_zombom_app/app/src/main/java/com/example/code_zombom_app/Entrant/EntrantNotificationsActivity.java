@@ -13,10 +13,12 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 
-import com.example.code_zombom_app.Helpers.Event.EventService;
+import com.example.code_zombom_app.Helpers.Metrics.FirestoreCosts;
+import com.example.code_zombom_app.Helpers.Offline.MutationQueue;
+import com.example.code_zombom_app.Helpers.Users.NotificationPreferenceResolver;
 import com.example.code_zombom_app.R;
+import com.google.android.gms.tasks.Task;
 import com.google.firebase.Timestamp;
-import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
@@ -35,13 +37,15 @@ public class EntrantNotificationsActivity extends AppCompatActivity {
 
     public static final String EXTRA_EMAIL = "Email";
 
-    private static final String PREFS_COLLECTION = "NotificationPreferences";
     private final ArrayList<EntrantNotification> notifications = new ArrayList<>();
     private ArrayAdapter<EntrantNotification> adapter;
     private ProgressBar progressBar;
     private TextView emptyView;
     private String email;
     private FirebaseFirestore firestore;
+    // Responses queued offline that the server rejected once they were sent
+    private final MutationQueue.RejectionListener rejectionListener =
+            rejection -> runOnUiThread(() -> showRejection(rejection));
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
@@ -88,6 +92,22 @@ public class EntrantNotificationsActivity extends AppCompatActivity {
         loadNotifications();
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        MutationQueue queue = MutationQueue.getInstance(this);
+        queue.addRejectionListener(rejectionListener);
+        for (MutationQueue.Rejection rejection : queue.takeRejections()) {
+            showRejection(rejection);
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        MutationQueue.getInstance(this).removeRejectionListener(rejectionListener);
+        super.onStop();
+    }
+
     private void loadNotifications() {
         if (email == null || email.trim().isEmpty()) {
             emptyView.setVisibility(View.VISIBLE);
@@ -96,7 +116,9 @@ public class EntrantNotificationsActivity extends AppCompatActivity {
         }
 
         progressBar.setVisibility(View.VISIBLE);
-        resolveNotificationPreference(email.trim(), enabled -> {
+        NotificationPreferenceResolver.getInstance().resolve(email.trim()).addOnCompleteListener(task -> {
+            // Entrants still get their notifications if the preference cannot be read
+            boolean enabled = !task.isSuccessful() || Boolean.TRUE.equals(task.getResult());
             if (!enabled) {
                 notifications.clear();
                 adapter.notifyDataSetChanged();
@@ -111,6 +133,8 @@ public class EntrantNotificationsActivity extends AppCompatActivity {
                     .orderBy("createdAt", Query.Direction.DESCENDING)
                     .get()
                     .addOnSuccessListener(querySnapshot -> {
+                        FirestoreCosts.getInstance().read("EntrantNotificationsActivity.loadNotifications",
+                                querySnapshot);
                         notifications.clear();
                         for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
                             Date createdAt = extractDate(doc.get("createdAt"));
@@ -155,6 +179,8 @@ public class EntrantNotificationsActivity extends AppCompatActivity {
                 .document(email.trim())
                 .get()
                 .addOnSuccessListener(snapshot -> {
+                    FirestoreCosts.getInstance().read("EntrantNotificationsActivity.fetchResponseStatus",
+                            snapshot);
                     if (!snapshot.exists()) {
                         return;
                     }
@@ -176,59 +202,6 @@ public class EntrantNotificationsActivity extends AppCompatActivity {
                 });
     }
 
-    private void resolveNotificationPreference(@NonNull String rawEmail,
-                                               @NonNull PreferenceCallback callback) {
-        String trimmed = rawEmail.trim();
-        String normalized = trimmed.toLowerCase(Locale.ROOT);
-
-        DocumentReference prefRef = firestore.collection(PREFS_COLLECTION).document(normalized);
-        prefRef.get()
-                .addOnSuccessListener(snapshot -> {
-                    if (snapshot.exists()) {
-                        Boolean enabled = snapshot.getBoolean("notificationEnabled");
-                        callback.onResolved(enabled == null || enabled);
-                    } else {
-                        resolveFromProfiles(trimmed, normalized, callback);
-                    }
-                })
-                .addOnFailureListener(e -> resolveFromProfiles(trimmed, normalized, callback));
-    }
-
-    private void resolveFromProfiles(@NonNull String trimmed,
-                                     @NonNull String normalized,
-                                     @NonNull PreferenceCallback callback) {
-        fetchProfilePreference(trimmed, callback, () ->
-                fetchProfilePreference(normalized, callback, () -> callback.onResolved(true)));
-    }
-
-    private void fetchProfilePreference(@NonNull String documentId,
-                                        @NonNull PreferenceCallback callback,
-                                        @NonNull Runnable fallback) {
-        if (documentId.isEmpty()) {
-            fallback.run();
-            return;
-        }
-        firestore.collection("Profiles").document(documentId)
-                .get()
-                .addOnSuccessListener(snapshot -> {
-                    if (snapshot.exists()) {
-                        Boolean enabled = snapshot.getBoolean("notificationEnabled");
-                        if (enabled != null) {
-                            callback.onResolved(enabled);
-                        } else {
-                            fallback.run();
-                        }
-                    } else {
-                        fallback.run();
-                    }
-                })
-                .addOnFailureListener(e -> fallback.run());
-    }
-
-    private interface PreferenceCallback {
-        void onResolved(boolean enabled);
-    }
-
     private void markSeen(@NonNull EntrantNotification n) {
         n.seen = true;
         adapter.notifyDataSetChanged();
@@ -304,11 +277,15 @@ public class EntrantNotificationsActivity extends AppCompatActivity {
             Toast.makeText(this, R.string.history_missing_email, Toast.LENGTH_SHORT).show();
             return;
         }
-        new EventService().completeRegistration(n.eventId, email.trim())
-                .addOnSuccessListener(unused -> {
+        submit(MutationQueue.Type.REGISTER, n, requestId(n, "register"))
+                .addOnSuccessListener(outcome -> {
                     n.accepted = true;
                     n.registered = true;
                     markInvitationHandled(n);
+                    if (outcome == MutationQueue.Outcome.QUEUED) {
+                        showQueuedToast();
+                        return;
+                    }
                     String successMessage = getString(R.string.entrant_signup_success_message,
                             n.title == null ? getString(R.string.notification_title) : n.title);
                     Toast.makeText(this, successMessage, Toast.LENGTH_LONG).show();
@@ -338,12 +315,15 @@ public class EntrantNotificationsActivity extends AppCompatActivity {
             Toast.makeText(this, R.string.history_missing_email, Toast.LENGTH_SHORT).show();
             return;
         }
-        EventService service = new EventService();
         if (accept) {
-            service.acceptInvitation(n.eventId, email.trim())
-                    .addOnSuccessListener(ignored -> {
+            submit(MutationQueue.Type.ACCEPT, n, requestId(n, "accept"))
+                    .addOnSuccessListener(outcome -> {
                         n.accepted = true;
-                        Toast.makeText(this, R.string.accept, Toast.LENGTH_SHORT).show();
+                        if (outcome == MutationQueue.Outcome.QUEUED) {
+                            showQueuedToast();
+                        } else {
+                            Toast.makeText(this, R.string.accept, Toast.LENGTH_SHORT).show();
+                        }
                         showSignupPrompt(n);
                     })
                     .addOnFailureListener(e -> {
@@ -358,10 +338,14 @@ public class EntrantNotificationsActivity extends AppCompatActivity {
                         }
                     });
         } else {
-            service.declineInvitation(n.eventId, email.trim())
-                    .addOnSuccessListener(ignored -> {
+            submit(MutationQueue.Type.DECLINE, n, requestId(n, "decline"))
+                    .addOnSuccessListener(outcome -> {
                         markInvitationHandled(n);
-                        Toast.makeText(this, R.string.decline, Toast.LENGTH_SHORT).show();
+                        if (outcome == MutationQueue.Outcome.QUEUED) {
+                            showQueuedToast();
+                        } else {
+                            Toast.makeText(this, R.string.decline, Toast.LENGTH_SHORT).show();
+                        }
                     })
                     .addOnFailureListener(e -> Toast.makeText(this,
                             e.getMessage() != null ? e.getMessage() : getString(R.string.history_load_error),
@@ -370,6 +354,38 @@ public class EntrantNotificationsActivity extends AppCompatActivity {
         markSeen(n);
     }
 
+    /**
+     * Responses go through the {@link MutationQueue}, so one made offline is sent once the
+     * device is back online instead of being lost.
+     */
+    private Task<MutationQueue.Outcome> submit(@NonNull MutationQueue.Type type,
+                                               @NonNull EntrantNotification n,
+                                               @Nullable String requestId) {
+        return MutationQueue.getInstance(this)
+                .submit(new MutationQueue.Mutation(type, n.eventId, email, requestId));
+    }
+
+    private void showRejection(@NonNull MutationQueue.Rejection rejection) {
+        String error = rejection.getError().getMessage();
+        Toast.makeText(this, getString(R.string.offline_change_rejected,
+                error != null ? error : getString(R.string.history_load_error)),
+                Toast.LENGTH_LONG).show();
+        loadNotifications();
+    }
+
+    private void showQueuedToast() {
+        Toast.makeText(this, R.string.offline_change_queued, Toast.LENGTH_LONG).show();
+    }
+
+    /**
+     * Responses to an invitation are keyed by its notification, so answering the same
+     * notification twice (double tap, retry after an error) is applied only once.
+     */
+    @Nullable
+    private static String requestId(@NonNull EntrantNotification n, @NonNull String action) {
+        return n.id.isEmpty() ? null : n.id + "/" + action;
+    }
+
     private boolean isInvitation(@Nullable String type) {
         if (type == null) return false;
         return "win".equalsIgnoreCase(type) || "org_selected".equalsIgnoreCase(type);
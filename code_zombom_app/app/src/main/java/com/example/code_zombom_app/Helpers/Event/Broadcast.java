@@ -0,0 +1,214 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.firestore.Exclude;
+import com.google.firebase.firestore.IgnoreExtraProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outbox entry for an organizer broadcast, stored in Events/{id}/Broadcasts/{broadcastId} by the
+ * transaction that reads the event.
+ * <p>
+ * The entry holds the message and the number of recipients, and is expanded into one
+ * notification per recipient by {@link BroadcastDispatcher}. The recipients themselves are
+ * written beside it in {@link RecipientChunks}, so the entry stays small however large the group
+ * is. {@code dispatched} counts how many recipients have
+ * been handled, {@code delivered} how many of them were sent a notification, and
+ * {@code status} whether delivery is still going on, finished or gave up.
+ *
+ * @version 1.0.0
+ * @see BroadcastDispatcher
+ */
+@IgnoreExtraProperties
+public class Broadcast {
+    public static final String COLLECTION = "Broadcasts";
+
+    /**
+     * Delivery state of a broadcast.
+     */
+    public enum Status { PENDING, DELIVERED, FAILED }
+
+    private String broadcastId;
+    private String eventId;
+    private String eventName;
+    private String type;
+    private String message;
+    private int recipientCount;
+    private List<String> recipients;
+    private long createdAt;
+    private int dispatched;
+    private int delivered;
+    private int attempts;
+    private String lastError;
+    private Status status;
+
+    /**
+     * Public no-arg constructor required by Firestore.
+     */
+    public Broadcast() {
+        eventName = "";
+        message = "";
+        recipients = new ArrayList<>();
+        status = Status.PENDING;
+    }
+
+    /**
+     * Build the outbox entry of a broadcast that has not been delivered to anyone yet.
+     *
+     * @param eventId    The event's unique id
+     * @param eventName  The event's name, shown with the notification
+     * @param type       Notification type, e.g. "org_waitlist"
+     * @param message    Text of the notification
+     * @param recipients Emails of the entrants to notify
+     * @return The pending broadcast
+     */
+    @NonNull
+    public static Broadcast of(@NonNull String eventId, @Nullable String eventName,
+                               @NonNull String type, @NonNull String message,
+                               @NonNull List<String> recipients) {
+        Broadcast broadcast = new Broadcast();
+        broadcast.eventId = eventId;
+        broadcast.eventName = eventName == null ? "" : eventName;
+        broadcast.type = type;
+        broadcast.message = message;
+        broadcast.recipients = new ArrayList<>(recipients);
+        broadcast.recipientCount = recipients.size();
+        broadcast.createdAt = System.currentTimeMillis();
+        return broadcast;
+    }
+
+    /**
+     * @return Id of the broadcast's document, which is not stored in the document itself
+     */
+    @Exclude
+    public String getBroadcastId() {
+        return broadcastId;
+    }
+
+    @Exclude
+    public void setBroadcastId(String broadcastId) {
+        this.broadcastId = broadcastId;
+    }
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(String eventId) {
+        this.eventId = eventId;
+    }
+
+    public String getEventName() {
+        return eventName;
+    }
+
+    public void setEventName(String eventName) {
+        this.eventName = eventName;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    /**
+     * @return Number of entrants the broadcast is sent to
+     */
+    public int getRecipientCount() {
+        return recipientCount;
+    }
+
+    public void setRecipientCount(int recipientCount) {
+        this.recipientCount = recipientCount;
+    }
+
+    /**
+     * @return The recipients, empty for an entry loaded from Firestore until they are read from
+     * {@link RecipientChunks}
+     */
+    @Exclude
+    public List<String> getRecipients() {
+        return recipients;
+    }
+
+    @Exclude
+    public void setRecipients(List<String> recipients) {
+        this.recipients = recipients == null ? new ArrayList<>() : recipients;
+        recipientCount = this.recipients.size();
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * @return Number of recipients that have been handled, in the order of {@link #getRecipients()}
+     */
+    public int getDispatched() {
+        return dispatched;
+    }
+
+    public void setDispatched(int dispatched) {
+        this.dispatched = dispatched;
+    }
+
+    /**
+     * @return Number of handled recipients that were sent a notification
+     */
+    public int getDelivered() {
+        return delivered;
+    }
+
+    public void setDelivered(int delivered) {
+        this.delivered = delivered;
+    }
+
+    /**
+     * @return Number of consecutive failed attempts to deliver the next batch
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    /**
+     * @return Message of the last failure, or null if the last attempt succeeded
+     */
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status == null ? Status.PENDING : status;
+    }
+}
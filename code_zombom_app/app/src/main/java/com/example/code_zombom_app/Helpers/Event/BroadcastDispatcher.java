@@ -0,0 +1,241 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import androidx.annotation.NonNull;
+
+import com.example.code_zombom_app.Helpers.Metrics.FirestoreCosts;
+import com.example.code_zombom_app.Helpers.Users.NotificationPreferenceResolver;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers the {@link Broadcast}es queued by organizers: expands each one into a notification per
+ * recipient, written in {@link WriteBatch}es of at most {@link #CHUNK_SIZE} recipients one after
+ * the other so a large broadcast does not arrive as a single burst of writes.
+ * <p>
+ * Every batch also advances the broadcast's {@code dispatched} checkpoint, and notifications are
+ * keyed by the broadcast id and recipient position, so a batch that is retried or resumed after
+ * the app was closed overwrites its notifications instead of sending them twice. A batch that
+ * fails is retried after an exponential backoff; after {@link #MAX_ATTEMPTS} failures in a row the
+ * broadcast is marked {@link Broadcast.Status#FAILED}.
+ *
+ * @version 1.0.0
+ * @see EventService#notifyWaitlistEntrants(String, String)
+ */
+final class BroadcastDispatcher {
+    // Recipients written per batch; far below the batch limit to smooth the write rate
+    static final int CHUNK_SIZE = 100;
+
+    // Failed attempts in a row after which a broadcast is given up
+    static final int MAX_ATTEMPTS = 5;
+
+    static final long BASE_BACKOFF_MS = 1_000;
+    static final long MAX_BACKOFF_MS = 60_000;
+
+    // Broadcasts being delivered by this process, so a resume does not deliver them a second time
+    private static final Set<String> IN_FLIGHT = ConcurrentHashMap.newKeySet();
+
+    private static final FirestoreCosts COSTS = FirestoreCosts.getInstance();
+
+    private static ScheduledExecutorService sharedScheduler;
+
+    private final FirebaseFirestore firestore;
+    private final NotificationPreferenceResolver preferences;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param firestore   Firestore instance the broadcasts are stored in
+     * @param preferences Resolver of the recipients' notification preferences
+     */
+    BroadcastDispatcher(@NonNull FirebaseFirestore firestore,
+                        @NonNull NotificationPreferenceResolver preferences) {
+        this(firestore, preferences, sharedScheduler());
+    }
+
+    /**
+     * @param firestore   Firestore instance the broadcasts are stored in
+     * @param preferences Resolver of the recipients' notification preferences
+     * @param scheduler   Executor that runs the delayed retries
+     */
+    BroadcastDispatcher(@NonNull FirebaseFirestore firestore,
+                        @NonNull NotificationPreferenceResolver preferences,
+                        @NonNull ScheduledExecutorService scheduler) {
+        this.firestore = firestore;
+        this.preferences = preferences;
+        this.scheduler = scheduler;
+    }
+
+    private static synchronized ScheduledExecutorService sharedScheduler() {
+        if (sharedScheduler == null) {
+            sharedScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "broadcast-dispatcher");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return sharedScheduler;
+    }
+
+    /**
+     * Deliver the recipients of a broadcast that have not been handled yet.
+     *
+     * @param broadcast The broadcast, with its id set
+     * @return Task that completes once the broadcast is delivered, or fails once it is given up
+     */
+    Task<Void> dispatch(@NonNull Broadcast broadcast) {
+        DocumentReference broadcastRef = firestore.collection("Events").document(broadcast.getEventId())
+                .collection(Broadcast.COLLECTION).document(broadcast.getBroadcastId());
+        return dispatch(broadcastRef, broadcast);
+    }
+
+    /**
+     * Continue every pending broadcast of an event, e.g. because the app was closed while it was
+     * being delivered. Broadcasts that were given up are left alone.
+     *
+     * @param eventRef The event's document
+     * @return Task that completes once every pending broadcast has been handled
+     */
+    Task<Void> resume(@NonNull DocumentReference eventRef) {
+        return eventRef.collection(Broadcast.COLLECTION)
+                .whereEqualTo("status", Broadcast.Status.PENDING.name())
+                .get()
+                .onSuccessTask(LotteryFanOut.DIRECT, snapshot -> {
+                    COSTS.read("BroadcastDispatcher.resume", snapshot);
+                    List<Task<Void>> dispatches = new ArrayList<>();
+                    for (QueryDocumentSnapshot document : snapshot) {
+                        Broadcast broadcast = document.toObject(Broadcast.class);
+                        broadcast.setBroadcastId(document.getId());
+                        List<String> recipients = new ArrayList<>(broadcast.getRecipientCount());
+                        dispatches.add(RecipientChunks.read(eventRef, broadcast.getBroadcastId(),
+                                broadcast.getRecipientCount(), recipients, null)
+                                .onSuccessTask(LotteryFanOut.DIRECT, ignored -> {
+                                    broadcast.setRecipients(recipients);
+                                    return dispatch(document.getReference(), broadcast);
+                                }));
+                    }
+                    return Tasks.whenAll(dispatches);
+                });
+    }
+
+    private Task<Void> dispatch(DocumentReference broadcastRef, Broadcast broadcast) {
+        String key = broadcastRef.getPath();
+        if (!IN_FLIGHT.add(key)) {
+            return Tasks.forResult(null);
+        }
+        TaskCompletionSource<Void> done = new TaskCompletionSource<>();
+        attempt(broadcastRef, broadcast, key, done);
+        return done.getTask();
+    }
+
+    private void attempt(DocumentReference broadcastRef, Broadcast broadcast, String key,
+                         TaskCompletionSource<Void> done) {
+        sendFrom(broadcastRef, broadcast).addOnCompleteListener(LotteryFanOut.DIRECT, task -> {
+            if (task.isSuccessful()) {
+                IN_FLIGHT.remove(key);
+                done.setResult(null);
+                return;
+            }
+            Exception error = task.getException() != null
+                    ? task.getException() : new IllegalStateException("Broadcast failed");
+            int attempts = broadcast.getAttempts() + 1;
+            broadcast.setAttempts(attempts);
+            broadcast.setLastError(error.getMessage());
+
+            Map<String, Object> failure = new HashMap<>();
+            failure.put("attempts", attempts);
+            failure.put("lastError", error.getMessage());
+            if (attempts >= MAX_ATTEMPTS) {
+                broadcast.setStatus(Broadcast.Status.FAILED);
+                failure.put("status", Broadcast.Status.FAILED.name());
+                broadcastRef.update(failure);
+                IN_FLIGHT.remove(key);
+                done.setException(error);
+                return;
+            }
+            // Recording the failure is best effort, the retry does not depend on it
+            broadcastRef.update(failure);
+            scheduler.schedule(() -> attempt(broadcastRef, broadcast, key, done),
+                    backoffMillis(attempts), TimeUnit.MILLISECONDS);
+        });
+    }
+
+    /**
+     * @param attempts Failed attempts so far, at least one
+     * @return Delay before the next attempt, doubling with every failure up to {@link #MAX_BACKOFF_MS}
+     */
+    static long backoffMillis(int attempts) {
+        int doublings = Math.min(attempts - 1, 16);
+        return Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << doublings);
+    }
+
+    private Task<Void> sendFrom(DocumentReference broadcastRef, Broadcast broadcast) {
+        List<String> recipients = broadcast.getRecipients();
+        int total = recipients.size();
+        int from = broadcast.getDispatched();
+        if (from >= total) {
+            if (broadcast.getStatus() == Broadcast.Status.DELIVERED) {
+                return Tasks.forResult(null);
+            }
+            broadcast.setStatus(Broadcast.Status.DELIVERED);
+            return broadcastRef.update("status", Broadcast.Status.DELIVERED.name());
+        }
+        int to = Math.min(total, from + CHUNK_SIZE);
+        List<String> chunk = new ArrayList<>(recipients.subList(from, to));
+        DocumentReference eventRef = firestore.collection("Events").document(broadcast.getEventId());
+
+        int[] delivered = new int[1];
+        return preferences.resolve(chunk)
+                .onSuccessTask(LotteryFanOut.DIRECT, enabled -> {
+                    WriteBatch batch = firestore.batch();
+                    long now = System.currentTimeMillis();
+                    for (int i = from; i < to; i++) {
+                        String recipient = recipients.get(i);
+                        if (!Boolean.TRUE.equals(enabled.get(recipient))) {
+                            continue;
+                        }
+                        batch.set(eventRef.collection("Notifications")
+                                        .document(broadcast.getBroadcastId() + "_" + i),
+                                EventService.buildNotification(
+                                        recipient,
+                                        broadcast.getType(),
+                                        broadcast.getEventName(),
+                                        now,
+                                        broadcast.getEventId(),
+                                        broadcast.getMessage()
+                                ));
+                        delivered[0]++;
+                    }
+                    Map<String, Object> checkpoint = new HashMap<>();
+                    checkpoint.put("dispatched", to);
+                    checkpoint.put("delivered", broadcast.getDelivered() + delivered[0]);
+                    checkpoint.put("attempts", 0);
+                    checkpoint.put("lastError", null);
+                    checkpoint.put("status", (to == total
+                            ? Broadcast.Status.DELIVERED : Broadcast.Status.PENDING).name());
+                    batch.update(broadcastRef, checkpoint);
+                    return batch.commit();
+                })
+                .onSuccessTask(LotteryFanOut.DIRECT, ignored -> {
+                    broadcast.setDispatched(to);
+                    broadcast.setDelivered(broadcast.getDelivered() + delivered[0]);
+                    broadcast.setAttempts(0);
+                    broadcast.setLastError(null);
+                    broadcast.setStatus(to == total ? Broadcast.Status.DELIVERED : Broadcast.Status.PENDING);
+                    return sendFrom(broadcastRef, broadcast);
+                });
+    }
+}
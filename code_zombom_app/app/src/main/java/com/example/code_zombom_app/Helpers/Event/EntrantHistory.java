@@ -0,0 +1,137 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.code_zombom_app.Helpers.Metrics.FirestoreCosts;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The history of an entrant, stored in Profiles/{email}/History with one document per event
+ * holding their latest status in it. Events/{id}/History records every change of an event, so
+ * reading an entrant's history from there would need a collection group query over every event.
+ * <p>
+ * The entry of an event is written with its other history records by {@link HistoryRecorder}
+ * and {@link LotteryFanOut}. Entries are read a page at a time, most recent first, by a
+ * {@link Pager}.
+ *
+ * @version 1.0.0
+ * @see EventService#buildHistory
+ */
+public final class EntrantHistory {
+    public static final String COLLECTION = "History";
+
+    // Field the entries are ordered by, written by EventService#buildHistory
+    static final String UPDATED_AT = "updatedAt";
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+
+    private static final FirestoreCosts COSTS = FirestoreCosts.getInstance();
+
+    private EntrantHistory() {
+    }
+
+    /**
+     * @param profileRef The entrant's profile document
+     * @param eventId    The event's document id
+     * @return The entry holding the entrant's latest status in the event
+     */
+    @NonNull
+    static DocumentReference entryRef(@NonNull DocumentReference profileRef, @NonNull String eventId) {
+        return profileRef.collection(COLLECTION).document(eventId);
+    }
+
+    /**
+     * Reads the history of an entrant a page at a time, most recent first. Once a page is
+     * returned the next one is already requested, so scrolling to it rarely waits on Firestore.
+     * Pages are continued from the last entry read rather than by offset, so each page costs
+     * only its own reads however long the history is.
+     * <p>
+     * Calls to {@link #next()} must not overlap; wait for a page before asking for the next.
+     */
+    public static final class Pager {
+        private final Query query;
+        private final int pageSize;
+
+        // Last entry of the pages returned so far, or null before the first page
+        @Nullable
+        private DocumentSnapshot cursor;
+        // Request for the page after the cursor, started when the previous page was returned
+        @Nullable
+        private Task<QuerySnapshot> prefetched;
+        private boolean exhausted;
+
+        /**
+         * @param firestore Firestore instance the history is read from
+         * @param email     The entrant's email, i.e. their profile's document id
+         */
+        public Pager(@NonNull FirebaseFirestore firestore, @NonNull String email) {
+            this(firestore, email, DEFAULT_PAGE_SIZE);
+        }
+
+        /**
+         * @param firestore Firestore instance the history is read from
+         * @param email     The entrant's email, i.e. their profile's document id
+         * @param pageSize  Entries per page
+         */
+        public Pager(@NonNull FirebaseFirestore firestore, @NonNull String email, int pageSize) {
+            if (pageSize <= 0) {
+                throw new IllegalArgumentException("Page size must be positive");
+            }
+            this.query = firestore.collection("Profiles")
+                    .document(email.trim())
+                    .collection(COLLECTION)
+                    .orderBy(UPDATED_AT, Query.Direction.DESCENDING);
+            this.pageSize = pageSize;
+        }
+
+        /**
+         * Read the next page of entries.
+         *
+         * @return Task with the entries of the page, empty once every entry was read. A failed
+         * page is requested again by the next call.
+         */
+        public synchronized Task<List<DocumentSnapshot>> next() {
+            if (exhausted) {
+                return Tasks.forResult(Collections.emptyList());
+            }
+            Task<QuerySnapshot> page = prefetched != null ? prefetched : fetch(cursor);
+            prefetched = null;
+            return page.onSuccessTask(LotteryFanOut.DIRECT, snapshot -> {
+                List<DocumentSnapshot> entries = snapshot.getDocuments();
+                synchronized (this) {
+                    if (entries.size() < pageSize) {
+                        // A short page was the last one
+                        exhausted = true;
+                    } else {
+                        cursor = entries.get(entries.size() - 1);
+                        prefetched = fetch(cursor);
+                    }
+                }
+                return Tasks.forResult(entries);
+            });
+        }
+
+        /**
+         * @return Whether every entry was read
+         */
+        public synchronized boolean isExhausted() {
+            return exhausted;
+        }
+
+        private Task<QuerySnapshot> fetch(@Nullable DocumentSnapshot after) {
+            Query page = after == null ? query : query.startAfter(after);
+            return page.limit(pageSize).get().addOnSuccessListener(LotteryFanOut.DIRECT,
+                    snapshot -> COSTS.read("EntrantHistory.Pager.fetch", snapshot));
+        }
+    }
+}
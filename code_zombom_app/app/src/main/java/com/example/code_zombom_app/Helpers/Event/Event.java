@@ -1,20 +1,16 @@
 package com.example.code_zombom_app.Helpers.Event;
 
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.util.Base64;
-
 import com.example.code_zombom_app.Helpers.Location.Location;
 import com.example.code_zombom_app.Helpers.Users.Entrant;
 import com.google.firebase.firestore.Exclude;
 import com.google.firebase.firestore.IgnoreExtraProperties;
-import com.google.zxing.WriterException;
-import com.journeyapps.barcodescanner.BarcodeEncoder;
 
-import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.UUID;
 
@@ -43,6 +39,12 @@ public class Event implements Comparable<Event> {
     // List of selected Entrant's email addresses that have canceled
     private ArrayList<String> cancelledList;
 
+    // Email -> lifecycle status lookup over the five lists above. Built lazily, never persisted
+    private MembershipIndex membership;
+
+    // Read-only views over the five lists above, created once per backing list
+    private final EnumMap<MembershipIndex.Status, List<String>> views =
+            new EnumMap<>(MembershipIndex.Status.class);
 
     // List of all restrictions the event may have
     private ArrayList<String> restrictions;
@@ -91,34 +93,31 @@ public class Event implements Comparable<Event> {
     // Timestamp (ms since epoch) when the draw completed; 0 when not set
     private long drawTimestamp;
 
+    // When true, membership lives in Events/{id}/Entrants/{email} documents and the lists stay empty
+    private boolean shardedEntrants;
+
+    /**
+     * How the lottery of an event picks its winners.
+     */
+    public enum LotteryMode {
+        UNIFORM,        // Every candidate is equally likely to win
+        PRIOR_LOSSES    // Candidates weigh one plus the number of earlier draws they lost
+    }
+
+    // Null in events stored before lottery modes existed, which draw uniformly
+    private LotteryMode lotteryMode;
+
+    // When true, an entrant declining their invitation draws a replacement right away
+    private boolean autoReplaceDeclines;
+
     /* Expand this if you want to add more category */
     private static final String[] acceptedCategories = {
             "Sport", "eSport", "Food", "Music", "Engineering"
     };
 
-    // A unique identifier of each event
+    // A unique identifier of each event. Its QR code is rendered on demand by EventQrCodeService
     private String eventId;
 
-    // Store the QR code that represents the unique id of an event (Base64-encoded PNG)
-    private String eventIdQRcode;
-
-    /**
-     * Flag to control QR code generation in unit tests.
-     * When false, QR code generation is skipped to avoid Android SDK dependencies in JVM tests.
-     * Defaults to true for production behavior.
-     */
-    private static boolean qrCodeGenerationEnabled = true;
-
-    /**
-     * Sets whether QR code generation is enabled.
-     * This is primarily used in unit tests to avoid Android SDK dependencies.
-     *
-     * @param enabled true to enable QR code generation (default), false to disable
-     */
-    public static void setQrCodeGenerationEnabled(boolean enabled) {
-        qrCodeGenerationEnabled = enabled;
-    }
-
     /**
      * Public no-arg constructor required by Firestore.
      * We also initialize sensible defaults here so objects created in code are usable.
@@ -147,17 +146,6 @@ public class Event implements Comparable<Event> {
         drawComplete = false;
         drawTimestamp = 0L;
         waitingEntrantCount = 0;
-
-        // Generate QR code only if enabled (disabled in unit tests to avoid Android SDK dependencies)
-        if (qrCodeGenerationEnabled) {
-            try {
-                generateQRcode();
-            } catch (WriterException e) {
-                eventIdQRcode = null;
-            }
-        } else {
-            eventIdQRcode = null;
-        }
     }
 
     /**
@@ -196,6 +184,7 @@ public class Event implements Comparable<Event> {
      * @since 1.0.0
      * @see ArrayList
      * @see Entrant
+     * @see #getWaitingListView()
      */
     public ArrayList<String> getWaitingList() {
         return new ArrayList<>(this.waitingList);
@@ -207,6 +196,8 @@ public class Event implements Comparable<Event> {
     @SuppressWarnings("unused")
     public void setWaitingList(ArrayList<String> waitingList) {
         this.waitingList = (waitingList == null) ? new ArrayList<>() : waitingList;
+        membership = null;
+        views.clear();
     }
 
     /**
@@ -243,14 +234,11 @@ public class Event implements Comparable<Event> {
             throw new RuntimeException("Waitlist is full");
         }
 
-        if (!waitingList.contains(entrant)) {
-            waitingList.add(entrant);
+        if (addMember(MembershipIndex.Status.WAITING, entrant)) {
             waitingEntrantCount++;
         }
     }
 
-
-
     /**
      * Remove an entrant from the waiting list. An entrant can call this method if they wish
      * to leave the waiting list
@@ -260,8 +248,7 @@ public class Event implements Comparable<Event> {
      * @since 1.0.0
      */
     public void leaveWaitingList(String entrant) {
-        this.waitingList.remove(entrant);
-        waitingEntrantCount--;
+        removeEntrant(entrant, MembershipIndex.Status.WAITING);
     }
 
     /**
@@ -271,7 +258,7 @@ public class Event implements Comparable<Event> {
      * @return true if the entrant is in the waiting list, false otherwise
      */
     public boolean isInWaitingList(String entrant) {
-        return waitingList.contains(entrant);
+        return hasStatus(entrant, MembershipIndex.Status.WAITING);
     }
 
     /**
@@ -468,8 +455,7 @@ public class Event implements Comparable<Event> {
      * @since 1.0.0
      */
     public void addChosenEntrant(String cEntrant) {
-        if (!chosenList.contains(cEntrant))
-            this.chosenList.add(cEntrant);
+        addMember(MembershipIndex.Status.CHOSEN, cEntrant);
     }
 
     /**
@@ -480,7 +466,7 @@ public class Event implements Comparable<Event> {
      * @since 1.0.0
      */
     public void removeChosenEntrant(String cEntrant) {
-        this.chosenList.remove(cEntrant);
+        removeMember(MembershipIndex.Status.CHOSEN, cEntrant);
     }
 
     /**
@@ -490,6 +476,7 @@ public class Event implements Comparable<Event> {
      * @see ArrayList
      * @see Entrant
      * @since 1.0.0
+     * @see #getChosenListView()
      */
     public ArrayList<String> getChosenList() {
         return new ArrayList<>(this.chosenList);
@@ -501,6 +488,8 @@ public class Event implements Comparable<Event> {
      */
     public void setChosenList(ArrayList<String> chosenList) {
         this.chosenList = (chosenList == null) ? new ArrayList<>() : chosenList;
+        membership = null;
+        views.clear();
     }
 
     /**
@@ -512,8 +501,7 @@ public class Event implements Comparable<Event> {
      * @since 1.0.0
      */
     public void addPendingEntrant(String pEntrant) {
-        if (!pendingList.contains(pEntrant))
-            this.pendingList.add(pEntrant);
+        addMember(MembershipIndex.Status.PENDING, pEntrant);
     }
 
     /**
@@ -524,7 +512,7 @@ public class Event implements Comparable<Event> {
      * @since 1.0.0
      */
     public void removePendingEntrant(String pEntrant) {
-        this.pendingList.remove(pEntrant);
+        removeMember(MembershipIndex.Status.PENDING, pEntrant);
     }
 
     /**
@@ -534,6 +522,7 @@ public class Event implements Comparable<Event> {
      * @see ArrayList
      * @see Entrant
      * @since 1.0.0
+     * @see #getPendingListView()
      */
     public ArrayList<String> getPendingList() {
         return new ArrayList<>(this.pendingList);
@@ -542,6 +531,8 @@ public class Event implements Comparable<Event> {
     @SuppressWarnings("unused")
     public void setPendingList(ArrayList<String> pendingList) {
         this.pendingList = (pendingList == null) ? new ArrayList<>() : pendingList;
+        membership = null;
+        views.clear();
     }
 
     /**
@@ -553,8 +544,7 @@ public class Event implements Comparable<Event> {
      * @since 1.0.0
      */
     public void addRegisteredEntrant(String rEntrant) {
-        if (!registeredList.contains(rEntrant))
-            this.registeredList.add(rEntrant);
+        addMember(MembershipIndex.Status.REGISTERED, rEntrant);
     }
 
     /**
@@ -565,7 +555,7 @@ public class Event implements Comparable<Event> {
      * @since 1.0.0
      */
     public void removeRegisteredEntrant(String rEntrant) {
-        this.registeredList.remove(rEntrant);
+        removeMember(MembershipIndex.Status.REGISTERED, rEntrant);
     }
 
     /**
@@ -575,6 +565,7 @@ public class Event implements Comparable<Event> {
      * @see ArrayList
      * @see Entrant
      * @since 1.0.0
+     * @see #getRegisteredListView()
      */
     public ArrayList<String> getRegisteredList() {
         return new ArrayList<>(this.registeredList);
@@ -586,6 +577,8 @@ public class Event implements Comparable<Event> {
      */
     public void setRegisteredList(ArrayList<String> registeredList) {
         this.registeredList = (registeredList == null) ? new ArrayList<>() : registeredList;
+        membership = null;
+        views.clear();
     }
 
     /**
@@ -629,6 +622,42 @@ public class Event implements Comparable<Event> {
                 (lotterySelectionGuidelines == null) ? new ArrayList<>() : lotterySelectionGuidelines;
     }
 
+    /**
+     * Get how the lottery of this event picks its winners
+     *
+     * @return The lottery mode, {@link LotteryMode#UNIFORM} unless another one was chosen
+     */
+    public LotteryMode getLotteryMode() {
+        return lotteryMode == null ? LotteryMode.UNIFORM : lotteryMode;
+    }
+
+    /**
+     * Set how the lottery of this event picks its winners
+     *
+     * @param lotteryMode The lottery mode, or null for {@link LotteryMode#UNIFORM}
+     */
+    public void setLotteryMode(LotteryMode lotteryMode) {
+        this.lotteryMode = lotteryMode;
+    }
+
+    /**
+     * Check whether a replacement is drawn as soon as a chosen entrant declines
+     *
+     * @return True if declines are replaced automatically
+     */
+    public boolean isAutoReplaceDeclines() {
+        return autoReplaceDeclines;
+    }
+
+    /**
+     * Set whether a replacement is drawn as soon as a chosen entrant declines
+     *
+     * @param autoReplaceDeclines True to replace declines automatically
+     */
+    public void setAutoReplaceDeclines(boolean autoReplaceDeclines) {
+        this.autoReplaceDeclines = autoReplaceDeclines;
+    }
+
     /**
      * Get the event identifier
      *
@@ -650,9 +679,10 @@ public class Event implements Comparable<Event> {
     /**
      * Get the cancelled list
      * @return A deep-copy of the cancelled list
+     * @see #getCancelledListView()
      */
     public ArrayList<String> getCancelledList() {
-        return cancelledList;
+        return new ArrayList<>(this.cancelledList);
     }
 
     /**
@@ -661,6 +691,8 @@ public class Event implements Comparable<Event> {
      */
     public void setCancelledList(ArrayList<String> cancelledList) {
         this.cancelledList = (cancelledList == null) ? new ArrayList<>() : cancelledList;
+        membership = null;
+        views.clear();
     }
 
     /**
@@ -668,9 +700,15 @@ public class Event implements Comparable<Event> {
      * @param email
      */
     public void addCancelledEntrant(String email) {
-        if (!cancelledList.contains(email)) {
-            cancelledList.add(email);
-        }
+        addMember(MembershipIndex.Status.CANCELLED, email);
+    }
+
+    /**
+     * Remove an entrant from the cancelled list (when they accept an invitation after all)
+     * @param email
+     */
+    public void removeCancelledEntrant(String email) {
+        removeMember(MembershipIndex.Status.CANCELLED, email);
     }
 
     /**
@@ -678,7 +716,243 @@ public class Event implements Comparable<Event> {
      * @param email
      */
     public void leavePendingList(String email) {
-        pendingList.remove(email);
+        removeMember(MembershipIndex.Status.PENDING, email);
+    }
+
+    /**
+     * Check whether an entrant currently has a lifecycle status in this event. The lookup is
+     * answered by the membership index in constant time.
+     *
+     * @param email  The entrant's email address
+     * @param status The status to check
+     * @return true if the entrant is in the list of that status, false otherwise
+     * @see MembershipIndex
+     */
+    public boolean hasStatus(String email, MembershipIndex.Status status) {
+        return membership().contains(email, status);
+    }
+
+    /**
+     * Check whether an entrant has won the lottery of this event, whatever they did afterwards
+     * (still deciding, accepted or registered).
+     *
+     * @param email The entrant's email address
+     * @return true if the entrant is chosen, pending or registered, false otherwise
+     */
+    public boolean hasBeenSelected(String email) {
+        return membership().containsAny(email, MembershipIndex.Status.CHOSEN,
+                MembershipIndex.Status.PENDING, MembershipIndex.Status.REGISTERED);
+    }
+
+    /**
+     * Move an entrant from one lifecycle list to another in a single step, so the entrant is never
+     * observed in both lists or in neither of them.
+     *
+     * @param email The entrant's email address
+     * @param from  The status the entrant must currently have
+     * @param to    The status to give to the entrant
+     * @return true if the entrant was moved, false if they did not have the status {@code from}
+     */
+    public boolean moveEntrant(String email, MembershipIndex.Status from, MembershipIndex.Status to) {
+        if (!removeEntrant(email, from)) {
+            return false;
+        }
+        if (addMember(to, email) && to == MembershipIndex.Status.WAITING) {
+            waitingEntrantCount++;
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of entrants that currently have a lifecycle status, without copying the list.
+     *
+     * @param status The status to count
+     * @return The number of entrants in the list of that status
+     */
+    public int countEntrants(MembershipIndex.Status status) {
+        return listFor(status).size();
+    }
+
+    /**
+     * Get a read-only view of the entrants that currently have a lifecycle status. Unlike the
+     * list getters, no copy is made: the view reflects later changes to the event, so copy it
+     * before changing the event while iterating over it.
+     *
+     * @param status The status of the entrants
+     * @return An unmodifiable live view of the list of that status
+     */
+    public List<String> viewEntrants(MembershipIndex.Status status) {
+        List<String> view = views.get(status);
+        if (view == null) {
+            view = Collections.unmodifiableList(listFor(status));
+            views.put(status, view);
+        }
+        return view;
+    }
+
+    /**
+     * @return An unmodifiable live view of the waiting list
+     * @see #viewEntrants(MembershipIndex.Status)
+     */
+    @Exclude
+    public List<String> getWaitingListView() {
+        return viewEntrants(MembershipIndex.Status.WAITING);
+    }
+
+    /**
+     * @return An unmodifiable live view of the chosen list
+     * @see #viewEntrants(MembershipIndex.Status)
+     */
+    @Exclude
+    public List<String> getChosenListView() {
+        return viewEntrants(MembershipIndex.Status.CHOSEN);
+    }
+
+    /**
+     * @return An unmodifiable live view of the pending list
+     * @see #viewEntrants(MembershipIndex.Status)
+     */
+    @Exclude
+    public List<String> getPendingListView() {
+        return viewEntrants(MembershipIndex.Status.PENDING);
+    }
+
+    /**
+     * @return An unmodifiable live view of the registered list
+     * @see #viewEntrants(MembershipIndex.Status)
+     */
+    @Exclude
+    public List<String> getRegisteredListView() {
+        return viewEntrants(MembershipIndex.Status.REGISTERED);
+    }
+
+    /**
+     * @return An unmodifiable live view of the cancelled list
+     * @see #viewEntrants(MembershipIndex.Status)
+     */
+    @Exclude
+    public List<String> getCancelledListView() {
+        return viewEntrants(MembershipIndex.Status.CANCELLED);
+    }
+
+    /**
+     * Give an entrant a lifecycle status, appending them to the list of that status. Joining the
+     * waiting list this way still honours the waitlist limit.
+     *
+     * @param email  The entrant's email address
+     * @param status The status to give
+     * @return true if the entrant was added, false if they already had the status
+     * @throws RuntimeException If the status is WAITING and the waiting list is full
+     */
+    public boolean addEntrant(String email, MembershipIndex.Status status) {
+        if (status == MembershipIndex.Status.WAITING) {
+            int before = waitingEntrantCount;
+            joinWaitingList(email);
+            return waitingEntrantCount != before;
+        }
+        return addMember(status, email);
+    }
+
+    /**
+     * Take a lifecycle status away from an entrant, removing them from the list of that status.
+     *
+     * @param email  The entrant's email address
+     * @param status The status to take away
+     * @return true if the entrant was removed, false if they did not have the status
+     */
+    public boolean removeEntrant(String email, MembershipIndex.Status status) {
+        if (!removeMember(status, email)) {
+            return false;
+        }
+        if (status == MembershipIndex.Status.WAITING) {
+            waitingEntrantCount = Math.max(0, waitingEntrantCount - 1);
+        }
+        return true;
+    }
+
+    /**
+     * Remove every entrant from the list of a lifecycle status.
+     *
+     * @param status The status to clear
+     */
+    public void clearEntrants(MembershipIndex.Status status) {
+        ArrayList<String> list = listFor(status);
+        if (membership != null) {
+            for (String email : list) {
+                membership.remove(email, status);
+            }
+        }
+        list.clear();
+        if (status == MembershipIndex.Status.WAITING) {
+            waitingEntrantCount = 0;
+        }
+    }
+
+    /**
+     * Add an entrant to the list of a status if they are not already in it.
+     *
+     * @return true if the entrant was added, false if they were already in the list
+     */
+    private boolean addMember(MembershipIndex.Status status, String email) {
+        if (!membership().add(email, status)) {
+            return false;
+        }
+        listFor(status).add(email);
+        return true;
+    }
+
+    /**
+     * Remove an entrant from the list of a status.
+     *
+     * @return true if the entrant was removed, false if they were not in the list
+     */
+    private boolean removeMember(MembershipIndex.Status status, String email) {
+        if (!membership().remove(email, status)) {
+            return false;
+        }
+        listFor(status).remove(email);
+        return true;
+    }
+
+    /**
+     * @return The backing list of a status
+     */
+    private ArrayList<String> listFor(MembershipIndex.Status status) {
+        switch (status) {
+            case WAITING:
+                return waitingList;
+            case CHOSEN:
+                return chosenList;
+            case PENDING:
+                return pendingList;
+            case REGISTERED:
+                return registeredList;
+            default:
+                return cancelledList;
+        }
+    }
+
+    /**
+     * Get the membership index, rebuilding it from the lists if they have been replaced since it
+     * was last built. Duplicated emails in a list (e.g. written by an older client) are dropped so
+     * the lists and the index agree.
+     *
+     * @return The membership index of this event
+     */
+    private MembershipIndex membership() {
+        if (membership == null) {
+            MembershipIndex index = new MembershipIndex();
+            for (MembershipIndex.Status status : MembershipIndex.Status.values()) {
+                ArrayList<String> list = listFor(status);
+                if (!index.addAll(list, status)) {
+                    LinkedHashSet<String> distinct = new LinkedHashSet<>(list);
+                    list.clear();
+                    list.addAll(distinct);
+                }
+            }
+            membership = index;
+        }
+        return membership;
     }
 
 
@@ -845,55 +1119,29 @@ public class Event implements Comparable<Event> {
     }
 
     /**
-     * @return The accepted categories
-     */
-    public static String[] getAcceptedCategories() {
-        return acceptedCategories;
-    }
-
-    /**
-     * @return The eventId's QR code (Base64-encoded PNG)
+     * Choose where the membership of this event is stored. Large events should keep it in one
+     * Events/{id}/Entrants/{email} document per entrant, so joins do not rewrite (and contend on)
+     * the event document and the waiting list is not capped by the document size limit.
+     *
+     * @param shardedEntrants true to store membership per entrant, false to use the lists
+     * @see ShardedEntrants
      */
-    public String getEventIdQRcode() {
-        return eventIdQRcode;
-    }
-
-    @SuppressWarnings("unused")
-    public void setEventIdQRcode(String eventIdQRcode) {
-        this.eventIdQRcode = eventIdQRcode;
+    public void setShardedEntrants(boolean shardedEntrants) {
+        this.shardedEntrants = shardedEntrants;
     }
 
     /**
-     * @return The Bitmap for the eventId's QR code (not serializable to Firestore)
+     * @return true if the membership of this event is stored per entrant instead of in the lists
      */
-    @Exclude
-    public Bitmap getEventIdBitmap() {
-        if (eventIdQRcode == null || eventIdQRcode.isEmpty()) {
-            return null;
-        }
-        byte[] data = Base64.decode(eventIdQRcode, Base64.DEFAULT);
-        return BitmapFactory.decodeByteArray(data, 0, data.length);
+    public boolean isShardedEntrants() {
+        return shardedEntrants;
     }
 
     /**
-     * Generate a QR code for the event's id and store it as a String
-     *
-     * @throws WriterException If the QR code generation fails
+     * @return The accepted categories
      */
-    private void generateQRcode() throws WriterException {
-        BarcodeEncoder barcodeEncoder = new BarcodeEncoder();
-        Bitmap bitmap = barcodeEncoder.encodeBitmap(
-                eventId,
-                com.google.zxing.BarcodeFormat.QR_CODE,
-                200,
-                200
-        );
-
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        bitmap.compress(Bitmap.CompressFormat.PNG, 100, baos);
-        byte[] bytes = baos.toByteArray();
-
-        eventIdQRcode = Base64.encodeToString(bytes, Base64.DEFAULT);
+    public static String[] getAcceptedCategories() {
+        return acceptedCategories;
     }
 
     /**
@@ -950,7 +1198,7 @@ public class Event implements Comparable<Event> {
     public static class SortEventLeastRestriction implements Comparator<Event> {
         @Override
         public int compare(Event o1, Event o2) {
-            return Integer.compare(o1.getRestrictions().size(), o2.getRestrictions().size());
+            return Integer.compare(o1.restrictions.size(), o2.restrictions.size());
         }
     }
 
@@ -0,0 +1,211 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.code_zombom_app.Helpers.Metrics.FirestoreCosts;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Deletes events together with every subcollection stored under them. Firestore does not delete
+ * the subcollections of a deleted document, and collection group queries on "History" or
+ * "Notifications" would otherwise keep scanning the orphans.
+ * <p>
+ * Each subcollection is deleted a page of {@link #PAGE_SIZE} documents at a time, one
+ * {@link WriteBatch} per page, and at most {@link #PARALLELISM} subcollections at once. The
+ * event's summary is marked {@link #DELETING} before anything is deleted and removed last, so a
+ * deletion that stopped part way is continued by {@link #resume()}. Deleted documents no longer
+ * match the page query, so continuing needs no other checkpoint.
+ *
+ * @version 1.0.0
+ * @see EventService#deleteEvent(String)
+ */
+final class EventDeleter {
+    // Field set on the summary of an event while it is being deleted
+    static final String DELETING = "deleting";
+
+    static final int PAGE_SIZE = EventService.MAX_BATCH_WRITES;
+
+    // Pages being deleted at the same time, across the subcollections of an event
+    static final int PARALLELISM = 4;
+
+    // Every subcollection EventService writes under an event
+    static final List<String> SUBCOLLECTIONS = Arrays.asList(
+            "History",
+            "Notifications",
+            "Responses",
+            EventService.REQUESTS,
+            Broadcast.COLLECTION,
+            LotteryDraw.COLLECTION,
+            RecipientChunks.COLLECTION,
+            ShardedEntrants.COLLECTION,
+            ShardedCounter.COLLECTION);
+
+    private static final FirestoreCosts COSTS = FirestoreCosts.getInstance();
+
+    private final FirebaseFirestore firestore;
+
+    /**
+     * @param firestore Firestore instance the events are deleted from
+     */
+    EventDeleter(@NonNull FirebaseFirestore firestore) {
+        this.firestore = firestore;
+    }
+
+    /**
+     * Delete an event, its subcollections and its summary.
+     *
+     * @param eventId  The event's document id
+     * @param listener Told how many documents were deleted so far, or null
+     * @return Task that completes once the summary, the last document, is deleted
+     */
+    Task<Void> delete(@NonNull String eventId, @Nullable EventService.DeletionListener listener) {
+        DocumentReference eventRef = firestore.collection("Events").document(eventId);
+        DocumentReference summaryRef = firestore.collection(EventSummary.COLLECTION).document(eventId);
+        AtomicLong deleted = new AtomicLong();
+
+        Map<String, Object> marker = new HashMap<>();
+        marker.put(DELETING, true);
+        return summaryRef.set(marker, SetOptions.merge())
+                .onSuccessTask(LotteryFanOut.DIRECT, ignored -> {
+                    List<Supplier<Task<Void>>> subcollections = new ArrayList<>();
+                    for (String name : SUBCOLLECTIONS) {
+                        subcollections.add(() -> deleteCollection(eventRef.collection(name),
+                                eventId, deleted, listener));
+                    }
+                    return bounded(subcollections, PARALLELISM);
+                })
+                .onSuccessTask(LotteryFanOut.DIRECT, ignored -> eventRef.delete())
+                .onSuccessTask(LotteryFanOut.DIRECT, ignored -> summaryRef.delete())
+                .onSuccessTask(LotteryFanOut.DIRECT, ignored -> {
+                    if (listener != null) {
+                        listener.onProgress(eventId, deleted.incrementAndGet(), true);
+                    }
+                    return Tasks.forResult(null);
+                });
+    }
+
+    /**
+     * Delete several events, one after the other. An event that fails to delete does not stop
+     * the others; it stays marked and is continued by {@link #resume()}.
+     *
+     * @param eventIds The events' document ids
+     * @param listener Told how many documents of each event were deleted so far, or null
+     * @return Task that fails with the first error once every event was attempted
+     */
+    Task<Void> deleteAll(@NonNull Collection<String> eventIds,
+                         @Nullable EventService.DeletionListener listener) {
+        List<Supplier<Task<Void>>> events = new ArrayList<>();
+        for (String eventId : new LinkedHashSet<>(eventIds)) {
+            events.add(() -> delete(eventId, listener));
+        }
+        return bounded(events, 1);
+    }
+
+    /**
+     * Continue every deletion that did not finish, e.g. because the app was closed.
+     *
+     * @param listener Told how many documents of each event were deleted so far, or null
+     * @return Task that completes once every marked event is deleted
+     */
+    Task<Void> resume(@Nullable EventService.DeletionListener listener) {
+        return firestore.collection(EventSummary.COLLECTION)
+                .whereEqualTo(DELETING, true)
+                .get()
+                .onSuccessTask(LotteryFanOut.DIRECT, snapshot -> {
+                    COSTS.read("EventDeleter.resume", snapshot);
+                    List<String> eventIds = new ArrayList<>();
+                    for (QueryDocumentSnapshot document : snapshot) {
+                        eventIds.add(document.getId());
+                    }
+                    return deleteAll(eventIds, listener);
+                });
+    }
+
+    private Task<Void> deleteCollection(CollectionReference collection, String eventId,
+                                        AtomicLong deleted,
+                                        @Nullable EventService.DeletionListener listener) {
+        return collection.limit(PAGE_SIZE).get().onSuccessTask(LotteryFanOut.DIRECT, page -> {
+            COSTS.read("EventDeleter.deleteCollection", page);
+            List<DocumentReference> documents = new ArrayList<>();
+            for (QueryDocumentSnapshot document : page) {
+                documents.add(document.getReference());
+            }
+            if (documents.isEmpty()) {
+                return Tasks.forResult(null);
+            }
+            WriteBatch batch = firestore.batch();
+            for (DocumentReference document : documents) {
+                batch.delete(document);
+            }
+            int pageSize = documents.size();
+            return batch.commit().onSuccessTask(LotteryFanOut.DIRECT, ignored -> {
+                long total = deleted.addAndGet(pageSize);
+                if (listener != null) {
+                    listener.onProgress(eventId, total, false);
+                }
+                // A short page was the last one
+                return pageSize < PAGE_SIZE ? Tasks.forResult(null)
+                        : deleteCollection(collection, eventId, deleted, listener);
+            });
+        });
+    }
+
+    /**
+     * Run jobs with at most the given number running at once. Every job runs even if another
+     * failed.
+     *
+     * @return Task that fails with the first error once every job finished
+     */
+    static Task<Void> bounded(@NonNull List<Supplier<Task<Void>>> jobs, int parallelism) {
+        AtomicInteger next = new AtomicInteger();
+        AtomicReference<Exception> firstError = new AtomicReference<>();
+        List<Task<Void>> workers = new ArrayList<>();
+        for (int i = 0; i < Math.min(parallelism, jobs.size()); i++) {
+            workers.add(work(jobs, next, firstError));
+        }
+        return Tasks.whenAll(workers).continueWithTask(LotteryFanOut.DIRECT, ignored ->
+                firstError.get() == null ? Tasks.forResult(null)
+                        : Tasks.forException(firstError.get()));
+    }
+
+    private static Task<Void> work(List<Supplier<Task<Void>>> jobs, AtomicInteger next,
+                                   AtomicReference<Exception> firstError) {
+        int index = next.getAndIncrement();
+        if (index >= jobs.size()) {
+            return Tasks.forResult(null);
+        }
+        Task<Void> job;
+        try {
+            job = jobs.get(index).get();
+        } catch (RuntimeException e) {
+            job = Tasks.forException(e);
+        }
+        return job.continueWithTask(LotteryFanOut.DIRECT, task -> {
+            if (!task.isSuccessful()) {
+                firstError.compareAndSet(null, task.getException() != null
+                        ? task.getException() : new IllegalStateException("Deletion failed"));
+            }
+            return work(jobs, next, firstError);
+        });
+    }
+}
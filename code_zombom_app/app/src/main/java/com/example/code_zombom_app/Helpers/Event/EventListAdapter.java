@@ -21,22 +21,27 @@ import androidx.annotation.Nullable;
 
 import com.example.code_zombom_app.R;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
- * A class to support the representation of an Event on a list view
+ * A class to support the representation of an Event on a list view. Rows are bound from
+ * {@link EventSummary} documents, so the list never loads the membership lists of its events; the
+ * current entrant's own status in each event is supplied separately.
  *
  * @author Dang Nguyen
  * @version 11/24/2025
- * @see Event
+ * @see EventSummary
  * @see android.widget.ListView
  * @see android.widget.ArrayAdapter
  */
-public class EventListAdapter extends ArrayAdapter<Event> {
+public class EventListAdapter extends ArrayAdapter<EventSummary> {
 
     private final LayoutInflater inflater;
     private final EventService eventService;
     private final String email;
+    private final Map<String, MembershipIndex.Status> statuses = new HashMap<>();
 
     // Holds per-row views
     private static class ViewHolder {
@@ -52,7 +57,7 @@ public class EventListAdapter extends ArrayAdapter<Event> {
     }
 
     public EventListAdapter(@NonNull Context context,
-                            @NonNull List<Event> events,
+                            @NonNull List<EventSummary> events,
                             @Nullable String entrant) {
         super(context, 0, events);
         this.inflater = LayoutInflater.from(context);
@@ -60,6 +65,35 @@ public class EventListAdapter extends ArrayAdapter<Event> {
         this.email = entrant;
     }
 
+    /**
+     * Replace the statuses of the entrant in the listed events.
+     *
+     * @param entrantStatuses Map of event id to the entrant's status in that event
+     * @see EventService#loadEntrantStatuses(String)
+     */
+    public void setEntrantStatuses(@NonNull Map<String, MembershipIndex.Status> entrantStatuses) {
+        statuses.clear();
+        statuses.putAll(entrantStatuses);
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Record a change of the entrant's status in one event, e.g. after they joined it from
+     * another screen.
+     *
+     * @param eventId The event's id
+     * @param status  The entrant's new status, null if they are no longer part of the event
+     */
+    public void setEntrantStatus(@NonNull String eventId, @Nullable MembershipIndex.Status status) {
+        MembershipIndex.Status previous = status == null
+                ? statuses.remove(eventId)
+                : statuses.put(eventId, status);
+        if (previous != status) {
+            adjustWaitingCount(eventId, previous, status);
+        }
+        notifyDataSetChanged();
+    }
+
     @NonNull
     @Override
     public View getView(int position,
@@ -86,7 +120,7 @@ public class EventListAdapter extends ArrayAdapter<Event> {
             holder = (ViewHolder) convertView.getTag();
         }
 
-        Event event = getItem(position);
+        EventSummary event = getItem(position);
         if (event == null) {
             // Nothing to bind
             return convertView;
@@ -95,10 +129,11 @@ public class EventListAdapter extends ArrayAdapter<Event> {
         holder.name.setText("Name: " + event.getName());
         holder.genre.setText(event.getGenre() == null ? "Genre: -" : "Genre: " + event.getGenre());
 
+        long waiting = event.getWaitingCount();
         int waitLimit = event.getWaitlistLimit();
         String waitlistLabel = (waitLimit > 0)
-                ? "Waiting list: " + event.getNumberOfWaiting() + "/" + waitLimit
-                : "Waiting list: " + event.getNumberOfWaiting();
+                ? "Waiting list: " + waiting + "/" + waitLimit
+                : "Waiting list: " + waiting;
         holder.numWaitList.setText(waitlistLabel);
 
         if (event.getEventStartDate() != null) {
@@ -121,15 +156,13 @@ public class EventListAdapter extends ArrayAdapter<Event> {
 
         holder.details.setText("Descriptions: " + event.getDescription());
 
+        MembershipIndex.Status status = statuses.get(event.getEventId());
         if (email == null) {
             holder.joinButton.setEnabled(false);
             holder.leaveButton.setEnabled(false);
         } else {
-            boolean alreadyInWaitlist = event.isInWaitingList(email);
-            boolean alreadySelected = event.getChosenList().contains(email)
-                    || event.getPendingList().contains(email)
-                    || event.getRegisteredList().contains(email);
-            holder.joinButton.setEnabled(!alreadyInWaitlist && !alreadySelected);
+            boolean alreadyInWaitlist = status == MembershipIndex.Status.WAITING;
+            holder.joinButton.setEnabled(!alreadyInWaitlist && !isSelected(status));
             holder.leaveButton.setEnabled(alreadyInWaitlist);
         }
 
@@ -144,26 +177,26 @@ public class EventListAdapter extends ArrayAdapter<Event> {
             android.util.Log.d("ADAPTER_BTN",
                     "Join clicked at position " + position + " for event " + event.getEventId());
 
-            if (event.getChosenList().contains(email)
-                    || event.getPendingList().contains(email)
-                    || event.getRegisteredList().contains(email)) {
+            if (isSelected(statuses.get(event.getEventId()))) {
                 Toast.makeText(getContext(),
                         "You have already been selected for this event.",
                         Toast.LENGTH_SHORT).show();
                 return;
             }
 
-            try {
-                event.joinWaitingList(email);
-                eventService.addEntrantToWaitlist(event.getEventId(), email);
-                Toast.makeText(getContext(), "Join waiting list successfully",
-                        Toast.LENGTH_SHORT).show();
-                notifyDataSetChanged();
-                showLotteryGuidelinesDialog();
-            } catch (RuntimeException e) {
-                Log.e("Join Event Error", "Wait list is full", e);
-                Toast.makeText(getContext(), "The wait list is full", Toast.LENGTH_SHORT).show();
-            }
+            eventService.addEntrantToWaitlistFast(event.getEventId(), email)
+                    .addOnSuccessListener(aVoid -> {
+                        setEntrantStatus(event.getEventId(), MembershipIndex.Status.WAITING);
+                        Toast.makeText(getContext(), "Join waiting list successfully",
+                                Toast.LENGTH_SHORT).show();
+                        showLotteryGuidelinesDialog();
+                    })
+                    .addOnFailureListener(e -> {
+                        Log.e("Join Event Error", "Cannot join the waiting list", e);
+                        Toast.makeText(getContext(), e.getMessage() != null
+                                        ? e.getMessage() : "The wait list is full",
+                                Toast.LENGTH_SHORT).show();
+                    });
         });
 
         holder.leaveButton.setOnClickListener(v -> {
@@ -177,16 +210,45 @@ public class EventListAdapter extends ArrayAdapter<Event> {
             android.util.Log.d("ADAPTER_BTN",
                     "Leave clicked at position " + position + " for event " + event.getEventId());
 
-            event.leaveWaitingList(email);
-            eventService.removeEntrantFromWaitlist(event.getEventId(), email);
-            Toast.makeText(getContext(), "Leave waiting list successfully",
-                    Toast.LENGTH_SHORT).show();
-            notifyDataSetChanged();
+            eventService.removeEntrantFromWaitlistFast(event.getEventId(), email)
+                    .addOnSuccessListener(aVoid -> {
+                        setEntrantStatus(event.getEventId(), null);
+                        Toast.makeText(getContext(), "Leave waiting list successfully",
+                                Toast.LENGTH_SHORT).show();
+                    })
+                    .addOnFailureListener(e -> Log.e("Leave Event Error",
+                            "Cannot leave the waiting list", e));
         });
 
         return convertView;
     }
 
+    private static boolean isSelected(@Nullable MembershipIndex.Status status) {
+        return status == MembershipIndex.Status.CHOSEN
+                || status == MembershipIndex.Status.PENDING
+                || status == MembershipIndex.Status.REGISTERED;
+    }
+
+    /**
+     * Keep the waiting count of a listed summary in step with a change made by this entrant, so
+     * the row does not have to be reloaded.
+     */
+    private void adjustWaitingCount(String eventId, @Nullable MembershipIndex.Status from,
+                                    @Nullable MembershipIndex.Status to) {
+        int delta = (to == MembershipIndex.Status.WAITING ? 1 : 0)
+                - (from == MembershipIndex.Status.WAITING ? 1 : 0);
+        if (delta == 0) {
+            return;
+        }
+        for (int i = 0; i < getCount(); i++) {
+            EventSummary summary = getItem(i);
+            if (summary != null && eventId.equals(summary.getEventId())) {
+                summary.setWaitingCount(Math.max(0, summary.getWaitingCount() + delta));
+                return;
+            }
+        }
+    }
+
     private void showLotteryGuidelinesDialog() {
         Context context = getContext();
         if (context == null || !(context instanceof Activity)) {
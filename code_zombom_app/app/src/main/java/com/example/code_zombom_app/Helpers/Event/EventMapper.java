@@ -4,8 +4,6 @@ import androidx.annotation.Nullable;
 
 import com.example.code_zombom_app.organizer.EventForOrg;
 
-import java.util.ArrayList;
-
 /**
  * Central mapping helpers between the organiser Firestore DTO and the shared domain Event model.
  * This keeps entrant/organiser/admin screens aligned on a single canonical representation.
@@ -17,7 +15,9 @@ public final class EventMapper {
 
 
     /**
-     * Converts the domain event back into the organiser DTO shape for Firestore writes.
+     * Converts the domain event into the organiser DTO shape for display. The DTO shares the
+     * event's live read-only entrant views instead of copying them, so mapping an event costs the
+     * same however many entrants it has; the DTO never outlives the screen that shows it.
      */
     public static EventForOrg toDto(Event event) {
         EventForOrg dto = new EventForOrg();
@@ -35,10 +35,10 @@ public final class EventMapper {
         dto.setDescription(event.getDescription());
         dto.setMax_People(String.valueOf(event.getCapacity()));
         dto.setWait_List_Maximum(String.valueOf(event.getWaitlistLimit()));
-        dto.setEntrants(event.getWaitingList());
-        dto.setCancelled_Entrants(event.getCancelledList());
-        dto.setAccepted_Entrants(event.getPendingList());
-        dto.setLottery_Winners(event.getChosenList());
+        dto.setEntrants(event.getWaitingListView());
+        dto.setCancelled_Entrants(event.getCancelledListView());
+        dto.setAccepted_Entrants(event.getPendingListView());
+        dto.setLottery_Winners(event.getChosenListView());
         dto.setPosterUrl(event.getPosterUrl());
         dto.setDrawComplete(event.isDrawComplete());
         dto.setDrawTimestamp(event.getDrawTimestamp());
@@ -0,0 +1,208 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
+import com.google.zxing.BarcodeFormat;
+import com.journeyapps.barcodescanner.BarcodeEncoder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Renders the QR code of an event from its id on demand, instead of storing it in the event
+ * document.
+ * <p>
+ * Rendering and disk access happen on a background thread. Rendered codes are kept in a bounded
+ * LRU memory cache and in an on-disk cache under the app's cache directory, so scrolling through
+ * a list of events neither re-renders nor decodes a code that was already shown.
+ *
+ * @version 1.0.0
+ * @see Event#getEventId()
+ */
+public final class EventQrCodeService {
+    private static final String TAG = "EventQrCodeService";
+
+    // Side length of a rendered QR code, same as the codes that used to be stored on events
+    private static final int QR_SIZE_PX = 200;
+    private static final String DISK_CACHE_DIRECTORY = "event_qr_codes";
+    private static final int MAX_DISK_ENTRIES = 256;
+
+    private static EventQrCodeService instance;
+
+    private final LruCache<String, Bitmap> memoryCache;
+    private final File diskCacheDirectory;
+    private final ExecutorService executor;
+    // Renders that are still running, so concurrent requests for one event share a single render
+    private final Map<String, Task<Bitmap>> inFlight = new HashMap<>();
+
+    /**
+     * @param context Any context, only its application context is kept
+     * @return The shared QR code service of the app
+     */
+    public static synchronized EventQrCodeService getInstance(@NonNull Context context) {
+        if (instance == null) {
+            instance = new EventQrCodeService(
+                    new File(context.getApplicationContext().getCacheDir(), DISK_CACHE_DIRECTORY));
+        }
+        return instance;
+    }
+
+    private EventQrCodeService(File diskCacheDirectory) {
+        // Use 1/32 of the heap for QR bitmaps, measured in kilobytes
+        int cacheSizeKb = (int) (Runtime.getRuntime().maxMemory() / 1024 / 32);
+        this.memoryCache = new LruCache<String, Bitmap>(cacheSizeKb) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return Math.max(1, bitmap.getByteCount() / 1024);
+            }
+        };
+        this.diskCacheDirectory = diskCacheDirectory;
+        this.executor = Executors.newSingleThreadExecutor();
+    }
+
+    /**
+     * Get the QR code of an event if it is already in the memory cache. Safe to call on the UI
+     * thread.
+     *
+     * @param eventId The event's id
+     * @return The QR code, or null if it has not been loaded yet
+     */
+    @Nullable
+    public Bitmap getCached(@NonNull String eventId) {
+        return memoryCache.get(eventId);
+    }
+
+    /**
+     * Get the QR code of an event, loading it from the disk cache or rendering it in the
+     * background when it is not in memory.
+     *
+     * @param eventId The event's id
+     * @return A task that resolves to the QR code of the event
+     */
+    public Task<Bitmap> getQrCode(@NonNull String eventId) {
+        Bitmap cached = memoryCache.get(eventId);
+        if (cached != null) {
+            return Tasks.forResult(cached);
+        }
+
+        synchronized (inFlight) {
+            Task<Bitmap> running = inFlight.get(eventId);
+            if (running != null) {
+                return running;
+            }
+            TaskCompletionSource<Bitmap> source = new TaskCompletionSource<>();
+            inFlight.put(eventId, source.getTask());
+            executor.execute(() -> {
+                try {
+                    Bitmap bitmap = readFromDisk(eventId);
+                    if (bitmap == null) {
+                        bitmap = render(eventId);
+                        writeToDisk(eventId, bitmap);
+                    }
+                    memoryCache.put(eventId, bitmap);
+                    source.setResult(bitmap);
+                } catch (Exception e) {
+                    source.setException(e);
+                } finally {
+                    synchronized (inFlight) {
+                        inFlight.remove(eventId);
+                    }
+                }
+            });
+            return source.getTask();
+        }
+    }
+
+    /**
+     * Show the QR code of an event in an image view. The view is tagged with the event id, so a
+     * recycled view that has been bound to another event in the meantime is left alone.
+     *
+     * @param eventId   The event's id
+     * @param imageView The view to show the code in
+     */
+    public void bind(@NonNull String eventId, @NonNull ImageView imageView) {
+        imageView.setTag(eventId);
+        Bitmap cached = memoryCache.get(eventId);
+        if (cached != null) {
+            imageView.setImageBitmap(cached);
+            return;
+        }
+
+        imageView.setImageDrawable(null);
+        getQrCode(eventId)
+                .addOnSuccessListener(bitmap -> {
+                    if (eventId.equals(imageView.getTag())) {
+                        imageView.setImageBitmap(bitmap);
+                    }
+                })
+                .addOnFailureListener(e -> Log.e(TAG, "Failed to render QR code for " + eventId, e));
+    }
+
+    private Bitmap render(String eventId) throws Exception {
+        return new BarcodeEncoder().encodeBitmap(eventId, BarcodeFormat.QR_CODE, QR_SIZE_PX, QR_SIZE_PX);
+    }
+
+    @Nullable
+    private Bitmap readFromDisk(String eventId) {
+        File file = fileFor(eventId);
+        if (!file.isFile()) {
+            return null;
+        }
+        Bitmap bitmap = BitmapFactory.decodeFile(file.getAbsolutePath());
+        if (bitmap == null) {
+            // Corrupted entry, render it again
+            file.delete();
+            return null;
+        }
+        // Touch the file so the disk cache evicts the least recently used codes first
+        file.setLastModified(System.currentTimeMillis());
+        return bitmap;
+    }
+
+    private void writeToDisk(String eventId, Bitmap bitmap) {
+        if (!diskCacheDirectory.isDirectory() && !diskCacheDirectory.mkdirs()) {
+            return;
+        }
+        try (OutputStream out = new FileOutputStream(fileFor(eventId))) {
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not cache QR code for " + eventId, e);
+            return;
+        }
+        trimDiskCache();
+    }
+
+    private void trimDiskCache() {
+        File[] files = diskCacheDirectory.listFiles();
+        if (files == null || files.length <= MAX_DISK_ENTRIES) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < files.length - MAX_DISK_ENTRIES; i++) {
+            files[i].delete();
+        }
+    }
+
+    private File fileFor(String eventId) {
+        return new File(diskCacheDirectory, eventId.replaceAll("[^A-Za-z0-9_-]", "_") + ".png");
+    }
+}
@@ -1,25 +1,34 @@
 package com.example.code_zombom_app.Helpers.Event;
 
+import android.util.Log;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.example.code_zombom_app.Helpers.Metrics.FirestoreCosts;
+import com.example.code_zombom_app.Helpers.Metrics.MetricsRegistry;
+import com.example.code_zombom_app.Helpers.Metrics.OperationMetrics;
 import com.example.code_zombom_app.Helpers.Users.Entrant;
+import com.example.code_zombom_app.Helpers.Users.NotificationPreferenceResolver;
 import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.Transaction;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.QuerySnapshot;
 import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
@@ -31,13 +40,51 @@ import java.util.Set;
  */
 public class EventService {
 
+    // Firestore rejects batches with more than 500 writes
+    static final int MAX_BATCH_WRITES = 500;
+
+    // Field that used to hold a Base64 PNG of the event's QR code
+    static final String LEGACY_QR_CODE_FIELD = "eventIdQRcode";
+
+    // Subcollection of an event holding a marker per applied request and entrant
+    static final String REQUESTS = "Requests";
+
+    // Collection holding a document per migration that has completed
+    static final String MIGRATIONS = "Migrations";
+
+    // Migration that strips legacy QR codes and writes missing summaries
+    static final String EVENT_DOCUMENTS_MIGRATION = "eventDocuments";
+
+    // Times a draw of an event with sharded entrants is made again when its waiting list changed
+    static final int SHARDED_DRAW_ATTEMPTS = 3;
+
+    // Entrants cancelled per transaction, which also writes up to one counter document per shard
+    static final int SHARDED_CANCEL_CHUNK = MAX_BATCH_WRITES - ShardedCounter.SHARDS;
+
+    private static final OperationMetrics LOAD_EVENT =
+            MetricsRegistry.getInstance().operation("EventService.loadEvent");
+    private static final OperationMetrics LOAD_EVENT_SUMMARIES =
+            MetricsRegistry.getInstance().operation("EventService.loadEventSummaries");
+    private static final OperationMetrics LOAD_ENTRANT_STATUSES =
+            MetricsRegistry.getInstance().operation("EventService.loadEntrantStatuses");
+
     private final FirebaseFirestore firestore;
+    private final NotificationPreferenceResolver preferences;
+    private final ShardedCounter entrantCounter;
+    private final ShardedEntrants shardedEntrants;
+    private final LotteryFanOut lotteryFanOut;
+    private final BroadcastDispatcher broadcastDispatcher;
+    private final LotteryWeights lotteryWeights;
+    private final TransactionRunner transactions;
+    private final EventDeleter deleter;
+    private final HistoryRecorder history;
 
     /**
      * Constructs the service using the default Firestore instance. Intended for production use.
      */
     public EventService() {
-        this(FirebaseFirestore.getInstance());
+        this(FirebaseFirestore.getInstance(), NotificationPreferenceResolver.getInstance(),
+                HistoryRecorder.getInstance());
     }
 
     /**
@@ -46,7 +93,59 @@ public class EventService {
      * @param firestore Firestore instance backing all event reads/writes
      */
     public EventService(FirebaseFirestore firestore) {
+        this(firestore, new NotificationPreferenceResolver(firestore));
+    }
+
+    /**
+     * Constructs the service with explicit Firestore and preference dependencies.
+     *
+     * @param firestore   Firestore instance backing all event reads/writes
+     * @param preferences Resolver of the recipients' notification preferences
+     */
+    public EventService(FirebaseFirestore firestore, NotificationPreferenceResolver preferences) {
+        this(firestore, preferences, new HistoryRecorder(firestore));
+    }
+
+    /**
+     * @param firestore   Firestore instance backing all event reads/writes
+     * @param preferences Resolver of the recipients' notification preferences
+     * @param history     Writer of the entrants' history, shared by the services of the app
+     */
+    EventService(FirebaseFirestore firestore, NotificationPreferenceResolver preferences,
+                 HistoryRecorder history) {
+        this(firestore, preferences, history, TransactionMetrics.getInstance());
+    }
+
+    /**
+     * @param firestore   Firestore instance backing all event reads/writes
+     * @param preferences Resolver of the recipients' notification preferences
+     * @param history     Writer of the entrants' history, shared by the services of the app
+     * @param metrics     Where the attempts, retries and costs of the transactions are recorded
+     */
+    EventService(FirebaseFirestore firestore, NotificationPreferenceResolver preferences,
+                 HistoryRecorder history, TransactionMetrics metrics) {
         this.firestore = firestore;
+        this.history = history;
+        this.preferences = preferences;
+        this.entrantCounter = new ShardedCounter();
+        this.shardedEntrants = new ShardedEntrants(entrantCounter);
+        this.lotteryFanOut = new LotteryFanOut(firestore, preferences);
+        this.broadcastDispatcher = new BroadcastDispatcher(firestore, preferences);
+        this.lotteryWeights = new LotteryWeights(firestore);
+        this.transactions = new TransactionRunner(firestore, metrics);
+        this.deleter = new EventDeleter(firestore);
+    }
+
+    /**
+     * Loads how many entrants of an event have each status from the event's sharded counter,
+     * without reading the membership lists. Sums are cached for a few seconds, so they are meant
+     * for display; joins check the limits against the counter itself.
+     *
+     * @param eventId The event's unique id
+     * @return Task resolving to the count of every status
+     */
+    public Task<Map<MembershipIndex.Status, Long>> loadEntrantCounts(@NonNull String eventId) {
+        return entrantCounter.load(firestore.collection("Events").document(eventId));
     }
 
     /**
@@ -61,65 +160,373 @@ public class EventService {
      *                                  has been reached
      */
     public Task<Void> addEntrantToWaitlist(@NonNull String eventId, @NonNull String entrantEmail) {
+        return addEntrantToWaitlist(eventId, entrantEmail, null);
+    }
+
+    /**
+     * Adds an entrant email to the waiting list transactionally, at most once per request: a
+     * request that is replayed after it succeeded completes without writing anything.
+     *
+     * @param eventId      The event's unique id
+     * @param entrantEmail entrant email to add
+     * @param requestId    Idempotency key of the request, or null for a request that is never replayed
+     * @return Task representing completion
+     * @see IdempotencyKey
+     */
+    public Task<Void> addEntrantToWaitlist(@NonNull String eventId, @NonNull String entrantEmail,
+                                           @Nullable String requestId) {
         final String normalizedEmail = entrantEmail.trim();
-        return firestore.runTransaction((Transaction.Function<Void>) transaction -> {
+        final String key = IdempotencyKey.orNew(requestId);
+        List<HistoryRecorder.Change> changes = new ArrayList<>();
+        return recordAfter(changes, transactions.run("addEntrantToWaitlist", eventId,
+                (TransactionRunner.Function<Void>) transaction -> {
+            changes.clear();
             DocumentReference eventRef = firestore.collection("Events").document(eventId);
             Event event = transaction.get(eventRef).toObject(Event.class);
 
             if (event == null) {
                 throw new IllegalStateException("Event not found!");
             }
-            if (event.getChosenList().contains(normalizedEmail)) {
-                throw new IllegalArgumentException("You have already been selected for this event.");
-            }
-            if (event.getWaitingList().contains(normalizedEmail)) {
-                throw new IllegalArgumentException("You have already joined this waiting list.");
-            }
-            // Block entrants who already accepted (pending list) from rejoining the waitlist.
-            if (event.getPendingList().contains(normalizedEmail)) {
-                throw new IllegalArgumentException("You have already accepted an invitation for this event.");
-            }
-            // If accepted entrants already meet capacity, block any further joins.
-            int maxPeople = Math.max(0, event.getCapacity());
-            if (maxPeople > 0 && event.getPendingList().size() >= maxPeople) {
-                throw new IllegalArgumentException("This event is full.");
-            }
-            int waitlistMaximum = event.getWaitlistLimit();
-            if (waitlistMaximum <= 0) {
-                waitlistMaximum = event.getCapacity();
+            if (alreadyApplied(transaction, eventId, requestId, normalizedEmail)) {
+                return null;
             }
-            if (waitlistMaximum > 0 && event.getWaitingList().size() >= waitlistMaximum) {
-                throw new IllegalArgumentException("This waiting list is full.");
+            if (event.isShardedEntrants()) {
+                ShardedEntrants.Entry current = shardedEntrants.read(transaction, eventRef, normalizedEmail);
+                if (current.getStatus() == MembershipIndex.Status.CHOSEN || current.getStatus() == MembershipIndex.Status.REGISTERED) {
+                    throw new IllegalArgumentException("You have already been selected for this event.");
+                }
+                if (current.getStatus() == MembershipIndex.Status.WAITING) {
+                    throw new IllegalArgumentException("You have already joined this waiting list.");
+                }
+                if (current.getStatus() == MembershipIndex.Status.PENDING) {
+                    throw new IllegalArgumentException("You have already accepted an invitation for this event.");
+                }
+                checkCapacity(event, entrantCounter.readTotal(transaction, eventRef, MembershipIndex.Status.PENDING));
+                int shard = entrantCounter.reserve(transaction, eventRef, waitlistMaximum(event));
+                if (shard < 0) {
+                    throw new IllegalArgumentException("This waiting list is full.");
+                }
+                // Only the entrant's document and a counter shard are written, never the event
+                shardedEntrants.write(transaction, eventRef, normalizedEmail, current, MembershipIndex.Status.WAITING, shard);
+                changeWaitingCount(transaction, eventId, 1);
+                recordHistory(changes, event, normalizedEmail, Entrant.Status.WAITLISTED, key);
+                markApplied(transaction, eventId, requestId, normalizedEmail);
+                return null;
             }
-            event.joinWaitingList(normalizedEmail);
-            recordHistory(transaction, event, normalizedEmail, Entrant.Status.WAITLISTED);
+            join(event, normalizedEmail);
+            recordHistory(changes, event, normalizedEmail, Entrant.Status.WAITLISTED, key);
             transaction.set(eventRef, event);
+            transaction.set(summaryRef(eventId), EventSummary.of(event));
+            markApplied(transaction, eventId, requestId, normalizedEmail);
             return null;
-        });
+        }));
+    }
+
+    /*
+     * The changes below are made to an event whose entrants are kept in its own lists. They only
+     * touch the event, so a transaction runs them on the copy it read and writes the copy back,
+     * and runs them again on a fresh copy when the event changed in between.
+     */
+
+    /**
+     * Put an entrant on the waiting list of an event.
+     *
+     * @throws IllegalArgumentException If the entrant already has a status that forbids joining,
+     *                                  or the event or its waiting list is full
+     */
+    static void join(@NonNull Event event, @NonNull String email) {
+        if (event.hasStatus(email, MembershipIndex.Status.CHOSEN)) {
+            throw new IllegalArgumentException("You have already been selected for this event.");
+        }
+        if (event.isInWaitingList(email)) {
+            throw new IllegalArgumentException("You have already joined this waiting list.");
+        }
+        // Block entrants who already accepted (pending list) from rejoining the waitlist.
+        if (event.hasStatus(email, MembershipIndex.Status.PENDING)) {
+            throw new IllegalArgumentException("You have already accepted an invitation for this event.");
+        }
+        checkLimits(event, event.countEntrants(MembershipIndex.Status.PENDING),
+                event.countEntrants(MembershipIndex.Status.WAITING));
+        event.joinWaitingList(email);
+    }
+
+    /**
+     * Take an entrant off the waiting list of an event.
+     *
+     * @throws IllegalArgumentException If the entrant is not on the waiting list
+     */
+    static void leave(@NonNull Event event, @NonNull String email) {
+        if (!event.isInWaitingList(email)) {
+            throw new IllegalArgumentException("You are not on this waiting list.");
+        }
+        event.leaveWaitingList(email);
+    }
+
+    /**
+     * Move a chosen entrant to the accepted (pending) list.
+     *
+     * @throws IllegalArgumentException If the entrant was not chosen or already accepted
+     */
+    static void accept(@NonNull Event event, @NonNull String email) {
+        if (!event.hasStatus(email, MembershipIndex.Status.CHOSEN)) {
+            throw new IllegalArgumentException("You were not selected for this event.");
+        }
+        if (event.hasStatus(email, MembershipIndex.Status.PENDING)) {
+            throw new IllegalArgumentException("You have already accepted this invitation.");
+        }
+        event.moveEntrant(email, MembershipIndex.Status.CHOSEN, MembershipIndex.Status.PENDING);
+        event.removeCancelledEntrant(email);
+    }
+
+    /**
+     * Move a chosen entrant to the cancelled list.
+     *
+     * @throws IllegalArgumentException If the entrant was not chosen
+     */
+    static void decline(@NonNull Event event, @NonNull String email) {
+        if (!event.hasStatus(email, MembershipIndex.Status.CHOSEN)) {
+            throw new IllegalArgumentException("You were not selected for this event.");
+        }
+        event.moveEntrant(email, MembershipIndex.Status.CHOSEN, MembershipIndex.Status.CANCELLED);
+        event.removePendingEntrant(email);
+    }
+
+    /**
+     * Move an entrant who accepted to the registered list.
+     *
+     * @throws IllegalArgumentException If the entrant has not accepted or is already registered
+     */
+    static void register(@NonNull Event event, @NonNull String email) {
+        if (!event.hasStatus(email, MembershipIndex.Status.PENDING)) {
+            throw new IllegalArgumentException("Please accept the invitation before registering.");
+        }
+        if (event.hasStatus(email, MembershipIndex.Status.REGISTERED)) {
+            throw new IllegalArgumentException("You have already registered for this event.");
+        }
+        event.moveEntrant(email, MembershipIndex.Status.PENDING, MembershipIndex.Status.REGISTERED);
+    }
+
+    private static void checkLimits(Event event, long pending, long waiting) {
+        checkCapacity(event, pending);
+        int waitlistMaximum = waitlistMaximum(event);
+        if (waitlistMaximum > 0 && waiting >= waitlistMaximum) {
+            throw new IllegalArgumentException("This waiting list is full.");
+        }
+    }
+
+    private static void checkCapacity(Event event, long pending) {
+        // If accepted entrants already meet capacity, block any further joins.
+        int maxPeople = Math.max(0, event.getCapacity());
+        if (maxPeople > 0 && pending >= maxPeople) {
+            throw new IllegalArgumentException("This event is full.");
+        }
+    }
+
+    /**
+     * @return Most entrants the waiting list may hold, 0 or less for no limit
+     */
+    private static int waitlistMaximum(Event event) {
+        int waitlistMaximum = event.getWaitlistLimit();
+        if (waitlistMaximum <= 0) {
+            waitlistMaximum = event.getCapacity();
+        }
+        return waitlistMaximum;
     }
 
     /**
      * Removes an entrant email from the waiting list transactionally.
      */
     public Task<Void> removeEntrantFromWaitlist(@NonNull String eventId, @NonNull String entrantEmail) {
+        return removeEntrantFromWaitlist(eventId, entrantEmail, null);
+    }
+
+    /**
+     * Removes an entrant email from the waiting list transactionally, at most once per request.
+     *
+     * @param requestId Idempotency key of the request, or null for a request that is never replayed
+     * @see #addEntrantToWaitlist(String, String, String)
+     */
+    public Task<Void> removeEntrantFromWaitlist(@NonNull String eventId, @NonNull String entrantEmail,
+                                                @Nullable String requestId) {
         final String normalizedEmail = entrantEmail.trim();
-        return firestore.runTransaction((Transaction.Function<Void>) transaction -> {
+        final String key = IdempotencyKey.orNew(requestId);
+        List<HistoryRecorder.Change> changes = new ArrayList<>();
+        return recordAfter(changes, transactions.run("removeEntrantFromWaitlist", eventId,
+                (TransactionRunner.Function<Void>) transaction -> {
+            changes.clear();
             DocumentReference eventRef = firestore.collection("Events").document(eventId);
             Event event = transaction.get(eventRef).toObject(Event.class);
             if (event == null) {
                 throw new IllegalStateException("Event not found");
             }
+            if (alreadyApplied(transaction, eventId, requestId, normalizedEmail)) {
+                return null;
+            }
 
-            if (!event.getWaitingList().contains(normalizedEmail)) {
-                throw new IllegalArgumentException("You are not on this waiting list.");
+            if (event.isShardedEntrants()) {
+                ShardedEntrants.Entry current = shardedEntrants.read(transaction, eventRef, normalizedEmail);
+                if (current.getStatus() != MembershipIndex.Status.WAITING) {
+                    throw new IllegalArgumentException("You are not on this waiting list.");
+                }
+                shardedEntrants.write(transaction, eventRef, normalizedEmail, current, null);
+                changeWaitingCount(transaction, eventId, -1);
+                recordHistory(changes, event, normalizedEmail, Entrant.Status.LEAVE, key);
+                markApplied(transaction, eventId, requestId, normalizedEmail);
+                return null;
             }
-            event.leaveWaitingList(normalizedEmail);
-            recordHistory(transaction, event, normalizedEmail, Entrant.Status.LEAVE);
+
+            leave(event, normalizedEmail);
+            recordHistory(changes, event, normalizedEmail, Entrant.Status.LEAVE, key);
             transaction.set(eventRef, event);
+            transaction.set(summaryRef(eventId), EventSummary.of(event));
+            markApplied(transaction, eventId, requestId, normalizedEmail);
             return null;
+        }));
+    }
+
+    /**
+     * Adds an entrant to the waiting list without a transaction when the event has no limit to
+     * enforce.
+     * <p>
+     * The event is read once, outside of any transaction. If the entrant may join and the event
+     * has neither a capacity nor a waiting list limit, the entrant is appended with
+     * {@link FieldValue#arrayUnion} and the summary's waiting count is raised with
+     * {@link FieldValue#increment}, in a single batch that never conflicts with other joins and
+     * does not upload the entrant lists again. Otherwise, and whenever that batch fails, the join
+     * goes through {@link #addEntrantToWaitlist(String, String)}, which checks every limit in the
+     * transaction that writes the entrant. A limit is therefore never exceeded on this path, and
+     * this is the join the entrant screens use.
+     * <p>
+     * Only the summary's waiting count is approximate here: two racing joins of the same entrant
+     * both raise it. It is a display value, and the next transactional write of the event sets it
+     * from the waiting list again.
+     *
+     * @param eventId      The event's unique id
+     * @param entrantEmail entrant email to add
+     * @return Task representing completion, failing like {@link #addEntrantToWaitlist(String, String)}
+     */
+    public Task<Void> addEntrantToWaitlistFast(@NonNull String eventId, @NonNull String entrantEmail) {
+        return addEntrantToWaitlistFast(eventId, entrantEmail, null);
+    }
+
+    /**
+     * Same as {@link #addEntrantToWaitlistFast(String, String)}, for a request that may be
+     * replayed. The batch marks the request as applied, so a replay finds the entrant on the
+     * waiting list and goes through the transaction, which recognises the request and writes
+     * nothing.
+     *
+     * @param requestId Idempotency key of the request, or null for a request that is never replayed
+     * @see #addEntrantToWaitlist(String, String, String)
+     */
+    public Task<Void> addEntrantToWaitlistFast(@NonNull String eventId, @NonNull String entrantEmail,
+                                               @Nullable String requestId) {
+        final String normalizedEmail = entrantEmail.trim();
+        final String key = IdempotencyKey.orNew(requestId);
+        DocumentReference eventRef = firestore.collection("Events").document(eventId);
+        return eventRef.get().continueWithTask(LotteryFanOut.DIRECT, read -> {
+            Event event = read.isSuccessful() && read.getResult() != null
+                    ? read.getResult().toObject(Event.class) : null;
+            if (event == null || !canJoinWithoutTransaction(event, normalizedEmail)) {
+                return addEntrantToWaitlist(eventId, normalizedEmail, requestId);
+            }
+            WriteBatch batch = firestore.batch();
+            batch.update(eventRef, "waitingList", FieldValue.arrayUnion(normalizedEmail));
+            batch.update(summaryRef(eventId), "waitingCount", FieldValue.increment(1));
+            if (requestId != null) {
+                batch.set(requestRef(eventId, requestId, normalizedEmail), appliedMarker(normalizedEmail));
+            }
+            List<HistoryRecorder.Change> changes = new ArrayList<>();
+            recordHistory(changes, event, normalizedEmail, Entrant.Status.WAITLISTED, key);
+            return recordAfter(changes, batch.commit()).continueWithTask(LotteryFanOut.DIRECT, commit -> commit.isSuccessful()
+                    ? commit : addEntrantToWaitlist(eventId, normalizedEmail, requestId));
         });
     }
 
+    /**
+     * Removes an entrant from the waiting list without uploading the entrant lists, using
+     * {@link FieldValue#arrayRemove}. Entrants that are not on the waiting list, and events with
+     * sharded entrants, go through {@link #removeEntrantFromWaitlist(String, String)} instead.
+     * <p>
+     * A racing leave of the same entrant may already have removed them, in which case the
+     * arrayRemove changes nothing, so the summary's waiting count is not lowered blindly: once the
+     * batch commits, it is set to the size of the waiting list by
+     * {@link #refreshWaitingCount(String)}.
+     *
+     * @param eventId      The event's unique id
+     * @param entrantEmail entrant email to remove
+     * @return Task representing completion
+     */
+    public Task<Void> removeEntrantFromWaitlistFast(@NonNull String eventId, @NonNull String entrantEmail) {
+        return removeEntrantFromWaitlistFast(eventId, entrantEmail, null);
+    }
+
+    /**
+     * Same as {@link #removeEntrantFromWaitlistFast(String, String)}, for a request that may be
+     * replayed.
+     *
+     * @param requestId Idempotency key of the request, or null for a request that is never replayed
+     * @see #addEntrantToWaitlistFast(String, String, String)
+     */
+    public Task<Void> removeEntrantFromWaitlistFast(@NonNull String eventId, @NonNull String entrantEmail,
+                                                    @Nullable String requestId) {
+        final String normalizedEmail = entrantEmail.trim();
+        final String key = IdempotencyKey.orNew(requestId);
+        DocumentReference eventRef = firestore.collection("Events").document(eventId);
+        return eventRef.get().continueWithTask(LotteryFanOut.DIRECT, read -> {
+            Event event = read.isSuccessful() && read.getResult() != null
+                    ? read.getResult().toObject(Event.class) : null;
+            if (event == null || event.isShardedEntrants() || !event.isInWaitingList(normalizedEmail)) {
+                return removeEntrantFromWaitlist(eventId, normalizedEmail, requestId);
+            }
+            WriteBatch batch = firestore.batch();
+            batch.update(eventRef, "waitingList", FieldValue.arrayRemove(normalizedEmail));
+            if (requestId != null) {
+                batch.set(requestRef(eventId, requestId, normalizedEmail), appliedMarker(normalizedEmail));
+            }
+            List<HistoryRecorder.Change> changes = new ArrayList<>();
+            recordHistory(changes, event, normalizedEmail, Entrant.Status.LEAVE, key);
+            return recordAfter(changes, batch.commit()).continueWithTask(LotteryFanOut.DIRECT, commit -> {
+                if (!commit.isSuccessful()) {
+                    return removeEntrantFromWaitlist(eventId, normalizedEmail, requestId);
+                }
+                // The entrant has left even if the count cannot be refreshed now; the next
+                // transactional write of the event rewrites the summary anyway
+                return refreshWaitingCount(eventId).continueWith(LotteryFanOut.DIRECT, refresh -> null);
+            });
+        });
+    }
+
+    /**
+     * Sets the summary's waiting count to the size of the event's waiting list, in a transaction
+     * that writes nothing else.
+     *
+     * @param eventId The event's unique id
+     * @return Task representing completion
+     */
+    Task<Void> refreshWaitingCount(@NonNull String eventId) {
+        return transactions.run("refreshWaitingCount", eventId, (TransactionRunner.Function<Void>) transaction -> {
+            Event event = transaction.get(firestore.collection("Events").document(eventId)).toObject(Event.class);
+            if (event == null) {
+                return null;
+            }
+            Map<String, Object> count = new HashMap<>();
+            count.put("waitingCount", event.getNumberOfWaiting());
+            transaction.set(summaryRef(eventId), count, SetOptions.merge());
+            return null;
+        });
+    }
+
+    /**
+     * @return true if the entrant may join the event's waiting list and the event has no capacity
+     * or waiting list limit that a join written without a transaction could exceed
+     */
+    static boolean canJoinWithoutTransaction(@NonNull Event event, @NonNull String email) {
+        if (event.isShardedEntrants() || event.hasBeenSelected(email) || event.isInWaitingList(email)) {
+            return false;
+        }
+        return event.getCapacity() <= 0 && event.getWaitlistLimit() <= 0;
+    }
+
     /**
      * Creates or updates the backing Firestore document for the supplied event.
      *
@@ -131,111 +538,646 @@ public class EventService {
 
         return firestore.collection("Events")
                 .document(documentId)
-                .set(event);
+                .set(event)
+                .onSuccessTask(LotteryFanOut.DIRECT, ignored -> summaryRef(documentId).set(
+                        EventSummary.of(event), EventSummary.writeOptions(event)));
+    }
+
+    /**
+     * Loads the summary of every event, which is all a list screen needs. Full events should
+     * only be loaded when a single event is opened.
+     *
+     * @return Task resolving to the summaries, in no particular order
+     * @see EventSummary
+     */
+    public Task<List<EventSummary>> loadEventSummaries() {
+        long start = LOAD_EVENT_SUMMARIES.start();
+        return firestore.collection(EventSummary.COLLECTION)
+                .get()
+                .continueWith(LotteryFanOut.DIRECT, task -> {
+                    QuerySnapshot snapshot;
+                    try {
+                        snapshot = task.getResult();
+                    } catch (RuntimeException e) {
+                        LOAD_EVENT_SUMMARIES.failed(start);
+                        throw e;
+                    }
+                    LOAD_EVENT_SUMMARIES.succeeded(start, snapshot.size());
+                    FirestoreCosts.getInstance().read("EventService.loadEventSummaries", snapshot);
+                    List<EventSummary> summaries = new ArrayList<>();
+                    for (DocumentSnapshot doc : snapshot.getDocuments()) {
+                        long parsing = LOAD_EVENT_SUMMARIES.start();
+                        EventSummary summary = doc.toObject(EventSummary.class);
+                        LOAD_EVENT_SUMMARIES.deserialized(parsing);
+                        if (summary == null) {
+                            continue;
+                        }
+                        if (summary.getEventId() == null) {
+                            summary.setEventId(doc.getId());
+                        }
+                        summaries.add(summary);
+                    }
+                    return summaries;
+                });
+    }
+
+    /**
+     * Loads a single full event, e.g. when an entrant or organizer opens it from a list of
+     * summaries.
+     *
+     * @param eventId The event's unique id
+     * @return Task resolving to the event, or failing if it does not exist
+     */
+    public Task<Event> loadEvent(@NonNull String eventId) {
+        long start = LOAD_EVENT.start();
+        return firestore.collection("Events")
+                .document(eventId)
+                .get()
+                .continueWith(LotteryFanOut.DIRECT, task -> {
+                    DocumentSnapshot snapshot;
+                    try {
+                        snapshot = task.getResult();
+                    } catch (RuntimeException e) {
+                        LOAD_EVENT.failed(start);
+                        throw e;
+                    }
+                    FirestoreCosts.getInstance().read("EventService.loadEvent", snapshot);
+                    long parsing = LOAD_EVENT.start();
+                    Event event = snapshot.toObject(Event.class);
+                    LOAD_EVENT.deserialized(parsing);
+                    if (event == null) {
+                        LOAD_EVENT.failed(start);
+                        throw new IllegalStateException("Event not found");
+                    }
+                    LOAD_EVENT.succeeded(start, 1);
+                    return event;
+                });
+    }
+
+    /**
+     * Loads the latest status of an entrant in every event they interacted with, from the
+     * history map kept on their profile. Lets list screens enable the right buttons without
+     * loading the membership lists of every event.
+     *
+     * @param entrantEmail The entrant's email
+     * @return Task resolving to a map of event id to the entrant's status in that event
+     */
+    public Task<Map<String, MembershipIndex.Status>> loadEntrantStatuses(@NonNull String entrantEmail) {
+        long start = LOAD_ENTRANT_STATUSES.start();
+        return firestore.collection("Profiles")
+                .document(entrantEmail.trim())
+                .get()
+                .continueWith(LotteryFanOut.DIRECT, task -> {
+                    DocumentSnapshot snapshot;
+                    try {
+                        snapshot = task.getResult();
+                    } catch (RuntimeException e) {
+                        LOAD_ENTRANT_STATUSES.failed(start);
+                        throw e;
+                    }
+                    LOAD_ENTRANT_STATUSES.succeeded(start, 1);
+                    FirestoreCosts.getInstance().read("EventService.loadEntrantStatuses", snapshot);
+                    Map<String, MembershipIndex.Status> statuses = new HashMap<>();
+                    Object history = snapshot.get("eventHistory");
+                    if (!(history instanceof Map)) {
+                        return statuses;
+                    }
+                    for (Map.Entry<?, ?> entry : ((Map<?, ?>) history).entrySet()) {
+                        MembershipIndex.Status status = statusOf(String.valueOf(entry.getValue()));
+                        if (status != null) {
+                            statuses.put(String.valueOf(entry.getKey()), status);
+                        }
+                    }
+                    return statuses;
+                });
+    }
+
+    /**
+     * Maps a status recorded in an entrant's history to the list they are currently in.
+     */
+    @Nullable
+    static MembershipIndex.Status statusOf(@Nullable String historyStatus) {
+        if (historyStatus == null) {
+            return null;
+        }
+        switch (historyStatus) {
+            case "WAITLISTED":
+            case "NOT_SELECTED":
+                // Entrants who lost a draw stay on the waiting list
+                return MembershipIndex.Status.WAITING;
+            case "SELECTED":
+                return MembershipIndex.Status.CHOSEN;
+            case "CONFIRMED":
+                return MembershipIndex.Status.PENDING;
+            case "REGISTERED":
+                return MembershipIndex.Status.REGISTERED;
+            case "DECLINED":
+            case "CANCELLED":
+                return MembershipIndex.Status.CANCELLED;
+            default:
+                return null;
+        }
     }
 
     /**
      * Runs a simple lottery: randomly choose up to the remaining capacity from the waiting list.
      * Selected entrants are moved to the chosen list and removed from the waiting list.
+     * Winners are picked by a freshly seeded {@link LotterySampler} whose seed is recorded with the
+     * draw, so the outcome can be replayed later.
+     * <p>
+     * Events in {@link Event.LotteryMode#PRIOR_LOSSES} mode draw with weights: a first
+     * transaction only collects the candidates, whose weights are then loaded by
+     * {@link LotteryWeights} outside of any transaction, and a second transaction makes the draw.
+     * <p>
+     * The transaction only writes the event, its summary and a {@link LotteryDraw} record, so
+     * the draw does not run into the write limit of a transaction however long the waiting list
+     * is. The history and notifications of every winner and loser are then written in batches by
+     * {@link LotteryFanOut}; if that stage is interrupted it is finished by
+     * {@link #resumeLotteryFanOut(String)}.
+     * <p>
+     * Events that keep their entrants in {@link ShardedEntrants} are drawn from a list of their
+     * waiting entrants queried beforehand; see {@link #drawSharded}.
      *
      * @param documentId The event's document id
+     * @return Task that completes once the draw and its notifications have been written
      */
     public Task<Void> runLotteryDraw(@NonNull String documentId) {
-        return firestore.runTransaction((Transaction.Function<Void>) transaction -> {
+        return draw(documentId, null, null);
+    }
+
+    /**
+     * Draws new winners to take the seats of entrants that declined, without drawing the whole
+     * lottery again: only the new winners are moved to the chosen list, get a history entry and
+     * are notified, so entrants still waiting are not told again that they lost. The draw is
+     * weighted like the event's lottery.
+     *
+     * @param documentId The event's document id
+     * @param count      Number of winners to draw; fewer are drawn if the event has fewer free
+     *                   seats or candidates
+     * @return Task that completes once the new winners have been written and notified
+     * @throws IllegalArgumentException If count is not positive
+     */
+    public Task<Void> drawReplacements(@NonNull String documentId, int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("At least one replacement must be drawn.");
+        }
+        return draw(documentId, count, null);
+    }
+
+    /**
+     * @param replacements Number of winners of a replacement draw, or null for a full draw that
+     *                     also records its losers
+     * @param weights      Weights of the candidates of a weighted draw, or null if they were not
+     *                     loaded yet
+     */
+    private Task<Void> draw(@NonNull String documentId, @Nullable Integer replacements,
+                            @Nullable Map<String, Double> weights) {
+        // Candidates whose weights have to be loaded before a weighted draw can be made
+        List<String> unweighted = new ArrayList<>();
+        // Set to the lottery mode of an event whose entrants have to be listed by drawSharded
+        Event.LotteryMode[] sharded = new Event.LotteryMode[1];
+        String operation = replacements == null ? "runLotteryDraw" : "drawReplacements";
+        return transactions.run(operation, documentId,
+                (TransactionRunner.Function<LotteryDraw>) transaction -> {
+            unweighted.clear();
+            sharded[0] = null;
             DocumentReference eventRef = firestore.collection("Events").document(documentId);
             Event event = transaction.get(eventRef).toObject(Event.class);
             if (event == null) {
                 throw new IllegalStateException("Event not found");
             }
-
-            int capacity = Math.max(0, event.getCapacity());
-            int acceptedCount = event.getPendingList().size();
-            // Prevent drawing when accepted entrants have already filled or exceeded capacity.
-            if (capacity > 0 && acceptedCount >= capacity) {
+            if (event.isShardedEntrants()) {
+                sharded[0] = event.getLotteryMode();
                 return null;
             }
-            // Treat accepted entrants as occupying seats when computing remaining capacity.
-            int alreadyFilled = event.getRegisteredList().size() + event.getChosenList().size() + acceptedCount;
-            int slotsRemaining = capacity > 0 ? Math.max(0, capacity - alreadyFilled) : event.getWaitingList().size();
+
+            int slotsRemaining = LotterySampler.seatsToDraw(event, replacements);
             if (slotsRemaining == 0) {
                 return null; // nothing to do
             }
 
-            List<String> candidates = new ArrayList<>(event.getWaitingList());
-            candidates.removeAll(event.getChosenList());
-            candidates.removeAll(event.getRegisteredList());
-            Collections.shuffle(candidates);
+            List<String> candidates = LotterySampler.candidates(event);
+            if (replacements != null && candidates.isEmpty()) {
+                return null; // nobody left to replace the entrants that declined
+            }
+            boolean weighted = event.getLotteryMode() == Event.LotteryMode.PRIOR_LOSSES;
+            if (weighted && weights == null && !candidates.isEmpty()) {
+                unweighted.addAll(candidates);
+                return null;
+            }
 
-            int picks = Math.min(slotsRemaining, candidates.size());
-            List<String> winners = new ArrayList<>();
-            for (int i = 0; i < picks; i++) {
-                String winner = candidates.get(i);
-                event.addChosenEntrant(winner);
-                event.leaveWaitingList(winner);
-                recordHistory(transaction, event, winner, Entrant.Status.SELECTED);
-                winners.add(winner);
+            LotterySampler sampler = LotterySampler.withRandomSeed();
+            int[] positions = pick(sampler, candidates, weighted ? weights : null, slotsRemaining);
+            List<String> winners = new ArrayList<>(positions.length);
+            List<String> losers = new ArrayList<>();
+            divide(candidates, positions, replacements != null, winners, losers);
+            for (String winner : winners) {
+                event.moveEntrant(winner, MembershipIndex.Status.WAITING, MembershipIndex.Status.CHOSEN);
             }
 
             // Mark the draw as complete
             event.setDrawComplete(true);
             event.setDrawTimestamp(System.currentTimeMillis()); // current time as draw timestamp
 
-            //identify losers
-            Set<String> losers = new HashSet<>(event.getWaitingList());
-            losers.removeAll(event.getChosenList());
-            losers.removeAll(event.getRegisteredList());
-
             transaction.set(eventRef, event);
 
-            // Write winner/loser notifications under the event for entrant listeners
+            transaction.set(summaryRef(documentId), EventSummary.of(event));
+
+            return recordDraw(transaction, eventRef, event, sampler, positions, winners, losers,
+                    weighted, replacements != null);
+        }).onSuccessTask(LotteryFanOut.DIRECT, draw -> {
+            if (draw != null) {
+                return lotteryFanOut.run(draw);
+            }
+            if (sharded[0] != null) {
+                return drawSharded(documentId, replacements,
+                        sharded[0] == Event.LotteryMode.PRIOR_LOSSES, 1);
+            }
+            if (unweighted.isEmpty()) {
+                return Tasks.forResult(null);
+            }
+            return lotteryWeights.load(documentId, unweighted).onSuccessTask(LotteryFanOut.DIRECT,
+                    loaded -> draw(documentId, replacements, loaded));
+        });
+    }
+
+    /**
+     * Draw of an event whose entrants are kept in {@link ShardedEntrants}, whose waiting list
+     * cannot be read inside a transaction. The waiting entrants are listed by a query first, and
+     * their weights loaded if the draw is weighted. The transaction then reads the exact counts
+     * from the {@link ShardedCounter} and the entry of every winner, so a winner that left or was
+     * moved since the query is never drawn: the draw is made again from a fresh list, up to
+     * {@link #SHARDED_DRAW_ATTEMPTS} times.
+     * <p>
+     * A draw picks at most {@link #shardedDrawLimit(int)} winners, so its transaction stays within
+     * the write limit; seats left over are filled by a replacement draw.
+     *
+     * @param weighted true to load the weights of the candidates before drawing
+     * @param attempt  Number of this attempt, from 1
+     */
+    private Task<Void> drawSharded(@NonNull String documentId, @Nullable Integer replacements,
+                                   boolean weighted, int attempt) {
+        DocumentReference eventRef = firestore.collection("Events").document(documentId);
+        return shardedEntrants.list(eventRef, MembershipIndex.Status.WAITING)
+                .onSuccessTask(LotteryFanOut.DIRECT, candidates -> {
+                    if (!weighted || candidates.isEmpty()) {
+                        return drawSharded(documentId, replacements, candidates,
+                                Collections.emptyMap(), attempt);
+                    }
+                    return lotteryWeights.load(documentId, candidates).onSuccessTask(
+                            LotteryFanOut.DIRECT, weights -> drawSharded(documentId, replacements,
+                                    candidates, weights, attempt));
+                });
+    }
+
+    /**
+     * @param candidates The waiting entrants, as listed before the transaction
+     * @param weights    Weights of the candidates, empty for a uniform draw
+     */
+    private Task<Void> drawSharded(@NonNull String documentId, @Nullable Integer replacements,
+                                   @NonNull List<String> candidates,
+                                   @NonNull Map<String, Double> weights, int attempt) {
+        // Set to the lottery mode when a winner was no longer waiting, so the candidates have to
+        // be listed again
+        Event.LotteryMode[] stale = new Event.LotteryMode[1];
+        String operation = replacements == null ? "runLotteryDraw" : "drawReplacements";
+        return transactions.run(operation, documentId,
+                (TransactionRunner.Function<LotteryDraw>) transaction -> {
+            stale[0] = null;
+            DocumentReference eventRef = firestore.collection("Events").document(documentId);
+            Event event = transaction.get(eventRef).toObject(Event.class);
+            if (event == null) {
+                throw new IllegalStateException("Event not found");
+            }
+            Map<MembershipIndex.Status, Long> counts = entrantCounter.readAll(transaction, eventRef);
+            int slotsRemaining = Math.min(shardedDrawLimit(candidates.size()),
+                    LotterySampler.seatsToDraw(event.getCapacity(), candidates.size(),
+                            counts.get(MembershipIndex.Status.CHOSEN),
+                            counts.get(MembershipIndex.Status.PENDING),
+                            counts.get(MembershipIndex.Status.REGISTERED), replacements));
+            if (slotsRemaining == 0) {
+                return null;
+            }
+            if (replacements != null && candidates.isEmpty()) {
+                return null;
+            }
+
+            boolean weighted = event.getLotteryMode() == Event.LotteryMode.PRIOR_LOSSES;
+            LotterySampler sampler = LotterySampler.withRandomSeed();
+            int[] positions = pick(sampler, candidates, weighted ? weights : null, slotsRemaining);
+            List<String> winners = new ArrayList<>(positions.length);
+            List<String> losers = new ArrayList<>();
+            divide(candidates, positions, replacements != null, winners, losers);
+            Map<String, ShardedEntrants.Entry> entries = new LinkedHashMap<>();
             for (String winner : winners) {
-                if (isNotificationsEnabled(transaction, winner)) {
-                    transaction.set(eventRef.collection("Notifications").document(),
-                            buildNotification(
-                                    winner,
-                                    "win",
-                                    event.getName(),
-                                    event.getDrawTimestamp(),
-                                    event.getEventId(),
-                                    "Congratulations! You are a lottery winner and have been selected for " + event.getName()
-                            ));
+                ShardedEntrants.Entry entry = shardedEntrants.read(transaction, eventRef, winner);
+                if (entry.getStatus() != MembershipIndex.Status.WAITING) {
+                    stale[0] = event.getLotteryMode();
+                    return null;
                 }
+                entries.put(winner, entry);
             }
+            shardedEntrants.writeAll(transaction, eventRef, entries,
+                    MembershipIndex.Status.WAITING, MembershipIndex.Status.CHOSEN);
+            changeWaitingCount(transaction, documentId, -winners.size());
 
-            for (String loser : losers) {
-                recordHistory(transaction, event, loser, Entrant.Status.NOT_SELECTED);
-                if (isNotificationsEnabled(transaction, loser)) {
-                    transaction.set(eventRef.collection("Notifications").document(),
-                            buildNotification(
-                                    loser,
-                                    "lose",
-                                    event.getName(),
-                                    event.getDrawTimestamp(),
-                                    event.getEventId(),
-                                    "Sorry! You were not selected. You coudd still get a chance if a selected entrant declines. " + event.getName()
-                            ));
-                }
+            event.setDrawComplete(true);
+            event.setDrawTimestamp(System.currentTimeMillis());
+            transaction.set(eventRef, event);
+            transaction.set(summaryRef(documentId), EventSummary.of(event),
+                    EventSummary.writeOptions(event));
+
+            return recordDraw(transaction, eventRef, event, sampler, positions, winners, losers,
+                    weighted, replacements != null);
+        }).onSuccessTask(LotteryFanOut.DIRECT, draw -> {
+            if (draw != null) {
+                return lotteryFanOut.run(draw);
             }
-            return null;
+            if (stale[0] == null) {
+                return Tasks.forResult(null);
+            }
+            if (attempt >= SHARDED_DRAW_ATTEMPTS) {
+                return Tasks.forException(new IllegalStateException(
+                        "The waiting list kept changing during the draw. Please try again."));
+            }
+            return drawSharded(documentId, replacements,
+                    stale[0] == Event.LotteryMode.PRIOR_LOSSES, attempt + 1);
         });
     }
 
     /**
-     * Deletes the specified event document.
+     * @param candidates Number of candidates of a draw of an event with sharded entrants
+     * @return Most winners the draw may pick so that its transaction, which writes every winner,
+     * the counter shards, the event, its summary, the draw and its recipients, stays within
+     * {@link #MAX_BATCH_WRITES}
+     */
+    static int shardedDrawLimit(int candidates) {
+        return MAX_BATCH_WRITES - ShardedCounter.SHARDS - 4 - RecipientChunks.count(candidates);
+    }
+
+    /**
+     * Pick the positions of the winners among the candidates.
+     *
+     * @param weights Weights of the candidates, or null for a uniform draw; candidates without
+     *                a weight weigh one
+     */
+    private static int[] pick(@NonNull LotterySampler sampler, @NonNull List<String> candidates,
+                              @Nullable Map<String, Double> weights, int seats) {
+        if (weights == null) {
+            return sampler.pick(candidates.size(), seats);
+        }
+        double[] candidateWeights = new double[candidates.size()];
+        for (int i = 0; i < candidateWeights.length; i++) {
+            Double weight = weights.get(candidates.get(i));
+            candidateWeights[i] = weight != null ? weight : 1.0;
+        }
+        return sampler.pick(candidateWeights, seats);
+    }
+
+    /**
+     * Split the candidates into winners and losers. A replacement draw records no losers: the
+     * entrants still waiting were told they lost by the first draw.
+     */
+    private static void divide(@NonNull List<String> candidates, @NonNull int[] positions,
+                               boolean replacement, @NonNull List<String> winners,
+                               @NonNull List<String> losers) {
+        if (!replacement) {
+            LotterySampler.split(candidates, positions, winners, losers);
+            return;
+        }
+        for (int position : positions) {
+            winners.add(candidates.get(position));
+        }
+    }
+
+    /**
+     * Write the {@link LotteryDraw} record of a draw and its recipients. History and
+     * notifications are written by the fan-out once the winners are committed.
+     *
+     * @return The draw, with its id set
+     */
+    private static LotteryDraw recordDraw(@NonNull TrackedTransaction transaction,
+                                          @NonNull DocumentReference eventRef, @NonNull Event event,
+                                          @NonNull LotterySampler sampler, @NonNull int[] positions,
+                                          @NonNull List<String> winners, @NonNull List<String> losers,
+                                          boolean weighted, boolean replacement) {
+        DocumentReference drawRef = eventRef.collection(LotteryDraw.COLLECTION).document();
+        LotteryDraw draw = LotteryDraw.of(event, winners, losers);
+        // The seed and positions let the draw be replayed from its record
+        draw.setSeed(sampler.getSeed());
+        List<Integer> winnerPositions = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            winnerPositions.add(position);
+        }
+        draw.setWinnerPositions(winnerPositions);
+        draw.setWeighted(weighted);
+        draw.setReplacement(replacement);
+        transaction.set(drawRef, draw);
+        RecipientChunks.write(transaction, eventRef, drawRef.getId(), draw.recipients(),
+                winnerPositions);
+        draw.setDrawId(drawRef.getId());
+        return draw;
+    }
+
+    /**
+     * Finishes writing the history and notifications of the draws of an event that were
+     * interrupted, e.g. because the app was closed before {@link #runLotteryDraw(String)}
+     * completed. Draws that were fully written are not touched.
+     *
+     * @param documentId The event's document id
+     * @return Task that completes once every draw of the event has been written
+     */
+    public Task<Void> resumeLotteryFanOut(@NonNull String documentId) {
+        return lotteryFanOut.resume(firestore.collection("Events").document(documentId));
+    }
+
+    /**
+     * Continues delivering the organizer broadcasts of an event that were still pending, e.g.
+     * because the app was closed while they were being sent.
+     *
+     * @param documentId The event's document id
+     * @return Task that completes once every pending broadcast of the event has been handled
+     */
+    public Task<Void> resumeBroadcasts(@NonNull String documentId) {
+        return broadcastDispatcher.resume(firestore.collection("Events").document(documentId));
+    }
+
+    /**
+     * Told how a deletion started by {@link #deleteEvent(String, DeletionListener)} or
+     * {@link #deleteEvents(Collection, DeletionListener)} is progressing.
+     */
+    public interface DeletionListener {
+        /**
+         * @param eventId The event being deleted
+         * @param deleted Documents of the event deleted so far, subcollections included
+         * @param done    Whether the event and its summary are gone
+         */
+        void onProgress(@NonNull String eventId, long deleted, boolean done);
+    }
+
+    /**
+     * Deletes the specified event document, every subcollection under it and its summary.
      */
     public Task<Void> deleteEvent(@NonNull String documentId) {
-        return firestore.collection("Events").document(documentId).delete();
+        return deleteEvent(documentId, null);
+    }
+
+    /**
+     * Deletes the specified event document, every subcollection under it and its summary, in
+     * batches of at most {@link #MAX_BATCH_WRITES} deletes. The summary stays, marked as being
+     * deleted, until everything else is gone, so an interrupted deletion can be continued by
+     * {@link #resumeEventDeletions()}.
+     *
+     * @param documentId The event's document id
+     * @param listener   Told how many documents were deleted so far, or null
+     * @return Task that completes once the event is entirely deleted
+     */
+    public Task<Void> deleteEvent(@NonNull String documentId, @Nullable DeletionListener listener) {
+        return deleter.delete(documentId, listener);
+    }
+
+    /**
+     * Deletes several events as {@link #deleteEvent(String, DeletionListener)} does, one after
+     * the other. An event that fails to delete does not stop the others.
+     *
+     * @param documentIds The events' document ids
+     * @param listener    Told how many documents of each event were deleted so far, or null
+     * @return Task that completes once every event was attempted, failing if any of them failed
+     */
+    public Task<Void> deleteEvents(@NonNull Collection<String> documentIds,
+                                   @Nullable DeletionListener listener) {
+        return deleter.deleteAll(documentIds, listener);
+    }
+
+    /**
+     * Continues deleting the events whose deletion did not finish, e.g. because the app was
+     * closed while it was running.
+     *
+     * @return Task that completes once every such event is deleted
+     */
+    public Task<Void> resumeEventDeletions() {
+        return deleter.resume(null);
+    }
+
+    /**
+     * Runs the migrations of event documents, {@link #stripLegacyQrCodes(Iterable)} and
+     * {@link #backfillEventSummaries(Iterable)}, unless they completed before. Both need every
+     * full event, so they share one read of the Events collection, and a document in
+     * {@link #MIGRATIONS} records that they completed so no device reads the collection for them
+     * again.
+     *
+     * @return Task that completes once the migrations completed, now or before
+     */
+    public Task<Void> migrateEventDocuments() {
+        DocumentReference done = firestore.collection(MIGRATIONS).document(EVENT_DOCUMENTS_MIGRATION);
+        return done.get().onSuccessTask(LotteryFanOut.DIRECT, marker -> {
+            FirestoreCosts.getInstance().read("EventService.migrateEventDocuments", marker);
+            if (marker != null && marker.exists()) {
+                return Tasks.forResult(null);
+            }
+            return firestore.collection("Events").get()
+                    .onSuccessTask(LotteryFanOut.DIRECT, events -> {
+                        FirestoreCosts.getInstance().read("EventService.migrateEventDocuments", events);
+                        return Tasks.whenAll(stripLegacyQrCodes(events), backfillEventSummaries(events));
+                    })
+                    .onSuccessTask(LotteryFanOut.DIRECT, ignored -> {
+                        Map<String, Object> completed = new HashMap<>();
+                        completed.put("completedAt", FieldValue.serverTimestamp());
+                        return done.set(completed);
+                    });
+        });
+    }
+
+    /**
+     * Migration that writes the summary of events created before summaries were maintained, in
+     * batches of at most {@link #MAX_BATCH_WRITES} writes.
+     * <p>
+     * Only events without a summary get one, and it is merged into whatever is written meanwhile,
+     * so a summary {@link #deleteEvents(Collection, DeletionListener)} marked as being deleted
+     * keeps its marker. An event being deleted always has a summary, as the marker is written
+     * before anything is deleted, so the migration never brings back the summary of an event
+     * that is going away.
+     *
+     * @param events Snapshots of event documents, e.g. the result of a query on "Events"
+     * @return Task that completes when every missing summary has been written
+     */
+    public Task<Void> backfillEventSummaries(@NonNull Iterable<? extends DocumentSnapshot> events) {
+        return firestore.collection(EventSummary.COLLECTION).get().onSuccessTask(LotteryFanOut.DIRECT, summaries -> {
+            FirestoreCosts.getInstance().read("EventService.backfillEventSummaries", summaries);
+            Set<String> summarized = new HashSet<>();
+            for (DocumentSnapshot summary : summaries.getDocuments()) {
+                summarized.add(summary.getId());
+            }
+            List<Task<Void>> commits = new ArrayList<>();
+            WriteBatch batch = firestore.batch();
+            int writes = 0;
+            for (DocumentSnapshot snapshot : events) {
+                if (summarized.contains(snapshot.getId())) {
+                    continue;
+                }
+                Event event;
+                try {
+                    event = snapshot.toObject(Event.class);
+                } catch (RuntimeException e) {
+                    Log.e("EventService", "Skipping non-convertible document: " + snapshot.getId(), e);
+                    continue;
+                }
+                if (event == null) {
+                    continue;
+                }
+                event.setEventId(snapshot.getId());
+                batch.set(summaryRef(snapshot.getId()), EventSummary.of(event), SetOptions.merge());
+                if (++writes == MAX_BATCH_WRITES) {
+                    commits.add(batch.commit());
+                    batch = firestore.batch();
+                    writes = 0;
+                }
+            }
+            if (writes > 0) {
+                commits.add(batch.commit());
+            }
+            return Tasks.whenAll(commits);
+        });
+    }
+
+    /**
+     * Migration that removes the Base64 QR code events used to store in their document. QR codes
+     * are now rendered on demand by {@link EventQrCodeService}. Only the snapshots that still carry
+     * the field are written, in batches of at most {@link #MAX_BATCH_WRITES} updates.
+     *
+     * @param events Snapshots of event documents, e.g. the result of a listener on "Events"
+     * @return Task that completes when every affected document has been updated
+     */
+    public Task<Void> stripLegacyQrCodes(@NonNull Iterable<? extends DocumentSnapshot> events) {
+        List<Task<Void>> commits = new ArrayList<>();
+        WriteBatch batch = firestore.batch();
+        int writes = 0;
+        for (DocumentSnapshot snapshot : events) {
+            if (!snapshot.contains(LEGACY_QR_CODE_FIELD)) {
+                continue;
+            }
+            batch.update(snapshot.getReference(), LEGACY_QR_CODE_FIELD, FieldValue.delete());
+            if (++writes == MAX_BATCH_WRITES) {
+                commits.add(batch.commit());
+                batch = firestore.batch();
+                writes = 0;
+            }
+        }
+        if (writes > 0) {
+            commits.add(batch.commit());
+        }
+        return Tasks.whenAll(commits);
     }
     // constructs the payload with fields for notification
     /**
      * Builds a Firestore document payload for a notification entry targeted to a specific entrant.
      */
-    private Map<String, Object> buildNotification(String recipientEmail,
-                                                  String type,
-                                                  String eventName,
-                                                  long drawTimestamp,
-                                                  String eventId,
-                                                  @Nullable String message) {
+    static Map<String, Object> buildNotification(String recipientEmail,
+                                                 String type,
+                                                 String eventName,
+                                                 long drawTimestamp,
+                                                 String eventId,
+                                                 @Nullable String message) {
         Map<String, Object> payload = new HashMap<>();
         payload.put("recipientEmail", recipientEmail == null ? "" : recipientEmail.trim().toLowerCase());
         payload.put("type", type); // "win" or "lose"
@@ -272,67 +1214,121 @@ public class EventService {
      * Moves the entrant into the pending list so organisers can see who confirmed.
      */
     public Task<Void> acceptInvitation(@NonNull String documentId, @NonNull String entrantEmail) {
+        return acceptInvitation(documentId, entrantEmail, null);
+    }
+
+    /**
+     * Records that a chosen entrant has accepted their invitation, at most once per request.
+     *
+     * @param requestId Idempotency key of the request, or null for a request that is never replayed
+     * @see #addEntrantToWaitlist(String, String, String)
+     */
+    public Task<Void> acceptInvitation(@NonNull String documentId, @NonNull String entrantEmail,
+                                       @Nullable String requestId) {
         final String normalizedEmail = entrantEmail.trim();
-        return firestore.runTransaction((Transaction.Function<Void>) transaction -> {
+        final String key = IdempotencyKey.orNew(requestId);
+        List<HistoryRecorder.Change> changes = new ArrayList<>();
+        return recordAfter(changes, transactions.run("acceptInvitation", documentId,
+                (TransactionRunner.Function<Void>) transaction -> {
+            changes.clear();
             DocumentReference eventRef = firestore.collection("Events").document(documentId);
             Event event = transaction.get(eventRef).toObject(Event.class);
             if (event == null) {
                 throw new IllegalStateException("Event not found");
             }
-
-            if (!event.getChosenList().contains(normalizedEmail)) {
-                throw new IllegalArgumentException("You were not selected for this event.");
-            }
-            if (event.getPendingList().contains(normalizedEmail)) {
-                throw new IllegalArgumentException("You have already accepted this invitation.");
+            if (alreadyApplied(transaction, documentId, requestId, normalizedEmail)) {
+                return null;
             }
 
-            event.addPendingEntrant(normalizedEmail);
-            event.removeChosenEntrant(normalizedEmail);
-            recordHistory(transaction, event, normalizedEmail, Entrant.Status.CONFIRMED);
-            ArrayList<String> cancelled = event.getCancelledList();
-            cancelled.remove(normalizedEmail);
-            event.setCancelledList(cancelled);
-            transaction.set(eventRef, event);
+            if (event.isShardedEntrants()) {
+                ShardedEntrants.Entry current = shardedEntrants.read(transaction, eventRef, normalizedEmail);
+                if (current.getStatus() == MembershipIndex.Status.PENDING) {
+                    throw new IllegalArgumentException("You have already accepted this invitation.");
+                }
+                if (current.getStatus() != MembershipIndex.Status.CHOSEN) {
+                    throw new IllegalArgumentException("You were not selected for this event.");
+                }
+                shardedEntrants.write(transaction, eventRef, normalizedEmail, current, MembershipIndex.Status.PENDING);
+                recordHistory(changes, event, normalizedEmail, Entrant.Status.CONFIRMED, key);
+            } else {
+                accept(event, normalizedEmail);
+                recordHistory(changes, event, normalizedEmail, Entrant.Status.CONFIRMED, key);
+                transaction.set(eventRef, event);
+                transaction.set(summaryRef(documentId), EventSummary.of(event));
+            }
             // Persist the entrant's response so the UI can restore state after navigation/restart.
             transaction.set(eventRef.collection("Responses").document(normalizedEmail),
                     buildResponsePayload(normalizedEmail, "accepted",
                             "You have accepted the invitation" + formatEventSuffix(event.getName())));
+            markApplied(transaction, documentId, requestId, normalizedEmail);
             return null;
-        });
+        }));
     }
 
     /**
      * Records that a chosen entrant has declined their invitation; removes them from the winners list.
-     * This keeps the Firestore state accurate so the organiser can re-run the draw if needed.
+     * This keeps the Firestore state accurate so the organiser can draw a replacement if needed.
+     * Events with {@link Event#isAutoReplaceDeclines()} set draw one replacement right away with
+     * {@link #drawReplacements(String, int)}; the decline stands even if that draw fails.
      */
     public Task<Void> declineInvitation(@NonNull String documentId, @NonNull String entrantEmail) {
+        return declineInvitation(documentId, entrantEmail, null);
+    }
+
+    /**
+     * Records that a chosen entrant has declined their invitation, at most once per request. A
+     * replayed decline does not draw another replacement.
+     *
+     * @param requestId Idempotency key of the request, or null for a request that is never replayed
+     * @see #addEntrantToWaitlist(String, String, String)
+     */
+    public Task<Void> declineInvitation(@NonNull String documentId, @NonNull String entrantEmail,
+                                        @Nullable String requestId) {
         final String normalizedEmail = entrantEmail.trim();
-        return firestore.runTransaction((Transaction.Function<Void>) transaction -> {
+        final String key = IdempotencyKey.orNew(requestId);
+        List<HistoryRecorder.Change> changes = new ArrayList<>();
+        return recordAfter(changes, transactions.run("declineInvitation", documentId,
+                (TransactionRunner.Function<Boolean>) transaction -> {
+            changes.clear();
             DocumentReference eventRef = firestore.collection("Events").document(documentId);
             Event event = transaction.get(eventRef).toObject(Event.class);
             if (event == null) {
                 throw new IllegalStateException("Event not found");
             }
-
-            if (!event.getChosenList().contains(normalizedEmail)) {
-                throw new IllegalArgumentException("You were not selected for this event.");
+            if (alreadyApplied(transaction, documentId, requestId, normalizedEmail)) {
+                return false;
             }
 
-            event.removeChosenEntrant(normalizedEmail);
-            event.removePendingEntrant(normalizedEmail);
-            recordHistory(transaction, event, normalizedEmail, Entrant.Status.DECLINED);
-            ArrayList<String> cancelled = event.getCancelledList();
-            if (!cancelled.contains(normalizedEmail)) {
-                cancelled.add(normalizedEmail);
+            if (event.isShardedEntrants()) {
+                ShardedEntrants.Entry current = shardedEntrants.read(transaction, eventRef, normalizedEmail);
+                if (current.getStatus() != MembershipIndex.Status.CHOSEN) {
+                    throw new IllegalArgumentException("You were not selected for this event.");
+                }
+                shardedEntrants.write(transaction, eventRef, normalizedEmail, current, MembershipIndex.Status.CANCELLED);
+                recordHistory(changes, event, normalizedEmail, Entrant.Status.DECLINED, key);
+            } else {
+                decline(event, normalizedEmail);
+                recordHistory(changes, event, normalizedEmail, Entrant.Status.DECLINED, key);
+                transaction.set(eventRef, event);
+                transaction.set(summaryRef(documentId), EventSummary.of(event));
             }
-            event.setCancelledList(cancelled);
-            transaction.set(eventRef, event);
             // Persist the entrant's response so the UI can restore state after navigation/restart.
             transaction.set(eventRef.collection("Responses").document(normalizedEmail),
                     buildResponsePayload(normalizedEmail, "declined",
                             "You have declined the invitation" + formatEventSuffix(event.getName())));
-            return null;
+            markApplied(transaction, documentId, requestId, normalizedEmail);
+            return event.isAutoReplaceDeclines();
+        })).onSuccessTask(LotteryFanOut.DIRECT, replace -> {
+            if (!Boolean.TRUE.equals(replace)) {
+                return Tasks.forResult(null);
+            }
+            return drawReplacements(documentId, 1).continueWith(LotteryFanOut.DIRECT, task -> {
+                if (!task.isSuccessful()) {
+                    Log.w("EventService", "Could not draw a replacement for " + documentId,
+                            task.getException());
+                }
+                return null;
+            });
         });
     }
 
@@ -342,33 +1338,69 @@ public class EventService {
      */
     public Task<Void> completeRegistration(@NonNull String documentId,
                                            @NonNull String entrantEmail) {
+        return completeRegistration(documentId, entrantEmail, null);
+    }
+
+    /**
+     * Converts a pending entrant into a registered participant, at most once per request. A
+     * replayed registration sends no second confirmation.
+     *
+     * @param requestId Idempotency key of the request, or null for a request that is never replayed
+     * @see #addEntrantToWaitlist(String, String, String)
+     */
+    public Task<Void> completeRegistration(@NonNull String documentId,
+                                           @NonNull String entrantEmail,
+                                           @Nullable String requestId) {
         final String normalizedEmail = entrantEmail.trim();
-        return firestore.runTransaction((Transaction.Function<Void>) transaction -> {
+        return preferences.resolve(normalizedEmail).onSuccessTask(LotteryFanOut.DIRECT,
+                notificationsEnabled -> completeRegistration(documentId, normalizedEmail,
+                        Boolean.TRUE.equals(notificationsEnabled), requestId));
+    }
+
+    private Task<Void> completeRegistration(@NonNull String documentId,
+                                            @NonNull String normalizedEmail,
+                                            boolean notificationsEnabled,
+                                            @Nullable String requestId) {
+        final String key = IdempotencyKey.orNew(requestId);
+        List<HistoryRecorder.Change> changes = new ArrayList<>();
+        return recordAfter(changes, transactions.run("completeRegistration", documentId,
+                (TransactionRunner.Function<Void>) transaction -> {
+            changes.clear();
             DocumentReference eventRef = firestore.collection("Events").document(documentId);
             Event event = transaction.get(eventRef).toObject(Event.class);
             if (event == null) {
                 throw new IllegalStateException("Event not found");
             }
-            if (!event.getPendingList().contains(normalizedEmail)) {
-                throw new IllegalArgumentException("Please accept the invitation before registering.");
-            }
-            if (event.getRegisteredList().contains(normalizedEmail)) {
-                throw new IllegalArgumentException("You have already registered for this event.");
+            if (alreadyApplied(transaction, documentId, requestId, normalizedEmail)) {
+                return null;
             }
+            if (event.isShardedEntrants()) {
+                ShardedEntrants.Entry current = shardedEntrants.read(transaction, eventRef, normalizedEmail);
+                if (current.getStatus() == MembershipIndex.Status.REGISTERED) {
+                    throw new IllegalArgumentException("You have already registered for this event.");
+                }
+                if (current.getStatus() != MembershipIndex.Status.PENDING) {
+                    throw new IllegalArgumentException("Please accept the invitation before registering.");
+                }
+                shardedEntrants.write(transaction, eventRef, normalizedEmail, current, MembershipIndex.Status.REGISTERED);
+                recordHistory(changes, event, normalizedEmail, Entrant.Status.REGISTERED, key);
+            } else {
+                register(event, normalizedEmail);
+                recordHistory(changes, event, normalizedEmail, Entrant.Status.REGISTERED, key);
 
-            event.removePendingEntrant(normalizedEmail);
-            event.addRegisteredEntrant(normalizedEmail);
-            recordHistory(transaction, event, normalizedEmail, Entrant.Status.REGISTERED);
+                transaction.set(eventRef, event);
 
-            transaction.set(eventRef, event);
+                transaction.set(summaryRef(documentId), EventSummary.of(event));
+            }
 
             String successMessage = registrationSuccessMessage(event.getName());
             // Update the response record so UIs can detect that registration is complete.
             transaction.set(eventRef.collection("Responses").document(normalizedEmail),
                     buildResponsePayload(normalizedEmail, "registered", successMessage));
 
-            if (isNotificationsEnabled(transaction, normalizedEmail)) {
-                transaction.set(eventRef.collection("Notifications").document(),
+            if (notificationsEnabled) {
+                transaction.set(eventRef.collection("Notifications")
+                                .document(IdempotencyKey.documentId(key, normalizedEmail, "signup_success")),
                         buildNotification(
                                 normalizedEmail,
                                 "signup_success",
@@ -378,8 +1410,9 @@ public class EventService {
                                 successMessage
                         ));
             }
+            markApplied(transaction, documentId, requestId, normalizedEmail);
             return null;
-        });
+        }));
     }
 
     /**
@@ -405,219 +1438,428 @@ public class EventService {
     }
 
     /**
-     * Writes/updates a history record for an entrant inside the current transaction so that
-     * their timeline reflects the latest interaction with this event (waitlisted, selected,
-     * confirmed, declined, registered). Also mirrors the status into the profile's eventHistory map
-     * for quick lookup without an additional read.
+     * Changes the waiting count of the summary of an event with sharded entrants, in the
+     * transaction that moves an entrant on or off its waiting list. The increment is written
+     * without reading the summary, so joins and leaves still only conflict on their counter shard,
+     * and list screens read the count from the summary like that of any other event.
+     */
+    private void changeWaitingCount(@NonNull TrackedTransaction transaction, @NonNull String eventId,
+                                    long delta) {
+        Map<String, Object> count = new HashMap<>();
+        count.put(EventSummary.WAITING_COUNT, FieldValue.increment(delta));
+        transaction.set(summaryRef(eventId), count, SetOptions.merge());
+    }
+
+    private DocumentReference summaryRef(@NonNull String eventId) {
+        return firestore.collection(EventSummary.COLLECTION).document(eventId);
+    }
+
+    /**
+     * Queues a history record for an entrant so that their timeline reflects the latest
+     * interaction with this event (waitlisted, selected, confirmed, declined, registered). Also
+     * mirrors the status into the entrant's {@link EntrantHistory} and the profile's eventHistory
+     * map for quick lookup without an additional read. All are written by
+     * {@link HistoryRecorder} once the transaction that made the change commits, so the
+     * transaction itself only writes the event.
      *
-     * @param transaction active Firestore transaction
+     * @param changes     changes queued by the running transaction attempt
      * @param event       canonical event state involved in the update
      * @param entrantEmail entrant identifier (email)
      * @param status      latest status to record
+     * @param requestId   idempotency key of the request, from which the record's id is derived
      */
-    private void recordHistory(@NonNull Transaction transaction,
+    private void recordHistory(@NonNull List<HistoryRecorder.Change> changes,
                                @Nullable Event event,
                                @NonNull String entrantEmail,
-                               @NonNull Entrant.Status status) {
+                               @NonNull Entrant.Status status,
+                               @NonNull String requestId) {
         if (event == null) {
             return;
         }
         String normalizedEmail = entrantEmail.trim();
-        DocumentReference historyRef = firestore.collection("Events").document(event.getEventId())
-                .collection("History").document();
+        changes.add(new HistoryRecorder.Change(event.getEventId(), normalizedEmail,
+                historyRef(event.getEventId(), requestId, normalizedEmail),
+                buildHistory(event.getEventId(), event.getName(), status,
+                        event.getEventStartDate(), event.getEventEndDate(),
+                        event.getLocation() != null ? event.getLocation().toString() : ""),
+                // Also reflect the latest status in the profile map for quick lookups.
+                firestore.collection("Profiles").document(normalizedEmail),
+                buildHistoryMapUpdate(event.getEventId(), status)));
+    }
 
+    /**
+     * Hand the history queued by a transaction or batch to {@link HistoryRecorder} once it
+     * committed, so that attempts Firestore retried or rolled back record nothing.
+     */
+    private <T> Task<T> recordAfter(@NonNull List<HistoryRecorder.Change> changes,
+                                    @NonNull Task<T> write) {
+        return write.onSuccessTask(LotteryFanOut.DIRECT, result -> {
+            history.record(changes);
+            return Tasks.forResult(result);
+        });
+    }
 
-        Map<String, Object> payload = new HashMap<>();
-        payload.put("eventId", event.getEventId());
-        payload.put("eventName", event.getName() == null ? "" : event.getName());
-        payload.put("status", status.name());
-        payload.put("updatedAt", new Date());
-        payload.put("startDate", event.getEventStartDate());
-        payload.put("endDate", event.getEventEndDate());
-        payload.put("location", event.getLocation() != null ? event.getLocation().toString() : "");
+    /**
+     * Writes the history entries still buffered by this service now, instead of waiting for
+     * {@link HistoryRecorder#FLUSH_DELAY_MS}, e.g. before the app goes to the background.
+     *
+     * @return Task that completes once the entries are committed
+     */
+    public Task<Void> flushHistory() {
+        return history.flush();
+    }
 
-        transaction.set(historyRef, payload);
+    /**
+     * Writes the history buffered by every service made with {@link #EventService()} now.
+     *
+     * @return Task that completes once the entries are committed
+     * @see #flushHistory()
+     */
+    public static Task<Void> flushSharedHistory() {
+        return HistoryRecorder.getInstance().flush();
+    }
 
-        // Also reflect the latest status in the profile map for quick lookups.
-        DocumentReference profileRef = firestore.collection("Profiles").document(normalizedEmail);
-        Map<String, Object> historyMapUpdate = new HashMap<>();
-        historyMapUpdate.put("eventHistory." + event.getEventId(), status.name());
-        transaction.set(profileRef, historyMapUpdate, SetOptions.merge());
+    /**
+     * @return The history record a request writes for an entrant, whose id is derived from the
+     * request's idempotency key so that retrying the request overwrites it
+     */
+    private DocumentReference historyRef(@NonNull String eventId, @NonNull String requestId,
+                                         @NonNull String normalizedEmail) {
+        return firestore.collection("Events").document(eventId).collection("History")
+                .document(IdempotencyKey.documentId(requestId, normalizedEmail));
     }
 
     /**
-     * Checks if the entrant has notifications enabled. Defaults to true when the profile
-     * is missing the flag or the profile document does not exist.
-     * Determines whether organizer/admin notifications should be sent to the given entrant.
+     * @return The marker a request leaves for an entrant in Events/{id}/Requests once it is
+     * applied, whose id is derived from the request's idempotency key
      */
-    private boolean isNotificationsEnabled(@NonNull Transaction transaction, @NonNull String email) {
-        String normalized = normalizeEmailKey(email);
-        if (normalized.isEmpty()) {
-            return false;
-        }
+    private DocumentReference requestRef(@NonNull String eventId, @NonNull String requestId,
+                                         @NonNull String normalizedEmail) {
+        return firestore.collection("Events").document(eventId).collection(REQUESTS)
+                .document(IdempotencyKey.documentId(requestId, normalizedEmail));
+    }
 
-        DocumentReference preferenceRef = firestore.collection("NotificationPreferences")
-                .document(normalized);
-        try {
-            DocumentSnapshot snapshot = transaction.get(preferenceRef);
-            if (snapshot.exists()) {
-                Boolean enabled = snapshot.getBoolean("notificationEnabled");
-                if (enabled != null) {
-                    return enabled;
-                }
-            }
-        } catch (Exception ignored) {
-            // fall back to profile lookups
-        }
+    private static Map<String, Object> appliedMarker(@NonNull String normalizedEmail) {
+        Map<String, Object> marker = new HashMap<>();
+        marker.put("email", normalizedEmail);
+        marker.put("appliedAt", new Date());
+        return marker;
+    }
 
-        List<String> profileKeys = Arrays.asList(email.trim(), normalized);
-        for (String key : profileKeys) {
-            if (key.isEmpty()) {
-                continue;
-            }
-            DocumentReference profileRef = firestore.collection("Profiles").document(key);
-            try {
-                DocumentSnapshot snapshot = transaction.get(profileRef);
-                if (!snapshot.exists()) {
-                    continue;
-                }
-                Boolean enabled = snapshot.getBoolean("notificationEnabled");
-                if (enabled != null) {
-                    return enabled;
-                }
-            } catch (Exception ignored) {
-                // try next
-            }
+    /**
+     * Reads, inside a transaction and before any write, whether a request was already applied
+     * for an entrant, i.e. whether it is being replayed after it succeeded.
+     *
+     * @param requestId Idempotency key supplied by the caller; null keys are never replays
+     */
+    private boolean alreadyApplied(@NonNull TrackedTransaction transaction, @NonNull String eventId,
+                                   @Nullable String requestId, @NonNull String normalizedEmail)
+            throws FirebaseFirestoreException {
+        return requestId != null
+                && transaction.get(requestRef(eventId, requestId, normalizedEmail)).exists();
+    }
+
+    /**
+     * Marks a request as applied for an entrant, in the transaction that applies it, so that
+     * {@link #alreadyApplied} recognises a replay as soon as the transaction commits. The history
+     * of the change is written later and may be coalesced, so it cannot serve as the marker.
+     *
+     * @param requestId Idempotency key supplied by the caller; nothing is written for null keys
+     */
+    private void markApplied(@NonNull TrackedTransaction transaction, @NonNull String eventId,
+                             @Nullable String requestId, @NonNull String normalizedEmail) {
+        if (requestId != null) {
+            transaction.set(requestRef(eventId, requestId, normalizedEmail), appliedMarker(normalizedEmail));
         }
+    }
 
-        return true;
+    /**
+     * Builds the payload of an entry in Events/{id}/History.
+     */
+    static Map<String, Object> buildHistory(String eventId,
+                                            @Nullable String eventName,
+                                            @NonNull Entrant.Status status,
+                                            @Nullable Date startDate,
+                                            @Nullable Date endDate,
+                                            @Nullable String location) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("eventId", eventId);
+        payload.put("eventName", eventName == null ? "" : eventName);
+        payload.put("status", status.name());
+        payload.put("updatedAt", new Date());
+        payload.put("startDate", startDate);
+        payload.put("endDate", endDate);
+        payload.put("location", location == null ? "" : location);
+        return payload;
     }
 
     /**
-     * Normalizes an email address for collection/document keys.
+     * Builds the merge that records the latest status of an entrant in their profile. The status
+     * is nested in the eventHistory map rather than keyed by a dotted path, which a set would
+     * write as a single field named after the whole path.
      */
-    private String normalizeEmailKey(@Nullable String email) {
-        if (email == null) {
-            return "";
-        }
-        return email.trim().toLowerCase(Locale.ROOT);
+    static Map<String, Object> buildHistoryMapUpdate(String eventId, @NonNull Entrant.Status status) {
+        Map<String, Object> eventHistory = new HashMap<>();
+        eventHistory.put(eventId, status.name());
+        Map<String, Object> historyMapUpdate = new HashMap<>();
+        historyMapUpdate.put("eventHistory", eventHistory);
+        return historyMapUpdate;
     }
 
     public Task<Void> notifyWaitlistEntrants(@NonNull String eventId, @Nullable String message) {
-        return notifyGroup(eventId, NotificationGroup.WAITLIST, "org_waitlist", message);
+        return notifyWaitlistEntrants(eventId, message, null);
     }
 
     public Task<Void> notifySelectedEntrants(@NonNull String eventId, @Nullable String message) {
-        return notifyGroup(eventId, NotificationGroup.SELECTED, "org_selected", message);
+        return notifySelectedEntrants(eventId, message, null);
     }
 
     public Task<Void> notifyCancelledEntrants(@NonNull String eventId, @Nullable String message) {
-        return notifyGroup(eventId, NotificationGroup.CANCELLED, "org_cancelled", message);
+        return notifyCancelledEntrants(eventId, message, null);
+    }
+
+    /**
+     * Same as {@link #notifyWaitlistEntrants(String, String)}, queued at most once per request.
+     *
+     * @param requestId Idempotency key of the request, or null for a request that is never replayed
+     */
+    public Task<Void> notifyWaitlistEntrants(@NonNull String eventId, @Nullable String message,
+                                             @Nullable String requestId) {
+        return notifyGroup(eventId, NotificationGroup.WAITLIST, "org_waitlist", message, requestId);
+    }
+
+    /**
+     * Same as {@link #notifySelectedEntrants(String, String)}, queued at most once per request.
+     *
+     * @param requestId Idempotency key of the request, or null for a request that is never replayed
+     */
+    public Task<Void> notifySelectedEntrants(@NonNull String eventId, @Nullable String message,
+                                             @Nullable String requestId) {
+        return notifyGroup(eventId, NotificationGroup.SELECTED, "org_selected", message, requestId);
+    }
+
+    /**
+     * Same as {@link #notifyCancelledEntrants(String, String)}, queued at most once per request.
+     *
+     * @param requestId Idempotency key of the request, or null for a request that is never replayed
+     */
+    public Task<Void> notifyCancelledEntrants(@NonNull String eventId, @Nullable String message,
+                                              @Nullable String requestId) {
+        return notifyGroup(eventId, NotificationGroup.CANCELLED, "org_cancelled", message, requestId);
     }
 
     /**
      * Moves all entrants from the pending (accepted invite) list to the cancelled list.
      * This is intended for use after a lottery draw and acceptance period have concluded.
      *
+     * Events that keep their entrants in {@link ShardedEntrants} are cancelled in transactions of
+     * at most {@link #SHARDED_CANCEL_CHUNK} entrants each, listed by a query beforehand.
+     *
      * @param documentId The event's document id
      * @return Task representing completion of the transaction.
      */
     public Task<Void> cancelUnregisteredEntrants(@NonNull String documentId) {
-        return firestore.runTransaction((Transaction.Function<Void>) transaction -> {
+        // A replay finds the chosen list empty, so the key only has to cover transaction retries
+        final String key = IdempotencyKey.newKey();
+        List<HistoryRecorder.Change> changes = new ArrayList<>();
+        // Set when the entrants of the event have to be listed by cancelSharded
+        boolean[] sharded = new boolean[1];
+        return recordAfter(changes, transactions.run("cancelUnregisteredEntrants", documentId,
+                (TransactionRunner.Function<Void>) transaction -> {
+            changes.clear();
+            sharded[0] = false;
             DocumentReference eventRef = firestore.collection("Events").document(documentId);
             Event event = transaction.get(eventRef).toObject(Event.class);
             if (event == null) {
                 // This will trigger the error you saw before if the object can't be created
                 throw new IllegalStateException("Error converting document to Event object. Check Firestore field names!");
             }
+            if (event.isShardedEntrants()) {
+                sharded[0] = true;
+                return null;
+            }
 
-            // Get the current lists from the event object
-            ArrayList<String> chosenList = event.getChosenList();
-            ArrayList<String> cancelledList = event.getCancelledList();
-
-            // Nothing to do if the pending list is already empty
-            if (chosenList == null || chosenList.isEmpty()) {
+            // Nothing to do if the chosen list is already empty
+            if (event.countEntrants(MembershipIndex.Status.CHOSEN) == 0) {
                 return null;
             }
-            // Iterate through a copy of the pending list to avoid modification issues during the loop
-            for (String entrantEmail : new ArrayList<>(chosenList)) {
-                // Add the entrant to the cancelled list if they aren't already there
-                if (!cancelledList.contains(entrantEmail)) {
-                    cancelledList.add(entrantEmail);
-                }
+            // getChosenList() is a copy, so moving entrants while iterating is safe
+            for (String entrantEmail : event.getChosenList()) {
+                // Moves the entrant to the cancelled list unless they are already there
+                event.moveEntrant(entrantEmail, MembershipIndex.Status.CHOSEN, MembershipIndex.Status.CANCELLED);
                 // Record this specific action in the entrant's history
-                recordHistory(transaction, event, entrantEmail, Entrant.Status.CANCELLED);
+                recordHistory(changes, event, entrantEmail, Entrant.Status.CANCELLED, key);
             }
 
-            // Clear the original pending list completely
-            chosenList.clear();
-
-            // Set the modified lists back to the event object to ensure they are saved
-            event.setChosenList(chosenList);
-            event.setCancelledList(cancelledList);
-
             // Persist all the changes to the event document in Firestore.
             transaction.set(eventRef, event);
+            transaction.set(summaryRef(documentId), EventSummary.of(event));
             return null;
-        });
+        })).onSuccessTask(LotteryFanOut.DIRECT,
+                ignored -> sharded[0] ? cancelSharded(documentId) : Tasks.forResult(null));
     }
 
-    private enum NotificationGroup { WAITLIST, SELECTED, CANCELLED }
+    private Task<Void> cancelSharded(@NonNull String documentId) {
+        DocumentReference eventRef = firestore.collection("Events").document(documentId);
+        return shardedEntrants.list(eventRef, MembershipIndex.Status.CHOSEN)
+                .onSuccessTask(LotteryFanOut.DIRECT, chosen -> {
+                    Task<Void> cancelled = Tasks.forResult(null);
+                    for (int from = 0; from < chosen.size(); from += SHARDED_CANCEL_CHUNK) {
+                        List<String> chunk = chosen.subList(from,
+                                Math.min(chosen.size(), from + SHARDED_CANCEL_CHUNK));
+                        cancelled = cancelled.onSuccessTask(LotteryFanOut.DIRECT,
+                                ignored -> cancelSharded(documentId, chunk));
+                    }
+                    return cancelled;
+                });
+    }
 
     /**
-     * Writes organizer-triggered notifications to the chosen entrant group within an event.
+     * Cancel the entrants of a chunk that are still chosen; those that answered since they were
+     * listed are left alone.
+     */
+    private Task<Void> cancelSharded(@NonNull String documentId, @NonNull List<String> emails) {
+        final String key = IdempotencyKey.newKey();
+        List<HistoryRecorder.Change> changes = new ArrayList<>();
+        return recordAfter(changes, transactions.run("cancelUnregisteredEntrants", documentId,
+                (TransactionRunner.Function<Void>) transaction -> {
+            changes.clear();
+            DocumentReference eventRef = firestore.collection("Events").document(documentId);
+            Event event = transaction.get(eventRef).toObject(Event.class);
+            if (event == null) {
+                throw new IllegalStateException("Event not found");
+            }
+            Map<String, ShardedEntrants.Entry> chosen = new LinkedHashMap<>();
+            for (String email : emails) {
+                ShardedEntrants.Entry entry = shardedEntrants.read(transaction, eventRef, email);
+                if (entry.getStatus() == MembershipIndex.Status.CHOSEN) {
+                    chosen.put(email, entry);
+                }
+            }
+            shardedEntrants.writeAll(transaction, eventRef, chosen,
+                    MembershipIndex.Status.CHOSEN, MembershipIndex.Status.CANCELLED);
+            for (String email : chosen.keySet()) {
+                recordHistory(changes, event, email, Entrant.Status.CANCELLED, key);
+            }
+            return null;
+        }));
+    }
+
+
+    private enum NotificationGroup {
+        WAITLIST(MembershipIndex.Status.WAITING),
+        SELECTED(MembershipIndex.Status.CHOSEN, MembershipIndex.Status.PENDING),
+        CANCELLED(MembershipIndex.Status.CANCELLED);
+
+        // Statuses of the entrants in the group
+        private final MembershipIndex.Status[] statuses;
+
+        NotificationGroup(MembershipIndex.Status... statuses) {
+            this.statuses = statuses;
+        }
+    }
+
+    /**
+     * Queues an organizer-triggered notification to the chosen entrant group within an event.
+     * <p>
+     * The transaction only appends a {@link Broadcast} listing the recipients, so the returned
+     * task completes as soon as the broadcast is queued, however large the group is. The
+     * notifications themselves are written in the background by {@link BroadcastDispatcher},
+     * which skips recipients that opted out and records the delivery status on the broadcast.
+     * A broadcast queued with a request id is keyed by it, so a replay finds it and queues nothing.
+     * <p>
+     * The group of an event that keeps its entrants in {@link ShardedEntrants} is listed by a
+     * query once the transaction has found the event to be sharded, and the broadcast is then
+     * queued by a second transaction.
      */
     private Task<Void> notifyGroup(@NonNull String eventId,
                                    @NonNull NotificationGroup group,
                                    @NonNull String type,
-                                   @Nullable String message) {
-        return firestore.runTransaction((Transaction.Function<Void>) transaction -> {
+                                   @Nullable String message,
+                                   @Nullable String requestId) {
+        return notifyGroup(eventId, group, type, message, requestId, null);
+    }
+
+    /**
+     * @param shardedRecipients The group of an event with sharded entrants, or null if it was
+     *                          not listed yet
+     */
+    private Task<Void> notifyGroup(@NonNull String eventId,
+                                   @NonNull NotificationGroup group,
+                                   @NonNull String type,
+                                   @Nullable String message,
+                                   @Nullable String requestId,
+                                   @Nullable List<String> shardedRecipients) {
+        // Set when the group has to be listed before the broadcast can be queued
+        boolean[] unlisted = new boolean[1];
+        return transactions.run("notifyGroup", eventId,
+                (TransactionRunner.Function<Broadcast>) transaction -> {
+            unlisted[0] = false;
             DocumentReference eventRef = firestore.collection("Events").document(eventId);
             Event event = transaction.get(eventRef).toObject(Event.class);
             if (event == null) {
                 throw new IllegalStateException("Event not found");
             }
+            DocumentReference broadcastRef = requestId != null
+                    ? eventRef.collection(Broadcast.COLLECTION).document(IdempotencyKey.documentId(requestId))
+                    : eventRef.collection(Broadcast.COLLECTION).document();
+            if (requestId != null && transaction.get(broadcastRef).exists()) {
+                return null;
+            }
+
+            if (event.isShardedEntrants() && shardedRecipients == null) {
+                unlisted[0] = true;
+                return null;
+            }
 
             List<String> recipients = new ArrayList<>();
-            switch (group) {
-                case WAITLIST:
-                    recipients.addAll(event.getWaitingList());
-                    break;
-                case SELECTED:
-                    recipients.addAll(event.getChosenList());
-                    recipients.addAll(event.getPendingList());
-                    break;
-                case CANCELLED:
-                    recipients.addAll(event.getCancelledList());
-                    break;
+            if (event.isShardedEntrants()) {
+                recipients.addAll(shardedRecipients);
+            } else {
+                switch (group) {
+                    case WAITLIST:
+                        recipients.addAll(event.getWaitingListView());
+                        break;
+                    case SELECTED:
+                        recipients.addAll(event.getChosenListView());
+                        recipients.addAll(event.getPendingListView());
+                        break;
+                    case CANCELLED:
+                        recipients.addAll(event.getCancelledListView());
+                        break;
+                }
+            }
+            if (recipients.isEmpty()) {
+                return null;
             }
 
             String finalMessage = (message != null && !message.trim().isEmpty())
                     ? message
                     : defaultMessageForType(type, event.getName());
 
-            for (String recipient : recipients) {
-                if (!isNotificationsEnabled(transaction, recipient)) {
-                    continue;
-                }
-                transaction.set(eventRef.collection("Notifications").document(),
-                        buildNotification(
-                                recipient,
-                                type,
-                                event.getName(),
-                                System.currentTimeMillis(),
-                                event.getEventId(),
-                                finalMessage
-                        ));
+            Broadcast broadcast = Broadcast.of(eventId, event.getName(), type, finalMessage, recipients);
+            transaction.set(broadcastRef, broadcast);
+            RecipientChunks.write(transaction, eventRef, broadcastRef.getId(), recipients, null);
+            broadcast.setBroadcastId(broadcastRef.getId());
+            return broadcast;
+        }).onSuccessTask(LotteryFanOut.DIRECT, broadcast -> {
+            if (broadcast != null) {
+                // Delivery carries on in the background; failures are recorded on the broadcast
+                broadcastDispatcher.dispatch(broadcast);
             }
-            return null;
+            if (unlisted[0]) {
+                return shardedEntrants.list(firestore.collection("Events").document(eventId),
+                        group.statuses).onSuccessTask(LotteryFanOut.DIRECT, recipients ->
+                        notifyGroup(eventId, group, type, message, requestId, recipients));
+            }
+            return Tasks.forResult(null);
         });
     }
 
     /**
      * Provides a default notification message when the organizer does not supply one explicitly.
      */
-    private String defaultMessageForType(String type, @Nullable String eventName) {
+    static String defaultMessageForType(String type, @Nullable String eventName) {
         String name = (eventName == null || eventName.trim().isEmpty()) ? "this event" : eventName;
         switch (type) {
             case "org_waitlist":
@@ -643,7 +1885,7 @@ public class EventService {
     /**
      * Formats the confirmation message sent after an entrant completes registration.
      */
-    private String registrationSuccessMessage(@Nullable String eventName) {
+    static String registrationSuccessMessage(@Nullable String eventName) {
         String name = (eventName == null || eventName.trim().isEmpty()) ? "this event" : eventName;
         return "You have successfully been registered to participate in " + name;
     }
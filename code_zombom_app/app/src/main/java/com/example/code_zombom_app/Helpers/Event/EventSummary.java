@@ -0,0 +1,202 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import androidx.annotation.NonNull;
+
+import com.example.code_zombom_app.Helpers.Location.Location;
+import com.google.firebase.firestore.IgnoreExtraProperties;
+import com.google.firebase.firestore.SetOptions;
+
+import java.util.Date;
+
+/**
+ * The part of an {@link Event} that list screens display, stored in the EventSummaries
+ * collection under the same id as the event.
+ * <p>
+ * A summary holds no membership list and no image, so loading every summary costs a small
+ * fraction of loading every event. {@link EventService} rewrites the summary whenever it writes
+ * the event document. Events with {@link Event#isShardedEntrants()} set never rewrite their
+ * document on a join; their joins and leaves change the summary's waiting count with an increment
+ * instead, and the other writes of their summary leave that count alone (see
+ * {@link #writeOptions(Event)}).
+ *
+ * @version 1.0.0
+ * @see EventService#loadEventSummaries()
+ */
+@IgnoreExtraProperties
+public class EventSummary {
+    public static final String COLLECTION = "EventSummaries";
+
+    // Field the joins and leaves of an event with sharded entrants increment
+    static final String WAITING_COUNT = "waitingCount";
+
+    private String eventId;
+    private String name;
+    private String genre;
+    private String description;
+    private Date eventStartDate;
+    private Date eventEndDate;
+    private Location location;
+    private int capacity;
+    private int waitlistLimit;
+    private int waitingCount;
+    private String posterUrl;
+    private boolean drawComplete;
+    private boolean shardedEntrants;
+
+    /**
+     * Public no-arg constructor required by Firestore.
+     */
+    public EventSummary() {
+        name = "";
+        genre = "";
+        description = "";
+        posterUrl = "";
+    }
+
+    /**
+     * Build the summary of an event.
+     *
+     * @param event The event to summarize
+     * @return The summary of the event
+     */
+    @NonNull
+    public static EventSummary of(@NonNull Event event) {
+        EventSummary summary = new EventSummary();
+        summary.eventId = event.getEventId();
+        summary.name = event.getName();
+        summary.genre = event.getGenre();
+        summary.description = event.getDescription();
+        summary.eventStartDate = event.getEventStartDate();
+        summary.eventEndDate = event.getEventEndDate();
+        summary.location = event.getLocation();
+        summary.capacity = event.getCapacity();
+        summary.waitlistLimit = event.getWaitlistLimit();
+        summary.waitingCount = event.getNumberOfWaiting();
+        summary.posterUrl = event.getPosterUrl();
+        summary.drawComplete = event.isDrawComplete();
+        summary.shardedEntrants = event.isShardedEntrants();
+        return summary;
+    }
+
+    /**
+     * @param event The event a summary is written for
+     * @return How to write the summary of the event over the stored one: every field is replaced,
+     * except the waiting count of an event with sharded entrants, which its own lists do not hold
+     */
+    @NonNull
+    public static SetOptions writeOptions(@NonNull Event event) {
+        if (!event.isShardedEntrants()) {
+            return SetOptions.merge();
+        }
+        return SetOptions.mergeFields("eventId", "name", "genre", "description", "eventStartDate",
+                "eventEndDate", "location", "capacity", "waitlistLimit", "posterUrl", "drawComplete",
+                "shardedEntrants");
+    }
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(String eventId) {
+        this.eventId = eventId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getGenre() {
+        return genre;
+    }
+
+    public void setGenre(String genre) {
+        this.genre = genre;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public Date getEventStartDate() {
+        return eventStartDate;
+    }
+
+    public void setEventStartDate(Date eventStartDate) {
+        this.eventStartDate = eventStartDate;
+    }
+
+    public Date getEventEndDate() {
+        return eventEndDate;
+    }
+
+    public void setEventEndDate(Date eventEndDate) {
+        this.eventEndDate = eventEndDate;
+    }
+
+    public Location getLocation() {
+        return location;
+    }
+
+    public void setLocation(Location location) {
+        this.location = location;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public int getWaitlistLimit() {
+        return waitlistLimit;
+    }
+
+    public void setWaitlistLimit(int waitlistLimit) {
+        this.waitlistLimit = waitlistLimit;
+    }
+
+    /**
+     * @return Number of entrants on the waiting list when the summary was last written
+     */
+    public int getWaitingCount() {
+        return waitingCount;
+    }
+
+    public void setWaitingCount(int waitingCount) {
+        this.waitingCount = waitingCount;
+    }
+
+    public String getPosterUrl() {
+        return posterUrl;
+    }
+
+    public void setPosterUrl(String posterUrl) {
+        this.posterUrl = posterUrl;
+    }
+
+    public boolean isDrawComplete() {
+        return drawComplete;
+    }
+
+    public void setDrawComplete(boolean drawComplete) {
+        this.drawComplete = drawComplete;
+    }
+
+    public boolean isShardedEntrants() {
+        return shardedEntrants;
+    }
+
+    public void setShardedEntrants(boolean shardedEntrants) {
+        this.shardedEntrants = shardedEntrants;
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the history of entrant status changes after the transactions that made them, instead
+ * of inside them. Each change is an entry in Events/{id}/History, the entrant's
+ * {@link EntrantHistory} entry of the event and a merge into Profiles/{email}.eventHistory, so a
+ * transaction changing many entrants would carry three extra writes per entrant.
+ * <p>
+ * Changes are buffered and coalesced: a change for an entrant of an event replaces the one still
+ * buffered for them, so only the latest status is written. The buffer is written in
+ * {@link WriteBatch}es of at most {@link #FLUSH_SIZE} changes once it holds that many, or
+ * {@link #FLUSH_DELAY_MS} after its first change. Firestore applies batches in the order they are
+ * committed, so a later status is never overwritten by an earlier one.
+ * <p>
+ * Nothing replays depend on is buffered here: the transaction or batch that applies a request
+ * also writes its marker in Events/{id}/Requests, which is what a replay is checked against. The
+ * app flushes the buffer when it goes to the background, so only a process killed in the
+ * foreground can lose history, and at most the last {@link #FLUSH_DELAY_MS} of it.
+ *
+ * @version 1.0.0
+ * @see EventService#flushHistory()
+ */
+final class HistoryRecorder {
+    // Each change costs an event history entry, an entrant history entry and a profile merge
+    private static final int WRITES_PER_CHANGE = 3;
+
+    static final int FLUSH_SIZE = EventService.MAX_BATCH_WRITES / WRITES_PER_CHANGE;
+
+    static final long FLUSH_DELAY_MS = 1_000;
+
+    // Failed batches in a row after which their changes are dropped
+    static final int MAX_ATTEMPTS = 3;
+
+    private static HistoryRecorder shared;
+    private static ScheduledExecutorService sharedScheduler;
+
+    private final FirebaseFirestore firestore;
+    private final ScheduledExecutorService scheduler;
+
+    // Changes waiting for a flush, by event and entrant, in the order they were first buffered
+    private final Map<String, Change> pending = new LinkedHashMap<>();
+    // Changes whose batch is being committed, by event and entrant
+    private final Map<String, Change> committing = new HashMap<>();
+    private boolean flushScheduled;
+
+    /**
+     * @param firestore Firestore instance the history is written to
+     */
+    HistoryRecorder(@NonNull FirebaseFirestore firestore) {
+        this(firestore, sharedScheduler());
+    }
+
+    /**
+     * @param firestore Firestore instance the history is written to
+     * @param scheduler Executor that runs the delayed flushes
+     */
+    HistoryRecorder(@NonNull FirebaseFirestore firestore, @NonNull ScheduledExecutorService scheduler) {
+        this.firestore = firestore;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * @return The recorder of the default Firestore instance, shared so that every
+     * {@link EventService} of the app coalesces into the same buffer
+     */
+    @NonNull
+    static synchronized HistoryRecorder getInstance() {
+        if (shared == null) {
+            shared = new HistoryRecorder(FirebaseFirestore.getInstance());
+        }
+        return shared;
+    }
+
+    private static synchronized ScheduledExecutorService sharedScheduler() {
+        if (sharedScheduler == null) {
+            sharedScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "history-recorder");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return sharedScheduler;
+    }
+
+    /**
+     * A status change of an entrant, and the writes that record it.
+     */
+    static final class Change {
+        final String eventId;
+        final String email;
+        final DocumentReference historyRef;
+        final Map<String, Object> history;
+        final DocumentReference profileRef;
+        final Map<String, Object> profileUpdate;
+        int attempts;
+
+        Change(@NonNull String eventId, @NonNull String email,
+               @NonNull DocumentReference historyRef, @NonNull Map<String, Object> history,
+               @NonNull DocumentReference profileRef, @NonNull Map<String, Object> profileUpdate) {
+            this.eventId = eventId;
+            this.email = email;
+            this.historyRef = historyRef;
+            this.history = history;
+            this.profileRef = profileRef;
+            this.profileUpdate = profileUpdate;
+        }
+
+        String key() {
+            return eventId + "\n" + email;
+        }
+    }
+
+    /**
+     * Buffer changes made by a transaction that committed.
+     *
+     * @param changes The changes, oldest first
+     */
+    void record(@NonNull Collection<Change> changes) {
+        boolean full;
+        synchronized (this) {
+            for (Change change : changes) {
+                // Re-inserted so the entrant's latest change is written after older ones
+                pending.remove(change.key());
+                pending.put(change.key(), change);
+            }
+            full = pending.size() >= FLUSH_SIZE;
+            if (!full && !pending.isEmpty() && !flushScheduled) {
+                flushScheduled = true;
+                scheduler.schedule((Runnable) this::flush, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    /**
+     * @return Number of changes waiting for a flush
+     */
+    synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Write every buffered change now.
+     *
+     * @return Task that completes once the batches are committed
+     */
+    Task<Void> flush() {
+        List<Change> changes;
+        synchronized (this) {
+            flushScheduled = false;
+            changes = new ArrayList<>(pending.values());
+            pending.clear();
+            for (Change change : changes) {
+                committing.put(change.key(), change);
+            }
+        }
+        List<Task<Void>> commits = new ArrayList<>();
+        for (int from = 0; from < changes.size(); from += FLUSH_SIZE) {
+            List<Change> chunk = changes.subList(from, Math.min(changes.size(), from + FLUSH_SIZE));
+            commits.add(commit(chunk));
+        }
+        return Tasks.whenAll(commits);
+    }
+
+    private Task<Void> commit(List<Change> chunk) {
+        Task<Void> commit;
+        try {
+            WriteBatch batch = firestore.batch();
+            for (Change change : chunk) {
+                batch.set(change.historyRef, change.history);
+                batch.set(EntrantHistory.entryRef(change.profileRef, change.eventId), change.history);
+                batch.set(change.profileRef, change.profileUpdate, SetOptions.merge());
+            }
+            commit = batch.commit();
+        } catch (RuntimeException e) {
+            commit = Tasks.forException(e);
+        }
+        return commit.continueWithTask(LotteryFanOut.DIRECT, task -> {
+            List<Change> retry = new ArrayList<>();
+            synchronized (this) {
+                for (Change change : chunk) {
+                    // A newer change of the entrant may have been committed meanwhile
+                    if (committing.get(change.key()) == change) {
+                        committing.remove(change.key());
+                        if (!task.isSuccessful() && ++change.attempts < MAX_ATTEMPTS
+                                && !pending.containsKey(change.key())) {
+                            retry.add(change);
+                        }
+                    }
+                }
+            }
+            if (!task.isSuccessful()) {
+                Log.e("HistoryRecorder", "Failed to write " + chunk.size() + " history entries, retrying "
+                        + retry.size(), task.getException());
+                record(retry);
+                return Tasks.forException(task.getException() != null ? task.getException()
+                        : new IllegalStateException("History batch failed"));
+            }
+            return Tasks.forResult(null);
+        });
+    }
+}
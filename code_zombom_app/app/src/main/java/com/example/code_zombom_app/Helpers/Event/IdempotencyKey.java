@@ -0,0 +1,78 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.UUID;
+
+/**
+ * Idempotency keys of the requests made to {@link EventService}.
+ * <p>
+ * A screen creates a key when the user starts an action and passes the same key with every retry
+ * of it, e.g. after a double tap or a lost connection. The documents the request creates, such as
+ * History and Notifications entries, get ids derived from the key, so a retried request overwrites
+ * them instead of adding duplicates, and a request that already succeeded is recognised by its
+ * history entry and writes nothing.
+ *
+ * @version 1.0.0
+ * @see EventService#addEntrantToWaitlist(String, String, String)
+ */
+public final class IdempotencyKey {
+    // Hex digits kept from the digest; 160 bits make collisions between requests impossible in practice
+    private static final int ID_LENGTH = 40;
+
+    private IdempotencyKey() {
+    }
+
+    /**
+     * @return A new key, for a request that has not been made yet
+     */
+    @NonNull
+    public static String newKey() {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * @param requestId Key supplied by the caller, possibly null
+     * @return The supplied key, or a new one so that retries of a transaction still share it
+     */
+    @NonNull
+    static String orNew(@Nullable String requestId) {
+        return requestId != null ? requestId : newKey();
+    }
+
+    /**
+     * Derive the id of a document written by a request.
+     *
+     * @param requestId The request's key
+     * @param parts     What tells apart the documents of the request, e.g. the entrant's email
+     * @return A document id that is the same every time the request is made
+     */
+    @NonNull
+    static String documentId(@NonNull String requestId, @NonNull String... parts) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java and Android runtime is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+        digest.update(requestId.getBytes(StandardCharsets.UTF_8));
+        for (String part : parts) {
+            // Separate the parts so that ("ab", "c") and ("a", "bc") differ
+            digest.update((byte) 0);
+            digest.update(part.getBytes(StandardCharsets.UTF_8));
+        }
+        StringBuilder id = new StringBuilder(ID_LENGTH);
+        for (byte b : digest.digest()) {
+            if (id.length() == ID_LENGTH) {
+                break;
+            }
+            id.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return id.toString();
+    }
+}
@@ -0,0 +1,347 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.firestore.Exclude;
+import com.google.firebase.firestore.IgnoreExtraProperties;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Record of one lottery draw, stored in Events/{id}/Draws/{drawId} by the transaction that
+ * commits the winners.
+ * <p>
+ * The record holds the event details the recipients' history entries need, so the entrants can
+ * be notified after the transaction without reading the event again. The winners and losers
+ * themselves are written beside it in {@link RecipientChunks}, winners first, so the record stays
+ * a few hundred bytes however many entrants the event has. {@code fannedOut} counts how many
+ * recipients have already been written; a draw whose fan-out was interrupted reads its
+ * recipients back and is continued from there.
+ * <p>
+ * Losers are kept in the order of the waiting list and the winner positions, stored with the
+ * winners, record where each winner stood among the candidates, so together with {@code seed} the
+ * draw can be replayed by {@link LotterySampler#replay(LotteryDraw)}.
+ *
+ * @version 1.0.0
+ * @see LotteryFanOut
+ * @see EventService#runLotteryDraw(String)
+ */
+@IgnoreExtraProperties
+public class LotteryDraw {
+    public static final String COLLECTION = "Draws";
+
+    private String drawId;
+    private String eventId;
+    private String eventName;
+    private Date eventStartDate;
+    private Date eventEndDate;
+    private String location;
+    private long drawTimestamp;
+    private int winnerCount;
+    private int loserCount;
+    private List<String> winners;
+    private List<String> losers;
+    private long seed;
+    private List<Integer> winnerPositions;
+    private boolean weighted;
+    private boolean replacement;
+    private int fannedOut;
+    private boolean complete;
+
+    /**
+     * Public no-arg constructor required by Firestore.
+     */
+    public LotteryDraw() {
+        eventName = "";
+        location = "";
+        winners = new ArrayList<>();
+        losers = new ArrayList<>();
+        winnerPositions = new ArrayList<>();
+    }
+
+    /**
+     * Build the record of a draw that has just been made on an event.
+     *
+     * @param event   The event, after its winners were moved to the chosen list
+     * @param winners Entrants picked by the draw
+     * @param losers  Candidates that were not picked
+     * @return The record of the draw, with nothing fanned out yet
+     */
+    @NonNull
+    public static LotteryDraw of(@NonNull Event event, @NonNull List<String> winners,
+                                 @NonNull List<String> losers) {
+        LotteryDraw draw = new LotteryDraw();
+        draw.eventId = event.getEventId();
+        draw.eventName = event.getName() == null ? "" : event.getName();
+        draw.eventStartDate = event.getEventStartDate();
+        draw.eventEndDate = event.getEventEndDate();
+        draw.location = event.getLocation() != null ? event.getLocation().toString() : "";
+        draw.drawTimestamp = event.getDrawTimestamp();
+        draw.winners = new ArrayList<>(winners);
+        draw.losers = new ArrayList<>(losers);
+        draw.winnerCount = winners.size();
+        draw.loserCount = losers.size();
+        return draw;
+    }
+
+    /**
+     * @return The winners followed by the losers, as they are stored in {@link RecipientChunks}
+     */
+    @NonNull
+    List<String> recipients() {
+        List<String> recipients = new ArrayList<>(recipientCount());
+        recipients.addAll(winners);
+        recipients.addAll(losers);
+        return recipients;
+    }
+
+    /**
+     * Put back the recipients read from {@link RecipientChunks} into a record loaded from Firestore.
+     *
+     * @param recipients The winners followed by the losers
+     * @param positions  Position of every winner among the candidates
+     */
+    void restoreRecipients(@NonNull List<String> recipients, @NonNull List<Integer> positions) {
+        int split = Math.min(winnerCount, recipients.size());
+        winners = new ArrayList<>(recipients.subList(0, split));
+        losers = new ArrayList<>(recipients.subList(split, recipients.size()));
+        winnerPositions = new ArrayList<>(positions);
+    }
+
+    /**
+     * Rebuild the candidates of the draw in the order the sampler saw them, by putting every
+     * winner back at its recorded position among the losers.
+     *
+     * @return The candidates, or the winners followed by the losers if no positions were recorded
+     * or the draw only picked replacements
+     */
+    @NonNull
+    public List<String> candidates() {
+        List<String> candidates = new ArrayList<>(recipientCount());
+        if (replacement || winnerPositions.size() != winners.size()) {
+            candidates.addAll(winners);
+            candidates.addAll(losers);
+            return candidates;
+        }
+        Map<Integer, String> winnerAt = new HashMap<>();
+        for (int i = 0; i < winners.size(); i++) {
+            winnerAt.put(winnerPositions.get(i), winners.get(i));
+        }
+        int nextLoser = 0;
+        for (int position = 0; position < recipientCount(); position++) {
+            String winner = winnerAt.get(position);
+            candidates.add(winner != null ? winner : losers.get(nextLoser++));
+        }
+        return candidates;
+    }
+
+    /**
+     * @return Number of entrants to notify of the outcome of the draw
+     */
+    public int recipientCount() {
+        return winnerCount + loserCount;
+    }
+
+    /**
+     * @param index Position of the recipient, winners coming before losers
+     * @return The recipient's email
+     */
+    @NonNull
+    public String recipientAt(int index) {
+        return index < winners.size() ? winners.get(index) : losers.get(index - winners.size());
+    }
+
+    /**
+     * @param index Position of the recipient, winners coming before losers
+     * @return True if the recipient won the draw
+     */
+    public boolean isWinnerAt(int index) {
+        return index < winnerCount;
+    }
+
+    /**
+     * @return Id of the draw's document, which is not stored in the document itself
+     */
+    @Exclude
+    public String getDrawId() {
+        return drawId;
+    }
+
+    @Exclude
+    public void setDrawId(String drawId) {
+        this.drawId = drawId;
+    }
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(String eventId) {
+        this.eventId = eventId;
+    }
+
+    public String getEventName() {
+        return eventName;
+    }
+
+    public void setEventName(String eventName) {
+        this.eventName = eventName;
+    }
+
+    public Date getEventStartDate() {
+        return eventStartDate;
+    }
+
+    public void setEventStartDate(Date eventStartDate) {
+        this.eventStartDate = eventStartDate;
+    }
+
+    public Date getEventEndDate() {
+        return eventEndDate;
+    }
+
+    public void setEventEndDate(Date eventEndDate) {
+        this.eventEndDate = eventEndDate;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public void setLocation(String location) {
+        this.location = location;
+    }
+
+    public long getDrawTimestamp() {
+        return drawTimestamp;
+    }
+
+    public void setDrawTimestamp(long drawTimestamp) {
+        this.drawTimestamp = drawTimestamp;
+    }
+
+    /**
+     * @return Number of entrants the draw picked
+     */
+    public int getWinnerCount() {
+        return winnerCount;
+    }
+
+    public void setWinnerCount(int winnerCount) {
+        this.winnerCount = winnerCount;
+    }
+
+    /**
+     * @return Number of candidates the draw did not pick
+     */
+    public int getLoserCount() {
+        return loserCount;
+    }
+
+    public void setLoserCount(int loserCount) {
+        this.loserCount = loserCount;
+    }
+
+    /**
+     * @return The winners, empty for a record loaded from Firestore until its recipients are restored
+     */
+    @Exclude
+    public List<String> getWinners() {
+        return winners;
+    }
+
+    @Exclude
+    public void setWinners(List<String> winners) {
+        this.winners = winners == null ? new ArrayList<>() : winners;
+        winnerCount = this.winners.size();
+    }
+
+    /**
+     * @return The losers, empty for a record loaded from Firestore until its recipients are restored
+     */
+    @Exclude
+    public List<String> getLosers() {
+        return losers;
+    }
+
+    @Exclude
+    public void setLosers(List<String> losers) {
+        this.losers = losers == null ? new ArrayList<>() : losers;
+        loserCount = this.losers.size();
+    }
+
+    /**
+     * @return Seed of the {@link LotterySampler} that picked the winners
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @return Position of every winner among the candidates, in the order of {@link #getWinners()}
+     */
+    @Exclude
+    public List<Integer> getWinnerPositions() {
+        return winnerPositions;
+    }
+
+    @Exclude
+    public void setWinnerPositions(List<Integer> winnerPositions) {
+        this.winnerPositions = winnerPositions == null ? new ArrayList<>() : winnerPositions;
+    }
+
+    /**
+     * @return True if the winners were drawn with the weights of a
+     * {@link Event.LotteryMode#PRIOR_LOSSES} event
+     */
+    public boolean isWeighted() {
+        return weighted;
+    }
+
+    public void setWeighted(boolean weighted) {
+        this.weighted = weighted;
+    }
+
+    /**
+     * @return True if the draw only picked replacements for entrants that declined, in which case
+     * it lists no losers
+     * @see EventService#drawReplacements(String, int)
+     */
+    public boolean isReplacement() {
+        return replacement;
+    }
+
+    public void setReplacement(boolean replacement) {
+        this.replacement = replacement;
+    }
+
+    /**
+     * @return Number of recipients whose history and notification have been written
+     */
+    public int getFannedOut() {
+        return fannedOut;
+    }
+
+    public void setFannedOut(int fannedOut) {
+        this.fannedOut = fannedOut;
+    }
+
+    /**
+     * @return True once every recipient has been written
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+}
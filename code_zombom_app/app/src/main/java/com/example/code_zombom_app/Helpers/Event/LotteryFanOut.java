@@ -0,0 +1,172 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import androidx.annotation.NonNull;
+
+import com.example.code_zombom_app.Helpers.Metrics.FirestoreCosts;
+import com.example.code_zombom_app.Helpers.Users.Entrant;
+import com.example.code_zombom_app.Helpers.Users.NotificationPreferenceResolver;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Second stage of a lottery draw: writes the history entry, profile status and notification of
+ * every winner and loser listed in a {@link LotteryDraw}.
+ * <p>
+ * Recipients are written in {@link WriteBatch}es of at most {@link #CHUNK_SIZE} entrants, one
+ * after the other. Each batch also advances the draw's {@code fannedOut} checkpoint, so a chunk
+ * and its progress are committed together and a fan-out that stopped part way is continued by
+ * {@link #resume(DocumentReference)} without writing any entrant twice, once it has read the
+ * draw's recipients back from its {@link RecipientChunks}.
+ *
+ * @version 1.0.0
+ * @see EventService#runLotteryDraw(String)
+ */
+final class LotteryFanOut {
+    // Each recipient costs an event history entry, an entrant history entry, a profile merge and
+    // at most one notification
+    private static final int WRITES_PER_RECIPIENT = 4;
+
+    // One write of every batch is the checkpoint
+    static final int CHUNK_SIZE = (EventService.MAX_BATCH_WRITES - 1) / WRITES_PER_RECIPIENT;
+
+    // Continuations only build batches, so they run on the thread that completed the previous step
+    static final Executor DIRECT = Runnable::run;
+
+    private static final FirestoreCosts COSTS = FirestoreCosts.getInstance();
+
+    private final FirebaseFirestore firestore;
+    private final NotificationPreferenceResolver preferences;
+
+    /**
+     * @param firestore   Firestore instance the draw is written to
+     * @param preferences Resolver of the recipients' notification preferences
+     */
+    LotteryFanOut(@NonNull FirebaseFirestore firestore,
+                  @NonNull NotificationPreferenceResolver preferences) {
+        this.firestore = firestore;
+        this.preferences = preferences;
+    }
+
+    /**
+     * Write the recipients of a draw that have not been written yet.
+     *
+     * @param draw The draw, with its id set
+     * @return Task that completes once every recipient has been written
+     */
+    Task<Void> run(@NonNull LotteryDraw draw) {
+        DocumentReference eventRef = firestore.collection("Events").document(draw.getEventId());
+        DocumentReference drawRef = eventRef.collection(LotteryDraw.COLLECTION).document(draw.getDrawId());
+        return runFrom(eventRef, drawRef, draw);
+    }
+
+    /**
+     * Continue every draw of an event whose fan-out did not finish, e.g. because the app was
+     * closed while it was running.
+     *
+     * @param eventRef The event's document
+     * @return Task that completes once every unfinished draw has been written
+     */
+    Task<Void> resume(@NonNull DocumentReference eventRef) {
+        return eventRef.collection(LotteryDraw.COLLECTION)
+                .whereEqualTo("complete", false)
+                .get()
+                .onSuccessTask(DIRECT, snapshot -> {
+                    COSTS.read("LotteryFanOut.resume", snapshot);
+                    List<Task<Void>> fanOuts = new ArrayList<>();
+                    for (QueryDocumentSnapshot document : snapshot) {
+                        LotteryDraw draw = document.toObject(LotteryDraw.class);
+                        draw.setDrawId(document.getId());
+                        fanOuts.add(restoreRecipients(eventRef, draw).onSuccessTask(DIRECT,
+                                ignored -> runFrom(eventRef, document.getReference(), draw)));
+                    }
+                    return Tasks.whenAll(fanOuts);
+                });
+    }
+
+    private static Task<Void> restoreRecipients(DocumentReference eventRef, LotteryDraw draw) {
+        List<String> recipients = new ArrayList<>(draw.recipientCount());
+        List<Integer> positions = new ArrayList<>(draw.getWinnerCount());
+        return RecipientChunks.read(eventRef, draw.getDrawId(), draw.recipientCount(), recipients,
+                positions).onSuccessTask(DIRECT, ignored -> {
+            draw.restoreRecipients(recipients, positions);
+            return Tasks.forResult(null);
+        });
+    }
+
+    private Task<Void> runFrom(DocumentReference eventRef, DocumentReference drawRef, LotteryDraw draw) {
+        int total = draw.recipientCount();
+        int from = draw.getFannedOut();
+        if (from >= total) {
+            if (draw.isComplete()) {
+                return Tasks.forResult(null);
+            }
+            draw.setComplete(true);
+            return drawRef.update("complete", true);
+        }
+        int to = Math.min(total, from + CHUNK_SIZE);
+        List<String> chunk = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            chunk.add(draw.recipientAt(i));
+        }
+
+        return preferences.resolve(chunk)
+                .onSuccessTask(DIRECT, enabled -> {
+                    WriteBatch batch = firestore.batch();
+                    for (int i = from; i < to; i++) {
+                        write(batch, eventRef, draw, i, enabled.get(draw.recipientAt(i)));
+                    }
+                    Map<String, Object> checkpoint = new HashMap<>();
+                    checkpoint.put("fannedOut", to);
+                    checkpoint.put("complete", to == total);
+                    batch.update(drawRef, checkpoint);
+                    return batch.commit();
+                })
+                .onSuccessTask(DIRECT, ignored -> {
+                    draw.setFannedOut(to);
+                    draw.setComplete(to == total);
+                    return runFrom(eventRef, drawRef, draw);
+                });
+    }
+
+    private void write(WriteBatch batch, DocumentReference eventRef, LotteryDraw draw, int index,
+                       Boolean notificationsEnabled) {
+        String email = draw.recipientAt(index);
+        boolean winner = draw.isWinnerAt(index);
+        Entrant.Status status = winner ? Entrant.Status.SELECTED : Entrant.Status.NOT_SELECTED;
+
+        Map<String, Object> history = EventService.buildHistory(draw.getEventId(), draw.getEventName(),
+                status, draw.getEventStartDate(), draw.getEventEndDate(), draw.getLocation());
+        DocumentReference profileRef = firestore.collection("Profiles").document(email.trim());
+        // Keyed by the draw and position, like the notifications, so a retried batch overwrites them
+        batch.set(eventRef.collection("History").document(draw.getDrawId() + "_" + index), history);
+        batch.set(EntrantHistory.entryRef(profileRef, draw.getEventId()), history);
+        batch.set(profileRef, EventService.buildHistoryMapUpdate(draw.getEventId(), status), SetOptions.merge());
+
+        if (!Boolean.TRUE.equals(notificationsEnabled)) {
+            return;
+        }
+        String message = winner
+                ? "Congratulations! You are a lottery winner and have been selected for " + draw.getEventName()
+                : "Sorry! You were not selected. You could still get a chance if a selected entrant declines. " + draw.getEventName();
+        batch.set(eventRef.collection("Notifications").document(draw.getDrawId() + "_" + index),
+                EventService.buildNotification(
+                        email,
+                        winner ? "win" : "lose",
+                        draw.getEventName(),
+                        draw.getDrawTimestamp(),
+                        draw.getEventId(),
+                        message
+                ));
+    }
+}
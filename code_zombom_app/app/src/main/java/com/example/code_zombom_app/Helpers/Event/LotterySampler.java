@@ -0,0 +1,278 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Seeded lottery engine that picks the winners of a draw without shuffling the candidates.
+ * <p>
+ * Winners are chosen by a partial Fisher-Yates shuffle over candidate positions: only the
+ * positions that are actually swapped are remembered, so picking k winners from n candidates
+ * costs O(k) time and memory on top of the O(n) pass that splits winners from losers. The
+ * generator is a {@link Random} with an explicit seed, whose sequence is fixed by its
+ * specification, so a draw that records its seed and the positions of its winners can be
+ * replayed and audited with {@link #replay(LotteryDraw)}.
+ * <p>
+ * Weighted draws use Vose's alias method: a table built in O(n) lets each pick be made in O(1).
+ * Winners are drawn without replacement by rejecting candidates that were already picked, and the
+ * table is rebuilt over the remaining candidates whenever half of its weight has been picked, so
+ * a pick is accepted with probability at least one half.
+ *
+ * @version 1.0.0
+ * @see EventService#runLotteryDraw(String)
+ */
+public final class LotterySampler {
+    private final long seed;
+
+    /**
+     * @param seed Seed of the draw, recorded with it so it can be replayed
+     */
+    public LotterySampler(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @return A sampler seeded from a secure source, for a new draw
+     */
+    @NonNull
+    public static LotterySampler withRandomSeed() {
+        return new LotterySampler(new SecureRandom().nextLong());
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @param event        The event to draw from
+     * @param replacements Number of winners of a replacement draw, or null for a full draw
+     * @return Number of winners a draw of the event may pick, 0 if it has no seat left
+     */
+    public static int seatsToDraw(@NonNull Event event, @Nullable Integer replacements) {
+        return seatsToDraw(event.getCapacity(),
+                event.countEntrants(MembershipIndex.Status.WAITING),
+                event.countEntrants(MembershipIndex.Status.CHOSEN),
+                event.countEntrants(MembershipIndex.Status.PENDING),
+                event.countEntrants(MembershipIndex.Status.REGISTERED),
+                replacements);
+    }
+
+    /**
+     * @param capacity     The event's capacity, 0 or less for none
+     * @param waiting      Number of entrants on the waiting list
+     * @param chosen       Number of entrants that won a draw and did not answer yet
+     * @param accepted     Number of entrants that accepted their invitation
+     * @param registered   Number of registered entrants
+     * @param replacements Number of winners of a replacement draw, or null for a full draw
+     * @return Number of winners a draw may pick, 0 if the event has no seat left
+     */
+    public static int seatsToDraw(int capacity, long waiting, long chosen, long accepted,
+                                  long registered, @Nullable Integer replacements) {
+        capacity = Math.max(0, capacity);
+        // Prevent drawing when accepted entrants have already filled or exceeded capacity.
+        if (capacity > 0 && accepted >= capacity) {
+            return 0;
+        }
+        // Treat accepted entrants as occupying seats when computing remaining capacity.
+        long alreadyFilled = registered + chosen + accepted;
+        int slotsRemaining = (int) (capacity > 0 ? Math.max(0, capacity - alreadyFilled)
+                : Math.min(Integer.MAX_VALUE, waiting));
+        if (replacements != null) {
+            slotsRemaining = capacity > 0 ? Math.min(slotsRemaining, replacements) : replacements;
+        }
+        return slotsRemaining;
+    }
+
+    /**
+     * @param event The event to draw from
+     * @return The entrants of the waiting list that may be drawn: those who did not already win
+     * or register
+     */
+    @NonNull
+    public static List<String> candidates(@NonNull Event event) {
+        // The membership index answers each status check in O(1), so one pass is enough
+        List<String> candidates = new ArrayList<>();
+        for (String entrant : event.getWaitingListView()) {
+            if (!event.hasStatus(entrant, MembershipIndex.Status.CHOSEN)
+                    && !event.hasStatus(entrant, MembershipIndex.Status.REGISTERED)) {
+                candidates.add(entrant);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Pick distinct positions among a population, uniformly at random.
+     *
+     * @param population Number of candidates
+     * @param picks      Number of winners wanted
+     * @return min(picks, population) distinct positions in [0, population), in the order drawn
+     */
+    @NonNull
+    public int[] pick(int population, int picks) {
+        int count = Math.max(0, Math.min(picks, population));
+        Random random = new Random(seed);
+        // Position i holds swapped.get(i) if it was displaced by an earlier swap, i otherwise
+        Map<Integer, Integer> swapped = new HashMap<>(Math.max(16, count * 2));
+        int[] positions = new int[count];
+        for (int i = 0; i < count; i++) {
+            int j = i + random.nextInt(population - i);
+            Integer atJ = swapped.get(j);
+            Integer atI = swapped.get(i);
+            positions[i] = atJ != null ? atJ : j;
+            swapped.put(j, atI != null ? atI : i);
+        }
+        return positions;
+    }
+
+    /**
+     * Pick distinct positions among weighted candidates, without replacement: each pick chooses
+     * among the candidates not picked yet with probability proportional to their weight.
+     *
+     * @param weights Positive weight of every candidate
+     * @param picks   Number of winners wanted
+     * @return min(picks, weights.length) distinct positions, in the order drawn
+     */
+    @NonNull
+    public int[] pick(@NonNull double[] weights, int picks) {
+        int population = weights.length;
+        int count = Math.max(0, Math.min(picks, population));
+        Random random = new Random(seed);
+        BitSet picked = new BitSet(population);
+        int[] positions = new int[count];
+
+        AliasTable table = null;
+        double tableWeight = 0;
+        double remainingWeight = 0;
+        for (double weight : weights) {
+            remainingWeight += weight;
+        }
+        for (int i = 0; i < count; i++) {
+            if (table == null || remainingWeight <= tableWeight / 2) {
+                table = new AliasTable(weights, picked);
+                tableWeight = table.totalWeight;
+                remainingWeight = tableWeight;
+            }
+            int position;
+            do {
+                position = table.sample(random);
+            } while (picked.get(position));
+            picked.set(position);
+            positions[i] = position;
+            remainingWeight -= weights[position];
+        }
+        return positions;
+    }
+
+    /**
+     * Split candidates into the winners at the given positions and the remaining losers.
+     *
+     * @param candidates Candidates of the draw, in their canonical order
+     * @param positions  Positions of the winners, as returned by {@link #pick(int, int)}
+     * @param winners    Receives the winners, in the order drawn
+     * @param losers     Receives the other candidates, in their original order
+     */
+    public static <T> void split(@NonNull List<T> candidates, @NonNull int[] positions,
+                                 @NonNull List<T> winners, @NonNull List<T> losers) {
+        BitSet picked = new BitSet(candidates.size());
+        for (int position : positions) {
+            picked.set(position);
+            winners.add(candidates.get(position));
+        }
+        for (int i = picked.nextClearBit(0); i < candidates.size(); i = picked.nextClearBit(i + 1)) {
+            losers.add(candidates.get(i));
+        }
+    }
+
+    /**
+     * Draw again from the candidates of a recorded uniform draw, using its seed. Weighted draws
+     * depend on the weights their candidates had at the time, and replacement draws do not list
+     * their losers, so neither can be replayed.
+     *
+     * @param draw A draw that recorded its seed and the positions of its winners, with its
+     *             recipients loaded
+     * @return The winners the seed picks; equal to the recorded winners for an untampered draw
+     */
+    @NonNull
+    public static List<String> replay(@NonNull LotteryDraw draw) {
+        List<String> candidates = draw.candidates();
+        int[] positions = new LotterySampler(draw.getSeed())
+                .pick(candidates.size(), draw.getWinners().size());
+        List<String> winners = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            winners.add(candidates.get(position));
+        }
+        return winners;
+    }
+
+    /**
+     * Alias table over the candidates that have not been picked yet.
+     */
+    private static final class AliasTable {
+        private final int[] positions;
+        private final double[] probability;
+        private final int[] alias;
+        final double totalWeight;
+
+        AliasTable(double[] weights, BitSet excluded) {
+            int size = weights.length - excluded.cardinality();
+            positions = new int[size];
+            double total = 0;
+            int slot = 0;
+            for (int i = excluded.nextClearBit(0); i < weights.length; i = excluded.nextClearBit(i + 1)) {
+                positions[slot++] = i;
+                total += weights[i];
+            }
+            totalWeight = total;
+            probability = new double[size];
+            alias = new int[size];
+
+            // Scale every weight so that the average is 1, then pair the slots below 1 with those above
+            double[] scaled = new double[size];
+            int[] small = new int[size];
+            int[] large = new int[size];
+            int smallCount = 0;
+            int largeCount = 0;
+            for (int i = 0; i < size; i++) {
+                scaled[i] = weights[positions[i]] * size / total;
+                if (scaled[i] < 1) {
+                    small[smallCount++] = i;
+                } else {
+                    large[largeCount++] = i;
+                }
+            }
+            while (smallCount > 0 && largeCount > 0) {
+                int less = small[--smallCount];
+                int more = large[--largeCount];
+                probability[less] = scaled[less];
+                alias[less] = more;
+                scaled[more] = scaled[more] + scaled[less] - 1;
+                if (scaled[more] < 1) {
+                    small[smallCount++] = more;
+                } else {
+                    large[largeCount++] = more;
+                }
+            }
+            // Whatever is left is 1 up to rounding
+            while (largeCount > 0) {
+                probability[large[--largeCount]] = 1;
+            }
+            while (smallCount > 0) {
+                probability[small[--smallCount]] = 1;
+            }
+        }
+
+        int sample(Random random) {
+            int slot = random.nextInt(positions.length);
+            return positions[random.nextDouble() < probability[slot] ? slot : alias[slot]];
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import androidx.annotation.NonNull;
+
+import com.example.code_zombom_app.Helpers.Metrics.FirestoreCosts;
+import com.example.code_zombom_app.Helpers.Users.Entrant;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads the weights of the candidates of a {@link Event.LotteryMode#PRIOR_LOSSES} draw: one plus
+ * the number of other events whose draw the entrant lost, counted from the
+ * {@code eventHistory} of their profile.
+ * <p>
+ * Profiles are read with one query per {@link #MAX_IN_VALUES} candidates, all in parallel, before
+ * the draw's transaction starts. A candidate whose profile is missing or could not be read weighs
+ * one, like in a uniform draw.
+ *
+ * @version 1.0.0
+ * @see LotterySampler#pick(double[], int)
+ */
+final class LotteryWeights {
+    // Firestore accepts at most 30 values in a whereIn filter
+    static final int MAX_IN_VALUES = 30;
+
+    private static final FirestoreCosts COSTS = FirestoreCosts.getInstance();
+
+    private final FirebaseFirestore firestore;
+
+    /**
+     * @param firestore Firestore instance holding the profiles
+     */
+    LotteryWeights(@NonNull FirebaseFirestore firestore) {
+        this.firestore = firestore;
+    }
+
+    /**
+     * @param eventId    The event being drawn, whose own history entries are not counted
+     * @param candidates Emails of the candidates
+     * @return Task resolving to the weight of every candidate whose profile counts a lost draw
+     */
+    Task<Map<String, Double>> load(@NonNull String eventId, @NonNull Collection<String> candidates) {
+        // Profiles are keyed by the trimmed email
+        Map<String, String> candidateOf = new HashMap<>();
+        for (String candidate : candidates) {
+            candidateOf.put(candidate.trim(), candidate);
+        }
+        List<String> ids = new ArrayList<>(candidateOf.keySet());
+        List<Task<QuerySnapshot>> queries = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += MAX_IN_VALUES) {
+            List<String> chunk = ids.subList(from, Math.min(ids.size(), from + MAX_IN_VALUES));
+            queries.add(firestore.collection("Profiles")
+                    .whereIn(FieldPath.documentId(), new ArrayList<>(chunk))
+                    .get());
+        }
+
+        // A failed query only means its candidates weigh one, so wait for all of them
+        return Tasks.whenAll(queries).continueWith(LotteryFanOut.DIRECT, ignored -> {
+            Map<String, Double> weights = new HashMap<>();
+            for (Task<QuerySnapshot> query : queries) {
+                if (!query.isSuccessful() || query.getResult() == null) {
+                    continue;
+                }
+                COSTS.read("LotteryWeights.load", query.getResult());
+                for (DocumentSnapshot profile : query.getResult().getDocuments()) {
+                    String candidate = candidateOf.get(profile.getId());
+                    int losses = lostDraws(profile.get("eventHistory"), eventId);
+                    if (candidate != null && losses > 0) {
+                        weights.put(candidate, 1.0 + losses);
+                    }
+                }
+            }
+            return weights;
+        });
+    }
+
+    private static int lostDraws(Object history, String eventId) {
+        if (!(history instanceof Map)) {
+            return 0;
+        }
+        int losses = 0;
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) history).entrySet()) {
+            if (!eventId.equals(entry.getKey())
+                    && Entrant.Status.NOT_SELECTED.name().equals(String.valueOf(entry.getValue()))) {
+                losses++;
+            }
+        }
+        return losses;
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import java.util.Collection;
+import java.util.HashMap;
+
+/**
+ * A hash index from an entrant's email address to the lifecycle lists of an {@link Event} that
+ * the entrant currently belongs to. The statuses of one entrant are packed into a single int
+ * bit mask, so membership checks and status transitions are O(1) instead of scanning the
+ * underlying lists.
+ * <p>
+ * The index is NOT persisted. The event lists remain the source of truth in Firestore and the
+ * index is rebuilt from them whenever they are replaced.
+ *
+ * @version 1.0.0
+ * @see Event
+ */
+public final class MembershipIndex {
+
+    /**
+     * The lifecycle lists an entrant can belong to inside an event.
+     */
+    public enum Status {
+        WAITING,    // Joined the waiting list
+        CHOSEN,     // Won the lottery, has not answered yet
+        PENDING,    // Accepted the invitation, not registered yet
+        REGISTERED, // Officially participates in the event
+        CANCELLED;  // Declined or got cancelled by the organizer
+
+        /**
+         * @return The bit that represents this status inside a membership mask
+         */
+        int mask() {
+            return 1 << ordinal();
+        }
+    }
+
+    private final HashMap<String, Integer> statuses;
+
+    MembershipIndex() {
+        statuses = new HashMap<>();
+    }
+
+    /**
+     * Check whether an entrant currently has the given status.
+     *
+     * @param email  The entrant's email address
+     * @param status The status to check
+     * @return true if the entrant has the status, false otherwise
+     */
+    boolean contains(String email, Status status) {
+        return (maskOf(email) & status.mask()) != 0;
+    }
+
+    /**
+     * Check whether an entrant has at least one of the given statuses.
+     *
+     * @param email    The entrant's email address
+     * @param statuses The statuses to check
+     * @return true if the entrant has any of the statuses, false otherwise
+     */
+    boolean containsAny(String email, Status... statuses) {
+        int wanted = 0;
+        for (Status status : statuses) {
+            wanted |= status.mask();
+        }
+        return (maskOf(email) & wanted) != 0;
+    }
+
+    /**
+     * Give an entrant a status.
+     *
+     * @param email  The entrant's email address
+     * @param status The status to add
+     * @return true if the status was added, false if the entrant already had it
+     */
+    boolean add(String email, Status status) {
+        int mask = maskOf(email);
+        if ((mask & status.mask()) != 0) {
+            return false;
+        }
+        statuses.put(email, mask | status.mask());
+        return true;
+    }
+
+    /**
+     * Give every entrant of a collection a status.
+     *
+     * @param emails The entrants' email addresses
+     * @param status The status to add
+     * @return true if every entrant was added, false if the collection contains duplicates or
+     *         entrants that already had the status
+     */
+    boolean addAll(Collection<String> emails, Status status) {
+        boolean distinct = true;
+        for (String email : emails) {
+            distinct &= add(email, status);
+        }
+        return distinct;
+    }
+
+    /**
+     * Take a status away from an entrant. The entrant is dropped from the index once they have
+     * no status left.
+     *
+     * @param email  The entrant's email address
+     * @param status The status to remove
+     * @return true if the status was removed, false if the entrant did not have it
+     */
+    boolean remove(String email, Status status) {
+        int mask = maskOf(email);
+        if ((mask & status.mask()) == 0) {
+            return false;
+        }
+        int remaining = mask & ~status.mask();
+        if (remaining == 0) {
+            statuses.remove(email);
+        } else {
+            statuses.put(email, remaining);
+        }
+        return true;
+    }
+
+    /**
+     * @param email The entrant's email address
+     * @return The bit mask of all statuses the entrant has, 0 if the entrant is unknown
+     */
+    private int maskOf(String email) {
+        Integer mask = statuses.get(email);
+        return mask == null ? 0 : mask;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.code_zombom_app.Helpers.Metrics.FirestoreCosts;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recipient lists of {@link LotteryDraw}s and {@link Broadcast}s, kept out of the record they
+ * belong to so that record stays small however many entrants an event has.
+ * <p>
+ * A list is split into documents of at most {@link #PER_CHUNK} recipients, stored in
+ * Events/{id}/Recipients/{ownerId}_{n}. Each chunk may also carry the positions of its first
+ * recipients, which is how a draw records where its winners stood among the candidates. The
+ * chunks are written by the transaction that writes their owner and read back only to continue
+ * a fan-out or broadcast that was interrupted.
+ *
+ * @version 1.0.0
+ * @see EventService#runLotteryDraw(String)
+ */
+final class RecipientChunks {
+    static final String COLLECTION = "Recipients";
+
+    // 2,000 addresses of the longest valid length (254 bytes) take about half of the 1 MiB
+    // document limit
+    static final int PER_CHUNK = 2_000;
+
+    private static final String RECIPIENTS = "recipients";
+    private static final String POSITIONS = "positions";
+
+    private static final FirestoreCosts COSTS = FirestoreCosts.getInstance();
+
+    private RecipientChunks() {
+    }
+
+    /**
+     * @param recipients Number of recipients of a list
+     * @return Number of chunks the list is stored in
+     */
+    static int count(int recipients) {
+        return (recipients + PER_CHUNK - 1) / PER_CHUNK;
+    }
+
+    /**
+     * @param eventRef The event's document
+     * @param ownerId  Id of the draw or broadcast the list belongs to
+     * @param chunk    Index of the chunk
+     * @return The chunk's document
+     */
+    static DocumentReference ref(@NonNull DocumentReference eventRef, @NonNull String ownerId,
+                                 int chunk) {
+        return eventRef.collection(COLLECTION).document(ownerId + "_" + chunk);
+    }
+
+    /**
+     * Write a list of recipients in chunks.
+     *
+     * @param transaction The transaction that writes the list's owner
+     * @param eventRef    The event's document
+     * @param ownerId     Id of the draw or broadcast the list belongs to
+     * @param recipients  Emails of the recipients, in order
+     * @param positions   Positions of the first recipients, or null if the list has none
+     */
+    static void write(@NonNull TrackedTransaction transaction, @NonNull DocumentReference eventRef,
+                      @NonNull String ownerId, @NonNull List<String> recipients,
+                      @Nullable List<Integer> positions) {
+        for (int chunk = 0; chunk < count(recipients.size()); chunk++) {
+            int from = chunk * PER_CHUNK;
+            int to = Math.min(recipients.size(), from + PER_CHUNK);
+            Map<String, Object> payload = new HashMap<>();
+            payload.put(RECIPIENTS, new ArrayList<>(recipients.subList(from, to)));
+            if (positions != null && from < positions.size()) {
+                payload.put(POSITIONS,
+                        new ArrayList<>(positions.subList(from, Math.min(positions.size(), to))));
+            }
+            transaction.set(ref(eventRef, ownerId, chunk), payload);
+        }
+    }
+
+    /**
+     * Read a list of recipients back from its chunks.
+     *
+     * @param eventRef   The event's document
+     * @param ownerId    Id of the draw or broadcast the list belongs to
+     * @param total      Number of recipients the list holds
+     * @param recipients Receives the emails of the recipients, in order
+     * @param positions  Receives the positions stored with the first recipients, or null to skip them
+     * @return Task that completes once the list is read, or fails if a chunk is missing
+     */
+    static Task<Void> read(@NonNull DocumentReference eventRef, @NonNull String ownerId, int total,
+                           @NonNull List<String> recipients, @Nullable List<Integer> positions) {
+        List<Task<DocumentSnapshot>> chunks = new ArrayList<>();
+        for (int chunk = 0; chunk < count(total); chunk++) {
+            chunks.add(ref(eventRef, ownerId, chunk).get());
+        }
+        return Tasks.whenAll(chunks).onSuccessTask(LotteryFanOut.DIRECT, ignored -> {
+            for (Task<DocumentSnapshot> chunk : chunks) {
+                DocumentSnapshot snapshot = chunk.getResult();
+                COSTS.read("RecipientChunks.read", snapshot);
+                if (snapshot == null || !(snapshot.get(RECIPIENTS) instanceof List)) {
+                    return Tasks.forException(
+                            new IllegalStateException("Recipients of " + ownerId + " are missing"));
+                }
+                for (Object recipient : (List<?>) snapshot.get(RECIPIENTS)) {
+                    recipients.add(String.valueOf(recipient));
+                }
+                if (positions != null && snapshot.get(POSITIONS) instanceof List) {
+                    for (Object position : (List<?>) snapshot.get(POSITIONS)) {
+                        // Firestore reads every integer back as a Long
+                        positions.add(((Number) position).intValue());
+                    }
+                }
+            }
+            return Tasks.forResult(null);
+        });
+    }
+}
@@ -0,0 +1,331 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.SetOptions;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Distributed counter of how many entrants of an event have each lifecycle status.
+ * <p>
+ * The counts are spread over {@link #SHARDS} documents in Events/{id}/Counters. Every entrant is
+ * counted in one shard, chosen when they join and kept in their entrant document, and a write
+ * changes that shard with {@link FieldValue#increment(long)}, so concurrent writers rarely touch
+ * the same document. The count of a status is the sum of its field over all the shards; each
+ * shard holds one field per {@link MembershipIndex.Status} name.
+ * <p>
+ * A limit on the waiting list is split into a quota per shard, and a join only reads the shard it
+ * takes a place in (see {@link #reserve}), so two joins conflict only when they pick the same
+ * shard and the quotas never add up to more than the limit. Statuses that joins check but never
+ * change, i.e. {@link MembershipIndex.Status#PENDING}, are counted whole in the {@link #TOTALS}
+ * document, which a join reads without writing.
+ * <p>
+ * Sums are cached for {@link #CACHE_TTL_MS} for list screens; they may be stale and are never used
+ * to check a limit.
+ *
+ * @version 1.0.0
+ * @see MembershipIndex.Status
+ */
+public final class ShardedCounter {
+    public static final String COLLECTION = "Counters";
+
+    // Number of shard documents per event
+    public static final int SHARDS = 10;
+
+    // Document counting the statuses that are not sharded
+    public static final String TOTALS = "totals";
+
+    // How long summed counts are reused before the shards are read again
+    static final long CACHE_TTL_MS = 5_000;
+
+    private final Random random = new Random();
+    private final Map<DocumentReference, CachedCounts> cache = new ConcurrentHashMap<>();
+    private final Map<DocumentReference, Task<Map<MembershipIndex.Status, Long>>> inFlight =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Move one entrant from a status to another inside a transaction. When both sides are counted
+     * in the same document the move costs a single write.
+     *
+     * @param transaction The transaction to write in
+     * @param eventRef    The event's document
+     * @param from        The entrant's previous status, null if they are new to the event
+     * @param fromShard   The shard the entrant was counted in, ignored if from is null
+     * @param to          The entrant's new status, null if they leave the event
+     * @param toShard     The shard the entrant is counted in from now on, ignored if to is null
+     */
+    public void move(@NonNull TrackedTransaction transaction, @NonNull DocumentReference eventRef,
+                     @Nullable MembershipIndex.Status from, int fromShard,
+                     @Nullable MembershipIndex.Status to, int toShard) {
+        if (from == to && (from == null || counter(from, fromShard).equals(counter(to, toShard)))) {
+            return;
+        }
+        // Keyed by counter document, so that a move within one document is a single write
+        Map<String, Map<String, Object>> updates = new HashMap<>();
+        if (from != null) {
+            updates.computeIfAbsent(counter(from, fromShard), id -> new HashMap<>())
+                    .put(from.name(), FieldValue.increment(-1));
+        }
+        if (to != null) {
+            updates.computeIfAbsent(counter(to, toShard), id -> new HashMap<>())
+                    .put(to.name(), FieldValue.increment(1));
+        }
+        for (Map.Entry<String, Map<String, Object>> update : updates.entrySet()) {
+            transaction.set(counterRef(eventRef, update.getKey()), update.getValue(), SetOptions.merge());
+        }
+    }
+
+    /**
+     * Move entrants from a status to another inside a transaction, each staying in the shard they
+     * are counted in. The moves are added up per counter document, so the whole batch costs at
+     * most one write per shard and one to {@link #TOTALS}.
+     *
+     * @param transaction The transaction to write in
+     * @param eventRef    The event's document
+     * @param from        The entrants' previous status
+     * @param to          The entrants' new status
+     * @param perShard    Number of entrants moved in each shard, indexed by shard
+     */
+    public void moveAll(@NonNull TrackedTransaction transaction, @NonNull DocumentReference eventRef,
+                        @NonNull MembershipIndex.Status from, @NonNull MembershipIndex.Status to,
+                        @NonNull int[] perShard) {
+        Map<String, Map<String, Long>> deltas = new HashMap<>();
+        for (int shard = 0; shard < perShard.length; shard++) {
+            if (perShard[shard] == 0) {
+                continue;
+            }
+            deltas.computeIfAbsent(counter(from, shard), id -> new HashMap<>())
+                    .merge(from.name(), (long) -perShard[shard], Long::sum);
+            deltas.computeIfAbsent(counter(to, shard), id -> new HashMap<>())
+                    .merge(to.name(), (long) perShard[shard], Long::sum);
+        }
+        for (Map.Entry<String, Map<String, Long>> delta : deltas.entrySet()) {
+            Map<String, Object> update = new HashMap<>();
+            for (Map.Entry<String, Long> field : delta.getValue().entrySet()) {
+                if (field.getValue() != 0) {
+                    update.put(field.getKey(), FieldValue.increment(field.getValue()));
+                }
+            }
+            if (!update.isEmpty()) {
+                transaction.set(counterRef(eventRef, delta.getKey()), update, SetOptions.merge());
+            }
+        }
+    }
+
+    /**
+     * Read the exact count of every status inside a transaction, from every shard and
+     * {@link #TOTALS}. A transaction that reads them is retried whenever an entrant joins or
+     * changes status, so only a draw, which has to know every count, should do so.
+     *
+     * @param transaction The transaction to read in
+     * @param eventRef    The event's document
+     * @return The count of every status (0 for statuses never counted)
+     * @throws FirebaseFirestoreException If a document cannot be read
+     */
+    public Map<MembershipIndex.Status, Long> readAll(@NonNull TrackedTransaction transaction,
+                                                     @NonNull DocumentReference eventRef)
+            throws FirebaseFirestoreException {
+        List<DocumentSnapshot> documents = new ArrayList<>(SHARDS + 1);
+        for (int shard = 0; shard < SHARDS; shard++) {
+            documents.add(transaction.get(counterRef(eventRef, "shard_" + shard)));
+        }
+        documents.add(transaction.get(counterRef(eventRef, TOTALS)));
+        return sum(documents);
+    }
+
+    /**
+     * Take a place on the waiting list inside a transaction, without going over a limit.
+     * <p>
+     * Shard i may hold {@link #quota(long, int)} waiting entrants. Shards are read one at a time,
+     * starting from a random one, until one has room, so a join far from the limit reads a single
+     * shard. Since every shard read stays in the transaction, a join that commits after another
+     * one filled the same shard is retried by Firestore.
+     *
+     * @param transaction The transaction to read in
+     * @param eventRef    The event's document
+     * @param limit       Most entrants the waiting list may hold, 0 or less for no limit
+     * @return The shard the entrant is counted in, or -1 if the waiting list is full
+     * @throws FirebaseFirestoreException If a shard cannot be read
+     */
+    public int reserve(@NonNull TrackedTransaction transaction, @NonNull DocumentReference eventRef,
+                       long limit) throws FirebaseFirestoreException {
+        int start = random.nextInt(SHARDS);
+        if (limit <= 0) {
+            return start;
+        }
+        for (int offset = 0; offset < SHARDS; offset++) {
+            int index = (start + offset) % SHARDS;
+            long quota = quota(limit, index);
+            if (quota == 0) {
+                continue;
+            }
+            DocumentSnapshot shard = transaction.get(counterRef(eventRef, "shard_" + index));
+            Long waiting = shard != null && shard.exists()
+                    ? shard.getLong(MembershipIndex.Status.WAITING.name()) : null;
+            if (waiting == null || waiting < quota) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Read the exact count of a status that is not sharded inside a transaction. Only
+     * {@link #TOTALS} is read, which joins never write.
+     *
+     * @param transaction The transaction to read in
+     * @param eventRef    The event's document
+     * @param status      A status counted in {@link #TOTALS}
+     * @return The count of the status
+     * @throws FirebaseFirestoreException If the document cannot be read
+     */
+    public long readTotal(@NonNull TrackedTransaction transaction, @NonNull DocumentReference eventRef,
+                          @NonNull MembershipIndex.Status status) throws FirebaseFirestoreException {
+        if (isSharded(status)) {
+            throw new IllegalArgumentException(status + " is counted over every shard");
+        }
+        DocumentSnapshot totals = transaction.get(counterRef(eventRef, TOTALS));
+        Long value = totals != null && totals.exists() ? totals.getLong(status.name()) : null;
+        return value == null ? 0 : value;
+    }
+
+    /**
+     * @param limit Most entrants the waiting list may hold
+     * @param shard Index of a shard
+     * @return How many of them the shard may hold; the quotas of all shards add up to the limit
+     */
+    static long quota(long limit, int shard) {
+        return limit / SHARDS + (shard < limit % SHARDS ? 1 : 0);
+    }
+
+    /**
+     * Get the number of entrants with each status, for display. Uses the cached sum when it is
+     * younger than {@link #CACHE_TTL_MS}, otherwise reads and sums every shard. Concurrent loads
+     * of the same event share one read.
+     *
+     * @param eventRef The event's document
+     * @return A task resolving to the count of every status (0 for statuses never counted)
+     */
+    public Task<Map<MembershipIndex.Status, Long>> load(@NonNull DocumentReference eventRef) {
+        CachedCounts cached = cache.get(eventRef);
+        if (cached != null && cached.isFresh()) {
+            return Tasks.forResult(new EnumMap<>(cached.counts));
+        }
+        Task<Map<MembershipIndex.Status, Long>> pending = inFlight.get(eventRef);
+        if (pending != null) {
+            return pending;
+        }
+
+        TaskCompletionSource<Map<MembershipIndex.Status, Long>> source = new TaskCompletionSource<>();
+        inFlight.put(eventRef, source.getTask());
+        eventRef.collection(COLLECTION).get()
+                .addOnSuccessListener(LotteryFanOut.DIRECT, snapshot -> {
+                    Map<MembershipIndex.Status, Long> counts = sum(snapshot.getDocuments());
+                    cache.put(eventRef, new CachedCounts(counts));
+                    inFlight.remove(eventRef);
+                    source.setResult(new EnumMap<>(counts));
+                })
+                .addOnFailureListener(LotteryFanOut.DIRECT, e -> {
+                    inFlight.remove(eventRef);
+                    source.setException(e);
+                });
+        return source.getTask();
+    }
+
+    /**
+     * Get a cached count without reading Firestore.
+     *
+     * @param eventRef The event's document
+     * @param status   The status to count
+     * @return The cached count, or null if there is no fresh cached sum for the event
+     */
+    @Nullable
+    public Long peek(@NonNull DocumentReference eventRef, @NonNull MembershipIndex.Status status) {
+        CachedCounts cached = cache.get(eventRef);
+        if (cached == null || !cached.isFresh()) {
+            return null;
+        }
+        return cached.counts.get(status);
+    }
+
+    /**
+     * Drop the cached counts of an event so the next read sums the shards again.
+     *
+     * @param eventRef The event's document
+     */
+    public void invalidate(@NonNull DocumentReference eventRef) {
+        cache.remove(eventRef);
+    }
+
+    /**
+     * Sum shard documents into a count per status. Missing shards count as zero.
+     *
+     * @param shards The shard documents of one event
+     * @return The count of every status (0 for statuses never counted)
+     */
+    static Map<MembershipIndex.Status, Long> sum(Iterable<? extends DocumentSnapshot> shards) {
+        Map<MembershipIndex.Status, Long> counts = new EnumMap<>(MembershipIndex.Status.class);
+        for (MembershipIndex.Status status : MembershipIndex.Status.values()) {
+            counts.put(status, 0L);
+        }
+        for (DocumentSnapshot shard : shards) {
+            if (shard == null || !shard.exists()) {
+                continue;
+            }
+            for (MembershipIndex.Status status : MembershipIndex.Status.values()) {
+                Long value = shard.getLong(status.name());
+                if (value != null) {
+                    counts.put(status, counts.get(status) + value);
+                }
+            }
+        }
+        return counts;
+    }
+
+    private static boolean isSharded(MembershipIndex.Status status) {
+        return status != MembershipIndex.Status.PENDING;
+    }
+
+    /**
+     * @return Id of the document a status of an entrant counted in a shard is kept in
+     */
+    private static String counter(MembershipIndex.Status status, int shard) {
+        return isSharded(status) ? "shard_" + shard : TOTALS;
+    }
+
+    private static DocumentReference counterRef(DocumentReference eventRef, String id) {
+        return eventRef.collection(COLLECTION).document(id);
+    }
+
+    /**
+     * Counts summed from the shards at a point in time.
+     */
+    private static final class CachedCounts {
+        private final Map<MembershipIndex.Status, Long> counts;
+        private final long loadedAt;
+
+        private CachedCounts(Map<MembershipIndex.Status, Long> counts) {
+            this.counts = counts;
+            this.loadedAt = System.currentTimeMillis();
+        }
+
+        private boolean isFresh() {
+            return System.currentTimeMillis() - loadedAt < CACHE_TTL_MS;
+        }
+    }
+}
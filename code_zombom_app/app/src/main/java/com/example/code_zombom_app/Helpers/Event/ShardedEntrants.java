@@ -0,0 +1,208 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.code_zombom_app.Helpers.Metrics.FirestoreCosts;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Storage of the membership of an event with one document per entrant, used by events that have
+ * {@link Event#isShardedEntrants()} set.
+ * <p>
+ * Each entrant has a document Events/{id}/Entrants/{email} holding their current status and the
+ * shard of the event's {@link ShardedCounter} they are counted in. A join or a status change only
+ * writes that document and the entrant's counter shard, so entrants of the same event never
+ * contend on the event document and the waiting list is not bounded by the size limit of a single
+ * document. A draw or a broadcast, which has to reach every entrant with some status, lists them
+ * with a query (see {@link #list}).
+ *
+ * @version 1.0.0
+ * @see Event#setShardedEntrants(boolean)
+ */
+public final class ShardedEntrants {
+    public static final String COLLECTION = "Entrants";
+
+    private static final FirestoreCosts COSTS = FirestoreCosts.getInstance();
+
+    private final ShardedCounter counter;
+
+    /**
+     * @param counter Counter kept in step with the entrant documents
+     */
+    public ShardedEntrants(@NonNull ShardedCounter counter) {
+        this.counter = counter;
+    }
+
+    /**
+     * Read the status of an entrant inside a transaction.
+     *
+     * @param transaction The transaction to read in
+     * @param eventRef    The event's document
+     * @param email       The entrant's email address
+     * @return The entrant's status and counter shard; the status is null if they are not part of
+     * the event
+     * @throws FirebaseFirestoreException If the read fails
+     */
+    @NonNull
+    public Entry read(@NonNull TrackedTransaction transaction, @NonNull DocumentReference eventRef,
+                      @NonNull String email) throws FirebaseFirestoreException {
+        DocumentSnapshot snapshot = transaction.get(entrantRef(eventRef, email));
+        if (snapshot == null || !snapshot.exists()) {
+            return new Entry(null, 0);
+        }
+        Long shard = snapshot.getLong("shard");
+        // Entrants written before shards were kept are counted in a shard of their email
+        int index = shard != null ? shard.intValue() : Math.floorMod(email.hashCode(), ShardedCounter.SHARDS);
+        String status = snapshot.getString("status");
+        if (status == null) {
+            return new Entry(null, index);
+        }
+        try {
+            return new Entry(MembershipIndex.Status.valueOf(status), index);
+        } catch (IllegalArgumentException e) {
+            return new Entry(null, index);
+        }
+    }
+
+    /**
+     * Change the status of an entrant inside a transaction and update the counter accordingly.
+     * The entrant stays counted in the shard they were counted in.
+     *
+     * @param transaction The transaction to write in
+     * @param eventRef    The event's document
+     * @param email       The entrant's email address
+     * @param from        The entry read by {@link #read}
+     * @param to          The new status, null to remove the entrant from the event
+     */
+    public void write(@NonNull TrackedTransaction transaction, @NonNull DocumentReference eventRef,
+                      @NonNull String email, @NonNull Entry from, @Nullable MembershipIndex.Status to) {
+        write(transaction, eventRef, email, from, to, from.getShard());
+    }
+
+    /**
+     * Change the status of an entrant inside a transaction and count them in another shard, e.g.
+     * the one {@link ShardedCounter#reserve} found room in.
+     *
+     * @param transaction The transaction to write in
+     * @param eventRef    The event's document
+     * @param email       The entrant's email address
+     * @param from        The entry read by {@link #read}
+     * @param to          The new status, null to remove the entrant from the event
+     * @param shard       The shard the entrant is counted in from now on
+     */
+    public void write(@NonNull TrackedTransaction transaction, @NonNull DocumentReference eventRef,
+                      @NonNull String email, @NonNull Entry from, @Nullable MembershipIndex.Status to,
+                      int shard) {
+        if (to == null) {
+            transaction.delete(entrantRef(eventRef, email));
+        } else {
+            set(transaction, eventRef, email, to, shard);
+        }
+        counter.move(transaction, eventRef, from.getStatus(), from.getShard(), to, shard);
+    }
+
+    /**
+     * Change the status of several entrants inside a transaction, e.g. the winners of a draw. Each
+     * entrant stays counted in their shard, and the counter is changed once per shard rather than
+     * once per entrant, so the transaction writes one document per entrant and at most
+     * {@link ShardedCounter#SHARDS} + 1 counter documents.
+     *
+     * @param transaction The transaction to write in
+     * @param eventRef    The event's document
+     * @param entrants    The entries read by {@link #read}, keyed by email; all must have status from
+     * @param from        The entrants' current status
+     * @param to          Their new status
+     */
+    public void writeAll(@NonNull TrackedTransaction transaction, @NonNull DocumentReference eventRef,
+                         @NonNull Map<String, Entry> entrants, @NonNull MembershipIndex.Status from,
+                         @NonNull MembershipIndex.Status to) {
+        int[] perShard = new int[ShardedCounter.SHARDS];
+        for (Map.Entry<String, Entry> entrant : entrants.entrySet()) {
+            Entry entry = entrant.getValue();
+            if (entry.getStatus() != from) {
+                throw new IllegalArgumentException(entrant.getKey() + " is not " + from);
+            }
+            set(transaction, eventRef, entrant.getKey(), to, entry.getShard());
+            perShard[entry.getShard()]++;
+        }
+        counter.moveAll(transaction, eventRef, from, to, perShard);
+    }
+
+    /**
+     * List the entrants that have some statuses, with a query outside of any transaction. Every
+     * matching entrant document is read, so this is meant for a draw or a broadcast, which have
+     * to reach all of them, and never for a list screen.
+     *
+     * @param eventRef The event's document
+     * @param statuses The statuses to list
+     * @return Task resolving to the emails of the entrants, sorted so a draw sees them in a
+     * stable order
+     */
+    public Task<List<String>> list(@NonNull DocumentReference eventRef,
+                                   @NonNull MembershipIndex.Status... statuses) {
+        List<String> names = new ArrayList<>(statuses.length);
+        for (MembershipIndex.Status status : statuses) {
+            names.add(status.name());
+        }
+        return eventRef.collection(COLLECTION).whereIn("status", names).get()
+                .onSuccessTask(LotteryFanOut.DIRECT, snapshot -> {
+                    COSTS.read("ShardedEntrants.list", snapshot);
+                    List<String> emails = new ArrayList<>();
+                    for (DocumentSnapshot entrant : snapshot.getDocuments()) {
+                        emails.add(entrant.getId());
+                    }
+                    Collections.sort(emails);
+                    return Tasks.forResult(emails);
+                });
+    }
+
+    private static void set(TrackedTransaction transaction, DocumentReference eventRef,
+                            String email, MembershipIndex.Status status, int shard) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("email", email);
+        payload.put("status", status.name());
+        payload.put("shard", shard);
+        payload.put("updatedAt", System.currentTimeMillis());
+        transaction.set(entrantRef(eventRef, email), payload);
+    }
+
+    private static DocumentReference entrantRef(DocumentReference eventRef, String email) {
+        return eventRef.collection(COLLECTION).document(email);
+    }
+
+    /**
+     * An entrant's status and the counter shard they are counted in.
+     */
+    public static final class Entry {
+        private final MembershipIndex.Status status;
+        private final int shard;
+
+        private Entry(@Nullable MembershipIndex.Status status, int shard) {
+            this.status = status;
+            this.shard = shard;
+        }
+
+        /**
+         * @return The entrant's status, or null if they are not part of the event
+         */
+        @Nullable
+        public MembershipIndex.Status getStatus() {
+            return status;
+        }
+
+        public int getShard() {
+            return shard;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+
+import java.util.Map;
+
+/**
+ * A Firestore {@link Transaction} that counts the documents it reads and writes, for
+ * {@link TransactionRunner} to record. Every transaction of {@link EventService} goes through
+ * one, so helpers that read or write inside a transaction take this type rather than the raw
+ * transaction.
+ *
+ * @version 1.0.0
+ */
+public final class TrackedTransaction {
+    private final Transaction transaction;
+    private int reads;
+    private int writes;
+
+    /**
+     * @param transaction The transaction every call is forwarded to
+     */
+    public TrackedTransaction(@NonNull Transaction transaction) {
+        this.transaction = transaction;
+    }
+
+    @NonNull
+    public DocumentSnapshot get(@NonNull DocumentReference documentRef) throws FirebaseFirestoreException {
+        reads++;
+        return transaction.get(documentRef);
+    }
+
+    @NonNull
+    public TrackedTransaction set(@NonNull DocumentReference documentRef, @NonNull Object data) {
+        writes++;
+        transaction.set(documentRef, data);
+        return this;
+    }
+
+    @NonNull
+    public TrackedTransaction set(@NonNull DocumentReference documentRef, @NonNull Object data,
+                                  @NonNull SetOptions options) {
+        writes++;
+        transaction.set(documentRef, data, options);
+        return this;
+    }
+
+    @NonNull
+    public TrackedTransaction update(@NonNull DocumentReference documentRef, @NonNull Map<String, Object> data) {
+        writes++;
+        transaction.update(documentRef, data);
+        return this;
+    }
+
+    @NonNull
+    public TrackedTransaction delete(@NonNull DocumentReference documentRef) {
+        writes++;
+        transaction.delete(documentRef);
+        return this;
+    }
+
+    /**
+     * @return Number of documents read so far
+     */
+    public int getReads() {
+        return reads;
+    }
+
+    /**
+     * @return Number of documents written or deleted so far
+     */
+    public int getWrites() {
+        return writes;
+    }
+}
@@ -0,0 +1,287 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters of the transactions run by {@link EventService}, kept per operation (e.g.
+ * "addEntrantToWaitlist") and per event.
+ * <p>
+ * For every operation it counts the calls, the attempts Firestore made (an attempt is repeated
+ * when another client wrote a document the transaction read), the calls that were aborted by
+ * contention or failed for another reason, the documents read and written, and a latency
+ * histogram. Events are ranked by how many attempts their transactions had to repeat, so the
+ * events that are being hammered can be found while they are. Only the
+ * {@link #MAX_TRACKED_EVENTS} most recently used events are kept.
+ *
+ * @version 1.0.0
+ * @see TransactionRunner
+ */
+public final class TransactionMetrics {
+    // Events whose contention is remembered; the least recently used one is dropped beyond this
+    static final int MAX_TRACKED_EVENTS = 256;
+
+    // Bucket i counts latencies below 2^i ms; the last bucket counts everything slower
+    static final int LATENCY_BUCKETS = 17;
+
+    /**
+     * How a transaction ended.
+     */
+    public enum Outcome {
+        SUCCESS,
+        /** Gave up because other clients kept writing the documents it read */
+        CONTENTION,
+        FAILURE
+    }
+
+    private static TransactionMetrics instance;
+
+    private final Map<String, Counters> operations = new ConcurrentHashMap<>();
+    private final Map<String, long[]> events = new LinkedHashMap<String, long[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, long[]> eldest) {
+            return size() > MAX_TRACKED_EVENTS;
+        }
+    };
+
+    TransactionMetrics() {
+        // Use getInstance(); tests create their own
+    }
+
+    /**
+     * @return The metrics shared by every {@link EventService} of the app
+     */
+    @NonNull
+    public static synchronized TransactionMetrics getInstance() {
+        if (instance == null) {
+            instance = new TransactionMetrics();
+        }
+        return instance;
+    }
+
+    /**
+     * Record a finished transaction.
+     *
+     * @param operation    Name of the operation
+     * @param eventId      Event the transaction was about, if any
+     * @param attempts     Times Firestore ran the transaction function
+     * @param reads        Documents read, over every attempt
+     * @param writes       Documents written by the last attempt
+     * @param latencyNanos Time from the call to the completion of the transaction
+     * @param outcome      How the transaction ended
+     */
+    public void record(@NonNull String operation, @Nullable String eventId, int attempts, int reads,
+                       int writes, long latencyNanos, @NonNull Outcome outcome) {
+        Counters counters = operations.get(operation);
+        if (counters == null) {
+            operations.putIfAbsent(operation, new Counters());
+            counters = operations.get(operation);
+        }
+        counters.record(attempts, reads, writes, latencyNanos, outcome);
+
+        if (eventId != null && (attempts > 1 || outcome == Outcome.CONTENTION)) {
+            synchronized (events) {
+                long[] event = events.get(eventId);
+                if (event == null) {
+                    event = new long[2];
+                    events.put(eventId, event);
+                }
+                event[0] += Math.max(0, attempts - 1);
+                event[1] += outcome == Outcome.CONTENTION ? 1 : 0;
+            }
+        }
+    }
+
+    /**
+     * @param operation Name of the operation
+     * @return The operation's counters, or null if it never ran
+     */
+    @Nullable
+    public Snapshot get(@NonNull String operation) {
+        Counters counters = operations.get(operation);
+        return counters == null ? null : counters.snapshot(operation);
+    }
+
+    /**
+     * @return The counters of every operation that ran, by name
+     */
+    @NonNull
+    public List<Snapshot> snapshot() {
+        List<Snapshot> snapshots = new ArrayList<>();
+        for (Map.Entry<String, Counters> entry : operations.entrySet()) {
+            snapshots.add(entry.getValue().snapshot(entry.getKey()));
+        }
+        Collections.sort(snapshots, (a, b) -> a.getOperation().compareTo(b.getOperation()));
+        return snapshots;
+    }
+
+    /**
+     * @param limit Maximum number of events returned
+     * @return Ids of the events whose transactions repeated the most attempts or were aborted
+     * by contention, most contended first
+     */
+    @NonNull
+    public List<String> hotEvents(int limit) {
+        List<Map.Entry<String, long[]>> entries;
+        synchronized (events) {
+            entries = new ArrayList<>();
+            for (Map.Entry<String, long[]> entry : events.entrySet()) {
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(),
+                        entry.getValue().clone()));
+            }
+        }
+        // An abort means Firestore gave up after all of its attempts, so it outweighs a retry
+        Collections.sort(entries, (a, b) -> Long.compare(
+                b.getValue()[0] + 5 * b.getValue()[1], a.getValue()[0] + 5 * a.getValue()[1]));
+        List<String> hottest = new ArrayList<>();
+        for (int i = 0; i < entries.size() && i < limit; i++) {
+            hottest.add(entries.get(i).getKey());
+        }
+        return hottest;
+    }
+
+    /**
+     * Forget every counter, e.g. before measuring a scenario.
+     */
+    public void reset() {
+        operations.clear();
+        synchronized (events) {
+            events.clear();
+        }
+    }
+
+    static int bucketOf(long latencyNanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(latencyNanos);
+        // Bucket i holds latencies in [2^(i-1), 2^i) ms, and bucket 0 those below 1 ms
+        int bucket = 64 - Long.numberOfLeadingZeros(millis);
+        return Math.min(bucket, LATENCY_BUCKETS - 1);
+    }
+
+    private static final class Counters {
+        final AtomicLong calls = new AtomicLong();
+        final AtomicLong attempts = new AtomicLong();
+        final AtomicLong contentionAborts = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+        final AtomicLong reads = new AtomicLong();
+        final AtomicLong writes = new AtomicLong();
+        final AtomicLong totalNanos = new AtomicLong();
+        final AtomicLongArray latencies = new AtomicLongArray(LATENCY_BUCKETS);
+
+        void record(int attempts, int reads, int writes, long latencyNanos, Outcome outcome) {
+            calls.incrementAndGet();
+            this.attempts.addAndGet(attempts);
+            this.reads.addAndGet(reads);
+            this.writes.addAndGet(writes);
+            totalNanos.addAndGet(latencyNanos);
+            latencies.incrementAndGet(bucketOf(latencyNanos));
+            if (outcome == Outcome.CONTENTION) {
+                contentionAborts.incrementAndGet();
+            } else if (outcome == Outcome.FAILURE) {
+                failures.incrementAndGet();
+            }
+        }
+
+        Snapshot snapshot(String operation) {
+            long[] buckets = new long[LATENCY_BUCKETS];
+            for (int i = 0; i < LATENCY_BUCKETS; i++) {
+                buckets[i] = latencies.get(i);
+            }
+            return new Snapshot(operation, calls.get(), attempts.get(), contentionAborts.get(),
+                    failures.get(), reads.get(), writes.get(), totalNanos.get(), buckets);
+        }
+    }
+
+    /**
+     * Counters of one operation at the time they were read.
+     */
+    public static final class Snapshot {
+        private final String operation;
+        private final long calls;
+        private final long attempts;
+        private final long contentionAborts;
+        private final long failures;
+        private final long reads;
+        private final long writes;
+        private final long totalNanos;
+        private final long[] latencyBuckets;
+
+        Snapshot(String operation, long calls, long attempts, long contentionAborts, long failures,
+                 long reads, long writes, long totalNanos, long[] latencyBuckets) {
+            this.operation = operation;
+            this.calls = calls;
+            this.attempts = attempts;
+            this.contentionAborts = contentionAborts;
+            this.failures = failures;
+            this.reads = reads;
+            this.writes = writes;
+            this.totalNanos = totalNanos;
+            this.latencyBuckets = latencyBuckets;
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        public long getAttempts() {
+            return attempts;
+        }
+
+        /**
+         * @return Attempts that had to be repeated because of contention
+         */
+        public long getRetries() {
+            return attempts - calls;
+        }
+
+        public long getContentionAborts() {
+            return contentionAborts;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        public long getReads() {
+            return reads;
+        }
+
+        public long getWrites() {
+            return writes;
+        }
+
+        public double getMeanMillis() {
+            return calls == 0 ? 0 : totalNanos / 1e6 / calls;
+        }
+
+        /**
+         * @param quantile Between 0 and 1, e.g. 0.99
+         * @return Upper bound of the histogram bucket holding that quantile of the latencies, in ms
+         */
+        public long percentileMillis(double quantile) {
+            long rank = (long) Math.ceil(quantile * calls);
+            long seen = 0;
+            for (int i = 0; i < latencyBuckets.length; i++) {
+                seen += latencyBuckets[i];
+                if (seen >= rank && seen > 0) {
+                    return 1L << i;
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.code_zombom_app.Helpers.Metrics.FirestoreCosts;
+import com.example.code_zombom_app.Helpers.Metrics.MetricsRegistry;
+import com.example.code_zombom_app.Helpers.Metrics.OperationMetrics;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.Transaction;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the Firestore transactions of {@link EventService} and records in
+ * {@link TransactionMetrics} how many attempts each took, how many documents it read and wrote,
+ * how long it took and whether it was aborted by contention. Each operation is also recorded in
+ * the {@link MetricsRegistry} and {@link FirestoreCosts} as "EventService.&lt;operation&gt;", with
+ * the documents it read and wrote.
+ * <p>
+ * Firestore already repeats a transaction a few times when another client writes a document it
+ * read. When it gives up with {@link FirebaseFirestoreException.Code#ABORTED}, the runner can
+ * start the transaction again after a random delay of up to {@link #BASE_BACKOFF_MS} doubled for
+ * every round, so that clients hammering the same event stop retrying in lockstep.
+ *
+ * @version 1.0.0
+ */
+final class TransactionRunner {
+    static final long BASE_BACKOFF_MS = 50;
+
+    // Rounds of backoff after Firestore gave up, used unless a caller asks for another number
+    static final int DEFAULT_CONTENTION_RETRIES = 2;
+
+    private static ScheduledExecutorService sharedScheduler;
+
+    /**
+     * Body of a transaction, given a transaction that counts its reads and writes.
+     */
+    interface Function<T> {
+        T apply(@NonNull TrackedTransaction transaction) throws FirebaseFirestoreException;
+    }
+
+    private final FirebaseFirestore firestore;
+    private final TransactionMetrics metrics;
+    private final ScheduledExecutorService scheduler;
+    private final Random jitter = new Random();
+    private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private volatile int contentionRetries = DEFAULT_CONTENTION_RETRIES;
+
+    /**
+     * @param firestore Firestore instance the transactions run on
+     * @param metrics   Where every transaction is recorded
+     */
+    TransactionRunner(@NonNull FirebaseFirestore firestore, @NonNull TransactionMetrics metrics) {
+        this(firestore, metrics, sharedScheduler());
+    }
+
+    /**
+     * @param firestore Firestore instance the transactions run on
+     * @param metrics   Where every transaction is recorded
+     * @param scheduler Executor that starts a transaction again after its backoff
+     */
+    TransactionRunner(@NonNull FirebaseFirestore firestore, @NonNull TransactionMetrics metrics,
+                      @NonNull ScheduledExecutorService scheduler) {
+        this.firestore = firestore;
+        this.metrics = metrics;
+        this.scheduler = scheduler;
+    }
+
+    private static synchronized ScheduledExecutorService sharedScheduler() {
+        if (sharedScheduler == null) {
+            sharedScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "transaction-backoff");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return sharedScheduler;
+    }
+
+    /**
+     * @param retries Rounds of backoff after Firestore aborted a transaction; 0 disables backoff
+     */
+    void setContentionRetries(int retries) {
+        contentionRetries = Math.max(0, retries);
+    }
+
+    /**
+     * Run a transaction and record it.
+     *
+     * @param operation Name the transaction is recorded under
+     * @param eventId   Event the transaction is about, if any, to rank contended events
+     * @param function  Body of the transaction
+     * @return Task resolving to what the last attempt of the body returned
+     */
+    <T> Task<T> run(@NonNull String operation, @Nullable String eventId,
+                    @NonNull Function<T> function) {
+        Run run = new Run(System.nanoTime());
+        TaskCompletionSource<T> done = new TaskCompletionSource<>();
+        attempt(operation, eventId, function, run, 0, done);
+        return done.getTask();
+    }
+
+    private <T> void attempt(String operation, @Nullable String eventId, Function<T> function,
+                             Run run, int round, TaskCompletionSource<T> done) {
+        firestore.runTransaction((Transaction.Function<T>) transaction -> {
+            TrackedTransaction tracked = new TrackedTransaction(transaction);
+            run.attempts.incrementAndGet();
+            try {
+                return function.apply(tracked);
+            } finally {
+                run.reads.addAndGet(tracked.getReads());
+                run.writes.set(tracked.getWrites());
+            }
+        }).addOnCompleteListener(LotteryFanOut.DIRECT, task -> {
+            if (task.isSuccessful()) {
+                record(operation, eventId, run, TransactionMetrics.Outcome.SUCCESS);
+                done.setResult(task.getResult());
+                return;
+            }
+            Exception error = task.getException() != null
+                    ? task.getException() : new IllegalStateException("Transaction failed");
+            boolean contention = isContention(error);
+            if (contention && round < contentionRetries) {
+                scheduler.schedule(() -> attempt(operation, eventId, function, run, round + 1, done),
+                        backoffMillis(round), TimeUnit.MILLISECONDS);
+                return;
+            }
+            record(operation, eventId, run, contention
+                    ? TransactionMetrics.Outcome.CONTENTION : TransactionMetrics.Outcome.FAILURE);
+            done.setException(error);
+        });
+    }
+
+    /**
+     * @param round Rounds of backoff already made
+     * @return A random delay between 0 and {@link #BASE_BACKOFF_MS} doubled for every round
+     */
+    long backoffMillis(int round) {
+        long ceiling = BASE_BACKOFF_MS << Math.min(round, 10);
+        return (long) (jitter.nextDouble() * (ceiling + 1));
+    }
+
+    private void record(String operation, @Nullable String eventId, Run run,
+                        TransactionMetrics.Outcome outcome) {
+        metrics.record(operation, eventId, run.attempts.get(), run.reads.get(), run.writes.get(),
+                System.nanoTime() - run.start, outcome);
+        // Aborted attempts are billed too, and a failed transaction writes nothing
+        FirestoreCosts.getInstance().record("EventService." + operation, run.reads.get(), 0,
+                outcome == TransactionMetrics.Outcome.SUCCESS ? run.writes.get() : 0, 0);
+        OperationMetrics registered = operations.computeIfAbsent(operation,
+                name -> MetricsRegistry.getInstance().operation("EventService." + name));
+        if (outcome == TransactionMetrics.Outcome.SUCCESS) {
+            registered.succeeded(run.start, run.reads.get() + run.writes.get());
+        } else {
+            registered.failed(run.start);
+        }
+    }
+
+    /**
+     * @return true if Firestore gave up because the documents kept changing under the transaction
+     */
+    static boolean isContention(@Nullable Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof FirebaseFirestoreException) {
+                return ((FirebaseFirestoreException) cause).getCode()
+                        == FirebaseFirestoreException.Code.ABORTED;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * What a transaction has cost so far, over its attempts and rounds of backoff.
+     */
+    private static final class Run {
+        final long start;
+        final AtomicInteger attempts = new AtomicInteger();
+        final AtomicInteger reads = new AtomicInteger();
+        final AtomicInteger writes = new AtomicInteger();
+
+        Run(long start) {
+            this.start = start;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.code_zombom_app.Helpers.Filter;
 
 import com.example.code_zombom_app.Helpers.Event.Event;
+import com.example.code_zombom_app.Helpers.Event.EventSummary;
 
 import java.util.Date;
 
@@ -60,16 +61,28 @@ public class EventFilter {
      * @see com.example.code_zombom_app.Helpers.Event.Event
      */
     public boolean passFilter(Event event) {
+        return passFilter(event.getGenre(), event.getEventStartDate(), event.getEventEndDate());
+    }
+
+    /**
+     * Check if the summary of an event pass through all of the filter's criteria
+     *
+     * @param summary The summary of the event to check
+     * @return true If the event pass all of the criteria, false otherwise
+     * @see com.example.code_zombom_app.Helpers.Event.EventSummary
+     */
+    public boolean passFilter(EventSummary summary) {
+        return passFilter(summary.getGenre(), summary.getEventStartDate(),
+                summary.getEventEndDate());
+    }
+
+    private boolean passFilter(String eventGenre, Date eventStart, Date eventEnd) {
         if (filterGenre != null) {
-            String eventGenre = event.getGenre();
             if (eventGenre == null || !filterGenre.equals(eventGenre)) {
                 return false;
             }
         }
 
-        Date eventStart = event.getEventStartDate();
-        Date eventEnd   = event.getEventEndDate();
-
         // If no availability filter set, only genre matters
         if (filterStartDate == null && filterEndDate == null) {
             return true;
@@ -7,6 +7,7 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.example.code_zombom_app.Helpers.Metrics.FirestoreCosts;
 import com.example.code_zombom_app.Helpers.Users.Entrant;
 import com.example.code_zombom_app.R;
 import com.google.android.gms.maps.GoogleMap;
@@ -17,6 +18,7 @@ import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.FirebaseFirestore;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -78,6 +80,7 @@ public class EventHeatMapActivity extends AppCompatActivity implements OnMapRead
                 .document(eventId)
                 .get()
                 .addOnSuccessListener(snapshot -> {
+                    FirestoreCosts.getInstance().read("EventHeatMapActivity.loadEventAndDrawHeatMap", snapshot);
                     if (!snapshot.exists()) {
                         Toast.makeText(this, "Event not found",
                                 Toast.LENGTH_SHORT).show();
@@ -102,7 +105,7 @@ public class EventHeatMapActivity extends AppCompatActivity implements OnMapRead
     }
 
     private void fetchWaitingEntrantLocations(Event event) {
-        ArrayList<String> waitingList = event.getWaitingList();
+        List<String> waitingList = event.getWaitingListView();
 
         if (waitingList == null || waitingList.isEmpty()) {
             Toast.makeText(this,
@@ -126,6 +129,8 @@ public class EventHeatMapActivity extends AppCompatActivity implements OnMapRead
             profilesRef.document(email)
                     .get()
                     .addOnSuccessListener(snapshot -> {
+                        FirestoreCosts.getInstance().read("EventHeatMapActivity.fetchWaitingEntrantLocations",
+                                snapshot);
                         if (snapshot.exists()) {
                             Entrant entrant = snapshot.toObject(Entrant.class);
                             if (entrant != null && entrant.getLocation() != null) {
@@ -362,7 +362,7 @@ public class Location {
      * @see JSONObject
      * @see JSONArray
      */
-    private static String getComponent(JSONObject result, String type) {
+    static String getComponent(JSONObject result, String type) {
         try {
             JSONArray components = result.getJSONArray("address_components");
             for (int i = 0; i < components.length(); i++) {
@@ -2,6 +2,9 @@ package com.example.code_zombom_app.Helpers.Mail;
 
 import android.util.Log;
 
+import com.example.code_zombom_app.Helpers.Metrics.FirestoreCosts;
+import com.example.code_zombom_app.Helpers.Metrics.MetricsRegistry;
+import com.example.code_zombom_app.Helpers.Metrics.OperationMetrics;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.ListenerRegistration;
@@ -20,6 +23,16 @@ import java.util.List;
  * @see Mail
  */
 public class MailService {
+    private static final OperationMetrics GET_ALL_MAIL =
+            MetricsRegistry.getInstance().operation("MailService.getAllMailOnce");
+    // Latency of a snapshot is the time taken to hand it to the callback
+    private static final OperationMetrics MAIL_UPDATES =
+            MetricsRegistry.getInstance().operation("MailService.listenToMailUpdates");
+    private static final OperationMetrics MARK_READ =
+            MetricsRegistry.getInstance().operation("MailService.markMailAsRead");
+    private static final OperationMetrics DELETE_MAIL =
+            MetricsRegistry.getInstance().operation("MailService.deleteMail");
+    private static final FirestoreCosts COSTS = FirestoreCosts.getInstance();
 
     /**
      * Callback interface for async mail list operations.
@@ -47,14 +60,19 @@ public class MailService {
     public static void getAllMailOnce(String receiver, MailListCallback callback) {
         FirebaseFirestore db = FirebaseFirestore.getInstance();
 
+        long start = GET_ALL_MAIL.start();
         db.collection("Mails")
                 .whereEqualTo("receiver", receiver)
                 .orderBy("timestamp", Query.Direction.DESCENDING)
                 .get()
                 .addOnSuccessListener(querySnapshot -> {
+                    GET_ALL_MAIL.succeeded(start, querySnapshot.size());
+                    COSTS.read("MailService.getAllMailOnce", querySnapshot);
                     List<Mail> mails = new ArrayList<>();
                     for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
+                        long parsing = GET_ALL_MAIL.start();
                         Mail mail = doc.toObject(Mail.class);
+                        GET_ALL_MAIL.deserialized(parsing);
                         if (mail != null) {
                             // Store doc id in the Mail object if you need it later (for delete / mark read)
                             mail.setId(doc.getId());
@@ -64,6 +82,7 @@ public class MailService {
                     callback.onSuccess(mails);
                 })
                 .addOnFailureListener(e -> {
+                    GET_ALL_MAIL.failed(start);
                     Log.e("MailService", "Failed to load mails", e);
                     callback.onError(e);
                 });
@@ -89,7 +108,9 @@ public class MailService {
                 .whereEqualTo("receiver", receiver)
                 .orderBy("timestamp", Query.Direction.DESCENDING)
                 .addSnapshotListener((querySnapshot, e) -> {
+                    long start = MAIL_UPDATES.start();
                     if (e != null) {
+                        MAIL_UPDATES.failed(start);
                         Log.e("MailService", "listenToMailUpdates error", e);
                         callback.onError(e);
                         return;
@@ -101,13 +122,17 @@ public class MailService {
 
                     List<Mail> mails = new ArrayList<>();
                     for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
+                        long parsing = MAIL_UPDATES.start();
                         Mail mail = doc.toObject(Mail.class);
+                        MAIL_UPDATES.deserialized(parsing);
                         if (mail != null) {
                             mail.setId(doc.getId());
                             mails.add(mail);
                         }
                     }
                     callback.onSuccess(mails);
+                    MAIL_UPDATES.succeeded(start, querySnapshot.size());
+                    COSTS.listened("MailService.listenToMailUpdates", querySnapshot);
                 });
     }
 
@@ -118,13 +143,19 @@ public class MailService {
      */
     public static void markMailAsRead(String mailId) {
         FirebaseFirestore db = FirebaseFirestore.getInstance();
+        long start = MARK_READ.start();
         db.collection("Mails")
                 .document(mailId)
                 .update("read", true)
-                .addOnSuccessListener(aVoid ->
-                        Log.i("MailService", "Mail " + mailId + " marked as read"))
-                .addOnFailureListener(e ->
-                        Log.e("MailService", "Failed to mark mail as read", e));
+                .addOnSuccessListener(aVoid -> {
+                    MARK_READ.succeeded(start, 1);
+                    COSTS.record("MailService.markMailAsRead", 0, 0, 1, 0);
+                    Log.i("MailService", "Mail " + mailId + " marked as read");
+                })
+                .addOnFailureListener(e -> {
+                    MARK_READ.failed(start);
+                    Log.e("MailService", "Failed to mark mail as read", e);
+                });
     }
 
     /**
@@ -134,12 +165,18 @@ public class MailService {
      */
     public static void deleteMail(String mailId) {
         FirebaseFirestore db = FirebaseFirestore.getInstance();
+        long start = DELETE_MAIL.start();
         db.collection("Mails")
                 .document(mailId)
                 .delete()
-                .addOnSuccessListener(aVoid ->
-                        Log.i("MailService", "Mail " + mailId + " deleted"))
-                .addOnFailureListener(e ->
-                        Log.e("MailService", "Failed to delete mail", e));
+                .addOnSuccessListener(aVoid -> {
+                    DELETE_MAIL.succeeded(start, 1);
+                    COSTS.record("MailService.deleteMail", 0, 0, 1, 0);
+                    Log.i("MailService", "Mail " + mailId + " deleted");
+                })
+                .addOnFailureListener(e -> {
+                    DELETE_MAIL.failed(start);
+                    Log.e("MailService", "Failed to delete mail", e);
+                });
     }
 }
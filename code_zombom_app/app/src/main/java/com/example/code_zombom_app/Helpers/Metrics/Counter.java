@@ -0,0 +1,33 @@
+package com.example.code_zombom_app.Helpers.Metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count that many threads can add to without contending, e.g. the failures of an operation.
+ *
+ * @version 1.0.0
+ * @see MetricsRegistry#counter(String)
+ */
+public final class Counter {
+    private final LongAdder count = new LongAdder();
+
+    Counter() {
+        // Use MetricsRegistry.counter(String)
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    public long get() {
+        return count.sum();
+    }
+
+    void reset() {
+        count.reset();
+    }
+}
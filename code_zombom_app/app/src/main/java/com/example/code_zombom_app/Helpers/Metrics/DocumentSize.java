@@ -0,0 +1,92 @@
+package com.example.code_zombom_app.Helpers.Metrics;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentReference;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Estimates the size of a Firestore document the way Firestore computes its storage size: the
+ * document name, plus every field name and value, plus 32 bytes. The client does not report the
+ * bytes it transferred, so this is what {@link FirestoreCosts} counts.
+ *
+ * @version 1.0.0
+ */
+final class DocumentSize {
+    private static final int DOCUMENT_OVERHEAD = 32;
+    private static final int NAME_OVERHEAD = 16;
+
+    private DocumentSize() {
+    }
+
+    /**
+     * @param path Path of the document, e.g. "Events/abc"
+     * @param data Its fields, or null to count the name alone
+     * @return Estimated size of the document in bytes
+     */
+    static long of(@NonNull String path, @Nullable Map<String, ?> data) {
+        return nameOf(path) + (data == null ? 0 : fieldsOf(data)) + DOCUMENT_OVERHEAD;
+    }
+
+    /**
+     * @return Size of the collection and document ids in the path, plus 16 bytes
+     */
+    static long nameOf(@NonNull String path) {
+        long size = NAME_OVERHEAD;
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                size += stringOf(segment);
+            }
+        }
+        return size;
+    }
+
+    private static long fieldsOf(Map<?, ?> fields) {
+        long size = 0;
+        for (Map.Entry<?, ?> field : fields.entrySet()) {
+            size += stringOf(String.valueOf(field.getKey())) + valueOf(field.getValue());
+        }
+        return size;
+    }
+
+    private static long valueOf(@Nullable Object value) {
+        if (value == null || value instanceof Boolean) {
+            return 1;
+        }
+        if (value instanceof Number || value instanceof Date || value instanceof Timestamp) {
+            return 8;
+        }
+        if (value instanceof String) {
+            return stringOf((String) value);
+        }
+        if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        }
+        if (value instanceof DocumentReference) {
+            String path = ((DocumentReference) value).getPath();
+            return path == null ? NAME_OVERHEAD : nameOf(path);
+        }
+        if (value instanceof Map) {
+            return fieldsOf((Map<?, ?>) value);
+        }
+        if (value instanceof Collection) {
+            long size = 0;
+            for (Object element : (Collection<?>) value) {
+                size += valueOf(element);
+            }
+            return size;
+        }
+        // Geo points, the only other type Firestore stores
+        return 16;
+    }
+
+    private static long stringOf(String value) {
+        return value.getBytes(StandardCharsets.UTF_8).length + 1;
+    }
+}
@@ -0,0 +1,371 @@
+package com.example.code_zombom_app.Helpers.Metrics;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SnapshotMetadata;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What the Firestore calls of this session cost, per screen or operation, e.g.
+ * "PostersAdminFragment.fetchPosters": the documents and bytes read and written, since Firestore
+ * bills every document read.
+ * <p>
+ * Answers from the device's cache are not billed, so their documents are counted apart. A query
+ * answered by the server bills one read even when it returns nothing. A call reading more
+ * documents than the read budget of its tag is logged and counted as over budget, so a screen
+ * that starts scanning a whole collection shows up in {@link #overBudget()}, on the debug screen
+ * and in tests.
+ *
+ * @version 1.0.0
+ */
+public final class FirestoreCosts {
+    private static final String TAG = "FirestoreCosts";
+
+    // Documents a single call may read before it is flagged
+    public static final int DEFAULT_READ_BUDGET = 100;
+
+    private static FirestoreCosts instance;
+
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+    private final Map<String, Integer> budgets = new ConcurrentHashMap<>();
+    private volatile int readBudget = DEFAULT_READ_BUDGET;
+    private volatile long sessionStart = System.currentTimeMillis();
+
+    FirestoreCosts() {
+        // Use getInstance(); tests create their own
+    }
+
+    /**
+     * @return The ledger of the whole app
+     */
+    @NonNull
+    public static synchronized FirestoreCosts getInstance() {
+        if (instance == null) {
+            instance = new FirestoreCosts();
+        }
+        return instance;
+    }
+
+    /**
+     * @param documents Documents any call may read before it is flagged
+     */
+    public void setReadBudget(int documents) {
+        readBudget = Math.max(0, documents);
+    }
+
+    /**
+     * @param tag       Screen or operation, e.g. "EntrantMainModel.filterEvent"
+     * @param documents Documents a call of that tag may read before it is flagged
+     */
+    public void setReadBudget(@NonNull String tag, int documents) {
+        budgets.put(tag, Math.max(0, documents));
+    }
+
+    /**
+     * @return Documents a call of the tag may read before it is flagged
+     */
+    public int getReadBudget(@NonNull String tag) {
+        Integer budget = budgets.get(tag);
+        return budget == null ? readBudget : budget;
+    }
+
+    /**
+     * Record the documents a query returned.
+     *
+     * @param tag      Screen or operation that ran the query
+     * @param snapshot What the query returned
+     */
+    public void read(@NonNull String tag, @Nullable QuerySnapshot snapshot) {
+        if (snapshot == null) {
+            return;
+        }
+        int documents = 0;
+        long bytes = 0;
+        for (DocumentSnapshot doc : snapshot.getDocuments()) {
+            documents++;
+            bytes += sizeOf(doc);
+        }
+        if (isFromCache(snapshot.getMetadata())) {
+            account(tag).cached(documents);
+        } else {
+            record(tag, Math.max(1, documents), bytes, 0, 0);
+        }
+    }
+
+    /**
+     * Record a snapshot a query listener received. Only the documents that were added to the
+     * result or changed are billed, so the first snapshot bills the whole result and later ones
+     * only what changed.
+     *
+     * @param tag      Screen or operation that listens to the query
+     * @param snapshot What the listener received
+     */
+    public void listened(@NonNull String tag, @Nullable QuerySnapshot snapshot) {
+        if (snapshot == null) {
+            return;
+        }
+        int documents = 0;
+        long bytes = 0;
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            if (change.getType() != DocumentChange.Type.REMOVED) {
+                documents++;
+                bytes += sizeOf(change.getDocument());
+            }
+        }
+        if (isFromCache(snapshot.getMetadata())) {
+            account(tag).cached(documents);
+        } else if (documents > 0 || snapshot.isEmpty()) {
+            record(tag, Math.max(1, documents), bytes, 0, 0);
+        }
+    }
+
+    /**
+     * Record a document that was read on its own.
+     *
+     * @param tag      Screen or operation that read it
+     * @param snapshot The document, which may not exist
+     */
+    public void read(@NonNull String tag, @Nullable DocumentSnapshot snapshot) {
+        if (snapshot == null) {
+            return;
+        }
+        if (isFromCache(snapshot.getMetadata())) {
+            account(tag).cached(1);
+        } else {
+            record(tag, 1, snapshot.exists() ? sizeOf(snapshot) : 0, 0, 0);
+        }
+    }
+
+    /**
+     * Record a document that was written or deleted.
+     *
+     * @param tag      Screen or operation that wrote it
+     * @param document The document
+     * @param fields   The fields written, or null when they were an object or the document was
+     *                 deleted, in which case only the document name is counted
+     */
+    public void wrote(@NonNull String tag, @NonNull DocumentReference document,
+                      @Nullable Map<String, ?> fields) {
+        String path = document.getPath();
+        record(tag, 0, 0, 1, path == null ? 0 : DocumentSize.of(path, fields));
+    }
+
+    /**
+     * Record one call, e.g. a transaction, with what it read and wrote.
+     *
+     * @param tag          Screen or operation that made the call
+     * @param reads        Documents read and billed
+     * @param bytesRead    Estimated bytes of those documents
+     * @param writes       Documents written or deleted
+     * @param bytesWritten Estimated bytes written
+     */
+    public void record(@NonNull String tag, int reads, long bytesRead, int writes,
+                       long bytesWritten) {
+        Account account = account(tag);
+        account.calls.increment();
+        account.reads.add(reads);
+        account.bytesRead.add(bytesRead);
+        account.writes.add(writes);
+        account.bytesWritten.add(bytesWritten);
+        account.maxReads.accumulate(reads);
+
+        int budget = getReadBudget(tag);
+        if (reads > budget) {
+            account.overBudget.increment();
+            Log.w(TAG, tag + " read " + reads + " documents, over its budget of " + budget);
+        }
+    }
+
+    /**
+     * @return What the tag cost this session, or null if it made no call
+     */
+    @Nullable
+    public Usage get(@NonNull String tag) {
+        Account account = accounts.get(tag);
+        return account == null ? null : account.snapshot(tag);
+    }
+
+    /**
+     * @return What every tag cost this session, most documents read first
+     */
+    @NonNull
+    public List<Usage> snapshot() {
+        List<Usage> usages = new ArrayList<>();
+        for (Map.Entry<String, Account> entry : accounts.entrySet()) {
+            usages.add(entry.getValue().snapshot(entry.getKey()));
+        }
+        Collections.sort(usages, (a, b) -> Long.compare(b.getReads(), a.getReads()));
+        return usages;
+    }
+
+    /**
+     * @return The tags that made at least one call over their read budget this session
+     */
+    @NonNull
+    public List<Usage> overBudget() {
+        List<Usage> flagged = new ArrayList<>();
+        for (Usage usage : snapshot()) {
+            if (usage.getOverBudget() > 0) {
+                flagged.add(usage);
+            }
+        }
+        return flagged;
+    }
+
+    /**
+     * @return When this session started, in milliseconds since the epoch
+     */
+    public long getSessionStartMillis() {
+        return sessionStart;
+    }
+
+    /**
+     * Forget every call and start a new session. Budgets are kept.
+     */
+    public void reset() {
+        accounts.clear();
+        sessionStart = System.currentTimeMillis();
+    }
+
+    private Account account(String tag) {
+        return accounts.computeIfAbsent(tag, key -> new Account());
+    }
+
+    private static boolean isFromCache(@Nullable SnapshotMetadata metadata) {
+        return metadata != null && metadata.isFromCache();
+    }
+
+    private static long sizeOf(DocumentSnapshot doc) {
+        DocumentReference reference = doc.getReference();
+        String path = reference == null ? null : reference.getPath();
+        return path == null ? 0 : DocumentSize.of(path, doc.getData());
+    }
+
+    /**
+     * Running totals of one tag.
+     */
+    private static final class Account {
+        final LongAdder calls = new LongAdder();
+        final LongAdder reads = new LongAdder();
+        final LongAdder bytesRead = new LongAdder();
+        final LongAdder cached = new LongAdder();
+        final LongAdder writes = new LongAdder();
+        final LongAdder bytesWritten = new LongAdder();
+        final LongAdder overBudget = new LongAdder();
+        final LongAccumulator maxReads = new LongAccumulator(Math::max, 0);
+
+        void cached(int documents) {
+            calls.increment();
+            cached.add(documents);
+        }
+
+        Usage snapshot(String tag) {
+            return new Usage(tag, calls.sum(), reads.sum(), bytesRead.sum(), cached.sum(),
+                    writes.sum(), bytesWritten.sum(), maxReads.get(), overBudget.sum());
+        }
+    }
+
+    /**
+     * What one tag cost at the time the ledger was read.
+     */
+    public static final class Usage {
+        private final String tag;
+        private final long calls;
+        private final long reads;
+        private final long bytesRead;
+        private final long cached;
+        private final long writes;
+        private final long bytesWritten;
+        private final long maxReads;
+        private final long overBudget;
+
+        Usage(String tag, long calls, long reads, long bytesRead, long cached, long writes,
+              long bytesWritten, long maxReads, long overBudget) {
+            this.tag = tag;
+            this.calls = calls;
+            this.reads = reads;
+            this.bytesRead = bytesRead;
+            this.cached = cached;
+            this.writes = writes;
+            this.bytesWritten = bytesWritten;
+            this.maxReads = maxReads;
+            this.overBudget = overBudget;
+        }
+
+        @NonNull
+        public String getTag() {
+            return tag;
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        /**
+         * @return Documents read and billed
+         */
+        public long getReads() {
+            return reads;
+        }
+
+        public long getBytesRead() {
+            return bytesRead;
+        }
+
+        /**
+         * @return Documents answered from the device's cache, which are not billed
+         */
+        public long getCached() {
+            return cached;
+        }
+
+        public long getWrites() {
+            return writes;
+        }
+
+        public long getBytesWritten() {
+            return bytesWritten;
+        }
+
+        /**
+         * @return Most documents a single call read
+         */
+        public long getMaxReads() {
+            return maxReads;
+        }
+
+        /**
+         * @return Calls that read more documents than the budget of the tag
+         */
+        public long getOverBudget() {
+            return overBudget;
+        }
+
+        /**
+         * @return One line for a debug screen or a log
+         */
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "%s calls=%d reads=%d (%d B, max %d) cached=%d writes=%d (%d B)%s", tag,
+                    calls, reads, bytesRead, maxReads, cached, writes, bytesWritten,
+                    overBudget > 0 ? " OVER BUDGET x" + overBudget : "");
+        }
+    }
+}
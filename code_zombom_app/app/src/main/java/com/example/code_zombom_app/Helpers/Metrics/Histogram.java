@@ -0,0 +1,144 @@
+package com.example.code_zombom_app.Helpers.Metrics;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of non-negative values, such as latencies in nanoseconds or documents per query,
+ * recorded without allocating or locking.
+ * <p>
+ * Like an HDR histogram, values below {@code 2^SUB_BITS} get a bucket each and every higher power
+ * of two is split into {@code 2^SUB_BITS} buckets of equal width, so a percentile is reported
+ * within 1/16 of the value it stands for whatever its magnitude. Values of
+ * {@code 2^MAX_EXPONENT} or more share the last bucket. The count and sum are striped
+ * {@link LongAdder}s, so threads recording at once do not contend on them.
+ *
+ * @version 1.0.0
+ * @see MetricsRegistry#histogram(String)
+ */
+public final class Histogram {
+    static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+
+    // 2^40 ns is about 18 minutes
+    static final int MAX_EXPONENT = 40;
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 1) * SUB_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    Histogram() {
+        // Use MetricsRegistry.histogram(String)
+    }
+
+    /**
+     * @param value The value to record; negative values are recorded as 0
+     */
+    public void record(long value) {
+        long recorded = Math.max(0, value);
+        buckets.incrementAndGet(bucketOf(recorded));
+        count.increment();
+        sum.add(recorded);
+        max.accumulate(recorded);
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent >= MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    /**
+     * @return The smallest value recorded in a bucket
+     */
+    static long lowestOf(int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_COUNT + SUB_BITS - 1;
+        return (long) (SUB_COUNT + bucket % SUB_COUNT) << (exponent - SUB_BITS);
+    }
+
+    /**
+     * @return The values recorded so far
+     */
+    @NonNull
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return new Snapshot(count.sum(), sum.sum(), max.get(), counts);
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    /**
+     * The values of a histogram at the time they were read.
+     */
+    public static final class Snapshot {
+        private final long count;
+        private final long sum;
+        private final long max;
+        private final long[] buckets;
+
+        Snapshot(long count, long sum, long max, long[] buckets) {
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+            this.buckets = buckets;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * @param quantile Between 0 and 1, e.g. 0.99
+         * @return Highest value of the bucket holding that quantile of the values, never more
+         * than the largest value recorded; 0 if nothing was recorded
+         */
+        public long percentile(double quantile) {
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    long highest = i + 1 < BUCKETS ? lowestOf(i + 1) - 1 : max;
+                    return Math.min(highest, max);
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.code_zombom_app.Helpers.Metrics;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+
+/**
+ * The value of one metric at the time the registry was read. Counters only have a count; timers
+ * and histograms also have their distribution, in nanoseconds for timers.
+ *
+ * @version 1.0.0
+ * @see MetricsRegistry#snapshot()
+ */
+public final class MetricSnapshot {
+
+    /**
+     * Kind of metric a snapshot was taken of.
+     */
+    public enum Type {
+        COUNTER,
+        TIMER,
+        HISTOGRAM
+    }
+
+    private final String name;
+    private final Type type;
+    private final long count;
+    private final long sum;
+    private final long max;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+
+    MetricSnapshot(@NonNull String name, long count) {
+        this(name, Type.COUNTER, count, count, 0, 0, 0, 0);
+    }
+
+    MetricSnapshot(@NonNull String name, @NonNull Type type, @NonNull Histogram.Snapshot values) {
+        this(name, type, values.getCount(), values.getSum(), values.getMax(),
+                values.percentile(0.5), values.percentile(0.9), values.percentile(0.99));
+    }
+
+    private MetricSnapshot(String name, Type type, long count, long sum, long max, long p50,
+                           long p90, long p99) {
+        this.name = name;
+        this.type = type;
+        this.count = count;
+        this.sum = sum;
+        this.max = max;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+    }
+
+    @NonNull
+    public String getName() {
+        return name;
+    }
+
+    @NonNull
+    public Type getType() {
+        return type;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP90() {
+        return p90;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * @return One line for a debug screen or a log, with timers in milliseconds
+     */
+    @NonNull
+    @Override
+    public String toString() {
+        switch (type) {
+            case COUNTER:
+                return String.format(Locale.US, "%s %d", name, count);
+            case TIMER:
+                return String.format(Locale.US, "%s n=%d p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms",
+                        name, count, p50 / 1e6, p90 / 1e6, p99 / 1e6, max / 1e6);
+            default:
+                return String.format(Locale.US, "%s n=%d mean=%.1f p50=%d p99=%d max=%d",
+                        name, count, getMean(), p50, p99, max);
+        }
+    }
+}
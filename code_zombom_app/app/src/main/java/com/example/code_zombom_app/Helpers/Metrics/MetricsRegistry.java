@@ -0,0 +1,150 @@
+package com.example.code_zombom_app.Helpers.Metrics;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Named counters, timers and histograms of the app's hot paths, e.g. how long
+ * {@code EventModel.loadEvents} takes and how many documents it reads.
+ * <p>
+ * A metric is created the first time its name is asked for and the same one is returned after
+ * that. Callers keep it in a static field, so recording allocates nothing and takes no lock;
+ * only {@link #snapshot()} and {@link #export()} walk the metrics.
+ *
+ * @version 1.0.0
+ * @see OperationMetrics
+ */
+public final class MetricsRegistry {
+    private static MetricsRegistry instance;
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    MetricsRegistry() {
+        // Use getInstance(); tests create their own
+    }
+
+    /**
+     * @return The registry shared by the whole app
+     */
+    @NonNull
+    public static synchronized MetricsRegistry getInstance() {
+        if (instance == null) {
+            instance = new MetricsRegistry();
+        }
+        return instance;
+    }
+
+    @NonNull
+    public Counter counter(@NonNull String name) {
+        return counters.computeIfAbsent(name, key -> new Counter());
+    }
+
+    @NonNull
+    public Timer timer(@NonNull String name) {
+        return timers.computeIfAbsent(name, key -> new Timer());
+    }
+
+    @NonNull
+    public Histogram histogram(@NonNull String name) {
+        return histograms.computeIfAbsent(name, key -> new Histogram());
+    }
+
+    /**
+     * @param name Name of the operation, e.g. "MailService.getAllMailOnce"
+     * @return The latency, documents, deserialization and failures metrics of the operation,
+     * registered under the name followed by ".latency", ".documents", ".deserialization" and
+     * ".failures"
+     */
+    @NonNull
+    public OperationMetrics operation(@NonNull String name) {
+        return new OperationMetrics(this, name);
+    }
+
+    /**
+     * @return Every metric, sorted by name
+     */
+    @NonNull
+    public List<MetricSnapshot> snapshot() {
+        List<MetricSnapshot> snapshots = new ArrayList<>();
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            snapshots.add(new MetricSnapshot(entry.getKey(), entry.getValue().get()));
+        }
+        for (Map.Entry<String, Timer> entry : timers.entrySet()) {
+            snapshots.add(new MetricSnapshot(entry.getKey(), MetricSnapshot.Type.TIMER,
+                    entry.getValue().snapshot()));
+        }
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            snapshots.add(new MetricSnapshot(entry.getKey(), MetricSnapshot.Type.HISTOGRAM,
+                    entry.getValue().snapshot()));
+        }
+        Collections.sort(snapshots, (a, b) -> a.getName().compareTo(b.getName()));
+        return snapshots;
+    }
+
+    /**
+     * Export every metric as a JSON object keyed by name, e.g.
+     * {@code {"EventModel.loadEvents.failures":{"type":"COUNTER","count":2}}}. Timers are in
+     * nanoseconds.
+     *
+     * @return The JSON text
+     */
+    @NonNull
+    public String export() {
+        StringBuilder json = new StringBuilder("{");
+        for (MetricSnapshot metric : snapshot()) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            appendString(json, metric.getName());
+            json.append(":{\"type\":\"").append(metric.getType()).append("\",\"count\":")
+                    .append(metric.getCount());
+            if (metric.getType() != MetricSnapshot.Type.COUNTER) {
+                json.append(",\"sum\":").append(metric.getSum())
+                        .append(",\"max\":").append(metric.getMax())
+                        .append(",\"p50\":").append(metric.getP50())
+                        .append(",\"p90\":").append(metric.getP90())
+                        .append(",\"p99\":").append(metric.getP99());
+            }
+            json.append('}');
+        }
+        return json.append('}').toString();
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * Set every metric back to zero, keeping the metrics themselves so the fields holding them
+     * stay valid.
+     */
+    public void reset() {
+        for (Counter counter : counters.values()) {
+            counter.reset();
+        }
+        for (Timer timer : timers.values()) {
+            timer.reset();
+        }
+        for (Histogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+}
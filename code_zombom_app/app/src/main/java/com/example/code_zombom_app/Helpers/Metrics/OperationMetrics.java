@@ -0,0 +1,67 @@
+package com.example.code_zombom_app.Helpers.Metrics;
+
+import androidx.annotation.NonNull;
+
+/**
+ * The metrics of one operation against Firestore, e.g. "EventModel.loadEvents": how long it took
+ * until it answered, how many documents it returned or wrote, how long turning each document into
+ * an object took, and how often it failed. Keep one in a static field of the class it measures.
+ *
+ * @version 1.0.0
+ * @see MetricsRegistry#operation(String)
+ */
+public final class OperationMetrics {
+    static final String LATENCY = ".latency";
+    static final String DOCUMENTS = ".documents";
+    static final String DESERIALIZATION = ".deserialization";
+    static final String FAILURES = ".failures";
+
+    private final Timer latency;
+    private final Histogram documents;
+    private final Timer deserialization;
+    private final Counter failures;
+
+    OperationMetrics(@NonNull MetricsRegistry registry, @NonNull String name) {
+        latency = registry.timer(name + LATENCY);
+        documents = registry.histogram(name + DOCUMENTS);
+        deserialization = registry.timer(name + DESERIALIZATION);
+        failures = registry.counter(name + FAILURES);
+    }
+
+    /**
+     * @return The time to pass to the other methods, as {@link Timer#start()}
+     */
+    public long start() {
+        return Timer.start();
+    }
+
+    /**
+     * Record an answer of the operation.
+     *
+     * @param startNanos When the operation started
+     * @param documents  Documents it returned or wrote
+     */
+    public void succeeded(long startNanos, int documents) {
+        latency.stop(startNanos);
+        this.documents.record(documents);
+    }
+
+    /**
+     * Record a failure of the operation. It counts towards the latency too.
+     *
+     * @param startNanos When the operation started
+     */
+    public void failed(long startNanos) {
+        latency.stop(startNanos);
+        failures.increment();
+    }
+
+    /**
+     * Record the time taken to turn one document into an object.
+     *
+     * @param startNanos When the conversion started
+     */
+    public void deserialized(long startNanos) {
+        deserialization.stop(startNanos);
+    }
+}
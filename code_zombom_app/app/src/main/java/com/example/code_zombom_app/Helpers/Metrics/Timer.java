@@ -0,0 +1,47 @@
+package com.example.code_zombom_app.Helpers.Metrics;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Histogram of durations in nanoseconds. Start a measure with {@link #start()} and keep the
+ * returned time in a local, so timing an operation allocates nothing.
+ *
+ * @version 1.0.0
+ * @see MetricsRegistry#timer(String)
+ */
+public final class Timer {
+    private final Histogram durations = new Histogram();
+
+    Timer() {
+        // Use MetricsRegistry.timer(String)
+    }
+
+    /**
+     * @return The time to pass to {@link #stop(long)}
+     */
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * @param startNanos What {@link #start()} returned
+     * @return The recorded duration in nanoseconds
+     */
+    public long stop(long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        durations.record(elapsed);
+        return elapsed;
+    }
+
+    /**
+     * @return The durations recorded so far, in nanoseconds
+     */
+    @NonNull
+    public Histogram.Snapshot snapshot() {
+        return durations.snapshot();
+    }
+
+    void reset() {
+        durations.reset();
+    }
+}
@@ -3,7 +3,13 @@ package com.example.code_zombom_app.Helpers.Models;
 import android.util.Log;
 
 import com.example.code_zombom_app.Helpers.Event.Event;
+import com.example.code_zombom_app.Helpers.Event.EventSummary;
+import com.example.code_zombom_app.Helpers.Filter.EventFilter;
 import com.example.code_zombom_app.Helpers.MVC.GModel;
+import com.example.code_zombom_app.Helpers.Metrics.FirestoreCosts;
+import com.example.code_zombom_app.Helpers.Metrics.MetricsRegistry;
+import com.example.code_zombom_app.Helpers.Metrics.OperationMetrics;
+import com.example.code_zombom_app.Helpers.Offline.CacheFirstReader;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
 
@@ -22,21 +28,38 @@ import java.util.ArrayList;
  * @version 11/24/2025
  */
 public class EventModel extends GModel {
+    // Loads from the cache first are recorded once per answer, cached and fresh
+    private static final OperationMetrics UPLOAD_EVENT =
+            MetricsRegistry.getInstance().operation("EventModel.uploadEvent");
+    private static final OperationMetrics LOAD_EVENT =
+            MetricsRegistry.getInstance().operation("EventModel.loadEvent");
+    private static final OperationMetrics LOAD_EVENTS =
+            MetricsRegistry.getInstance().operation("EventModel.loadEvents");
+    private static final OperationMetrics LOAD_SUMMARIES =
+            MetricsRegistry.getInstance().operation("EventModel.loadEventSummaries");
+    private static final FirestoreCosts COSTS = FirestoreCosts.getInstance();
+
     protected final FirebaseFirestore db;
+    protected final CacheFirstReader reader; // Answers loads from the device's cache first
     protected Event loadedEvent; // The loaded event from the database
     protected ArrayList<Event> loadedEvents; // All loaded event from the database
+    protected ArrayList<EventSummary> loadedSummaries; // Summaries of all events, for list screens
 
     public EventModel() {
         super();
         db = FirebaseFirestore.getInstance();
+        reader = CacheFirstReader.getInstance();
         loadedEvents = new ArrayList<>();
+        loadedSummaries = new ArrayList<>();
     }
 
     //testdb
     public EventModel(FirebaseFirestore firestore) {
         super();
         this.db = firestore;
+        this.reader = new CacheFirstReader();
         this.loadedEvents = new ArrayList<>();
+        this.loadedSummaries = new ArrayList<>();
     }
 
     /**
@@ -53,14 +76,21 @@ public class EventModel extends GModel {
         if (event == null)
             throw new IllegalArgumentException("Event cannot be null");
 
+        long start = UPLOAD_EVENT.start();
         db.collection("Events")
                 .document(event.getEventId())
                 .set(event)
+                .onSuccessTask(aVoid -> db.collection(EventSummary.COLLECTION)
+                        .document(event.getEventId())
+                        .set(EventSummary.of(event), EventSummary.writeOptions(event)))
                 .addOnSuccessListener(aVoid -> {
+                    UPLOAD_EVENT.succeeded(start, 2); // The event and its summary
+                    COSTS.record("EventModel.uploadEvent", 0, 0, 2, 0);
                     setState(State.UPLOAD_EVENT_SUCESS);
                     notifyViews();
                 })
                 .addOnFailureListener(e -> {
+                    UPLOAD_EVENT.failed(start);
                     Log.e("FirebaseFirestore Error", "Cannot add the event to the database",
                             e);
                     setState(State.UPLOAD_EVENT_FAILURE);
@@ -70,7 +100,8 @@ public class EventModel extends GModel {
     }
 
     /**
-     * Load an event from the database using the event's id.
+     * Load an event from the database using the event's id. The views are notified with the
+     * cached event first, then again with the server's if the cached one was stale.
      *
      * @param id The event's id
      * @see Event
@@ -79,22 +110,27 @@ public class EventModel extends GModel {
     public void loadEvent(String id) {
         resetState();
 
-        db.collection("Events")
-                .document(id)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
+        long start = LOAD_EVENT.start();
+        reader.read("Events/" + id, db.collection("Events").document(id),
+                documentSnapshot -> {
+                    COSTS.read("EventModel.loadEvent", documentSnapshot);
                     if (documentSnapshot.exists()) {
+                        long parsing = LOAD_EVENT.start();
                         loadedEvent = documentSnapshot.toObject(Event.class);
+                        LOAD_EVENT.deserialized(parsing);
+                        LOAD_EVENT.succeeded(start, 1);
                         setState(State.LOAD_EVENT_SUCCESS);
                         notifyViews();
                     }
                     else {
+                        LOAD_EVENT.failed(start);
                         setState(State.LOAD_EVENT_FAILURE);
                         errorMsg = "Cannot find the event in the database";
                         notifyViews();
                     }
-                })
-                .addOnFailureListener(e -> {
+                },
+                e -> {
+                    LOAD_EVENT.failed(start);
                     Log.e("FirebaseFirestore", "Cannot query the event", e);
                     setState(State.LOAD_EVENT_FAILURE);
                     notifyViews();
@@ -103,19 +139,23 @@ public class EventModel extends GModel {
     }
 
     /**
-     * Load all events currently in the database
+     * Load all events currently in the database, from the cache first like {@link #loadEvent}
      */
     public void loadEvents() {
         resetState();
 
-        db.collection("Events")
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
+        long start = LOAD_EVENTS.start();
+        reader.read("Events", db.collection("Events"),
+                querySnapshot -> {
                     loadedEvents.clear();
+                    int documents = 0;
 
                     for (QueryDocumentSnapshot doc : querySnapshot) {
+                        documents++;
                         try {
+                            long parsing = LOAD_EVENTS.start();
                             Event event = doc.toObject(Event.class);
+                            LOAD_EVENTS.deserialized(parsing);
 
                             // Skip if conversion returned null or key fields are missing
                             if (event == null || event.getEventId() == null) {
@@ -132,10 +172,13 @@ public class EventModel extends GModel {
                         }
                     }
 
+                    LOAD_EVENTS.succeeded(start, documents);
+                    COSTS.read("EventModel.loadEvents", querySnapshot);
                     setState(State.LOAD_EVENTS_SUCCESS);
                     notifyViews();
-                })
-                .addOnFailureListener(e -> {
+                },
+                e -> {
+                    LOAD_EVENTS.failed(start);
                     Log.e("FirebaseFirestore Error", "Cannot query the events", e);
                     setState(State.LOAD_EVENTS_FAILURE);
                     errorMsg = "Cannot query the database for the events";
@@ -146,6 +189,62 @@ public class EventModel extends GModel {
 
 
 
+    /**
+     * Load the summary of every event currently in the database. List screens should use this
+     * instead of {@link #loadEvents()}, which downloads every membership list of every event.
+     *
+     * @see EventSummary
+     */
+    public void loadEventSummaries() {
+        loadEventSummaries(null);
+    }
+
+    /**
+     * Load the summaries of the events accepted by a filter.
+     *
+     * @param filter The filter the summaries must pass, null to keep every summary
+     */
+    protected void loadEventSummaries(EventFilter filter) {
+        resetState();
+
+        long start = LOAD_SUMMARIES.start();
+        reader.read(EventSummary.COLLECTION, db.collection(EventSummary.COLLECTION),
+                querySnapshot -> {
+                    loadedSummaries.clear();
+                    int documents = 0;
+
+                    for (QueryDocumentSnapshot doc : querySnapshot) {
+                        documents++;
+                        try {
+                            long parsing = LOAD_SUMMARIES.start();
+                            EventSummary summary = doc.toObject(EventSummary.class);
+                            LOAD_SUMMARIES.deserialized(parsing);
+                            if (summary.getEventId() == null) {
+                                summary.setEventId(doc.getId());
+                            }
+                            if (filter == null || filter.passFilter(summary)) {
+                                loadedSummaries.add(summary);
+                            }
+                        } catch (Exception ex) {
+                            Log.e("EventModel",
+                                    "Skipping non-convertible summary: " + doc.getId(), ex);
+                        }
+                    }
+
+                    LOAD_SUMMARIES.succeeded(start, documents);
+                    COSTS.read("EventModel.loadEventSummaries", querySnapshot);
+                    setState(State.LOAD_EVENTS_SUCCESS);
+                    notifyViews();
+                },
+                e -> {
+                    LOAD_SUMMARIES.failed(start);
+                    Log.e("FirebaseFirestore Error", "Cannot query the event summaries", e);
+                    setState(State.LOAD_EVENTS_FAILURE);
+                    errorMsg = "Cannot query the database for the events";
+                    notifyViews();
+                });
+    }
+
     /**
      * @return The loaded event from the database.
      */
@@ -161,6 +260,13 @@ public class EventModel extends GModel {
         return loadedEvents;
     }
 
+    /**
+     * @return Summaries of the events loaded by {@link #loadEventSummaries()}
+     */
+    public ArrayList<EventSummary> getLoadedSummaries() {
+        return loadedSummaries;
+    }
+
     protected void resetState() {
         super.resetState();
         loadedEvent = null;
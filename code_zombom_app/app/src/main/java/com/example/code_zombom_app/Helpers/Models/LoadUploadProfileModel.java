@@ -9,8 +9,13 @@ import android.util.Log;
 import androidx.annotation.Nullable;
 
 import com.example.code_zombom_app.Helpers.MVC.GModel;
+import com.example.code_zombom_app.Helpers.Metrics.FirestoreCosts;
+import com.example.code_zombom_app.Helpers.Metrics.MetricsRegistry;
+import com.example.code_zombom_app.Helpers.Metrics.OperationMetrics;
+import com.example.code_zombom_app.Helpers.Offline.CacheFirstReader;
 import com.example.code_zombom_app.Helpers.Users.Admin;
 import com.example.code_zombom_app.Helpers.Users.Entrant;
+import com.example.code_zombom_app.Helpers.Users.NotificationPreferenceResolver;
 import com.example.code_zombom_app.Helpers.Users.Organizer;
 import com.example.code_zombom_app.Helpers.Users.Profile;
 import com.google.firebase.firestore.DocumentSnapshot;
@@ -21,16 +26,32 @@ import java.util.Locale;
 import java.util.Map;
 
 public class LoadUploadProfileModel extends GModel {
+    private static final OperationMetrics LOAD_PROFILE =
+            MetricsRegistry.getInstance().operation("LoadUploadProfileModel.loadProfile");
+    private static final OperationMetrics LOAD_PROFILE_WITH_DEVICE_ID =
+            MetricsRegistry.getInstance().operation("LoadUploadProfileModel.loadProfileWithDeviceId");
+    // Writes record the documents they wrote
+    private static final OperationMetrics UPLOAD_PROFILE =
+            MetricsRegistry.getInstance().operation("LoadUploadProfileModel.uploadProfile");
+    private static final OperationMetrics EDIT_PROFILE =
+            MetricsRegistry.getInstance().operation("LoadUploadProfileModel.editProfile");
+    private static final OperationMetrics DELETE_PROFILE =
+            MetricsRegistry.getInstance().operation("LoadUploadProfileModel.deleteProfile");
+    private static final FirestoreCosts COSTS = FirestoreCosts.getInstance();
+
     protected FirebaseFirestore db;
+    protected final CacheFirstReader reader; // Answers loads from the device's cache first
     protected static final String errorTag = "FireBaseFireStore Error"; // Tag to debug errors
     public LoadUploadProfileModel(FirebaseFirestore db) {
         super();
         this.db = db; // Force the database to be initialized within a context.
+        this.reader = CacheFirstReader.getInstance();
     }
 
     /**
      * Check if an email address is in the database. If the input email address is in the database
-     * then return the associated profile through intermsg
+     * then return the associated profile through intermsg. The profile is read from the cache
+     * first, so the views may be notified again with the server's copy.
      *
      * @param email The email of the profile to load; used as the document ID in Firestore
      * @throws IllegalArgumentException If the method setInterMsg failed
@@ -49,24 +70,30 @@ public class LoadUploadProfileModel extends GModel {
             return;
         }
 
-        db.collection("Profiles").document(email)
-                .get()
-                .addOnSuccessListener(snapshot -> {
+        long start = LOAD_PROFILE.start();
+        reader.read("Profiles/" + email, db.collection("Profiles").document(email),
+                snapshot -> {
+                    COSTS.read("LoadUploadProfileModel.loadProfile", snapshot);
                     if (!snapshot.exists()) {
+                        LOAD_PROFILE.failed(start);
                         state = State.LOGIN_FAILURE;
                         errorMsg = "Cannot find profile!";
                         notifyViews();
                         return;
                     }
 
+                    long parsing = LOAD_PROFILE.start();
                     Profile profile = deserializeProfile(snapshot, email);
+                    LOAD_PROFILE.deserialized(parsing);
                     if (profile == null) {
+                        LOAD_PROFILE.failed(start);
                         state = State.LOGIN_FAILURE;
                         errorMsg = "Profile is missing required fields.";
                         notifyViews();
                         return;
                     }
 
+                    LOAD_PROFILE.succeeded(start, 1);
                     try {
                         setInterMsg("Profile", profile);
                         state = State.LOGIN_SUCCESS;
@@ -77,8 +104,9 @@ public class LoadUploadProfileModel extends GModel {
                     }
                     notifyViews();
 
-                })
-                .addOnFailureListener(e -> {
+                },
+                e -> {
+                    LOAD_PROFILE.failed(start);
                     Log.e(errorTag, "Load Profile Failure", e);
                     state = State.LOGIN_FAILURE;
                     errorMsg = "Cannot query the database!";
@@ -178,10 +206,13 @@ public class LoadUploadProfileModel extends GModel {
          * profile to the database
          */
         Profile finalProfile = profile;
+        long start = UPLOAD_PROFILE.start();
         db.collection("Profiles").document(email)
                 .get()
                 .addOnSuccessListener(snapshot -> {
+                    COSTS.read("LoadUploadProfileModel.uploadProfile", snapshot);
                     if (snapshot.exists()) {
+                        UPLOAD_PROFILE.failed(start);
                         state = State.SIGNUP_FAILURE;
                         errorMsg = "This email address has already been associated with another account";
                         notifyViews();
@@ -190,11 +221,14 @@ public class LoadUploadProfileModel extends GModel {
                         db.collection("Profiles").document(finalProfile.getEmail())
                                 .set(finalProfile)
                                 .addOnSuccessListener(aVoid -> {
+                                    UPLOAD_PROFILE.succeeded(start, 1);
+                                    COSTS.record("LoadUploadProfileModel.uploadProfile", 0, 0, 1, 0);
                                     syncNotificationPreference(finalProfile);
                                     state = State.SIGNUP_SUCCESS;
                                     notifyViews();
                                 })
                                 .addOnFailureListener(e -> {
+                                    UPLOAD_PROFILE.failed(start);
                                     Log.e(errorTag, "Upload error", e);
                                     state = State.SIGNUP_FAILURE;
                                     errorMsg = "Cannot add profile to the database!";
@@ -203,6 +237,7 @@ public class LoadUploadProfileModel extends GModel {
                     }
                 })
                 .addOnFailureListener(e -> {
+                    UPLOAD_PROFILE.failed(start);
                     Log.e(errorTag, "Querying error", e);
                     state = State.LOGIN_FAILURE;
                     errorMsg = "Error in querying the database!";
@@ -224,34 +259,41 @@ public class LoadUploadProfileModel extends GModel {
         resetState();
 
         assert oldProfile != null && newProfile != null;
+        long start = EDIT_PROFILE.start();
 
         // If email didn't change → just update the profile document
         if (oldProfile.getEmail().equals(newProfile.getEmail())) {
             db.collection("Profiles").document(oldProfile.getEmail())
                     .get()
                     .addOnSuccessListener(snapshot -> {
+                        COSTS.read("LoadUploadProfileModel.editProfile", snapshot);
                         if (snapshot.exists()) {
                             db.collection("Profiles").document(oldProfile.getEmail())
                                     .set(newProfile)
                                     .addOnSuccessListener(aVoid -> {
+                                        EDIT_PROFILE.succeeded(start, 1);
+                                        COSTS.record("LoadUploadProfileModel.editProfile", 0, 0, 1, 0);
                                         syncNotificationPreference(newProfile);
                                         state = State.EDIT_PROFILE_SUCCESS;
                                         setInterMsg("Profile", newProfile);
                                         notifyViews();
                                     })
                                     .addOnFailureListener(e -> {
+                                        EDIT_PROFILE.failed(start);
                                         Log.e(errorTag, "Update Profile Error", e);
                                         state = State.EDIT_PROFILE_FAILURE;
                                         errorMsg = "Cannot update profile in the database!";
                                         notifyViews();
                                     });
                         } else {
+                            EDIT_PROFILE.failed(start);
                             state = State.EDIT_PROFILE_FAILURE;
                             errorMsg = "Profile not found in the database!";
                             notifyViews();
                         }
                     })
                     .addOnFailureListener(e -> {
+                        EDIT_PROFILE.failed(start);
                         Log.e(errorTag, "Querying error", e);
                         state = State.EDIT_PROFILE_FAILURE;
                         errorMsg = "Error querying the database!";
@@ -264,7 +306,9 @@ public class LoadUploadProfileModel extends GModel {
             db.collection("Profiles").document(newProfile.getEmail())
                     .get()
                     .addOnSuccessListener(snapshot -> {
+                        COSTS.read("LoadUploadProfileModel.editProfile", snapshot);
                         if (snapshot.exists()) {
+                            EDIT_PROFILE.failed(start);
                             state = State.EDIT_PROFILE_FAILURE;
                             errorMsg = "This email address is already associated with another profile!";
                             notifyViews();
@@ -278,12 +322,16 @@ public class LoadUploadProfileModel extends GModel {
                                         db.collection("Profiles").document(newProfile.getEmail())
                                                 .set(newProfile)
                                                 .addOnSuccessListener(aVoid2 -> {
+                                                    // The old profile was deleted, the new one written
+                                                    EDIT_PROFILE.succeeded(start, 2);
+                                                    COSTS.record("LoadUploadProfileModel.editProfile", 0, 0, 2, 0);
                                                     syncNotificationPreference(newProfile);
                                                     state = State.EDIT_PROFILE_SUCCESS;
                                                     setInterMsg("Profile", newProfile);
                                                     notifyViews();
                                                 })
                                                 .addOnFailureListener(e -> {
+                                                    EDIT_PROFILE.failed(start);
                                                     Log.e(errorTag, "Upload Edited Profile Error", e);
                                                     state = State.EDIT_PROFILE_FAILURE;
                                                     errorMsg = "Cannot upload the edited profile to the database!";
@@ -291,6 +339,7 @@ public class LoadUploadProfileModel extends GModel {
                                                 });
                                     })
                                     .addOnFailureListener(e -> {
+                                        EDIT_PROFILE.failed(start);
                                         Log.e(errorTag, "Delete Old Profile Error", e);
                                         state = State.EDIT_PROFILE_FAILURE;
                                         errorMsg = "Cannot delete the old profile from the database!";
@@ -299,6 +348,7 @@ public class LoadUploadProfileModel extends GModel {
                         }
                     })
                     .addOnFailureListener(e -> {
+                        EDIT_PROFILE.failed(start);
                         Log.e(errorTag, "Querying Error", e);
                         state = State.EDIT_PROFILE_FAILURE;
                         errorMsg = "Failure querying the database for the new email address!";
@@ -318,15 +368,19 @@ public class LoadUploadProfileModel extends GModel {
 
         assert email != null;
 
+        long start = DELETE_PROFILE.start();
         db.collection("Profiles").document(email)
                 .delete()
                 .addOnSuccessListener(aVoid -> {
+                    DELETE_PROFILE.succeeded(start, 1);
+                    COSTS.record("LoadUploadProfileModel.deleteProfile", 0, 0, 1, 0);
                     deleteNotificationPreference(email);
                     state = State.DELETE_PROFILE_SUCCESS;
                     setInterMsg("Message", email);
                     notifyViews();
                 })
                 .addOnFailureListener(e -> {
+                    DELETE_PROFILE.failed(start);
                     Log.e(errorTag, "Deleting Old Profile Error", e);
                     state = State.DELETE_PROFILE_FAILURE;
                     errorMsg = "Cannot delete this profile from the database!";
@@ -356,9 +410,10 @@ public class LoadUploadProfileModel extends GModel {
         Map<String, Object> payload = new HashMap<>();
         payload.put("email", profile.getEmail().trim());
         payload.put("notificationEnabled", ((Entrant) profile).isNotificationEnabled());
-        db.collection("NotificationPreferences")
+        db.collection(NotificationPreferenceResolver.COLLECTION)
                 .document(normalized)
                 .set(payload);
+        NotificationPreferenceResolver.preferenceChanged(normalized);
     }
 
     protected void deleteNotificationPreference(@Nullable String email) {
@@ -366,9 +421,10 @@ public class LoadUploadProfileModel extends GModel {
         if (normalized.isEmpty()) {
             return;
         }
-        db.collection("NotificationPreferences")
+        db.collection(NotificationPreferenceResolver.COLLECTION)
                 .document(normalized)
                 .delete();
+        NotificationPreferenceResolver.preferenceChanged(normalized);
     }
 
     protected String normalizeNotificationKey(@Nullable String email) {
@@ -441,17 +497,23 @@ public class LoadUploadProfileModel extends GModel {
     public void loadProfileWithDeviceId(Context context) {
         String deviceId = getDeviceId(context);
 
+        long start = LOAD_PROFILE_WITH_DEVICE_ID.start();
         db.collection("Profiles")
                 .whereArrayContains("deviceId", deviceId)
                 .get()
                 .addOnSuccessListener(querySnapshot -> {
+                    LOAD_PROFILE_WITH_DEVICE_ID.succeeded(start, querySnapshot.size());
+                    COSTS.read("LoadUploadProfileModel.loadProfileWithDeviceId", querySnapshot);
                     if (!querySnapshot.isEmpty()) {
                         DocumentSnapshot doc = querySnapshot.getDocuments().get(0);
                         String type = doc.getString("type");
 
                         Profile profile = null;
-                        if ("Entrant".equals(type))
+                        if ("Entrant".equals(type)) {
+                            long parsing = LOAD_PROFILE_WITH_DEVICE_ID.start();
                             profile = doc.toObject(Entrant.class);
+                            LOAD_PROFILE_WITH_DEVICE_ID.deserialized(parsing);
+                        }
 
                         if (profile != null) {
                             state = State.LOGIN_SUCCESS;
@@ -471,6 +533,7 @@ public class LoadUploadProfileModel extends GModel {
                     }
                 })
                 .addOnFailureListener(e -> {
+                    LOAD_PROFILE_WITH_DEVICE_ID.failed(start);
                     Log.e(errorTag, "Querying Error", e);
                     state = State.LOGIN_FAILURE;
                     errorMsg = "Error in querying the database";
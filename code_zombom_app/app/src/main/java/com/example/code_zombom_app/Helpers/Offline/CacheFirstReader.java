@@ -0,0 +1,154 @@
+package com.example.code_zombom_app.Helpers.Offline;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Reads documents and queries from Firestore's local cache first, so that screens render at once
+ * on a slow or missing connection. A plain {@code get()} waits for the server and only falls back
+ * to the cache once the request times out.
+ * <p>
+ * A read is first answered from the cache. If the server was not asked for it within the
+ * staleness budget, it is then refreshed from the server in the background and answered again,
+ * so the success listener may be called twice: with the cached result, then with the fresh one.
+ * Reads the cache cannot answer go to the server like a plain {@code get()}.
+ *
+ * @version 1.0.0
+ * @see OfflineFirestore
+ */
+public final class CacheFirstReader {
+    public static final long DEFAULT_STALENESS_MS = 60_000;
+
+    private static final String TAG = "CacheFirstReader";
+
+    private static CacheFirstReader shared;
+
+    private final LongSupplier clock;
+    private volatile long stalenessMillis;
+
+    // When each document or query was last read from the server, by key
+    private final Map<String, Long> lastServerRead = new ConcurrentHashMap<>();
+
+    public CacheFirstReader() {
+        this(DEFAULT_STALENESS_MS, System::currentTimeMillis);
+    }
+
+    /**
+     * @param stalenessMillis How old a cached result may be before it is refreshed
+     * @param clock           Source of the current time in milliseconds
+     */
+    CacheFirstReader(long stalenessMillis, @NonNull LongSupplier clock) {
+        this.stalenessMillis = stalenessMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * @return The reader shared by the app's models, so that a result one screen read from the
+     * server counts as fresh on the next
+     */
+    @NonNull
+    public static synchronized CacheFirstReader getInstance() {
+        if (shared == null) {
+            shared = new CacheFirstReader();
+        }
+        return shared;
+    }
+
+    /**
+     * @param stalenessMillis How old a cached result may be before it is refreshed from the
+     *                        server; 0 refreshes every read
+     */
+    public void setStalenessBudget(long stalenessMillis) {
+        if (stalenessMillis < 0) {
+            throw new IllegalArgumentException("Staleness budget cannot be negative");
+        }
+        this.stalenessMillis = stalenessMillis;
+    }
+
+    /**
+     * Read a document, from the cache first.
+     *
+     * @param key       Identifies the document when judging how stale its cached snapshot is,
+     *                  e.g. its path
+     * @param document  The document to read
+     * @param onResult  Called with the cached snapshot, then with the server's if it was stale
+     * @param onFailure Called if neither the cache nor the server could answer
+     */
+    public void read(@NonNull String key, @NonNull DocumentReference document,
+                     @NonNull OnSuccessListener<DocumentSnapshot> onResult,
+                     @NonNull OnFailureListener onFailure) {
+        read(key, () -> document.get(Source.CACHE), document::get,
+                () -> document.get(Source.SERVER), DocumentSnapshot::exists, onResult, onFailure);
+    }
+
+    /**
+     * Read a query, from the cache first. A query whose cached result is empty is read from the
+     * server, since the cache may just never have held its documents.
+     *
+     * @param key       Identifies the query when judging how stale its cached result is, e.g.
+     *                  the collection's name
+     * @param query     The query to read
+     * @param onResult  Called with the cached result, then with the server's if it was stale
+     * @param onFailure Called if neither the cache nor the server could answer
+     */
+    public void read(@NonNull String key, @NonNull Query query,
+                     @NonNull OnSuccessListener<QuerySnapshot> onResult,
+                     @NonNull OnFailureListener onFailure) {
+        read(key, () -> query.get(Source.CACHE), query::get, () -> query.get(Source.SERVER),
+                snapshot -> !snapshot.isEmpty(), onResult, onFailure);
+    }
+
+    /**
+     * @return Whether the result of the key was read from the server within the staleness budget
+     */
+    boolean isFresh(@NonNull String key) {
+        Long readAt = lastServerRead.get(key);
+        return readAt != null && clock.getAsLong() - readAt <= stalenessMillis;
+    }
+
+    private <T> void read(String key, Supplier<Task<T>> cache, Supplier<Task<T>> server,
+                          Supplier<Task<T>> refresh, Predicate<T> cached,
+                          OnSuccessListener<T> onResult, OnFailureListener onFailure) {
+        cache.get()
+                .addOnSuccessListener(result -> {
+                    if (!cached.test(result)) {
+                        fromServer(key, server, onResult, onFailure);
+                        return;
+                    }
+                    boolean fresh = isFresh(key);
+                    onResult.onSuccess(result);
+                    if (!fresh) {
+                        // The cached result was already shown, so a failed refresh is not an error
+                        fromServer(key, refresh, onResult,
+                                e -> Log.w(TAG, "Cannot refresh " + key + " from the server", e));
+                    }
+                })
+                .addOnFailureListener(e -> fromServer(key, server, onResult, onFailure));
+    }
+
+    private <T> void fromServer(String key, Supplier<Task<T>> server, OnSuccessListener<T> onResult,
+                                OnFailureListener onFailure) {
+        server.get()
+                .addOnSuccessListener(result -> {
+                    lastServerRead.put(key, clock.getAsLong());
+                    onResult.onSuccess(result);
+                })
+                .addOnFailureListener(onFailure);
+    }
+}
@@ -0,0 +1,391 @@
+package com.example.code_zombom_app.Helpers.Offline;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.code_zombom_app.Helpers.Event.EventService;
+import com.example.code_zombom_app.Helpers.Event.IdempotencyKey;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Sends the changes entrants make to events, and keeps those that could not reach the server on
+ * the device to send again once it can. {@link EventService} runs them in transactions, which
+ * Firestore cannot queue offline the way it queues plain writes. Joins and leaves go through the
+ * transactional paths rather than the fast ones on purpose: a fast batch would be committed to the
+ * local cache while offline, skipping the server's limit checks and never reporting a rejection.
+ * <p>
+ * Queued mutations are stored as soon as they are queued, so they survive the app being closed,
+ * and are sent in the order they were made. A mutation made while others are queued waits behind
+ * them, so that e.g. leaving a waiting list is never applied before the join it undoes. Every
+ * mutation carries an idempotency key, so one whose result was lost with the connection is not
+ * applied twice when it is sent again. A queued mutation the server rejects once it is sent is
+ * handed to the {@link RejectionListener}s, or kept until a screen takes it with
+ * {@link #takeRejections()}, so the entrant learns that their change was not made.
+ *
+ * @version 1.0.0
+ * @see OfflineFirestore#isOffline(Exception)
+ */
+public final class MutationQueue {
+    private static final String TAG = "MutationQueue";
+    private static final String PREFERENCES = "mutation_queue";
+    private static final String PENDING = "pending";
+
+    private static MutationQueue shared;
+
+    private final EventService eventService;
+    private final Store store;
+
+    // Mutations waiting to be sent, oldest first; mirrors the store
+    private final List<Mutation> pending = new ArrayList<>();
+    private boolean replaying;
+    // Rejections of replayed mutations that no listener was there to hear
+    private final List<Rejection> rejections = new ArrayList<>();
+    private final List<RejectionListener> rejectionListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Whether a mutation reached the server.
+     */
+    public enum Outcome {
+        APPLIED,
+        QUEUED
+    }
+
+    /**
+     * The changes an entrant can make, each sent with the {@link EventService} method of the
+     * same name.
+     */
+    public enum Type {
+        JOIN,
+        LEAVE,
+        ACCEPT,
+        DECLINE,
+        REGISTER
+    }
+
+    /**
+     * Keeps the queued mutations, one encoded mutation per entry.
+     */
+    interface Store {
+        @NonNull
+        List<String> load();
+
+        void save(@NonNull List<String> mutations);
+    }
+
+    /**
+     * A change of an entrant to an event.
+     */
+    public static final class Mutation {
+        final Type type;
+        final String eventId;
+        final String email;
+        final String requestId;
+
+        /**
+         * @param type      What the entrant does
+         * @param eventId   The event's document id
+         * @param email     The entrant's email
+         * @param requestId Idempotency key of the request, or null for a new one
+         */
+        public Mutation(@NonNull Type type, @NonNull String eventId, @NonNull String email,
+                        @Nullable String requestId) {
+            this.type = type;
+            this.eventId = eventId;
+            this.email = email.trim();
+            this.requestId = requestId != null ? requestId : IdempotencyKey.newKey();
+        }
+
+        @NonNull
+        public Type getType() {
+            return type;
+        }
+
+        @NonNull
+        public String getEventId() {
+            return eventId;
+        }
+
+        @NonNull
+        public String getEmail() {
+            return email;
+        }
+
+        // Ids, emails and keys never contain tabs
+        String encode() {
+            return type.name() + "\t" + eventId + "\t" + email + "\t" + requestId;
+        }
+
+        @Nullable
+        static Mutation decode(@NonNull String encoded) {
+            String[] fields = encoded.split("\t", -1);
+            if (fields.length != 4) {
+                return null;
+            }
+            try {
+                return new Mutation(Type.valueOf(fields[0]), fields[1], fields[2], fields[3]);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * A queued mutation the server rejected when it was sent, e.g. a join to a waiting list that
+     * filled up meanwhile.
+     */
+    public static final class Rejection {
+        private final Mutation mutation;
+        private final Exception error;
+
+        Rejection(@NonNull Mutation mutation, @NonNull Exception error) {
+            this.mutation = mutation;
+            this.error = error;
+        }
+
+        @NonNull
+        public Mutation getMutation() {
+            return mutation;
+        }
+
+        /**
+         * @return Why the server rejected the mutation
+         */
+        @NonNull
+        public Exception getError() {
+            return error;
+        }
+    }
+
+    /**
+     * Told about queued mutations the server rejects. Mutations sent straight away by
+     * {@link #submit(Mutation)} report their rejection through its task instead.
+     */
+    public interface RejectionListener {
+        /**
+         * Called on the thread that completed the mutation's task.
+         *
+         * @param rejection The mutation and why it was rejected
+         */
+        void onRejected(@NonNull Rejection rejection);
+    }
+
+    /**
+     * @param eventService Service that applies the mutations
+     * @param store        Where queued mutations are kept
+     */
+    MutationQueue(@NonNull EventService eventService, @NonNull Store store) {
+        this.eventService = eventService;
+        this.store = store;
+        for (String encoded : store.load()) {
+            Mutation mutation = Mutation.decode(encoded);
+            if (mutation != null) {
+                pending.add(mutation);
+            } else {
+                Log.w(TAG, "Dropping unreadable queued mutation: " + encoded);
+            }
+        }
+    }
+
+    /**
+     * @param context Any context of the app; only its application context is kept
+     * @return The queue of the app, with the mutations queued in previous runs
+     */
+    @NonNull
+    public static synchronized MutationQueue getInstance(@NonNull Context context) {
+        if (shared == null) {
+            shared = new MutationQueue(new EventService(),
+                    preferences(context.getApplicationContext()));
+        }
+        return shared;
+    }
+
+    /**
+     * @return A store keeping the mutations in the app's shared preferences
+     */
+    static Store preferences(@NonNull Context context) {
+        SharedPreferences preferences = context.getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+        return new Store() {
+            @NonNull
+            @Override
+            public List<String> load() {
+                String stored = preferences.getString(PENDING, "");
+                return stored.isEmpty() ? new ArrayList<>() : Arrays.asList(stored.split("\n"));
+            }
+
+            @Override
+            public void save(@NonNull List<String> mutations) {
+                // Written before returning, so a queued mutation survives the process being killed
+                preferences.edit().putString(PENDING, TextUtils.join("\n", mutations)).commit();
+            }
+        };
+    }
+
+    /**
+     * Send a mutation, or queue it if the server cannot be reached or other mutations are
+     * still queued.
+     *
+     * @param mutation The mutation to send
+     * @return Task with whether the mutation was applied or queued; fails with the error of a
+     * mutation the server rejected
+     */
+    public Task<Outcome> submit(@NonNull Mutation mutation) {
+        TaskCompletionSource<Outcome> outcome = new TaskCompletionSource<>();
+        synchronized (this) {
+            if (!pending.isEmpty()) {
+                enqueue(mutation);
+                outcome.setResult(Outcome.QUEUED);
+                replay();
+                return outcome.getTask();
+            }
+        }
+        apply(mutation)
+                .addOnSuccessListener(ignored -> outcome.setResult(Outcome.APPLIED))
+                .addOnFailureListener(e -> {
+                    if (OfflineFirestore.isOffline(e)) {
+                        synchronized (this) {
+                            enqueue(mutation);
+                        }
+                        outcome.setResult(Outcome.QUEUED);
+                    } else {
+                        outcome.setException(e);
+                    }
+                });
+        return outcome.getTask();
+    }
+
+    /**
+     * Send the queued mutations, oldest first, until one cannot reach the server. A mutation
+     * the server rejects, e.g. a join to a waiting list that filled up meanwhile, is removed from
+     * the queue and reported as a {@link Rejection}. Does nothing while a replay is running.
+     */
+    public synchronized void replay() {
+        if (replaying || pending.isEmpty()) {
+            return;
+        }
+        replaying = true;
+        sendNext();
+    }
+
+    /**
+     * @return Number of mutations waiting to be sent
+     */
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    /**
+     * Hear about queued mutations the server rejects from now on, e.g. while a screen is
+     * visible. Rejections that happened before are taken with {@link #takeRejections()}.
+     *
+     * @param listener The listener to add
+     */
+    public void addRejectionListener(@NonNull RejectionListener listener) {
+        rejectionListeners.add(listener);
+    }
+
+    /**
+     * @param listener A listener added with {@link #addRejectionListener(RejectionListener)}
+     */
+    public void removeRejectionListener(@NonNull RejectionListener listener) {
+        rejectionListeners.remove(listener);
+    }
+
+    /**
+     * @return The rejections no listener heard, oldest first; they are not returned again
+     */
+    @NonNull
+    public synchronized List<Rejection> takeRejections() {
+        List<Rejection> taken = new ArrayList<>(rejections);
+        rejections.clear();
+        return taken;
+    }
+
+    private synchronized void sendNext() {
+        if (pending.isEmpty()) {
+            replaying = false;
+            return;
+        }
+        Mutation next = pending.get(0);
+        apply(next)
+                .addOnSuccessListener(ignored -> {
+                    remove(next);
+                    sendNext();
+                })
+                .addOnFailureListener(e -> {
+                    if (OfflineFirestore.isOffline(e)) {
+                        synchronized (this) {
+                            replaying = false;
+                        }
+                        return;
+                    }
+                    Log.w(TAG, "Dropping " + next.type + " of " + next.email + " for event "
+                            + next.eventId + " rejected by the server", e);
+                    remove(next);
+                    reject(new Rejection(next, e));
+                    sendNext();
+                });
+    }
+
+    private Task<Void> apply(Mutation mutation) {
+        switch (mutation.type) {
+            case JOIN:
+                return eventService.addEntrantToWaitlist(mutation.eventId, mutation.email,
+                        mutation.requestId);
+            case LEAVE:
+                return eventService.removeEntrantFromWaitlist(mutation.eventId, mutation.email,
+                        mutation.requestId);
+            case ACCEPT:
+                return eventService.acceptInvitation(mutation.eventId, mutation.email,
+                        mutation.requestId);
+            case DECLINE:
+                return eventService.declineInvitation(mutation.eventId, mutation.email,
+                        mutation.requestId);
+            case REGISTER:
+                return eventService.completeRegistration(mutation.eventId, mutation.email,
+                        mutation.requestId);
+            default:
+                throw new IllegalArgumentException("Unknown mutation " + mutation.type);
+        }
+    }
+
+    private void reject(Rejection rejection) {
+        if (rejectionListeners.isEmpty()) {
+            synchronized (this) {
+                rejections.add(rejection);
+            }
+            return;
+        }
+        for (RejectionListener listener : rejectionListeners) {
+            listener.onRejected(rejection);
+        }
+    }
+
+    private void enqueue(Mutation mutation) {
+        pending.add(mutation);
+        save();
+    }
+
+    private synchronized void remove(Mutation mutation) {
+        pending.remove(mutation);
+        save();
+    }
+
+    private void save() {
+        List<String> encoded = new ArrayList<>();
+        for (Mutation mutation : pending) {
+            encoded.add(mutation.encode());
+        }
+        store.save(encoded);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.code_zombom_app.Helpers.Offline;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.FirebaseFirestoreSettings;
+import com.google.firebase.firestore.PersistentCacheSettings;
+
+/**
+ * Sets up Firestore to keep working on a poor connection: documents are cached on the device,
+ * writes are queued there until the server is reachable, and reads can be answered from the
+ * cache by a {@link CacheFirstReader}. Transactions are the exception, since they need the
+ * server; those made by entrants are queued by the {@link MutationQueue} instead.
+ *
+ * @version 1.0.0
+ */
+public final class OfflineFirestore {
+    // Room for the summaries, events and profiles of a busy day; least recently used go first
+    public static final long CACHE_SIZE_BYTES = 200L * 1024 * 1024;
+
+    private static final String TAG = "OfflineFirestore";
+
+    private OfflineFirestore() {
+    }
+
+    /**
+     * Enable the persistent cache with {@link #CACHE_SIZE_BYTES}. Must be called before the
+     * instance is used for anything else, i.e. when the application starts.
+     *
+     * @param firestore The instance to set up
+     */
+    public static void configure(@NonNull FirebaseFirestore firestore) {
+        FirebaseFirestoreSettings settings = new FirebaseFirestoreSettings.Builder()
+                .setLocalCacheSettings(PersistentCacheSettings.newBuilder()
+                        .setSizeBytes(CACHE_SIZE_BYTES)
+                        .build())
+                .build();
+        try {
+            firestore.setFirestoreSettings(settings);
+        } catch (IllegalStateException e) {
+            // Already in use; it keeps Firestore's default cache
+            Log.w(TAG, "Firestore was used before its cache could be set up", e);
+        }
+    }
+
+    /**
+     * @return Whether a request failed because the server could not be reached, so that sending
+     * it again later may succeed
+     */
+    public static boolean isOffline(@Nullable Exception e) {
+        if (!(e instanceof FirebaseFirestoreException)) {
+            return false;
+        }
+        FirebaseFirestoreException.Code code = ((FirebaseFirestoreException) e).getCode();
+        return code == FirebaseFirestoreException.Code.UNAVAILABLE
+                || code == FirebaseFirestoreException.Code.DEADLINE_EXCEEDED;
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.code_zombom_app.Helpers.Users;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.code_zombom_app.Helpers.Metrics.FirestoreCosts;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Resolves whether entrants want to receive notifications, for a whole set of recipients at once.
+ * <p>
+ * An entrant has opted out if their NotificationPreferences/{email} document or their profile has
+ * {@code notificationEnabled} set to false; everyone else is notified. Rather than reading the
+ * documents of every recipient, the resolver queries the opted-out documents among up to
+ * {@link #MAX_IN_VALUES} recipients at a time, so a query costs one read plus one per opted-out
+ * recipient. Results are cached per email for {@link #CACHE_TTL_MS}; a profile that toggles its
+ * flag on this device is dropped from the cache through {@link #preferenceChanged(String)}. An
+ * email whose query failed is notified but not cached, so the next lookup queries it again.
+ *
+ * @version 1.0.0
+ * @see Entrant#isNotificationEnabled()
+ */
+public final class NotificationPreferenceResolver {
+    public static final String COLLECTION = "NotificationPreferences";
+
+    // Firestore accepts at most 30 values in a whereIn filter
+    static final int MAX_IN_VALUES = 30;
+
+    // How long a resolved preference is reused before it is queried again
+    static final long CACHE_TTL_MS = 5 * 60_000;
+
+    // Continuations only read query results, so they run on the thread that completed the query
+    private static final Executor DIRECT = Runnable::run;
+
+    private static final FirestoreCosts COSTS = FirestoreCosts.getInstance();
+
+    private static NotificationPreferenceResolver shared;
+
+    private final FirebaseFirestore firestore;
+    private final Map<String, CachedPreference> cache = new ConcurrentHashMap<>();
+
+    /**
+     * @param firestore Firestore instance holding the preferences and profiles
+     */
+    public NotificationPreferenceResolver(@NonNull FirebaseFirestore firestore) {
+        this.firestore = firestore;
+    }
+
+    /**
+     * @return The resolver shared by the screens and services of the app, whose cache is
+     * invalidated by {@link #preferenceChanged(String)}
+     */
+    @NonNull
+    public static synchronized NotificationPreferenceResolver getInstance() {
+        if (shared == null) {
+            shared = new NotificationPreferenceResolver(FirebaseFirestore.getInstance());
+        }
+        return shared;
+    }
+
+    /**
+     * Drop the cached preference of an entrant from the shared resolver, e.g. after they toggled
+     * their notifications.
+     *
+     * @param email The entrant's email
+     */
+    public static synchronized void preferenceChanged(@Nullable String email) {
+        if (shared != null) {
+            shared.invalidate(email);
+        }
+    }
+
+    /**
+     * Drop the cached preference of an entrant.
+     *
+     * @param email The entrant's email
+     */
+    public void invalidate(@Nullable String email) {
+        cache.remove(normalize(email));
+    }
+
+    /**
+     * Resolve the preference of a single entrant.
+     *
+     * @param email The entrant's email
+     * @return Task resolving to true if the entrant should be notified
+     */
+    public Task<Boolean> resolve(@NonNull String email) {
+        return resolve(Collections.singleton(email))
+                .onSuccessTask(DIRECT, resolved -> Tasks.forResult(Boolean.TRUE.equals(resolved.get(email))));
+    }
+
+    /**
+     * Resolve the preferences of a set of recipients. Recipients without a usable email are never
+     * notified, and a lookup that fails leaves its recipients notified.
+     *
+     * @param emails The recipients' emails
+     * @return Task resolving to a map of every given email to true if it should be notified
+     */
+    public Task<Map<String, Boolean>> resolve(@NonNull Collection<String> emails) {
+        long now = System.currentTimeMillis();
+        Map<String, Boolean> resolved = new HashMap<>();
+        Set<String> missing = new LinkedHashSet<>();
+        for (String email : emails) {
+            String key = normalize(email);
+            if (key.isEmpty()) {
+                resolved.put(email, false);
+                continue;
+            }
+            CachedPreference cached = cache.get(key);
+            if (cached != null && now - cached.loadedAt < CACHE_TTL_MS) {
+                resolved.put(email, cached.enabled);
+            } else {
+                missing.add(key);
+            }
+        }
+        if (missing.isEmpty()) {
+            return Tasks.forResult(resolved);
+        }
+
+        // Profiles are keyed by the email as entered, preferences by the normalized email
+        Set<String> profileKeys = new LinkedHashSet<>(missing);
+        for (String email : emails) {
+            if (email != null && missing.contains(normalize(email))) {
+                profileKeys.add(email.trim());
+            }
+        }
+
+        List<Chunk> chunks = new ArrayList<>();
+        chunks.addAll(queryOptedOut(COLLECTION, missing));
+        chunks.addAll(queryOptedOut("Profiles", profileKeys));
+        List<Task<QuerySnapshot>> queries = new ArrayList<>(chunks.size());
+        for (Chunk chunk : chunks) {
+            queries.add(chunk.query);
+        }
+
+        // A failed query only means its recipients keep the default, so wait for all of them
+        return Tasks.whenAll(queries).continueWith(DIRECT, ignored -> {
+            Set<String> optedOut = new HashSet<>();
+            Set<String> unknown = new HashSet<>();
+            for (Chunk chunk : chunks) {
+                Task<QuerySnapshot> query = chunk.query;
+                if (!query.isSuccessful() || query.getResult() == null) {
+                    for (String id : chunk.ids) {
+                        unknown.add(normalize(id));
+                    }
+                    continue;
+                }
+                COSTS.read("NotificationPreferenceResolver.resolve", query.getResult());
+                for (DocumentSnapshot snapshot : query.getResult().getDocuments()) {
+                    optedOut.add(normalize(snapshot.getId()));
+                }
+            }
+            long loadedAt = System.currentTimeMillis();
+            for (String key : missing) {
+                // An opt-out found by the other query still holds, but a default is only a guess
+                if (optedOut.contains(key) || !unknown.contains(key)) {
+                    cache.put(key, new CachedPreference(!optedOut.contains(key), loadedAt));
+                }
+            }
+            for (String email : emails) {
+                String key = normalize(email);
+                if (!resolved.containsKey(email)) {
+                    resolved.put(email, !optedOut.contains(key));
+                }
+            }
+            return resolved;
+        });
+    }
+
+    private List<Chunk> queryOptedOut(String collection, Collection<String> ids) {
+        List<Chunk> chunks = new ArrayList<>();
+        List<String> chunk = new ArrayList<>(MAX_IN_VALUES);
+        for (String id : ids) {
+            chunk.add(id);
+            if (chunk.size() == MAX_IN_VALUES) {
+                chunks.add(queryOptedOutChunk(collection, chunk));
+                chunk = new ArrayList<>(MAX_IN_VALUES);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(queryOptedOutChunk(collection, chunk));
+        }
+        return chunks;
+    }
+
+    private Chunk queryOptedOutChunk(String collection, List<String> ids) {
+        return new Chunk(ids, firestore.collection(collection)
+                .whereIn(FieldPath.documentId(), ids)
+                .whereEqualTo("notificationEnabled", false)
+                .get());
+    }
+
+    private static String normalize(@Nullable String email) {
+        if (email == null) {
+            return "";
+        }
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The ids one query looked up, to tell which recipients a failed query leaves unknown.
+     */
+    private static final class Chunk {
+        final List<String> ids;
+        final Task<QuerySnapshot> query;
+
+        Chunk(List<String> ids, Task<QuerySnapshot> query) {
+            this.ids = ids;
+            this.query = query;
+        }
+    }
+
+    private static final class CachedPreference {
+        final boolean enabled;
+        final long loadedAt;
+
+        CachedPreference(boolean enabled, long loadedAt) {
+            this.enabled = enabled;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -47,6 +47,10 @@ public class LoginActivity extends AppCompatActivity implements TView<LoadUpload
 
     @Override
     public void update(LoadUploadProfileModel model) {
+        if (isFinishing()) {
+            // A profile shown from the cache already logged in; ignore its refresh
+            return;
+        }
         if (model.getState() == GModel.State.LOGIN_SUCCESS) {
             Profile profile = (Profile) model.getInterMsg("Profile");
             if (profile == null) {
@@ -12,6 +12,7 @@ import android.view.ViewGroup;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
+import android.widget.CheckBox;
 import android.widget.EditText;
 import android.widget.ImageView;
 import android.widget.Spinner;
@@ -70,6 +71,9 @@ public class AddEventFragment extends Fragment {
 
     protected AutocompleteSupportFragment autocompleteSupportFragmentEventAddress;
     protected Spinner spinnerGenre;
+    protected CheckBox priorLossesLotteryCheckBox;
+    protected CheckBox autoReplaceDeclinesCheckBox;
+    protected CheckBox shardedEntrantsCheckBox;
 
     protected Button buttonUploadPhoto;
     protected ImageView imagePreview;
@@ -156,6 +160,9 @@ public class AddEventFragment extends Fragment {
         endDateSecondaryText = view.findViewById(R.id.textEndDateSecondary);
         maxentrantEditText = view.findViewById(R.id.maxamountofentrants);
         descriptionEditText = view.findViewById(R.id.editTextDescription);
+        priorLossesLotteryCheckBox = view.findViewById(R.id.checkboxPriorLossesLottery);
+        autoReplaceDeclinesCheckBox = view.findViewById(R.id.checkboxAutoReplaceDeclines);
+        shardedEntrantsCheckBox = view.findViewById(R.id.checkboxShardedEntrants);
         buttonUploadPhoto = view.findViewById(R.id.buttonUploadPhoto);
         imagePreview = view.findViewById(R.id.imagePreview);
 
@@ -393,6 +400,10 @@ public class AddEventFragment extends Fragment {
         event.setLocation(location);
         event.setDescription(descriptionEditText.getText().toString());
         event.setGenre(selectedGenre);
+        event.setLotteryMode(selectedLotteryMode());
+        event.setAutoReplaceDeclines(autoReplaceDeclinesCheckBox != null && autoReplaceDeclinesCheckBox.isChecked());
+        // Entrants are kept one document each, so joins do not contend on the event document
+        event.setShardedEntrants(shardedEntrantsCheckBox != null && shardedEntrantsCheckBox.isChecked());
         // Poster URL is set later when an image is uploaded
 
         try {
@@ -412,6 +423,14 @@ public class AddEventFragment extends Fragment {
         return event;
     }
 
+    /**
+     * @return The lottery mode chosen with the prior losses checkbox
+     */
+    protected Event.LotteryMode selectedLotteryMode() {
+        return priorLossesLotteryCheckBox != null && priorLossesLotteryCheckBox.isChecked()
+                ? Event.LotteryMode.PRIOR_LOSSES : Event.LotteryMode.UNIFORM;
+    }
+
     protected void navigateBack() {
         if (isAdded()) {
             NavHostFragment.findNavController(this).navigateUp();
@@ -15,6 +15,7 @@ import com.example.code_zombom_app.Helpers.Event.Event;
 import com.example.code_zombom_app.Helpers.Location.Location;
 import com.example.code_zombom_app.Helpers.Mail.Mail;
 import com.example.code_zombom_app.Helpers.Mail.MailService;
+import com.example.code_zombom_app.Helpers.Metrics.FirestoreCosts;
 import com.example.code_zombom_app.R;
 import com.google.firebase.Timestamp;
 import com.google.firebase.firestore.FirebaseFirestore;
@@ -22,7 +23,7 @@ import com.google.firebase.firestore.FirebaseFirestore;
 import java.util.Calendar;
 import java.util.Date;
 
-import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Fragment that allows an organizer to edit an existing Event.
@@ -69,6 +70,7 @@ public class EditEventFragment extends AddEventFragment {
                 .document(eventId)
                 .get()
                 .addOnSuccessListener(snapshot -> {
+                    FirestoreCosts.getInstance().read("EditEventFragment.onViewCreated", snapshot);
                     if (!isAdded()) return;
 
                     baseEvent = snapshot.toObject(Event.class);
@@ -157,6 +159,19 @@ public class EditEventFragment extends AddEventFragment {
             maxentrantEditText.setText("");
         }
 
+        if (priorLossesLotteryCheckBox != null) {
+            priorLossesLotteryCheckBox.setChecked(
+                    event.getLotteryMode() == Event.LotteryMode.PRIOR_LOSSES);
+        }
+        if (autoReplaceDeclinesCheckBox != null) {
+            autoReplaceDeclinesCheckBox.setChecked(event.isAutoReplaceDeclines());
+        }
+        if (shardedEntrantsCheckBox != null) {
+            // Where the entrants are stored is chosen when the event is created
+            shardedEntrantsCheckBox.setChecked(event.isShardedEntrants());
+            shardedEntrantsCheckBox.setEnabled(false);
+        }
+
         // Dates
         Date start = event.getEventStartDate();
         if (start != null) {
@@ -206,6 +221,8 @@ public class EditEventFragment extends AddEventFragment {
         baseEvent.setName(eventNameEditText.getText().toString().trim());
         baseEvent.setDescription(descriptionEditText.getText().toString().trim());
         baseEvent.setGenre(selectedGenre);
+        baseEvent.setLotteryMode(selectedLotteryMode());
+        baseEvent.setAutoReplaceDeclines(autoReplaceDeclinesCheckBox != null && autoReplaceDeclinesCheckBox.isChecked());
         baseEvent.setEventStartDate(getDateFromCalendar(startCalendar));
         baseEvent.setEventEndDate(getDateFromCalendar(endCalendar));
         baseEvent.setLocation(location);
@@ -239,7 +256,7 @@ public class EditEventFragment extends AddEventFragment {
         // Then we check to see if they have a phone number, then we SMS. If not, then we only email.
 
         // Get this list of entrants and then we loop through
-        ArrayList<String> people = ourevent.getRegisteredList();
+        List<String> people = ourevent.getRegisteredListView();
         if (people == null){return;}
         for (int i = 0; i < people.size(); i++){
             Mail noti = new Mail(people.get(i), people.get(i), Mail.MailType.EDITED_EVENT);
@@ -4,10 +4,15 @@ import com.example.code_zombom_app.Helpers.Location.Location;
 import com.google.firebase.firestore.Exclude;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * A model class representing an event. This POJO
  * is used for direct mapping with Firestore documents.
+ * <p>
+ * The entrant lists of an instance made by {@link com.example.code_zombom_app.Helpers.Event.EventMapper}
+ * are the read-only live views of its {@link com.example.code_zombom_app.Helpers.Event.Event}, so
+ * they are read, never modified.
  */
 public class EventForOrg implements Serializable { // Serializable is good practice for passing objects in Bundles
 
@@ -25,10 +30,10 @@ public class EventForOrg implements Serializable { // Serializable is good pract
     private Boolean drawComplete;
     private Long drawTimestamp;
 
-    private ArrayList<String> Entrants;
-    private ArrayList<String> Cancelled_Entrants;
-    private ArrayList<String> Accepted_Entrants;
-    private ArrayList<String> Lottery_Winners;
+    private List<String> Entrants;
+    private List<String> Cancelled_Entrants;
+    private List<String> Accepted_Entrants;
+    private List<String> Lottery_Winners;
 
 
     // Properties that are NOT in Firestore
@@ -171,45 +176,45 @@ public class EventForOrg implements Serializable { // Serializable is good pract
      * This method is used to get the wait list entrants
      * @return The wait list entrants
      */
-    public ArrayList<String> getEntrants() { return Entrants; }
+    public List<String> getEntrants() { return Entrants; }
     /**
      * This method is used to set the wait list entrants.
      * @param entrants
      */
-    public void setEntrants(ArrayList<String> entrants) { this.Entrants = entrants; }
+    public void setEntrants(List<String> entrants) { this.Entrants = entrants; }
 
     /**
      * This method is used to get the cancelled entrants.
      * @return The the cancelled entrants
      */
-    public ArrayList<String> getCancelled_Entrants() { return Cancelled_Entrants; }
+    public List<String> getCancelled_Entrants() { return Cancelled_Entrants; }
     /**
      * This method is used to set the cancelled entrants.
      * @param cancelled_Entrants
      */
-    public void setCancelled_Entrants(ArrayList<String> cancelled_Entrants) { this.Cancelled_Entrants = cancelled_Entrants; }
+    public void setCancelled_Entrants(List<String> cancelled_Entrants) { this.Cancelled_Entrants = cancelled_Entrants; }
 
     /**
      * This method is used to get the entrants who've accepted the invide.
      * @return The entrants who've accepted the invide of the event
      */
-    public ArrayList<String> getAccepted_Entrants() { return Accepted_Entrants; }
+    public List<String> getAccepted_Entrants() { return Accepted_Entrants; }
     /**
      * This method is used to set the entrants who've accepted the invide.
      * @param accepted_Entrants
      */
-    public void setAccepted_Entrants(ArrayList<String> accepted_Entrants) { this.Accepted_Entrants = accepted_Entrants; }
+    public void setAccepted_Entrants(List<String> accepted_Entrants) { this.Accepted_Entrants = accepted_Entrants; }
 
     /**
      * This method is used to get the lottery winners.
      * @return The lottery winners of the event
      */
-    public ArrayList<String> getLottery_Winners() { return Lottery_Winners; }
+    public List<String> getLottery_Winners() { return Lottery_Winners; }
     /**
      * This method is used to set the lottery winners.
      * @param lottery_Winners
      */
-    public void setLottery_Winners(ArrayList<String> lottery_Winners) { this.Lottery_Winners = lottery_Winners; }
+    public void setLottery_Winners(List<String> lottery_Winners) { this.Lottery_Winners = lottery_Winners; }
 
     /**
      * This method is used to get the draw complete.
@@ -18,6 +18,7 @@ import androidx.navigation.fragment.NavHostFragment;
 
 import com.example.code_zombom_app.Helpers.Event.Event;
 import com.example.code_zombom_app.Helpers.Event.EventMapper;
+import com.example.code_zombom_app.Helpers.Metrics.FirestoreCosts;
 import com.example.code_zombom_app.R;
 import com.google.firebase.firestore.FirebaseFirestore;
 
@@ -132,6 +133,7 @@ public class EventFullDetailsFragment extends Fragment {
     private void loadEventDetails() {
         db.collection("Events").document(eventId).get()
                 .addOnSuccessListener(documentSnapshot -> {
+                    FirestoreCosts.getInstance().read("EventFullDetailsFragment.loadEventDetails", documentSnapshot);
                     if (isAdded() && documentSnapshot.exists()) {
                         // --- REFACTORED: Convert the document directly to an Event object ---
                         Event event = documentSnapshot.toObject(Event.class);
@@ -16,9 +16,9 @@ import androidx.navigation.NavController;
 
 import com.example.code_zombom_app.Helpers.Event.Event;
 import com.example.code_zombom_app.Helpers.Event.EventService;
+import com.example.code_zombom_app.Helpers.Event.MembershipIndex;
 import com.example.code_zombom_app.Helpers.Location.EventHeatMapActivity;
 import com.example.code_zombom_app.R;
-import com.google.firebase.firestore.FirebaseFirestore;
 
 /**
  * @author Tejwinder Johal
@@ -32,7 +32,7 @@ public class OrganizerDialog extends Dialog {
     private final NavController navController;
     private final Runnable requestExportPermissionTask;
 
-    private final EventService eventService = new EventService(FirebaseFirestore.getInstance());
+    private final EventService eventService = new EventService();
 
     /**
      * This method is used to make an organizerdialog object.
@@ -77,16 +77,28 @@ public class OrganizerDialog extends Dialog {
         Button cancelButton = findViewById(R.id.button_cancel);
         Button exportButton = findViewById(R.id.exportCSVButton);
 
-        if (eventForOrg.getLottery_Winners() != null && !eventForOrg.getLottery_Winners().isEmpty()) {
+        if (hasBeenDrawn()) {
             viewStartButton.setText("Replacement Draw");
         } else {
             viewStartButton.setText("Start Draw");
         }
 
+        // Finish notifying the entrants of a previous draw if that was interrupted
+        eventService.resumeLotteryFanOut(eventForOrg.getEventId())
+                .addOnFailureListener(e -> Log.w("OrganizerDialog",
+                        "Could not resume the notifications of a draw", e));
+        eventService.resumeBroadcasts(eventForOrg.getEventId())
+                .addOnFailureListener(e -> Log.w("OrganizerDialog",
+                        "Could not resume the pending broadcasts", e));
+
         // This button starts a draw for who will win the lottery using the central service
         viewStartButton.setOnClickListener(v -> {
             dismiss(); // Close the dialog
-            runLottery();
+            if (hasBeenDrawn()) {
+                runReplacementDraw();
+            } else {
+                runLottery();
+            }
         });
         // This button messages all of the people who have entered or who have won the lottery. NOT SURE WHICH.
         messageButton.setOnClickListener(v -> {
@@ -139,6 +151,17 @@ public class OrganizerDialog extends Dialog {
         }
     }
 
+    /**
+     * @return true if the lottery of the event was drawn, so only replacements are drawn now.
+     * Events that keep their entrants out of the event document have no winners list to check.
+     */
+    private boolean hasBeenDrawn() {
+        if (event.isShardedEntrants()) {
+            return event.isDrawComplete();
+        }
+        return eventForOrg.getLottery_Winners() != null && !eventForOrg.getLottery_Winners().isEmpty();
+    }
+
     /**
      * Runs a lottery draw via the central EventService and surfaces the outcome to the organiser.
      */
@@ -154,6 +177,32 @@ public class OrganizerDialog extends Dialog {
         });
     }
 
+    /**
+     * Draws winners for the seats freed by entrants that declined, notifying only the new winners.
+     * Events without a capacity have no seats to free, so their lottery is drawn again instead.
+     * The lists of events with sharded entrants are empty, so all of their capacity is asked for
+     * and the service draws only as many winners as there are free seats.
+     */
+    private void runReplacementDraw() {
+        int freeSeats = event.getCapacity()
+                - event.countEntrants(MembershipIndex.Status.CHOSEN)
+                - event.countEntrants(MembershipIndex.Status.PENDING)
+                - event.countEntrants(MembershipIndex.Status.REGISTERED);
+        if (event.getCapacity() <= 0 || freeSeats <= 0) {
+            runLottery();
+            return;
+        }
+        eventService.drawReplacements(eventForOrg.getEventId(), freeSeats)
+                .addOnSuccessListener(ignored -> Toast.makeText(getContext(),
+                        "Replacement draw completed.", Toast.LENGTH_SHORT).show())
+                .addOnFailureListener(e -> {
+                    Toast.makeText(getContext(),
+                            e.getMessage() != null ? e.getMessage() : "Replacement draw failed.",
+                            Toast.LENGTH_SHORT).show();
+                    Log.e("OrganizerDialog", "Replacement draw failed", e);
+                });
+    }
+
     /**
      * Popup with options for sending notifications to entrant groups.
      */
@@ -197,21 +246,21 @@ public class OrganizerDialog extends Dialog {
             case 0:
                 eventService.notifyWaitlistEntrants(eventForOrg.getEventId(), message)
                         .addOnSuccessListener(ignored -> Toast.makeText(getContext(),
-                                "Notified waitlist entrants.", Toast.LENGTH_SHORT).show())
+                                "Sending update to waitlist entrants.", Toast.LENGTH_SHORT).show())
                         .addOnFailureListener(e -> Toast.makeText(getContext(),
                                 "Failed to notify waitlist.", Toast.LENGTH_SHORT).show());
                 break;
             case 1:
                 eventService.notifySelectedEntrants(eventForOrg.getEventId(), message)
                         .addOnSuccessListener(ignored -> Toast.makeText(getContext(),
-                                "Notified selected entrants.", Toast.LENGTH_SHORT).show())
+                                "Sending update to selected entrants.", Toast.LENGTH_SHORT).show())
                         .addOnFailureListener(e -> Toast.makeText(getContext(),
                                 "Failed to notify selected entrants.", Toast.LENGTH_SHORT).show());
                 break;
             case 2:
                 eventService.notifyCancelledEntrants(eventForOrg.getEventId(), message)
                         .addOnSuccessListener(ignored -> Toast.makeText(getContext(),
-                                "Notified cancelled entrants.", Toast.LENGTH_SHORT).show())
+                                "Sending update to cancelled entrants.", Toast.LENGTH_SHORT).show())
                         .addOnFailureListener(e -> Toast.makeText(getContext(),
                                 "Failed to notify cancelled entrants.", Toast.LENGTH_SHORT).show());
                 break;
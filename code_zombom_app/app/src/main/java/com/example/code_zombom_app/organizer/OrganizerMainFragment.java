@@ -19,9 +19,7 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import java.io.OutputStream;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
@@ -34,6 +32,10 @@ import androidx.navigation.NavController;
 import androidx.navigation.fragment.NavHostFragment;
 
 import com.example.code_zombom_app.Helpers.Event.EventMapper;
+import com.example.code_zombom_app.Helpers.Event.EventQrCodeService;
+import com.example.code_zombom_app.Helpers.Event.EventService;
+import com.example.code_zombom_app.Helpers.Event.EventSummary;
+import com.example.code_zombom_app.Helpers.Metrics.FirestoreCosts;
 import com.example.code_zombom_app.MainActivity;
 import com.example.code_zombom_app.R;
 import com.example.code_zombom_app.Helpers.Event.Event;
@@ -54,8 +56,9 @@ public class OrganizerMainFragment extends Fragment {
     private FirebaseFirestore db;
     private CollectionReference eventsdb;
 
-    // This map will store the generated QR code bitmaps with the eventId as the key.
-    private Map<String, Bitmap> qrCodeBitmaps = new HashMap<>();
+    // Renders and caches the events' QR codes off the UI thread
+    private EventQrCodeService qrCodeService;
+    private EventService eventService;
     private ActivityResultLauncher<String> requestPermissionLauncher;
     private EventForOrg eventToExport; // Temporarily store the event that needs exporting
 
@@ -117,7 +120,10 @@ public class OrganizerMainFragment extends Fragment {
 
         eventsContainer = view.findViewById(R.id.events_container_linearlayout);
         db = FirebaseFirestore.getInstance();
-        eventsdb = db.collection("Events");
+        // The list only needs what each row shows, full events are loaded when one is opened
+        eventsdb = db.collection(EventSummary.COLLECTION);
+        eventService = new EventService(db);
+        qrCodeService = EventQrCodeService.getInstance(requireContext());
 
         setupFirestoreListener();
         // Find the add event button
@@ -149,20 +155,20 @@ public class OrganizerMainFragment extends Fragment {
                 Log.e("Firestore", error.toString());
                 return; // Stop execution if there's an error
             }
+            FirestoreCosts.getInstance().listened("OrganizerMainFragment.setupFirestoreListener", value);
             // Always clear the container before adding new views
             eventsContainer.removeAllViews();
-            qrCodeBitmaps.clear();
 
             if (value != null && !value.isEmpty()) {
                 for (QueryDocumentSnapshot snapshot : value) {
                     try {
-                        // Automatically convert the document to an Event object
-                        Event event = snapshot.toObject(Event.class);
+                        // Automatically convert the document to an EventSummary object
+                        EventSummary event = snapshot.toObject(EventSummary.class);
                         // If toObject returns null, something is wrong with the data mapping (e.g., field name mismatch)
                         if (event == null) {
                             Log.e("DATA_MAPPING_ERROR", "Event object is null for document: "
                                     + snapshot.getId() +
-                                    ". Check Firestore fields against the organizer.Event class.");
+                                    ". Check Firestore fields against the EventSummary class.");
                             continue; // Skip this document and move to the next
                         }
 
@@ -185,7 +191,6 @@ public class OrganizerMainFragment extends Fragment {
                         TextView textViewLocation = eventItemView.findViewById(
                                 R.id.textView_event_list_item_location);
 
-                        qrCodeImageView.setTag(event.getEventId());
 
                         // Use the convenience method from the Event class
                         String eventText = event.getDescription();
@@ -200,15 +205,12 @@ public class OrganizerMainFragment extends Fragment {
                         if (event.getLocation() != null)
                             textViewLocation.setText("Location: " + event.getLocation().toString());
 
-                        qrCodeImageView.setImageBitmap(event.getEventIdBitmap());
+                        // Also tags the view with the event id, used to find it again later
+                        qrCodeService.bind(event.getEventId(), qrCodeImageView);
 
                         // Set click listener (pass the object or its properties)
-                        eventItemView.setOnClickListener(v -> showEventOptionsDialog(event));
+                        eventItemView.setOnClickListener(v -> openEvent(event.getEventId()));
                         eventsContainer.addView(eventItemView);
-                        EventForOrg eventForOrg = EventMapper.toDto(event);
-                        if (eventForOrg.getQrCodeExists()) {
-                            qrCodeImageView.setVisibility(View.VISIBLE);
-                        }
 
                     }  catch (Exception e) {
                         // This will catch NullPointerExceptions if a view ID is wrong
@@ -230,6 +232,26 @@ public class OrganizerMainFragment extends Fragment {
         });
     }
 
+    /**
+     * Loads the full event behind a row and opens the Organizer Dialog for it.
+     * @param eventId The id of the event that the user clicked on
+     */
+    private void openEvent(String eventId) {
+        eventService.loadEvent(eventId)
+                .addOnSuccessListener(event -> {
+                    if (isAdded()) {
+                        showEventOptionsDialog(event);
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    Log.e("Firestore", "Cannot load event " + eventId, e);
+                    if (isAdded()) {
+                        Toast.makeText(getContext(), "Failed to load the event.",
+                                Toast.LENGTH_SHORT).show();
+                    }
+                });
+    }
+
     /**
      * Makes the Organizer Dialog pop-up.
      * @param event The event that the user clicked on
@@ -240,7 +262,7 @@ public class OrganizerMainFragment extends Fragment {
 
         EventForOrg eventForOrg = EventMapper.toDto(event);
         // Get the specific bitmap for this event from the map.
-        Bitmap qrBitmapForEvent = qrCodeBitmaps.get(eventForOrg.getEventId());
+        Bitmap qrBitmapForEvent = qrCodeService.getCached(eventForOrg.getEventId());
 
         // Find the specific ImageView using the tag
         // search within the fragment's main view.
@@ -274,7 +296,7 @@ public class OrganizerMainFragment extends Fragment {
      */
     private void exportEntrantsToCsv(EventForOrg event) {
         // This is the exact same logic from your dialog, now moved here.
-        ArrayList<String> entrants = event.getAccepted_Entrants();
+        List<String> entrants = event.getAccepted_Entrants();
 
         if (entrants == null || entrants.isEmpty()) {
             Toast.makeText(getContext(), "No entrants to export.", Toast.LENGTH_SHORT).show();
@@ -14,7 +14,7 @@ import com.example.code_zombom_app.R;
 /**
  * The central dashboard for Administrator functionality.
  * This fragment acts as a container that allows the admin to toggle between
- * managing Events, Profiles, Posters, and viewing Notification Logs.
+ * managing Events, Profiles, Posters, and viewing Notification Logs and Metrics.
  */
 public class AdminHomeFragment extends Fragment {
 
@@ -37,11 +37,13 @@ public class AdminHomeFragment extends Fragment {
         Button profilesBtn = view.findViewById(R.id.button_home_profiles);
         Button postersBtn = view.findViewById(R.id.button_home_posters);
         Button logsBtn = view.findViewById(R.id.button_home_logs);
+        Button metricsBtn = view.findViewById(R.id.button_home_metrics);
 
         eventsBtn.setOnClickListener(v -> loadPanel(new EventsAdminFragment()));
         profilesBtn.setOnClickListener(v -> loadPanel(new ProfileAdminFragment()));
         postersBtn.setOnClickListener(v -> loadPanel(new PostersAdminFragment()));
         logsBtn.setOnClickListener(v -> loadPanel(new AdminNotificationLogsFragment()));
+        metricsBtn.setOnClickListener(v -> loadPanel(new MetricsDebugFragment()));
 
         // Load the Events panel by default on first creation
         if (savedInstanceState == null) {
@@ -54,7 +56,7 @@ public class AdminHomeFragment extends Fragment {
      * Uses getChildFragmentManager() to ensure the fragments are nested correctly
      * within the AdminHomeFragment layout.
      *
-     * @param fragment The new Fragment to display (Events, Profiles, Posters, or Logs).
+     * @param fragment The new Fragment to display (Events, Profiles, Posters, Logs or Metrics).
      */
     private void loadPanel(Fragment fragment) {
         FragmentTransaction ft = getChildFragmentManager().beginTransaction();
@@ -15,7 +15,7 @@ import com.example.code_zombom_app.R;
 
 /**
  * A simplified navigation menu for the Admin interface.
- * Allows switching between Events and Profiles management views.
+ * Allows switching between Events and Profiles management views and the Metrics debug panel.
  */
 public class AdminMenuFragment extends Fragment {
 
@@ -28,7 +28,7 @@ public class AdminMenuFragment extends Fragment {
     }
 
     /**
-     * Sets up the navigation buttons for Events and Profiles.
+     * Sets up the navigation buttons for Events, Profiles and Metrics.
      * Loads the Events fragment by default.
      *
      * @param view               The View returned by onCreateView.
@@ -41,18 +41,20 @@ public class AdminMenuFragment extends Fragment {
 
         Button eventsBtn = view.findViewById(R.id.button_events);
         Button profilesBtn = view.findViewById(R.id.button_profiles);
+        Button metricsBtn = view.findViewById(R.id.button_metrics);
 
         // Default view: load Events panel
         loadInnerFragment(new EventsAdminFragment());
 
         eventsBtn.setOnClickListener(v -> loadInnerFragment(new EventsAdminFragment()));
         profilesBtn.setOnClickListener(v -> loadInnerFragment(new ProfileAdminFragment()));
+        metricsBtn.setOnClickListener(v -> loadInnerFragment(new MetricsDebugFragment()));
     }
 
     /**
      * Helper method to replace the content of the admin container.
      *
-     * @param fragment The fragment to display (EventsAdminFragment or ProfileAdminFragment).
+     * @param fragment The fragment to display (EventsAdminFragment, ProfileAdminFragment or MetricsDebugFragment).
      */
     private void loadInnerFragment(Fragment fragment) {
         FragmentTransaction ft = getChildFragmentManager().beginTransaction();
@@ -14,6 +14,7 @@ import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.example.code_zombom_app.Helpers.Metrics.FirestoreCosts;
 import com.example.code_zombom_app.R;
 import com.google.firebase.Timestamp;
 import com.google.firebase.firestore.DocumentSnapshot;
@@ -73,6 +74,8 @@ public class AdminNotificationLogsFragment extends Fragment {
         db.collectionGroup("Notifications") // Matches case in Firebase
                 .get()
                 .addOnSuccessListener(queryDocumentSnapshots -> {
+                    FirestoreCosts.getInstance().read("AdminNotificationLogsFragment.fetchLogs",
+                            queryDocumentSnapshots);
                     if (!isAdded() || getContext() == null) return;
 
                     Log.d("DEBUG_LOGS", "Query Successful. Documents found: " + queryDocumentSnapshots.size());
@@ -6,6 +6,8 @@ import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.CheckBox;
 import android.widget.ImageButton;
 import android.widget.LinearLayout;
 import android.widget.ScrollView;
@@ -19,6 +21,8 @@ import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
 
 import com.example.code_zombom_app.Helpers.Event.EventService;
+import com.example.code_zombom_app.Helpers.Event.EventSummary;
+import com.example.code_zombom_app.Helpers.Metrics.FirestoreCosts;
 import com.example.code_zombom_app.R;
 import com.google.firebase.Timestamp;
 import com.google.firebase.firestore.CollectionReference;
@@ -26,21 +30,33 @@ import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Admin fragment for managing Events.
  * Allows administrators to view a list of all events, view event details,
- * and delete events from the database.
+ * and delete one or several selected events from the database.
  */
 public class EventsAdminFragment extends Fragment {
 
     public LinearLayout eventsContainer;
+    private Button deleteSelectedButton;
+    // Ids of the events checked for a bulk deletion, in the order they were checked
+    private final Set<String> selectedEventIds = new LinkedHashSet<>();
     private FirebaseFirestore db;
     private CollectionReference eventsdb;
     private EventService eventService = new EventService();
 
+    // Whether the migrations completed is stored in Firestore, so it only needs checking once per process
+    private static boolean eventDocumentsMigrated;
+
+    // Interrupted deletions only need resuming once per process
+    private static boolean eventDeletionsResumed;
+
     /**
      * Creates and configures the root view for the fragment.
      * Sets up a ScrollView containing a linear layout to hold the dynamic list of events.
@@ -71,7 +87,12 @@ public class EventsAdminFragment extends Fragment {
                 ViewGroup.LayoutParams.MATCH_PARENT,
                 ViewGroup.LayoutParams.WRAP_CONTENT));
 
+        deleteSelectedButton = new Button(getContext());
+        deleteSelectedButton.setVisibility(View.GONE);
+        deleteSelectedButton.setOnClickListener(v -> showBulkDeleteConfirmationDialog());
+
         scrollView.addView(eventsContainer);
+        rootLayout.addView(deleteSelectedButton);
         rootLayout.addView(scrollView);
         return rootLayout;
     }
@@ -87,10 +108,47 @@ public class EventsAdminFragment extends Fragment {
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
         db = FirebaseFirestore.getInstance();
-        eventsdb = db.collection("Events");
+        eventsdb = db.collection(EventSummary.COLLECTION);
+        migrateEventDocuments();
+        resumeEventDeletions();
         loadEventsFromDatabase();
     }
 
+    /**
+     * Finishes deleting the events whose deletion was interrupted, e.g. because the app was
+     * closed while it was running. Until then they are listed as being deleted.
+     */
+    private void resumeEventDeletions() {
+        if (eventDeletionsResumed) {
+            return;
+        }
+        eventDeletionsResumed = true;
+        eventService.resumeEventDeletions()
+                .addOnFailureListener(e -> {
+                    eventDeletionsResumed = false;
+                    Log.e("Firestore", "Failed to resume event deletions", e);
+                });
+    }
+
+    /**
+     * Strips the Base64 QR codes older versions stored in event documents and writes the summary
+     * of events created before summaries were maintained. This reads every full event, so it only
+     * runs until it has completed once.
+     *
+     * @see EventService#migrateEventDocuments()
+     */
+    private void migrateEventDocuments() {
+        if (eventDocumentsMigrated) {
+            return;
+        }
+        eventDocumentsMigrated = true;
+        eventService.migrateEventDocuments()
+                .addOnFailureListener(e -> {
+                    eventDocumentsMigrated = false;
+                    Log.e("Firestore", "Failed to migrate event documents", e);
+                });
+    }
+
     /**
      * Dependency injection method for testing purposes.
      * Allows setting a mock Firestore instance.
@@ -104,7 +162,7 @@ public class EventsAdminFragment extends Fragment {
     }
 
     /**
-     * Sets up a real-time listener on the 'Events' collection.
+     * Sets up a real-time listener on the 'EventSummaries' collection.
      * Automatically updates the UI whenever events are added, removed, or modified.
      */
     private void loadEventsFromDatabase() {
@@ -113,6 +171,7 @@ public class EventsAdminFragment extends Fragment {
                 Log.e("Firestore", error.toString());
                 return;
             }
+            FirestoreCosts.getInstance().listened("EventsAdminFragment.loadEventsFromDatabase", value);
 
             if (!isAdded() || getContext() == null) {
                 return;
@@ -120,20 +179,39 @@ public class EventsAdminFragment extends Fragment {
 
             eventsContainer.removeAllViews();
             LayoutInflater safeInflater = LayoutInflater.from(getContext());
+            Set<String> listedEventIds = new LinkedHashSet<>();
 
             if (value != null && !value.isEmpty()) {
                 for (QueryDocumentSnapshot snapshot : value) {
                     String eventDetails = formatEventString(snapshot);
+                    boolean deleting = Boolean.TRUE.equals(snapshot.getBoolean("deleting"));
 
                     View eventView = safeInflater.inflate(R.layout.event_admin_list_item, eventsContainer, false);
 
                     TextView eventTextView = eventView.findViewById(R.id.textView_event_list_items_details);
                     ImageButton deleteButton = eventView.findViewById(R.id.button_delete_event);
-
-                    eventTextView.setText(eventDetails);
-
+                    CheckBox selectBox = eventView.findViewById(R.id.checkbox_select_event);
+
+                    eventTextView.setText(deleting ? "Deleting...\n" + eventDetails : eventDetails);
+
+                    if (deleting) {
+                        // The deletion is already running; it cannot be started again
+                        deleteButton.setVisibility(View.GONE);
+                        selectBox.setVisibility(View.GONE);
+                    } else {
+                        listedEventIds.add(snapshot.getId());
+                        selectBox.setChecked(selectedEventIds.contains(snapshot.getId()));
+                        selectBox.setOnCheckedChangeListener((box, checked) -> {
+                            if (checked) {
+                                selectedEventIds.add(snapshot.getId());
+                            } else {
+                                selectedEventIds.remove(snapshot.getId());
+                            }
+                            updateDeleteSelectedButton();
+                        });
+                        deleteButton.setOnClickListener(v -> showDeleteConfirmationDialog(snapshot));
+                    }
                     eventTextView.setOnClickListener(v -> showEventDetailsDialog(snapshot));
-                    deleteButton.setOnClickListener(v -> showDeleteConfirmationDialog(snapshot));
 
                     eventsContainer.addView(eventView);
                 }
@@ -145,9 +223,24 @@ public class EventsAdminFragment extends Fragment {
                 noEvents.setPadding(16, 16, 16, 16);
                 eventsContainer.addView(noEvents);
             }
+
+            // Events deleted or being deleted meanwhile can no longer be selected
+            selectedEventIds.retainAll(listedEventIds);
+            updateDeleteSelectedButton();
         });
     }
 
+    /**
+     * Shows the bulk delete button while events are selected, with how many there are.
+     */
+    private void updateDeleteSelectedButton() {
+        if (deleteSelectedButton == null) {
+            return;
+        }
+        deleteSelectedButton.setVisibility(selectedEventIds.isEmpty() ? View.GONE : View.VISIBLE);
+        deleteSelectedButton.setText("Delete selected (" + selectedEventIds.size() + ")");
+    }
+
     /**
      * Helper method to format event data into a readable string.
      * Extracts fields such as name, capacity, dates, and location from the Firestore document.
@@ -229,6 +322,53 @@ public class EventsAdminFragment extends Fragment {
                 .show();
     }
 
+    /**
+     * Displays a confirmation dialog, then asks for a reason, before deleting every selected
+     * event. Events left over by a failure stay listed as being deleted and are finished later.
+     */
+    private void showBulkDeleteConfirmationDialog() {
+        if (selectedEventIds.isEmpty()) {
+            return;
+        }
+        ArrayList<String> eventIds = new ArrayList<>(selectedEventIds);
+        final android.widget.EditText input = new android.widget.EditText(getContext());
+        input.setHint("Enter reason for deleting these events");
+
+        new AlertDialog.Builder(getContext())
+                .setTitle("Delete " + eventIds.size() + " Events")
+                .setMessage("Are you sure you want to delete the selected events? Please specify why:")
+                .setView(input)
+                .setPositiveButton("Confirm Delete", (dialog, which) -> {
+                    String reason = input.getText().toString().trim();
+                    if (reason.isEmpty()) {
+                        Toast.makeText(getContext(), "Deletion cancelled — reason required.", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+
+                    selectedEventIds.clear();
+                    updateDeleteSelectedButton();
+                    int[] remaining = {eventIds.size()};
+                    eventService.deleteEvents(eventIds, (eventId, deleted, done) -> {
+                                if (done) {
+                                    remaining[0]--;
+                                    Log.d("Firestore", "Deleted event " + eventId + " (" + deleted + " documents)");
+                                }
+                            })
+                            .addOnSuccessListener(aVoid -> {
+                                if (isAdded()) {
+                                    Toast.makeText(getContext(), eventIds.size() + " events deleted.", Toast.LENGTH_SHORT).show();
+                                }
+                            })
+                            .addOnFailureListener(e -> {
+                                if (isAdded()) {
+                                    Toast.makeText(getContext(), "Failed to delete " + remaining[0] + " of " + eventIds.size() + " events.", Toast.LENGTH_SHORT).show();
+                                }
+                            });
+                })
+                .setNegativeButton("Cancel", (dialog, which) -> dialog.dismiss())
+                .show();
+    }
+
     /**
      * Displays detailed information about a selected event in a custom dialog.
      *
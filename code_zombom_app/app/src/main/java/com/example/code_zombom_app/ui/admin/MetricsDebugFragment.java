@@ -0,0 +1,128 @@
+package com.example.code_zombom_app.ui.admin;
+
+import android.content.ClipData;
+import android.content.ClipboardManager;
+import android.content.Context;
+import android.os.Bundle;
+import android.view.View;
+import android.widget.Button;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+
+import com.example.code_zombom_app.Helpers.Event.TransactionMetrics;
+import com.example.code_zombom_app.Helpers.Metrics.FirestoreCosts;
+import com.example.code_zombom_app.Helpers.Metrics.MetricSnapshot;
+import com.example.code_zombom_app.Helpers.Metrics.MetricsRegistry;
+import com.example.code_zombom_app.R;
+
+import java.text.DateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Debug panel listing what the {@link MetricsRegistry} measured since the app started or was
+ * last reset: latency, documents, deserialization time and failures of every instrumented
+ * operation, followed by the retries of the event transactions and what every screen and
+ * operation read and wrote in this session. The JSON export can be copied to the clipboard to
+ * compare two builds.
+ */
+public class MetricsDebugFragment extends Fragment {
+
+    private TextView metricsText;
+
+    public MetricsDebugFragment() {
+        super(R.layout.fragment_metrics_debug);
+    }
+
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+
+        metricsText = view.findViewById(R.id.text_metrics);
+        Button refreshBtn = view.findViewById(R.id.button_metrics_refresh);
+        Button copyBtn = view.findViewById(R.id.button_metrics_copy);
+        Button resetBtn = view.findViewById(R.id.button_metrics_reset);
+
+        refreshBtn.setOnClickListener(v -> showMetrics());
+        copyBtn.setOnClickListener(v -> copyExport());
+        resetBtn.setOnClickListener(v -> {
+            MetricsRegistry.getInstance().reset();
+            TransactionMetrics.getInstance().reset();
+            FirestoreCosts.getInstance().reset();
+            showMetrics();
+        });
+
+        showMetrics();
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        showMetrics();
+    }
+
+    /**
+     * Writes one line per metric, then one per transaction and one per screen or operation that
+     * read or wrote documents, those over their read budget first.
+     */
+    private void showMetrics() {
+        if (metricsText == null) return;
+
+        StringBuilder out = new StringBuilder();
+        List<MetricSnapshot> metrics = MetricsRegistry.getInstance().snapshot();
+        if (metrics.isEmpty()) {
+            out.append("Nothing measured yet\n");
+        }
+        for (MetricSnapshot metric : metrics) {
+            out.append(metric).append('\n');
+        }
+
+        List<TransactionMetrics.Snapshot> transactions = TransactionMetrics.getInstance().snapshot();
+        if (!transactions.isEmpty()) {
+            out.append('\n').append("Transactions\n");
+            for (TransactionMetrics.Snapshot transaction : transactions) {
+                out.append(String.format(Locale.US, "%s calls=%d retries=%d aborted=%d failed=%d%n",
+                        transaction.getOperation(), transaction.getCalls(),
+                        transaction.getRetries(), transaction.getContentionAborts(),
+                        transaction.getFailures()));
+            }
+            out.append("most contended: ")
+                    .append(TransactionMetrics.getInstance().hotEvents(5)).append('\n');
+        }
+
+        FirestoreCosts costs = FirestoreCosts.getInstance();
+        List<FirestoreCosts.Usage> usages = costs.snapshot();
+        if (!usages.isEmpty()) {
+            out.append('\n').append("Firestore cost since ")
+                    .append(DateFormat.getTimeInstance().format(new Date(costs.getSessionStartMillis())))
+                    .append('\n');
+            for (FirestoreCosts.Usage usage : costs.overBudget()) {
+                out.append(usage).append('\n');
+            }
+            for (FirestoreCosts.Usage usage : usages) {
+                if (usage.getOverBudget() == 0) {
+                    out.append(usage).append('\n');
+                }
+            }
+        }
+        metricsText.setText(out);
+    }
+
+    private void copyExport() {
+        Context context = getContext();
+        if (context == null) return;
+
+        ClipboardManager clipboard =
+                (ClipboardManager) context.getSystemService(Context.CLIPBOARD_SERVICE);
+        if (clipboard == null) return;
+
+        clipboard.setPrimaryClip(ClipData.newPlainText("metrics",
+                MetricsRegistry.getInstance().export()));
+        Toast.makeText(context, "Metrics copied", Toast.LENGTH_SHORT).show();
+    }
+}
@@ -13,13 +13,17 @@ import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.example.code_zombom_app.Helpers.Event.EventSummary;
+import com.example.code_zombom_app.Helpers.Metrics.FirestoreCosts;
 import com.example.code_zombom_app.R;
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.storage.FirebaseStorage;
 import com.google.firebase.storage.StorageReference;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -62,15 +66,17 @@ public class PostersAdminFragment extends Fragment {
     }
 
     /**
-     * Fetches events from Firestore that contain a 'posterUrl'.
+     * Fetches the summaries of events from Firestore that contain a 'posterUrl'.
      * Updates the adapter upon successful retrieval.
      */
     private void fetchPosters() {
         if (progressBar != null) progressBar.setVisibility(View.VISIBLE);
 
-        db.collection("Events")
+        db.collection(EventSummary.COLLECTION)
                 .get()
                 .addOnSuccessListener(queryDocumentSnapshots -> {
+                    FirestoreCosts.getInstance().read("PostersAdminFragment.fetchPosters",
+                            queryDocumentSnapshots);
                     if (!isAdded() || getContext() == null) {
                         return;
                     }
@@ -135,16 +141,25 @@ public class PostersAdminFragment extends Fragment {
     }
 
     /**
-     * Updates the Event document in Firestore to set 'posterUrl' to null.
+     * Updates the Event document and its summary in Firestore to set 'posterUrl' to null.
      */
     private void removePosterReferenceFromFirestore(String eventId) {
-        db.collection("Events").document(eventId)
-                .update("posterUrl", null)
+        DocumentReference event = db.collection("Events").document(eventId);
+        event.update("posterUrl", null)
                 .addOnSuccessListener(aVoid -> {
+                    recordPosterRemoved(event);
+
+                    // The list is read from the summaries, so refresh it once they are updated too
+                    DocumentReference summary = db.collection(EventSummary.COLLECTION).document(eventId);
+                    summary.update("posterUrl", null)
+                            .addOnCompleteListener(task -> {
+                                if (task.isSuccessful()) recordPosterRemoved(summary);
+                                if (isAdded() && getContext() != null) fetchPosters();
+                            });
+
                     if (!isAdded() || getContext() == null) return;
 
                     Toast.makeText(getContext(), "Poster removed successfully", Toast.LENGTH_SHORT).show();
-                    fetchPosters();
                 })
                 .addOnFailureListener(e -> {
                     if (!isAdded() || getContext() == null) return;
@@ -152,4 +167,9 @@ public class PostersAdminFragment extends Fragment {
                     Toast.makeText(getContext(), "Failed to update database", Toast.LENGTH_SHORT).show();
                 });
     }
+
+    private static void recordPosterRemoved(DocumentReference document) {
+        FirestoreCosts.getInstance().wrote("PostersAdminFragment.removePoster", document,
+                Collections.singletonMap("posterUrl", null));
+    }
 }
\ No newline at end of file
@@ -21,6 +21,7 @@ import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
 
+import com.example.code_zombom_app.Helpers.Metrics.FirestoreCosts;
 import com.example.code_zombom_app.R;
 import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.FirebaseFirestore;
@@ -89,6 +90,7 @@ public class ProfileAdminFragment extends Fragment {
                 Log.e(TAG, "Error loading profiles", error);
                 return;
             }
+            FirestoreCosts.getInstance().listened("ProfileAdminFragment.loadProfilesFromDatabase", value);
 
             if (!isAdded() || getContext() == null) {
                 return;
@@ -250,6 +252,8 @@ public class ProfileAdminFragment extends Fragment {
                 .whereEqualTo("reciever", profileEmail)
                 .get()
                 .addOnSuccessListener(queryDocumentSnapshots -> {
+                    FirestoreCosts.getInstance().read("ProfileAdminFragment.showNotificationLogs",
+                            queryDocumentSnapshots);
                     if (queryDocumentSnapshots.isEmpty()) {
                         TextView emptyView = new TextView(getContext());
                         emptyView.setText("No notification logs found for: " + profileEmail);
@@ -1,5 +1,6 @@
 package com.example.code_zombom_app.Admin;
 
+import com.example.code_zombom_app.Helpers.Event.EventSummary;
 import com.example.code_zombom_app.ui.admin.PostersAdminFragment;
 import com.example.code_zombom_app.ui.admin.PostersAdapter;
 import com.google.android.gms.tasks.Task;
@@ -32,7 +33,7 @@ public class AdminBrowseImagesTest {
     private FirebaseFirestore mockFirestore;
 
     @Mock
-    private CollectionReference mockEventsCollection;
+    private CollectionReference mockSummariesCollection;
 
     private PostersAdminFragment fragment;
     private List<com.google.firebase.firestore.DocumentSnapshot> posterEvents;
@@ -59,13 +60,13 @@ public class AdminBrowseImagesTest {
         adapterField.setAccessible(true);
         adapterField.set(fragment, mockAdapter);
 
-        when(mockFirestore.collection("Events")).thenReturn(mockEventsCollection);
+        when(mockFirestore.collection(EventSummary.COLLECTION)).thenReturn(mockSummariesCollection);
     }
 
     @Test
-    public void fetchPosters_AdminBrowsesImages_QueriesEventsCollection() throws Exception {
+    public void fetchPosters_AdminBrowsesImages_QueriesEventSummariesCollection() throws Exception {
         Task<QuerySnapshot> mockTask = mock(Task.class);
-        when(mockEventsCollection.get()).thenReturn(mockTask);
+        when(mockSummariesCollection.get()).thenReturn(mockTask);
 
         when(mockTask.addOnSuccessListener(any()))
                 .thenAnswer((Answer<Task<QuerySnapshot>>) invocation -> {
@@ -85,14 +86,14 @@ public class AdminBrowseImagesTest {
         method.invoke(fragment);
 
         verify(mockFirestore, atLeastOnce()).collection("Events");
-        verify(mockEventsCollection, atLeastOnce()).get();
+        verify(mockSummariesCollection, atLeastOnce()).get();
         verify(mockTask, atLeastOnce()).addOnSuccessListener(any());
     }
 
     @Test
     public void fetchPosters_FirestoreFailure_AttachesFailureListener() throws Exception {
         Task<QuerySnapshot> mockTask = mock(Task.class);
-        when(mockEventsCollection.get()).thenReturn(mockTask);
+        when(mockSummariesCollection.get()).thenReturn(mockTask);
 
         when(mockTask.addOnSuccessListener(any()))
                 .thenAnswer((Answer<Task<QuerySnapshot>>) invocation -> mockTask);
@@ -111,7 +112,7 @@ public class AdminBrowseImagesTest {
         method.invoke(fragment);
 
         verify(mockFirestore, atLeastOnce()).collection("Events");
-        verify(mockEventsCollection, atLeastOnce()).get();
+        verify(mockSummariesCollection, atLeastOnce()).get();
         verify(mockTask, atLeastOnce()).addOnFailureListener(any());
     }
 }
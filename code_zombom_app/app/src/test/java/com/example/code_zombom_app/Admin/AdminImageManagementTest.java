@@ -1,5 +1,6 @@
 package com.example.code_zombom_app.Admin;
 
+import com.example.code_zombom_app.Helpers.Event.EventSummary;
 import com.example.code_zombom_app.ui.admin.PostersAdminFragment;
 import com.google.android.gms.tasks.Task;
 import com.google.firebase.firestore.CollectionReference;
@@ -35,6 +36,12 @@ public class AdminImageManagementTest {
     @Mock
     private DocumentReference mockEventDocumentRef;
 
+    @Mock
+    private CollectionReference mockSummariesCollection;
+
+    @Mock
+    private DocumentReference mockSummaryDocumentRef;
+
     private PostersAdminFragment fragment;
 
     private static final String EVENT_ID = "poster-event-1";
@@ -58,6 +65,11 @@ public class AdminImageManagementTest {
         Task<Void> mockUpdateTask = mock(Task.class);
         when(mockEventDocumentRef.update("posterUrl", null)).thenReturn(mockUpdateTask);
 
+        Task<Void> mockSummaryUpdateTask = mock(Task.class);
+        when(mockFirestore.collection(EventSummary.COLLECTION)).thenReturn(mockSummariesCollection);
+        when(mockSummariesCollection.document(EVENT_ID)).thenReturn(mockSummaryDocumentRef);
+        when(mockSummaryDocumentRef.update("posterUrl", null)).thenReturn(mockSummaryUpdateTask);
+
         when(mockUpdateTask.addOnSuccessListener(any()))
                 .thenAnswer((Answer<Task<Void>>) invocation -> {
                     com.google.android.gms.tasks.OnSuccessListener<Void> successListener =
@@ -78,6 +90,7 @@ public class AdminImageManagementTest {
         verify(mockEventsCollection, atLeastOnce()).document(EVENT_ID);
         verify(mockEventDocumentRef, atLeastOnce()).update("posterUrl", null);
         verify(mockUpdateTask, atLeastOnce()).addOnSuccessListener(any());
+        verify(mockSummaryDocumentRef, atLeastOnce()).update("posterUrl", null);
     }
 
     @Test
@@ -2,6 +2,7 @@ package com.example.code_zombom_app.Entrant;
 
 import com.example.code_zombom_app.Helpers.Event.Event;
 import com.example.code_zombom_app.Helpers.Event.EventService;
+import com.example.code_zombom_app.Helpers.Event.EventSummary;
 import com.example.code_zombom_app.Helpers.Users.Entrant;
 import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.Tasks;
@@ -9,8 +10,8 @@ import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.SetOptions;
 import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -26,9 +27,11 @@ import java.util.concurrent.ExecutionException;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -47,6 +50,13 @@ public class EntrantHistoryModelTest {
     @Mock
     private DocumentReference mockEventDocumentRef;
 
+    @Mock
+    private CollectionReference mockSummariesCollection;
+    @Mock
+    private DocumentReference mockSummaryDocumentRef;
+    @Mock
+    private WriteBatch mockBatch;
+
     @Mock
     private DocumentSnapshot mockEventSnapshot;
     @Mock
@@ -83,7 +93,6 @@ public class EntrantHistoryModelTest {
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
-        Event.setQrCodeGenerationEnabled(false);
 
         eventService = new EventService(mockFirestore);
 
@@ -91,23 +100,31 @@ public class EntrantHistoryModelTest {
         when(mockFirestore.collection("Events")).thenReturn(mockEventsCollection);
         when(mockEventsCollection.document(EVENT_ID)).thenReturn(mockEventDocumentRef);
 
+        // Summaries
+        when(mockFirestore.collection(EventSummary.COLLECTION)).thenReturn(mockSummariesCollection);
+        when(mockSummariesCollection.document(EVENT_ID)).thenReturn(mockSummaryDocumentRef);
+
+        // History is written in a batch after the transaction
+        when(mockFirestore.batch()).thenReturn(mockBatch);
+        when(mockBatch.commit()).thenReturn(Tasks.forResult(null));
+
         // Profiles
         when(mockFirestore.collection("Profiles")).thenReturn(mockProfilesCollection);
         when(mockProfilesCollection.document(WAIT_EMAIL)).thenReturn(mockProfileDocWaitlisted);
+        // The entrant's own history entry shares the history mocks
+        when(mockProfileDocWaitlisted.collection(any(String.class))).thenReturn(mockHistoryCollectionWaitlisted);
 
 
 
         // History subcollections – use anyString() to match whatever recordHistory uses
 
-        when(mockHistoryCollectionWaitlisted.document()).thenReturn(mockHistoryDocWaitlisted);
+        when(mockHistoryCollectionWaitlisted.document(anyString())).thenReturn(mockHistoryDocWaitlisted);
 
         // In case recordHistory ever uses event-level history, avoid NPE
         when(mockEventDocumentRef.collection(any(String.class))).thenReturn(mockHistoryCollectionWaitlisted);
 
         // Transaction.set returns same transaction (fluent API)
         when(mockTransaction.set(any(DocumentReference.class), any())).thenReturn(mockTransaction);
-        when(mockTransaction.set(any(DocumentReference.class), any(), any(SetOptions.class)))
-                .thenReturn(mockTransaction);
     }
 
     private <T> T await(Task<T> task) throws ExecutionException {
@@ -142,9 +159,11 @@ public class EntrantHistoryModelTest {
 
         Task<Void> task = eventService.addEntrantToWaitlist(EVENT_ID, WAIT_EMAIL);
         await(task);
+        verify(mockTransaction, never()).set(eq(mockHistoryDocWaitlisted), any());
+        await(eventService.flushHistory());
 
         ArgumentCaptor<Map<String, Object>> payloadCaptor = ArgumentCaptor.forClass(Map.class);
-        verify(mockTransaction, atLeastOnce()).set(eq(mockHistoryDocWaitlisted), payloadCaptor.capture());
+        verify(mockBatch, atLeastOnce()).set(eq(mockHistoryDocWaitlisted), payloadCaptor.capture());
 
         Map<String, Object> payload = payloadCaptor.getValue();
         assertEquals(EVENT_ID, payload.get("eventId"));
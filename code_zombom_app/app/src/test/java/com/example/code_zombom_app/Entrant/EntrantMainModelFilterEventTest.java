@@ -6,10 +6,12 @@ import static org.mockito.Mockito.*;
 
 import com.example.code_zombom_app.Helpers.Event.Event;
 import com.example.code_zombom_app.Helpers.Filter.EventFilter;
+import com.example.code_zombom_app.Helpers.Metrics.FirestoreCosts;
 import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
 import com.google.android.gms.tasks.Task;
 import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
 import com.google.firebase.firestore.QuerySnapshot;
@@ -99,4 +101,24 @@ public class EntrantMainModelFilterEventTest {
         assertEquals(1, result.size());
         assertSame(event1, result.get(0));
     }
+
+    @Test
+    public void filterEvent_ReadsEveryEventOnce() {
+        EventFilter filter = new EventFilter();
+        filter.setFilterGenre("Sport");
+        when(event1.getGenre()).thenReturn("Music");
+        when(event2.getGenre()).thenReturn("Music");
+        List<DocumentSnapshot> docs = Arrays.asList(mockDoc1, mockDoc2);
+        when(mockSnapshot.getDocuments()).thenReturn(docs);
+
+        FirestoreCosts costs = FirestoreCosts.getInstance();
+        FirestoreCosts.Usage before = costs.get("EntrantMainModel.filterEvent");
+        long readsBefore = before == null ? 0 : before.getReads();
+
+        model.filterEvent(filter);
+
+        // The filter runs on the device, so every event is billed whatever it matches
+        assertEquals(readsBefore + 2, costs.get("EntrantMainModel.filterEvent").getReads());
+        assertTrue(model.getLoadedEvents().isEmpty());
+    }
 }
@@ -78,8 +78,6 @@ public class EntrantMainModelFilterTest {
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
-        // IMPORTANT: disable QR generation so Event() doesn't touch Bitmap APIs in JVM tests
-        Event.setQrCodeGenerationEnabled(false);
         // Whenever code calls db.collection("Events"), return the mocked collection
         when(mockFirestore.collection("Events")).thenReturn(mockEventsCollection);
     }
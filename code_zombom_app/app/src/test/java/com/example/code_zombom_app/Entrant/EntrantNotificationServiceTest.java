@@ -1,7 +1,11 @@
 package com.example.code_zombom_app.Entrant;
 
+import com.example.code_zombom_app.Helpers.Event.EntrantHistory;
 import com.example.code_zombom_app.Helpers.Event.Event;
 import com.example.code_zombom_app.Helpers.Event.EventService;
+import com.example.code_zombom_app.Helpers.Event.EventSummary;
+import com.example.code_zombom_app.Helpers.Event.LotteryDraw;
+import com.example.code_zombom_app.Helpers.Users.NotificationPreferenceResolver;
 import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.firestore.CollectionReference;
@@ -9,7 +13,9 @@ import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.SetOptions;
 import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -19,16 +25,25 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -45,15 +60,26 @@ public class EntrantNotificationServiceTest {
     @Mock private Transaction mockTransaction;
 
     @Mock private CollectionReference mockNotificationCollection;
-    @Mock private DocumentReference mockWinnerNotificationDoc;
-    @Mock private DocumentReference mockLoserNotificationDoc;
-
-    @Mock private CollectionReference mockNotificationPrefsCollection;
-    @Mock private DocumentReference mockWinnerPrefDoc;
-    @Mock private DocumentReference mockLoserPrefDoc;
-
-    @Mock private DocumentSnapshot mockWinnerPrefSnapshot;
-    @Mock private DocumentSnapshot mockLoserPrefSnapshot;
+    @Mock private DocumentReference mockNotificationDoc;
+
+    @Mock private CollectionReference mockHistoryCollection;
+    @Mock private DocumentReference mockHistoryDoc;
+    @Mock private CollectionReference mockDrawsCollection;
+    @Mock private DocumentReference mockDrawDoc;
+    @Mock private CollectionReference mockRecipientsCollection;
+    @Mock private DocumentReference mockRecipientsDoc;
+    @Mock private CollectionReference mockSummariesCollection;
+    @Mock private DocumentReference mockSummaryDoc;
+    @Mock private CollectionReference mockProfilesCollection;
+    @Mock private DocumentReference mockProfileDoc;
+    @Mock private CollectionReference mockEntrantHistoryCollection;
+    @Mock private DocumentReference mockEntrantHistoryDoc;
+    @Mock private WriteBatch mockBatch;
+
+    @Mock private NotificationPreferenceResolver mockPreferences;
+
+    // Recipients whose notifications are turned off
+    private final Set<String> optedOut = new HashSet<>();
 
     private EventService eventService;
 
@@ -64,30 +90,50 @@ public class EntrantNotificationServiceTest {
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
-        Event.setQrCodeGenerationEnabled(false);
 
-        eventService = new EventService(mockFirestore);
+        eventService = new EventService(mockFirestore, mockPreferences);
 
         when(mockFirestore.collection("Events")).thenReturn(mockEventsCollection);
         when(mockEventsCollection.document(EVENT_ID)).thenReturn(mockEventDocumentRef);
 
         when(mockEventDocumentRef.collection("Notifications")).thenReturn(mockNotificationCollection);
-        when(mockNotificationCollection.document()).thenReturn(mockWinnerNotificationDoc, mockLoserNotificationDoc);
-
-        when(mockFirestore.collection("NotificationPreferences")).thenReturn(mockNotificationPrefsCollection);
-        when(mockNotificationPrefsCollection.document(WIN_EMAIL)).thenReturn(mockWinnerPrefDoc);
-        when(mockNotificationPrefsCollection.document(LOSE_EMAIL)).thenReturn(mockLoserPrefDoc);
+        when(mockNotificationCollection.document(anyString())).thenReturn(mockNotificationDoc);
+
+        // The draw commits the event, its summary and a draw record; history is fanned out after
+        when(mockFirestore.collection(EventSummary.COLLECTION)).thenReturn(mockSummariesCollection);
+        when(mockSummariesCollection.document(anyString())).thenReturn(mockSummaryDoc);
+        when(mockEventDocumentRef.collection(LotteryDraw.COLLECTION)).thenReturn(mockDrawsCollection);
+        when(mockDrawsCollection.document()).thenReturn(mockDrawDoc);
+        when(mockDrawDoc.getId()).thenReturn("draw-1");
+        when(mockDrawsCollection.document("draw-1")).thenReturn(mockDrawDoc);
+        when(mockEventDocumentRef.collection("Recipients")).thenReturn(mockRecipientsCollection);
+        when(mockRecipientsCollection.document(anyString())).thenReturn(mockRecipientsDoc);
+        when(mockEventDocumentRef.collection("History")).thenReturn(mockHistoryCollection);
+        when(mockHistoryCollection.document(anyString())).thenReturn(mockHistoryDoc);
+        when(mockFirestore.collection("Profiles")).thenReturn(mockProfilesCollection);
+        when(mockProfilesCollection.document(anyString())).thenReturn(mockProfileDoc);
+        when(mockProfileDoc.collection(EntrantHistory.COLLECTION)).thenReturn(mockEntrantHistoryCollection);
+        when(mockEntrantHistoryCollection.document(anyString())).thenReturn(mockEntrantHistoryDoc);
+        when(mockFirestore.batch()).thenReturn(mockBatch);
+        when(mockBatch.commit()).thenReturn(Tasks.forResult(null));
+
+        when(mockPreferences.resolve(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> emails = invocation.getArgument(0);
+            Map<String, Boolean> enabled = new HashMap<>();
+            for (String email : emails) {
+                enabled.put(email, !optedOut.contains(email));
+            }
+            return Tasks.forResult(enabled);
+        });
     }
 
     private void configureTransaction(Event event) throws FirebaseFirestoreException {
         when(mockTransaction.get(eq(mockEventDocumentRef))).thenReturn(mockEventSnapshot);
         when(mockEventSnapshot.toObject(Event.class)).thenReturn(event);
         doAnswer(invocation -> {
-            @SuppressWarnings("unchecked")
-            Transaction.Function<Void> fn = invocation.getArgument(0);
+            Transaction.Function<?> fn = invocation.getArgument(0);
             try {
-                fn.apply(mockTransaction);
-                return Tasks.forResult(null);
+                return Tasks.forResult(fn.apply(mockTransaction));
             } catch (Exception e) {
                 return Tasks.forException(e);
             }
@@ -101,60 +147,63 @@ public class EntrantNotificationServiceTest {
         throw new ExecutionException(task.getException());
     }
 
+    /**
+     * Notifications written by the fan-out, keyed by recipient.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Map<String, Object>> notificationsByRecipient() {
+        ArgumentCaptor<Map<String, Object>> payloadCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(mockBatch, atLeastOnce()).set(eq(mockNotificationDoc), payloadCaptor.capture());
+        Map<String, Map<String, Object>> notifications = new HashMap<>();
+        for (Map<String, Object> payload : payloadCaptor.getAllValues()) {
+            notifications.put((String) payload.get("recipientEmail"), payload);
+        }
+        return notifications;
+    }
+
     @Test
     public void runLotteryDraw_WinnerReceivesWinNotification() throws Exception {
         Event event = new Event("Notification Test");
         event.setEventId(EVENT_ID);
         event.joinWaitingList(WIN_EMAIL);
         event.setCapacity(1);
-        when(mockNotificationCollection.document()).thenReturn(mockWinnerNotificationDoc, mockLoserNotificationDoc);
-
-        when(mockTransaction.get(eq(mockWinnerPrefDoc))).thenReturn(mockWinnerPrefSnapshot);
-        when(mockWinnerPrefSnapshot.exists()).thenReturn(true);
-        when(mockWinnerPrefSnapshot.getBoolean("notificationEnabled")).thenReturn(true);
 
         configureTransaction(event);
 
         Task<Void> task = eventService.runLotteryDraw(EVENT_ID);
         await(task);
 
-        ArgumentCaptor<Map<String, Object>> payloadCaptor = ArgumentCaptor.forClass(Map.class);
-        verify(mockTransaction, atLeastOnce()).set(eq(mockWinnerNotificationDoc), payloadCaptor.capture());
-
-        Map<String, Object> payload = payloadCaptor.getValue();
+        Map<String, Object> payload = notificationsByRecipient().get(WIN_EMAIL);
         assertEquals("win", payload.get("type"));
         assertEquals(WIN_EMAIL, payload.get("recipientEmail"));
+        // Notifications are no longer written by the draw's transaction
+        verify(mockTransaction, never()).set(eq(mockNotificationDoc), any(Map.class));
     }
 
     @Test
-    public void runLotteryDraw_LoserOptOutSkipsNotification() throws Exception {
+    public void runLotteryDraw_OptedOutEntrantSkipsNotification() throws Exception {
         Event event = new Event("Opt Out Test");
         event.setEventId(EVENT_ID);
         event.joinWaitingList(WIN_EMAIL);
         event.joinWaitingList(LOSE_EMAIL);
         event.setCapacity(1);
-        when(mockNotificationCollection.document()).thenReturn(mockWinnerNotificationDoc, mockLoserNotificationDoc);
-
-        when(mockTransaction.get(eq(mockWinnerPrefDoc))).thenReturn(mockWinnerPrefSnapshot);
-        when(mockWinnerPrefSnapshot.exists()).thenReturn(true);
-        when(mockWinnerPrefSnapshot.getBoolean("notificationEnabled")).thenReturn(true);
 
-        when(mockTransaction.get(eq(mockLoserPrefDoc))).thenReturn(mockLoserPrefSnapshot);
-        when(mockLoserPrefSnapshot.exists()).thenReturn(true);
-        when(mockLoserPrefSnapshot.getBoolean("notificationEnabled")).thenReturn(false);
+        optedOut.add(LOSE_EMAIL);
 
         configureTransaction(event);
 
         Task<Void> task = eventService.runLotteryDraw(EVENT_ID);
         await(task);
 
-        verify(mockTransaction, atLeastOnce()).set(eq(mockWinnerNotificationDoc), any(Map.class));
-        ArgumentCaptor<Map<String, Object>> payloadCaptor = ArgumentCaptor.forClass(Map.class);
-        verify(mockTransaction).set(eq(mockWinnerNotificationDoc), payloadCaptor.capture());
-        Map<String, Object> winnerPayload = payloadCaptor.getValue();
-        assertEquals("win", winnerPayload.get("type"));
-        // Loser opted out -> notification doc never written
-        verify(mockTransaction, never()).set(eq(mockLoserNotificationDoc), any(Map.class));
+        Map<String, Map<String, Object>> notifications = notificationsByRecipient();
+        String expectedType = event.getChosenList().contains(WIN_EMAIL) ? "win" : "lose";
+        assertEquals(expectedType, notifications.get(WIN_EMAIL).get("type"));
+        // Opted out -> notification doc never written, whatever the outcome of the draw
+        assertFalse(notifications.containsKey(LOSE_EMAIL));
+        // History is still recorded for both entrants
+        verify(mockBatch, times(2)).set(eq(mockHistoryDoc), any(Map.class));
+        verify(mockBatch, times(2))
+                .set(eq(mockProfileDoc), any(Map.class), any(SetOptions.class));
     }
 
     @Test
@@ -164,27 +213,18 @@ public class EntrantNotificationServiceTest {
         event.joinWaitingList(WIN_EMAIL);
         event.joinWaitingList(LOSE_EMAIL);
         event.setCapacity(1);
-        when(mockNotificationCollection.document()).thenReturn(mockWinnerNotificationDoc, mockLoserNotificationDoc);
-
-        when(mockTransaction.get(eq(mockWinnerPrefDoc))).thenReturn(mockWinnerPrefSnapshot);
-        when(mockWinnerPrefSnapshot.exists()).thenReturn(true);
-        when(mockWinnerPrefSnapshot.getBoolean("notificationEnabled")).thenReturn(true);
-
-        when(mockTransaction.get(eq(mockLoserPrefDoc))).thenReturn(mockLoserPrefSnapshot);
-        when(mockLoserPrefSnapshot.exists()).thenReturn(true);
-        when(mockLoserPrefSnapshot.getBoolean("notificationEnabled")).thenReturn(true);
 
         configureTransaction(event);
 
         Task<Void> task = eventService.runLotteryDraw(EVENT_ID);
         await(task);
 
-        ArgumentCaptor<Map<String, Object>> payloadCaptor = ArgumentCaptor.forClass(Map.class);
-        verify(mockTransaction, atLeastOnce()).set(eq(mockLoserNotificationDoc), payloadCaptor.capture());
-        Map<String, Object> payload = payloadCaptor.getValue();
+        List<String> chosen = event.getChosenList();
+        assertEquals(1, chosen.size());
+        String loser = chosen.contains(WIN_EMAIL) ? LOSE_EMAIL : WIN_EMAIL;
+        Map<String, Object> payload = notificationsByRecipient().get(loser);
         assertEquals("lose", payload.get("type"));
-        assertEquals(LOSE_EMAIL, payload.get("recipientEmail"));
+        assertEquals(loser, payload.get("recipientEmail"));
+        assertTrue(event.getWaitingList().contains(loser));
     }
 }
-
-
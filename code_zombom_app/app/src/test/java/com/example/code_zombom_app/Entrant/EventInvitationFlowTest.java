@@ -53,7 +53,6 @@ public class EventInvitationFlowTest {
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
-        Event.setQrCodeGenerationEnabled(false);
 
         eventService = new EventService(mockFirestore);
 
@@ -5,7 +5,6 @@ import com.example.code_zombom_app.Helpers.Event.EventMapper;
 import com.example.code_zombom_app.Helpers.Location.Location;
 import com.example.code_zombom_app.organizer.EventForOrg;
 
-import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.junit.MockitoJUnitRunner;
@@ -20,11 +19,6 @@ import static org.junit.Assert.assertTrue;
 @RunWith(MockitoJUnitRunner.class)
 public class QREventLookupTest {
 
-    @Before
-    public void disableQr() {
-        Event.setQrCodeGenerationEnabled(false);
-    }
-
     @Test
     public void buildQrPayload_IncludesEventDetailsAndPoster() {
         Event event = new Event("QR View Event");
@@ -0,0 +1,186 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import com.example.code_zombom_app.Helpers.Users.NotificationPreferenceResolver;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies that queued broadcasts are delivered in checkpointed batches, skip opted-out
+ * recipients, and are retried with backoff until they are given up.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class BroadcastDispatcherTest {
+
+    @Mock private FirebaseFirestore mockFirestore;
+    @Mock private CollectionReference mockEventsCollection;
+    @Mock private CollectionReference mockBroadcastsCollection;
+    @Mock private CollectionReference mockNotificationsCollection;
+    @Mock private DocumentReference mockEventDocumentRef;
+    @Mock private DocumentReference mockBroadcastDocumentRef;
+    @Mock private DocumentReference mockNotificationDocumentRef;
+    @Mock private NotificationPreferenceResolver mockPreferences;
+    @Mock private ScheduledExecutorService mockScheduler;
+    @Mock private WriteBatch mockBatch;
+
+    // Recipients whose notifications are turned off
+    private final Set<String> optedOut = new HashSet<>();
+
+    private BroadcastDispatcher dispatcher;
+
+    private static final String EVENT_ID = "broadcast-event";
+
+    @Before
+    public void setUp() {
+        dispatcher = new BroadcastDispatcher(mockFirestore, mockPreferences, mockScheduler);
+
+        when(mockFirestore.collection("Events")).thenReturn(mockEventsCollection);
+        when(mockEventsCollection.document(EVENT_ID)).thenReturn(mockEventDocumentRef);
+        when(mockEventDocumentRef.collection(Broadcast.COLLECTION)).thenReturn(mockBroadcastsCollection);
+        when(mockBroadcastsCollection.document(anyString())).thenReturn(mockBroadcastDocumentRef);
+        when(mockBroadcastDocumentRef.getPath()).thenReturn("Events/" + EVENT_ID + "/Broadcasts/current");
+        when(mockEventDocumentRef.collection("Notifications")).thenReturn(mockNotificationsCollection);
+        when(mockNotificationsCollection.document(anyString())).thenReturn(mockNotificationDocumentRef);
+        when(mockPreferences.resolve(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> emails = invocation.getArgument(0);
+            Map<String, Boolean> enabled = new HashMap<>();
+            for (String email : emails) {
+                enabled.put(email, !optedOut.contains(email));
+            }
+            return Tasks.forResult(enabled);
+        });
+        when(mockFirestore.batch()).thenReturn(mockBatch);
+    }
+
+    private static Broadcast broadcast(String id, int recipients) {
+        List<String> emails = new ArrayList<>();
+        for (int i = 0; i < recipients; i++) {
+            emails.add("entrant" + i + "@example.com");
+        }
+        Broadcast broadcast = Broadcast.of(EVENT_ID, "Broadcast", "org_waitlist", "Hello", emails);
+        broadcast.setBroadcastId(id);
+        return broadcast;
+    }
+
+    private void runRetriesImmediately() {
+        when(mockScheduler.schedule(any(Runnable.class), anyLong(), any(TimeUnit.class)))
+                .thenAnswer(invocation -> {
+                    ((Runnable) invocation.getArgument(0)).run();
+                    return null;
+                });
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void dispatch_WritesRecipientsInCheckpointedBatches() {
+        when(mockBatch.commit()).thenReturn(Tasks.forResult(null));
+        int total = 2 * BroadcastDispatcher.CHUNK_SIZE + 50;
+        Broadcast broadcast = broadcast("batched", total);
+
+        assertTrue(dispatcher.dispatch(broadcast).isSuccessful());
+
+        verify(mockBatch, times(total)).set(eq(mockNotificationDocumentRef), anyMap());
+        verify(mockNotificationsCollection).document("batched_0");
+        verify(mockNotificationsCollection).document("batched_" + (total - 1));
+        verify(mockBatch, times(3)).commit();
+
+        ArgumentCaptor<Map<String, Object>> checkpoints = ArgumentCaptor.forClass(Map.class);
+        verify(mockBatch, times(3)).update(eq(mockBroadcastDocumentRef), checkpoints.capture());
+        assertEquals(BroadcastDispatcher.CHUNK_SIZE, checkpoints.getAllValues().get(0).get("dispatched"));
+        assertEquals("PENDING", checkpoints.getAllValues().get(0).get("status"));
+        assertEquals(total, checkpoints.getAllValues().get(2).get("delivered"));
+        assertEquals("DELIVERED", checkpoints.getAllValues().get(2).get("status"));
+        assertEquals(Broadcast.Status.DELIVERED, broadcast.getStatus());
+    }
+
+    @Test
+    public void dispatch_SkipsOptedOutRecipients() {
+        when(mockBatch.commit()).thenReturn(Tasks.forResult(null));
+        optedOut.add("entrant1@example.com");
+        Broadcast broadcast = broadcast("opted-out", 3);
+
+        assertTrue(dispatcher.dispatch(broadcast).isSuccessful());
+
+        verify(mockBatch, times(2)).set(eq(mockNotificationDocumentRef), anyMap());
+        assertEquals(3, broadcast.getDispatched());
+        assertEquals(2, broadcast.getDelivered());
+    }
+
+    @Test
+    public void dispatch_RetriesFailedBatchWithBackoff() {
+        runRetriesImmediately();
+        when(mockBatch.commit())
+                .thenReturn(Tasks.forException(new Exception("unavailable")))
+                .thenReturn(Tasks.forException(new Exception("unavailable")))
+                .thenReturn(Tasks.forResult(null));
+        Broadcast broadcast = broadcast("retried", 2);
+
+        assertTrue(dispatcher.dispatch(broadcast).isSuccessful());
+
+        verify(mockScheduler).schedule(any(Runnable.class), eq(BroadcastDispatcher.BASE_BACKOFF_MS),
+                eq(TimeUnit.MILLISECONDS));
+        verify(mockScheduler).schedule(any(Runnable.class), eq(2 * BroadcastDispatcher.BASE_BACKOFF_MS),
+                eq(TimeUnit.MILLISECONDS));
+        assertEquals(Broadcast.Status.DELIVERED, broadcast.getStatus());
+        assertEquals(0, broadcast.getAttempts());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void dispatch_GivesUpAfterMaxAttempts() {
+        runRetriesImmediately();
+        when(mockBatch.commit()).thenReturn(Tasks.forException(new Exception("unavailable")));
+        Broadcast broadcast = broadcast("given-up", 2);
+
+        Task<Void> task = dispatcher.dispatch(broadcast);
+
+        assertFalse(task.isSuccessful());
+        verify(mockBatch, times(BroadcastDispatcher.MAX_ATTEMPTS)).commit();
+        ArgumentCaptor<Map<String, Object>> failures = ArgumentCaptor.forClass(Map.class);
+        verify(mockBroadcastDocumentRef, times(BroadcastDispatcher.MAX_ATTEMPTS)).update(failures.capture());
+        Map<String, Object> last = failures.getValue();
+        assertEquals("FAILED", last.get("status"));
+        assertEquals("unavailable", last.get("lastError"));
+        assertEquals(Broadcast.Status.FAILED, broadcast.getStatus());
+    }
+
+    @Test
+    public void backoffMillis_DoublesUpToCap() {
+        assertEquals(BroadcastDispatcher.BASE_BACKOFF_MS, BroadcastDispatcher.backoffMillis(1));
+        assertEquals(4 * BroadcastDispatcher.BASE_BACKOFF_MS, BroadcastDispatcher.backoffMillis(3));
+        assertEquals(BroadcastDispatcher.MAX_BACKOFF_MS, BroadcastDispatcher.backoffMillis(40));
+    }
+}
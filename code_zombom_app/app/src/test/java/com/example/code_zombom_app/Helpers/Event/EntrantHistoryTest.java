@@ -0,0 +1,120 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies that an entrant's history is read a page at a time from the last entry read, that the
+ * next page is requested as soon as one is returned, and that a short page ends the history.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class EntrantHistoryTest {
+
+    @Mock private FirebaseFirestore mockFirestore;
+    @Mock private CollectionReference mockProfilesCollection;
+    @Mock private DocumentReference mockProfileDocumentRef;
+    @Mock private CollectionReference mockHistoryCollection;
+    @Mock private Query mockOrdered;
+    @Mock private Query mockFirstPage;
+    @Mock private Query mockAfterSecond;
+    @Mock private Query mockAfterFirst;
+    @Mock private Query mockSecondPage;
+    @Mock private Query mockThirdPage;
+    @Mock private QuerySnapshot mockFirstSnapshot;
+    @Mock private QuerySnapshot mockSecondSnapshot;
+    @Mock private QuerySnapshot mockThirdSnapshot;
+    @Mock private DocumentSnapshot mockEntryA;
+    @Mock private DocumentSnapshot mockEntryB;
+    @Mock private DocumentSnapshot mockEntryC;
+    @Mock private DocumentSnapshot mockEntryD;
+    @Mock private DocumentSnapshot mockEntryE;
+
+    private static final String EMAIL = "history@example.com";
+    private static final int PAGE_SIZE = 2;
+
+    private EntrantHistory.Pager pager;
+
+    @Before
+    public void setUp() {
+        when(mockFirestore.collection("Profiles")).thenReturn(mockProfilesCollection);
+        when(mockProfilesCollection.document(EMAIL)).thenReturn(mockProfileDocumentRef);
+        when(mockProfileDocumentRef.collection(EntrantHistory.COLLECTION)).thenReturn(mockHistoryCollection);
+        when(mockHistoryCollection.orderBy(EntrantHistory.UPDATED_AT, Query.Direction.DESCENDING))
+                .thenReturn(mockOrdered);
+        when(mockOrdered.limit(PAGE_SIZE)).thenReturn(mockFirstPage);
+
+        pager = new EntrantHistory.Pager(mockFirestore, " " + EMAIL, PAGE_SIZE);
+    }
+
+    private void mockPages() {
+        when(mockFirstPage.get()).thenReturn(Tasks.forResult(mockFirstSnapshot));
+        when(mockFirstSnapshot.getDocuments()).thenReturn(Arrays.asList(mockEntryA, mockEntryB));
+        when(mockOrdered.startAfter(mockEntryB)).thenReturn(mockAfterFirst);
+        when(mockAfterFirst.limit(PAGE_SIZE)).thenReturn(mockSecondPage);
+        when(mockSecondPage.get()).thenReturn(Tasks.forResult(mockSecondSnapshot));
+        when(mockSecondSnapshot.getDocuments()).thenReturn(Arrays.asList(mockEntryC, mockEntryD));
+        when(mockOrdered.startAfter(mockEntryD)).thenReturn(mockAfterSecond);
+        when(mockAfterSecond.limit(PAGE_SIZE)).thenReturn(mockThirdPage);
+        when(mockThirdPage.get()).thenReturn(Tasks.forResult(mockThirdSnapshot));
+        when(mockThirdSnapshot.getDocuments()).thenReturn(Collections.singletonList(mockEntryE));
+    }
+
+    @Test
+    public void next_ReadsPagesFromTheLastEntryAndPrefetches() {
+        mockPages();
+
+        assertEquals(Arrays.asList(mockEntryA, mockEntryB), pager.next().getResult());
+        // The second page is requested before it is asked for
+        verify(mockSecondPage).get();
+        verify(mockThirdPage, never()).get();
+
+        assertEquals(Arrays.asList(mockEntryC, mockEntryD), pager.next().getResult());
+        assertEquals(Collections.singletonList(mockEntryE), pager.next().getResult());
+        assertTrue(pager.isExhausted());
+
+        // Nothing is read once the history ended, and no page is read twice
+        assertTrue(pager.next().getResult().isEmpty());
+        verify(mockFirstPage, times(1)).get();
+        verify(mockSecondPage, times(1)).get();
+        verify(mockThirdPage, times(1)).get();
+    }
+
+    @Test
+    public void next_FailedPageIsReadAgain() {
+        when(mockFirstPage.get()).thenReturn(Tasks.forException(new IllegalStateException("offline")),
+                Tasks.forResult(mockFirstSnapshot));
+        when(mockFirstSnapshot.getDocuments()).thenReturn(Collections.singletonList(mockEntryA));
+
+        Task<List<DocumentSnapshot>> failed = pager.next();
+        assertFalse(failed.isSuccessful());
+        assertFalse(pager.isExhausted());
+
+        assertEquals(Collections.singletonList(mockEntryA), pager.next().getResult());
+        assertTrue(pager.isExhausted());
+        verify(mockFirstPage, times(2)).get();
+    }
+}
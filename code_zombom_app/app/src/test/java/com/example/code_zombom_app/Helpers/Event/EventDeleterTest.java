@@ -0,0 +1,200 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies that events are deleted with every subcollection, a page per batch, that the summary
+ * is only removed once everything else is gone, and that interrupted deletions are continued.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class EventDeleterTest {
+
+    @Mock private FirebaseFirestore mockFirestore;
+    @Mock private CollectionReference mockEventsCollection;
+    @Mock private CollectionReference mockSummariesCollection;
+    @Mock private CollectionReference mockHistoryCollection;
+    @Mock private CollectionReference mockEmptyCollection;
+    @Mock private DocumentReference mockEventDocumentRef;
+    @Mock private DocumentReference mockSummaryDocumentRef;
+    @Mock private DocumentReference mockEntryRef;
+    @Mock private Query mockHistoryPage;
+    @Mock private Query mockEmptyPage;
+    @Mock private Query mockDeletingSummaries;
+    @Mock private QueryDocumentSnapshot mockEntry;
+    @Mock private QueryDocumentSnapshot mockDeletingSummary;
+    @Mock private QuerySnapshot mockFullSnapshot;
+    @Mock private QuerySnapshot mockLastSnapshot;
+    @Mock private QuerySnapshot mockEmptySnapshot;
+    @Mock private QuerySnapshot mockDeletingSnapshot;
+    @Mock private WriteBatch mockBatch;
+
+    private EventDeleter deleter;
+
+    // Progress reported to the listener, as "deleted" or "deleted done"
+    private final List<String> progress = new ArrayList<>();
+
+    private static final String EVENT_ID = "deleted-event";
+
+    @Before
+    public void setUp() {
+        deleter = new EventDeleter(mockFirestore);
+
+        when(mockFirestore.collection("Events")).thenReturn(mockEventsCollection);
+        when(mockEventsCollection.document(EVENT_ID)).thenReturn(mockEventDocumentRef);
+        when(mockFirestore.collection(EventSummary.COLLECTION)).thenReturn(mockSummariesCollection);
+        when(mockSummariesCollection.document(EVENT_ID)).thenReturn(mockSummaryDocumentRef);
+        when(mockSummaryDocumentRef.set(anyMap(), any(SetOptions.class))).thenReturn(Tasks.forResult(null));
+
+        when(mockEventDocumentRef.collection(anyString())).thenReturn(mockEmptyCollection);
+        when(mockEventDocumentRef.collection("History")).thenReturn(mockHistoryCollection);
+        when(mockEmptyCollection.limit(EventDeleter.PAGE_SIZE)).thenReturn(mockEmptyPage);
+        when(mockEmptyPage.get()).thenReturn(Tasks.forResult(mockEmptySnapshot));
+        when(mockEmptySnapshot.iterator()).thenAnswer(invocation -> Collections.emptyIterator());
+        when(mockHistoryCollection.limit(EventDeleter.PAGE_SIZE)).thenReturn(mockHistoryPage);
+    }
+
+    private void mockPages() {
+        when(mockEntry.getReference()).thenReturn(mockEntryRef);
+        List<QueryDocumentSnapshot> full = Collections.nCopies(EventDeleter.PAGE_SIZE, mockEntry);
+        List<QueryDocumentSnapshot> last = Collections.nCopies(3, mockEntry);
+        when(mockFullSnapshot.iterator()).thenAnswer(invocation -> full.iterator());
+        when(mockLastSnapshot.iterator()).thenAnswer(invocation -> last.iterator());
+        when(mockFirestore.batch()).thenReturn(mockBatch);
+        when(mockBatch.commit()).thenReturn(Tasks.forResult(null));
+    }
+
+    private void mockDeletes() {
+        when(mockEventDocumentRef.delete()).thenReturn(Tasks.forResult(null));
+        when(mockSummaryDocumentRef.delete()).thenReturn(Tasks.forResult(null));
+    }
+
+    private EventService.DeletionListener recorder() {
+        return (eventId, deleted, done) -> progress.add(deleted + (done ? " done" : ""));
+    }
+
+    @Test
+    public void delete_RemovesSubcollectionsPageByPageBeforeEventAndSummary() {
+        mockPages();
+        mockDeletes();
+        when(mockHistoryPage.get()).thenReturn(Tasks.forResult(mockFullSnapshot),
+                Tasks.forResult(mockLastSnapshot));
+
+        Task<Void> task = deleter.delete(EVENT_ID, recorder());
+
+        assertTrue(task.isSuccessful());
+        verify(mockBatch, times(EventDeleter.PAGE_SIZE + 3)).delete(mockEntryRef);
+        verify(mockBatch, times(2)).commit();
+        // Every other subcollection was queried once and found empty
+        verify(mockEmptyPage, times(EventDeleter.SUBCOLLECTIONS.size() - 1)).get();
+        assertEquals(Arrays.asList("500", "503", "504 done"), progress);
+
+        InOrder order = inOrder(mockSummaryDocumentRef, mockEventDocumentRef);
+        order.verify(mockSummaryDocumentRef).set(eq(Collections.singletonMap(EventDeleter.DELETING, true)),
+                any(SetOptions.class));
+        order.verify(mockEventDocumentRef).delete();
+        order.verify(mockSummaryDocumentRef).delete();
+    }
+
+    @Test
+    public void delete_FailedPageLeavesMarkedSummaryToResume() {
+        when(mockHistoryPage.get()).thenReturn(Tasks.forException(new IllegalStateException("offline")));
+
+        Task<Void> task = deleter.delete(EVENT_ID, recorder());
+
+        assertFalse(task.isSuccessful());
+        // The other subcollections are still deleted
+        verify(mockEmptyPage, times(EventDeleter.SUBCOLLECTIONS.size() - 1)).get();
+        verify(mockEventDocumentRef, never()).delete();
+        verify(mockSummaryDocumentRef, never()).delete();
+        assertTrue(progress.isEmpty());
+    }
+
+    @Test
+    public void resume_DeletesEveryMarkedEvent() {
+        mockDeletes();
+        when(mockHistoryPage.get()).thenReturn(Tasks.forResult(mockEmptySnapshot));
+        when(mockSummariesCollection.whereEqualTo(EventDeleter.DELETING, true)).thenReturn(mockDeletingSummaries);
+        when(mockDeletingSummaries.get()).thenReturn(Tasks.forResult(mockDeletingSnapshot));
+        when(mockDeletingSnapshot.iterator())
+                .thenAnswer(invocation -> Collections.singletonList(mockDeletingSummary).iterator());
+        when(mockDeletingSummary.getId()).thenReturn(EVENT_ID);
+
+        Task<Void> task = deleter.resume(recorder());
+
+        assertTrue(task.isSuccessful());
+        verify(mockEventDocumentRef).delete();
+        verify(mockSummaryDocumentRef).delete();
+        assertEquals(Collections.singletonList("1 done"), progress);
+    }
+
+    @Test
+    public void bounded_RunsAtMostParallelismJobsAndEveryJobAfterAFailure() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger mostRunning = new AtomicInteger();
+        List<TaskCompletionSource<Void>> started = new ArrayList<>();
+        List<Supplier<Task<Void>>> jobs = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            jobs.add(() -> {
+                mostRunning.set(Math.max(mostRunning.get(), running.incrementAndGet()));
+                TaskCompletionSource<Void> job = new TaskCompletionSource<>();
+                started.add(job);
+                return job.getTask().continueWith(LotteryFanOut.DIRECT, task -> {
+                    running.decrementAndGet();
+                    if (!task.isSuccessful()) {
+                        throw task.getException();
+                    }
+                    return null;
+                });
+            });
+        }
+
+        Task<Void> all = EventDeleter.bounded(jobs, 2);
+        assertEquals(2, started.size());
+        started.get(0).setException(new IllegalStateException("first"));
+        for (int i = 1; i < 6; i++) {
+            started.get(i).setResult(null);
+        }
+
+        assertEquals(6, started.size());
+        assertEquals(2, mostRunning.get());
+        assertFalse(all.isSuccessful());
+        assertEquals("first", all.getException().getMessage());
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import com.example.code_zombom_app.organizer.EventForOrg;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Verifies that the list views of Event are read-only and follow the event, and that
+ * EventMapper hands them to the DTO without copying. Their allocations are compared with those
+ * of the copying getters by EventListViewBenchmark.
+ */
+public class EventListViewTest {
+
+    private static final int ENTRANTS = 1_000;
+
+    private Event event;
+
+    @Before
+    public void setUp() {
+        event = new Event("List View Test");
+        event.setEventStartDate(new Date(1_000));
+        event.setEventEndDate(new Date(2_000));
+        for (int i = 0; i < ENTRANTS; i++) {
+            event.joinWaitingList("entrant" + i + "@example.com");
+        }
+        event.addChosenEntrant("winner@example.com");
+    }
+
+    @Test
+    public void views_AreReadOnlyAndLive() {
+        List<String> waiting = event.getWaitingListView();
+        try {
+            waiting.add("intruder@example.com");
+            fail("view must be read-only");
+        } catch (UnsupportedOperationException expected) {
+            // expected
+        }
+
+        event.leaveWaitingList("entrant0@example.com");
+        assertEquals(ENTRANTS - 1, waiting.size());
+        assertTrue(event.getChosenListView().contains("winner@example.com"));
+    }
+
+    @Test
+    public void toDto_SharesViewsInsteadOfCopying() {
+        EventForOrg dto = EventMapper.toDto(event);
+
+        assertSame(event.getWaitingListView(), dto.getEntrants());
+        assertSame(event.getChosenListView(), dto.getLottery_Winners());
+        assertSame(event.getPendingListView(), dto.getAccepted_Entrants());
+        assertSame(event.getCancelledListView(), dto.getCancelled_Entrants());
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Pure Event model tests for the email to lifecycle status index backing the entrant lists.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class EventMembershipIndexTest {
+
+    @Test
+    public void moveEntrant_MovesBetweenListsAndKeepsCountInSync() {
+        Event event = new Event("Move Test");
+        event.joinWaitingList("a@example.com");
+        event.joinWaitingList("b@example.com");
+
+        assertTrue(event.moveEntrant("a@example.com",
+                MembershipIndex.Status.WAITING, MembershipIndex.Status.CHOSEN));
+
+        assertFalse(event.isInWaitingList("a@example.com"));
+        assertTrue(event.hasStatus("a@example.com", MembershipIndex.Status.CHOSEN));
+        assertTrue(event.hasBeenSelected("a@example.com"));
+        assertEquals(Arrays.asList("a@example.com"), event.getChosenList());
+        assertEquals(Arrays.asList("b@example.com"), event.getWaitingList());
+        assertEquals(1, event.countEntrants(MembershipIndex.Status.WAITING));
+    }
+
+    @Test
+    public void moveEntrant_ReturnsFalseWhenEntrantDoesNotHaveStatus() {
+        Event event = new Event("Move Test");
+        event.joinWaitingList("a@example.com");
+
+        assertFalse(event.moveEntrant("a@example.com",
+                MembershipIndex.Status.CHOSEN, MembershipIndex.Status.PENDING));
+
+        assertTrue(event.isInWaitingList("a@example.com"));
+        assertTrue(event.getPendingList().isEmpty());
+    }
+
+    @Test
+    public void setters_RebuildIndexAndDropDuplicates() {
+        Event event = new Event("Setter Test");
+        event.joinWaitingList("old@example.com");
+
+        event.setWaitingList(new ArrayList<>(Arrays.asList("x@example.com", "x@example.com", "y@example.com")));
+
+        assertFalse(event.isInWaitingList("old@example.com"));
+        assertTrue(event.isInWaitingList("x@example.com"));
+        assertEquals(Arrays.asList("x@example.com", "y@example.com"), event.getWaitingList());
+
+        event.leaveWaitingList("x@example.com");
+        assertFalse(event.isInWaitingList("x@example.com"));
+    }
+
+    @Test
+    public void getCancelledList_ReturnsCopy() {
+        Event event = new Event("Cancelled Test");
+        event.addCancelledEntrant("a@example.com");
+
+        event.getCancelledList().clear();
+        assertTrue(event.hasStatus("a@example.com", MembershipIndex.Status.CANCELLED));
+
+        event.removeCancelledEntrant("a@example.com");
+        assertTrue(event.getCancelledList().isEmpty());
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies that joins to events without limits and leaves are written with field transforms in a
+ * batch, that joins to events with a limit go through the transaction, and that leaves set the
+ * waiting count from the list instead of lowering it.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class EventServiceFastJoinTest {
+
+    @Mock private FirebaseFirestore mockFirestore;
+    @Mock private CollectionReference mockEventsCollection;
+    @Mock private CollectionReference mockSummariesCollection;
+    @Mock private CollectionReference mockProfilesCollection;
+    @Mock private CollectionReference mockHistoryCollection;
+    @Mock private DocumentReference mockEventDocumentRef;
+    @Mock private DocumentReference mockSummaryDocumentRef;
+    @Mock private DocumentReference mockProfileDocumentRef;
+    @Mock private CollectionReference mockEntrantHistoryCollection;
+    @Mock private DocumentReference mockEntrantHistoryRef;
+    @Mock private DocumentReference mockHistoryDocumentRef;
+    @Mock private DocumentSnapshot mockEventSnapshot;
+    @Mock private Transaction mockTransaction;
+    @Mock private WriteBatch mockBatch;
+
+    private EventService eventService;
+    private Event event;
+
+    private static final String EVENT_ID = "fast-event";
+    private static final String EMAIL = "entrant@example.com";
+
+    @Before
+    public void setUp() {
+        eventService = new EventService(mockFirestore);
+
+        event = new Event("Open House");
+        event.setEventId(EVENT_ID);
+
+        when(mockFirestore.collection("Events")).thenReturn(mockEventsCollection);
+        when(mockEventsCollection.document(EVENT_ID)).thenReturn(mockEventDocumentRef);
+        when(mockFirestore.collection(EventSummary.COLLECTION)).thenReturn(mockSummariesCollection);
+        when(mockSummariesCollection.document(EVENT_ID)).thenReturn(mockSummaryDocumentRef);
+        when(mockFirestore.collection("Profiles")).thenReturn(mockProfilesCollection);
+        when(mockProfilesCollection.document(anyString())).thenReturn(mockProfileDocumentRef);
+        when(mockEventDocumentRef.collection("History")).thenReturn(mockHistoryCollection);
+        when(mockHistoryCollection.document(anyString())).thenReturn(mockHistoryDocumentRef);
+
+        when(mockEventDocumentRef.get()).thenReturn(Tasks.forResult(mockEventSnapshot));
+        when(mockEventSnapshot.toObject(Event.class)).thenReturn(event);
+    }
+
+    private void mockBatch(Task<Void> commit) {
+        when(mockFirestore.batch()).thenReturn(mockBatch);
+        when(mockBatch.commit()).thenReturn(commit);
+    }
+
+    private void mockTransaction() throws Exception {
+        when(mockTransaction.get(mockEventDocumentRef)).thenReturn(mockEventSnapshot);
+        doAnswer(invocation -> {
+            @SuppressWarnings("unchecked")
+            Transaction.Function<Void> function = invocation.getArgument(0);
+            try {
+                function.apply(mockTransaction);
+                return Tasks.forResult(null);
+            } catch (Exception e) {
+                return Tasks.forException(e);
+            }
+        }).when(mockFirestore).runTransaction(any(Transaction.Function.class));
+    }
+
+    private void fillWaitingList(int entrants) {
+        for (int i = 0; i < entrants; i++) {
+            event.joinWaitingList("waiting" + i + "@example.com");
+        }
+    }
+
+    @Test
+    public void addFast_WithoutLimits_WritesTransformsInBatch() {
+        mockBatch(Tasks.forResult(null));
+
+        assertTrue(eventService.addEntrantToWaitlistFast(EVENT_ID, "  " + EMAIL + " ").isSuccessful());
+
+        verify(mockBatch).update(eq(mockEventDocumentRef), eq("waitingList"), any(FieldValue.class));
+        verify(mockBatch).update(eq(mockSummaryDocumentRef), eq("waitingCount"), any(FieldValue.class));
+        // The history follows in a batch of its own once the join committed
+        verify(mockBatch, never()).set(eq(mockHistoryDocumentRef), anyMap());
+        when(mockProfileDocumentRef.collection(EntrantHistory.COLLECTION)).thenReturn(mockEntrantHistoryCollection);
+        when(mockEntrantHistoryCollection.document(EVENT_ID)).thenReturn(mockEntrantHistoryRef);
+        assertTrue(eventService.flushHistory().isSuccessful());
+        verify(mockFirestore, times(2)).batch();
+        verify(mockBatch).set(eq(mockHistoryDocumentRef), anyMap());
+        verify(mockBatch).set(eq(mockEntrantHistoryRef), anyMap());
+        verify(mockBatch).set(eq(mockProfileDocumentRef), anyMap(), any(SetOptions.class));
+        verify(mockProfilesCollection).document(EMAIL);
+        verify(mockFirestore, never()).runTransaction(any(Transaction.Function.class));
+    }
+
+    @Test
+    public void addFast_WithWaitlistLimit_GoesThroughTransaction() throws Exception {
+        // Far from full, but a join outside the transaction could still overfill the list
+        event.setWaitlistLimit(200);
+        fillWaitingList(10);
+        mockTransaction();
+
+        assertTrue(eventService.addEntrantToWaitlistFast(EVENT_ID, EMAIL).isSuccessful());
+
+        verify(mockFirestore, never()).batch();
+        verify(mockTransaction).set(eq(mockEventDocumentRef), any(Event.class));
+        assertTrue(event.isInWaitingList(EMAIL));
+    }
+
+    @Test
+    public void addFast_AlreadyWaiting_FailsLikeTransaction() throws Exception {
+        event.joinWaitingList(EMAIL);
+        mockTransaction();
+
+        Task<Void> task = eventService.addEntrantToWaitlistFast(EVENT_ID, EMAIL);
+
+        assertFalse(task.isSuccessful());
+        assertEquals("You have already joined this waiting list.", task.getException().getMessage());
+        verify(mockFirestore, never()).batch();
+    }
+
+    @Test
+    public void addFast_FailedBatch_RetriesInTransaction() throws Exception {
+        mockBatch(Tasks.forException(new Exception("summary missing")));
+        mockTransaction();
+
+        assertTrue(eventService.addEntrantToWaitlistFast(EVENT_ID, EMAIL).isSuccessful());
+
+        verify(mockTransaction).set(eq(mockEventDocumentRef), any(Event.class));
+        verify(mockTransaction).set(eq(mockSummaryDocumentRef), any(EventSummary.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void removeFast_OnWaitingList_WritesTransformAndRefreshesCount() throws Exception {
+        event.joinWaitingList(EMAIL);
+        event.joinWaitingList("other@example.com");
+        mockBatch(Tasks.forResult(null));
+        mockTransaction();
+
+        assertTrue(eventService.removeEntrantFromWaitlistFast(EVENT_ID, EMAIL).isSuccessful());
+
+        verify(mockBatch).update(eq(mockEventDocumentRef), eq("waitingList"), any(FieldValue.class));
+        verify(mockBatch, never()).update(eq(mockSummaryDocumentRef), anyString(), any());
+        // The mocked batch left the list as it was, so the count is that of both entrants
+        ArgumentCaptor<Map<String, Object>> count = ArgumentCaptor.forClass(Map.class);
+        verify(mockTransaction).set(eq(mockSummaryDocumentRef), count.capture(), any(SetOptions.class));
+        assertEquals(2, count.getValue().get("waitingCount"));
+        verify(mockTransaction, never()).set(eq(mockEventDocumentRef), any(Event.class));
+    }
+
+    @Test
+    public void removeFast_RefreshFails_StillSucceeds() {
+        event.joinWaitingList(EMAIL);
+        mockBatch(Tasks.forResult(null));
+        when(mockFirestore.runTransaction(any(Transaction.Function.class)))
+                .thenReturn(Tasks.forException(new Exception("offline")));
+
+        assertTrue(eventService.removeEntrantFromWaitlistFast(EVENT_ID, EMAIL).isSuccessful());
+    }
+
+    @Test
+    public void canJoinWithoutTransaction_ChecksEveryLimit() {
+        assertTrue(EventService.canJoinWithoutTransaction(event, EMAIL));
+
+        Event withCapacity = new Event("With Capacity");
+        withCapacity.setCapacity(100);
+        assertFalse(EventService.canJoinWithoutTransaction(withCapacity, EMAIL));
+
+        Event withWaitlistLimit = new Event("With Waitlist Limit");
+        withWaitlistLimit.setWaitlistLimit(200);
+        assertFalse(EventService.canJoinWithoutTransaction(withWaitlistLimit, EMAIL));
+
+        Event sharded = new Event("Sharded");
+        sharded.setShardedEntrants(true);
+        assertFalse(EventService.canJoinWithoutTransaction(sharded, EMAIL));
+
+        event.addChosenEntrant(EMAIL);
+        assertFalse(EventService.canJoinWithoutTransaction(event, EMAIL));
+    }
+}
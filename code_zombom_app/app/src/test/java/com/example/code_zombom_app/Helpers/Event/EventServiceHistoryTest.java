@@ -6,6 +6,7 @@ import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -27,16 +28,21 @@ import static org.mockito.Mockito.*;
 public class EventServiceHistoryTest {
 
     @Mock private FirebaseFirestore mockFirestore;
+    @Mock private com.google.firebase.firestore.CollectionReference mockSummariesCollection;
+    @Mock private DocumentReference mockSummaryDocumentRef;
     @Mock private com.google.firebase.firestore.CollectionReference mockEventsCollection;
     @Mock private com.google.firebase.firestore.CollectionReference mockProfilesCollection;
     @Mock private com.google.firebase.firestore.CollectionReference mockHistoryCollection;
 
     @Mock private DocumentReference mockEventDocumentRef;
     @Mock private DocumentReference mockProfileDocumentRef;
+    @Mock private com.google.firebase.firestore.CollectionReference mockEntrantHistoryCollection;
+    @Mock private DocumentReference mockEntrantHistoryRef;
     @Mock private DocumentReference mockHistoryDocumentRef;
 
     @Mock private DocumentSnapshot mockEventDocumentSnapshot;
     @Mock private Transaction mockTransaction;
+    @Mock private WriteBatch mockBatch;
 
     private EventService eventService;
 
@@ -68,6 +74,13 @@ public class EventServiceHistoryTest {
         }).when(mockFirestore).runTransaction(any(Transaction.Function.class));
     }
 
+    private void mockHistoryBatch() {
+        when(mockFirestore.batch()).thenReturn(mockBatch);
+        when(mockBatch.commit()).thenReturn(Tasks.forResult(null));
+        when(mockProfileDocumentRef.collection(EntrantHistory.COLLECTION)).thenReturn(mockEntrantHistoryCollection);
+        when(mockEntrantHistoryCollection.document(EVENT_ID)).thenReturn(mockEntrantHistoryRef);
+    }
+
     private <T> T awaitTask(Task<T> task) throws ExecutionException {
         if (task.isSuccessful()) {
             return task.getResult();
@@ -95,9 +108,6 @@ public class EventServiceHistoryTest {
     public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
 
-        // Disable QR generation for unit tests
-        Event.setQrCodeGenerationEnabled(false);
-
         eventService = new EventService(mockFirestore);
 
         // Events collection + event doc
@@ -108,10 +118,14 @@ public class EventServiceHistoryTest {
         when(mockFirestore.collection("Profiles")).thenReturn(mockProfilesCollection);
         when(mockProfilesCollection.document(anyString())).thenReturn(mockProfileDocumentRef);
 
+        // EventSummaries/{eventId}, rewritten alongside the event document
+        when(mockFirestore.collection(EventSummary.COLLECTION)).thenReturn(mockSummariesCollection);
+        when(mockSummariesCollection.document(anyString())).thenReturn(mockSummaryDocumentRef);
+
         // History subcollection (used by EventService.recordHistory)
         // Stub on both event + profile docs to be robust to implementation details
         when(mockEventDocumentRef.collection(anyString())).thenReturn(mockHistoryCollection);
-        when(mockHistoryCollection.document()).thenReturn(mockHistoryDocumentRef);
+        when(mockHistoryCollection.document(anyString())).thenReturn(mockHistoryDocumentRef);
     }
 
     // ---------- tests ----------
@@ -124,6 +138,7 @@ public class EventServiceHistoryTest {
         when(mockEventDocumentSnapshot.toObject(Event.class)).thenReturn(e);
 
         mockSuccessfulTransaction();
+        mockHistoryBatch();
 
         Task<Void> task = eventService.addEntrantToWaitlist(EVENT_ID, EMAIL);
         awaitTask(task);
@@ -132,8 +147,11 @@ public class EventServiceHistoryTest {
         verify(mockTransaction).set(eq(mockEventDocumentRef), any(Event.class));
         assertTrue(e.getWaitingList().contains(NORM));
 
-        // History written
-        verify(mockTransaction).set(eq(mockHistoryDocumentRef), any());
+        // History written once the transaction committed, not inside it
+        verify(mockTransaction, never()).set(eq(mockHistoryDocumentRef), any());
+        awaitTask(eventService.flushHistory());
+        verify(mockBatch).set(eq(mockHistoryDocumentRef), any());
+        verify(mockBatch).set(eq(mockEntrantHistoryRef), any());
     }
 
 
@@ -146,6 +164,7 @@ public class EventServiceHistoryTest {
         when(mockEventDocumentSnapshot.toObject(Event.class)).thenReturn(e);
 
         mockSuccessfulTransaction();
+        mockHistoryBatch();
 
         Task<Void> task = eventService.removeEntrantFromWaitlist(EVENT_ID, EMAIL);
         awaitTask(task);
@@ -154,8 +173,10 @@ public class EventServiceHistoryTest {
         verify(mockTransaction).set(eq(mockEventDocumentRef), any(Event.class));
         assertFalse(e.getWaitingList().contains(NORM));
 
-        // History written
-        verify(mockTransaction).set(eq(mockHistoryDocumentRef), any());
+        // History written once the transaction committed, not inside it
+        verify(mockTransaction, never()).set(eq(mockHistoryDocumentRef), any());
+        awaitTask(eventService.flushHistory());
+        verify(mockBatch).set(eq(mockHistoryDocumentRef), any());
     }
 
 
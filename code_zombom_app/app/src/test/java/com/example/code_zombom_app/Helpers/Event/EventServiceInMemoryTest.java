@@ -0,0 +1,259 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import com.example.code_zombom_app.Helpers.Users.NotificationPreferenceResolver;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.Query;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs {@link EventService} against {@link InMemoryFirestore}: the same transactions, history,
+ * fan-out and notifications as in the app, with concurrent requests retried on conflicts.
+ */
+public class EventServiceInMemoryTest {
+
+    private static final String EVENT_ID = "memory-event";
+
+    private InMemoryFirestore database;
+    private TransactionMetrics metrics;
+    private EventService service;
+
+    @Before
+    public void setUp() {
+        database = new InMemoryFirestore();
+        metrics = new TransactionMetrics();
+        service = newService();
+    }
+
+    private EventService newService() {
+        return new EventService(database.getInstance(),
+                new NotificationPreferenceResolver(database.getInstance()),
+                new HistoryRecorder(database.getInstance()), metrics);
+    }
+
+    private Event saveEvent(int capacity, int waitlistLimit) {
+        Event event = new Event("Memory Event");
+        event.setEventId(EVENT_ID);
+        event.setCapacity(capacity);
+        event.setWaitlistLimit(waitlistLimit);
+        assertTrue(service.saveEvent(event).isSuccessful());
+        return event;
+    }
+
+    private Event load() {
+        return service.loadEvent(EVENT_ID).getResult();
+    }
+
+    /**
+     * @return The notifications of an entrant, newest first, read as the app reads them
+     */
+    private List<DocumentSnapshot> notifications(String email) {
+        return database.getInstance().collectionGroup("Notifications")
+                .whereEqualTo("recipientEmail", email.trim().toLowerCase())
+                .orderBy("createdAt", Query.Direction.DESCENDING)
+                .get().getResult().getDocuments();
+    }
+
+    @Test
+    public void saveEvent_ThenLoad_RoundTripsEventAndSummary() {
+        Event saved = saveEvent(3, 10);
+        saved.joinWaitingList("a@example.com");
+        service.saveEvent(saved);
+
+        Event loaded = load();
+        EventSummary summary = service.loadEventSummaries().getResult().get(0);
+
+        assertEquals("Memory Event", loaded.getName());
+        assertEquals(3, loaded.getCapacity());
+        assertTrue(loaded.isInWaitingList("a@example.com"));
+        assertEquals(EVENT_ID, summary.getEventId());
+        assertEquals(10, summary.getWaitlistLimit());
+    }
+
+    @Test
+    public void addEntrantToWaitlist_AddsEntrantOnceAndRecordsHistory() {
+        saveEvent(0, 0);
+
+        assertTrue(service.addEntrantToWaitlist(EVENT_ID, " a@example.com ", "join-1").isSuccessful());
+        Task<Void> again = service.addEntrantToWaitlist(EVENT_ID, "a@example.com", "join-2");
+        assertTrue(service.flushHistory().isSuccessful());
+
+        assertTrue(load().isInWaitingList("a@example.com"));
+        assertTrue(again.getException() instanceof IllegalArgumentException);
+        Map<String, MembershipIndex.Status> statuses =
+                service.loadEntrantStatuses("a@example.com").getResult();
+        assertEquals(MembershipIndex.Status.WAITING, statuses.get(EVENT_ID));
+    }
+
+    @Test
+    public void addEntrantToWaitlist_ReplayedRequest_IsAppliedOnce() {
+        saveEvent(0, 0);
+
+        service.addEntrantToWaitlist(EVENT_ID, "a@example.com", "join-1");
+        service.removeEntrantFromWaitlist(EVENT_ID, "a@example.com", "leave-1");
+        Task<Void> replay = service.addEntrantToWaitlist(EVENT_ID, "a@example.com", "join-1");
+
+        assertTrue(replay.isSuccessful());
+        assertFalse(load().isInWaitingList("a@example.com"));
+    }
+
+    @Test
+    public void addEntrantToWaitlist_FullWaitingList_Fails() {
+        saveEvent(5, 1);
+        service.addEntrantToWaitlist(EVENT_ID, "a@example.com");
+
+        Task<Void> join = service.addEntrantToWaitlist(EVENT_ID, "b@example.com");
+
+        assertEquals("This waiting list is full.", join.getException().getMessage());
+    }
+
+    @Test
+    public void addEntrantToWaitlist_MissingEvent_Fails() {
+        Task<Void> join = service.addEntrantToWaitlist("missing", "a@example.com");
+
+        assertFalse(join.isSuccessful());
+        assertEquals(1, metrics.get("addEntrantToWaitlist").getFailures());
+    }
+
+    @Test
+    public void addEntrantToWaitlist_ConcurrentJoins_NeverExceedLimit() throws InterruptedException {
+        int limit = 60;
+        int threads = 8;
+        int joinsPerThread = 15;
+        saveEvent(0, limit);
+        AtomicInteger joined = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            // Each thread is a device of its own, with its own service
+            EventService device = newService();
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < joinsPerThread; i++) {
+                    String email = "user" + thread + "-" + i + "@example.com";
+                    if (device.addEntrantToWaitlist(EVENT_ID, email).isSuccessful()) {
+                        joined.incrementAndGet();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(limit, joined.get());
+        assertEquals(limit, load().countEntrants(MembershipIndex.Status.WAITING));
+        assertEquals(threads * joinsPerThread, metrics.get("addEntrantToWaitlist").getCalls());
+    }
+
+    @Test
+    public void runLotteryDraw_NotifiesWinnersAndLosers() {
+        saveEvent(2, 10);
+        for (int i = 0; i < 5; i++) {
+            service.addEntrantToWaitlist(EVENT_ID, "user" + i + "@example.com");
+        }
+
+        assertTrue(service.runLotteryDraw(EVENT_ID).isSuccessful());
+
+        Event event = load();
+        assertEquals(2, event.countEntrants(MembershipIndex.Status.CHOSEN));
+        assertTrue(event.isDrawComplete());
+        int wins = 0;
+        int losses = 0;
+        for (int i = 0; i < 5; i++) {
+            List<DocumentSnapshot> received = notifications("user" + i + "@example.com");
+            assertEquals(1, received.size());
+            if ("win".equals(received.get(0).getString("type"))) {
+                wins++;
+            } else {
+                losses++;
+            }
+        }
+        assertEquals(2, wins);
+        assertEquals(3, losses);
+    }
+
+    @Test
+    public void acceptThenRegister_MovesWinnerToRegistered() {
+        saveEvent(1, 10);
+        service.addEntrantToWaitlist(EVENT_ID, "a@example.com");
+        service.runLotteryDraw(EVENT_ID);
+
+        assertTrue(service.acceptInvitation(EVENT_ID, "a@example.com", "accept-1").isSuccessful());
+        assertTrue(service.completeRegistration(EVENT_ID, "a@example.com", "register-1").isSuccessful());
+
+        assertTrue(load().hasStatus("a@example.com", MembershipIndex.Status.REGISTERED));
+        assertEquals("signup_success", notifications("a@example.com").get(0).getString("type"));
+        assertNotNull(database.getData("Events/" + EVENT_ID + "/Responses/a@example.com"));
+    }
+
+    @Test
+    public void declineInvitation_AutoReplace_DrawsReplacement() {
+        Event event = new Event("Memory Event");
+        event.setEventId(EVENT_ID);
+        event.setCapacity(1);
+        event.setAutoReplaceDeclines(true);
+        event.addChosenEntrant("a@example.com");
+        event.joinWaitingList("b@example.com");
+        service.saveEvent(event);
+
+        assertTrue(service.declineInvitation(EVENT_ID, "a@example.com", "decline-1").isSuccessful());
+
+        Event declined = load();
+        assertTrue(declined.hasStatus("a@example.com", MembershipIndex.Status.CANCELLED));
+        assertTrue(declined.hasStatus("b@example.com", MembershipIndex.Status.CHOSEN));
+        assertEquals("win", notifications("b@example.com").get(0).getString("type"));
+    }
+
+    @Test
+    public void notifyWaitlistEntrants_ReplayedRequest_NotifiesOnce() {
+        saveEvent(0, 0);
+        service.addEntrantToWaitlist(EVENT_ID, "a@example.com");
+
+        service.notifyWaitlistEntrants(EVENT_ID, "Hello", "notify-1");
+        service.notifyWaitlistEntrants(EVENT_ID, "Hello", "notify-1");
+
+        List<DocumentSnapshot> received = notifications("A@example.com");
+        assertEquals(1, received.size());
+        assertEquals("Hello", received.get(0).getString("message"));
+    }
+
+    @Test
+    public void transaction_ConflictingCommits_AreRetriedUntilAborted() {
+        saveEvent(0, 0);
+        AtomicInteger attempts = new AtomicInteger();
+
+        Task<Object> task = database.getInstance().runTransaction(transaction -> {
+            attempts.incrementAndGet();
+            transaction.get(database.getInstance().collection("Events").document(EVENT_ID));
+            // Another device joins between this attempt's read and its commit
+            service.addEntrantToWaitlist(EVENT_ID, "user" + attempts.get() + "@example.com");
+            return null;
+        });
+
+        assertEquals(InMemoryFirestore.MAX_ATTEMPTS, attempts.get());
+        assertEquals(FirebaseFirestoreException.Code.ABORTED,
+                ((FirebaseFirestoreException) task.getException()).getCode());
+    }
+}
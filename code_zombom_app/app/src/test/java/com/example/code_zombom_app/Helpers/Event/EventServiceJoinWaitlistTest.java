@@ -28,6 +28,8 @@ import static org.mockito.Mockito.*;
 public class EventServiceJoinWaitlistTest {
 
     @Mock private FirebaseFirestore mockFirestore;
+    @Mock private com.google.firebase.firestore.CollectionReference mockSummariesCollection;
+    @Mock private DocumentReference mockSummaryDocumentRef;
     @Mock private com.google.firebase.firestore.CollectionReference mockEventsCollection;
     @Mock private com.google.firebase.firestore.CollectionReference mockProfilesCollection;
     @Mock private DocumentReference mockEventDocumentRef;
@@ -82,9 +84,6 @@ public class EventServiceJoinWaitlistTest {
     public void setUp() {
         MockitoAnnotations.initMocks(this);
 
-        // Disable QR code generation for tests
-        Event.setQrCodeGenerationEnabled(false);
-
         eventService = new EventService(mockFirestore);
 
         // Events collection + event document
@@ -95,10 +94,14 @@ public class EventServiceJoinWaitlistTest {
         when(mockFirestore.collection("Profiles")).thenReturn(mockProfilesCollection);
         when(mockProfilesCollection.document(anyString())).thenReturn(mockProfileDocumentRef);
 
+        // EventSummaries/{eventId}, rewritten alongside the event document
+        when(mockFirestore.collection(EventSummary.COLLECTION)).thenReturn(mockSummariesCollection);
+        when(mockSummariesCollection.document(anyString())).thenReturn(mockSummaryDocumentRef);
+
         // History subcollection under whichever doc EventService.recordHistory() uses
         // (event or profile). Using anyString() to be robust to name changes.
         when(mockEventDocumentRef.collection(anyString())).thenReturn(mockHistoryCollection);
-        when(mockHistoryCollection.document()).thenReturn(mockHistoryDocumentRef);
+        when(mockHistoryCollection.document(anyString())).thenReturn(mockHistoryDocumentRef);
     }
 
     @Test
@@ -28,6 +28,8 @@ import static org.mockito.Mockito.*;
 public class EventServiceLeaveWaitlistTest {
 
     @Mock private FirebaseFirestore mockFirestore;
+    @Mock private com.google.firebase.firestore.CollectionReference mockSummariesCollection;
+    @Mock private DocumentReference mockSummaryDocumentRef;
     @Mock private com.google.firebase.firestore.CollectionReference mockEventsCollection;
     @Mock private com.google.firebase.firestore.CollectionReference mockProfilesCollection;
     @Mock private DocumentReference mockEventDocumentRef;
@@ -98,8 +100,6 @@ public class EventServiceLeaveWaitlistTest {
     public void setup() throws FirebaseFirestoreException {
         MockitoAnnotations.initMocks(this);
 
-        Event.setQrCodeGenerationEnabled(false);
-
         eventService = new EventService(mockFirestore);
 
         // Events collection + event document
@@ -110,9 +110,13 @@ public class EventServiceLeaveWaitlistTest {
         when(mockFirestore.collection("Profiles")).thenReturn(mockProfilesCollection);
         when(mockProfilesCollection.document(anyString())).thenReturn(mockProfileDocumentRef);
 
+        // EventSummaries/{eventId}, rewritten alongside the event document
+        when(mockFirestore.collection(EventSummary.COLLECTION)).thenReturn(mockSummariesCollection);
+        when(mockSummariesCollection.document(anyString())).thenReturn(mockSummaryDocumentRef);
+
         // History subcollection under whichever doc EventService.recordHistory() uses
         when(mockEventDocumentRef.collection(anyString())).thenReturn(mockHistoryCollection);
-        when(mockHistoryCollection.document()).thenReturn(mockHistoryDocumentRef);
+        when(mockHistoryCollection.document(anyString())).thenReturn(mockHistoryDocumentRef);
     }
 
     // ---------------- tests ----------------
@@ -0,0 +1,86 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies the migration that strips the stored Base64 QR code from event documents.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class EventServiceQrMigrationTest {
+
+    @Mock private FirebaseFirestore mockFirestore;
+    @Mock private WriteBatch mockBatch;
+
+    private EventService eventService;
+
+    @Before
+    public void setUp() {
+        eventService = new EventService(mockFirestore);
+        when(mockFirestore.batch()).thenReturn(mockBatch);
+    }
+
+    @Test
+    public void stripLegacyQrCodes_OnlyUpdatesEventsThatStillStoreOne() {
+        DocumentReference legacyRef = mock(DocumentReference.class);
+        DocumentSnapshot legacy = snapshot(legacyRef, true);
+        DocumentSnapshot migrated = snapshot(null, false);
+        when(mockBatch.commit()).thenReturn(Tasks.forResult(null));
+
+        eventService.stripLegacyQrCodes(Arrays.asList(legacy, migrated));
+
+        verify(mockBatch).update(eq(legacyRef), eq(EventService.LEGACY_QR_CODE_FIELD), any());
+        verify(mockBatch, times(1)).commit();
+    }
+
+    @Test
+    public void stripLegacyQrCodes_SplitsWritesIntoBatchesOf500() {
+        List<DocumentSnapshot> events = new ArrayList<>();
+        for (int i = 0; i < EventService.MAX_BATCH_WRITES + 1; i++) {
+            events.add(snapshot(mock(DocumentReference.class), true));
+        }
+        when(mockBatch.commit()).thenReturn(Tasks.forResult(null));
+
+        eventService.stripLegacyQrCodes(events);
+
+        verify(mockFirestore, times(2)).batch();
+        verify(mockBatch, times(2)).commit();
+    }
+
+    @Test
+    public void stripLegacyQrCodes_NothingToStrip_CommitsNothing() {
+        eventService.stripLegacyQrCodes(Arrays.asList(snapshot(null, false)));
+
+        verify(mockBatch, never()).commit();
+    }
+
+    private DocumentSnapshot snapshot(DocumentReference ref, boolean hasQrCode) {
+        DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
+        when(snapshot.contains(EventService.LEGACY_QR_CODE_FIELD)).thenReturn(hasQrCode);
+        if (hasQrCode) {
+            when(snapshot.getReference()).thenReturn(ref);
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,561 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import com.example.code_zombom_app.Helpers.Users.NotificationPreferenceResolver;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEFAULTS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies join/leave/accept for events that store each entrant in Events/{id}/Entrants/{email}:
+ * only the entrant's document and a counter shard are written, never the event document, and
+ * concurrent joins never take more places than the waiting list has. Draws, cancellations and
+ * broadcasts reach the entrants listed from their documents.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class EventServiceShardedEntrantsTest {
+
+    @Mock private FirebaseFirestore mockFirestore;
+    @Mock private CollectionReference mockEventsCollection;
+    @Mock private CollectionReference mockProfilesCollection;
+    @Mock private CollectionReference mockHistoryCollection;
+    @Mock private CollectionReference mockEntrantsCollection;
+    @Mock private CollectionReference mockCountersCollection;
+    @Mock private CollectionReference mockResponsesCollection;
+    @Mock private CollectionReference mockSummariesCollection;
+    @Mock private DocumentReference mockEventDocumentRef;
+    @Mock private DocumentReference mockProfileDocumentRef;
+    @Mock private DocumentReference mockHistoryDocumentRef;
+    @Mock private DocumentReference mockEntrantDocumentRef;
+    @Mock private DocumentReference mockShardDocumentRef;
+    @Mock private DocumentReference mockResponseDocumentRef;
+    @Mock private DocumentReference mockSummaryDocumentRef;
+    @Mock private DocumentSnapshot mockEventSnapshot;
+    @Mock private DocumentSnapshot mockEntrantSnapshot;
+    @Mock private Transaction mockTransaction;
+
+    private EventService eventService;
+    private Event event;
+
+    private static final String EVENT_ID = "sharded-event";
+    private static final String EMAIL = "entrant@example.com";
+    private static final String[] WAITING =
+            {"a@example.com", "b@example.com", "c@example.com"};
+
+    @Before
+    public void setUp() throws Exception {
+        eventService = new EventService(mockFirestore);
+
+        event = new Event("Flash Sale");
+        event.setEventId(EVENT_ID);
+        event.setCapacity(10);
+        event.setShardedEntrants(true);
+
+        when(mockFirestore.collection("Events")).thenReturn(mockEventsCollection);
+        when(mockEventsCollection.document(EVENT_ID)).thenReturn(mockEventDocumentRef);
+        when(mockFirestore.collection("Profiles")).thenReturn(mockProfilesCollection);
+        when(mockProfilesCollection.document(anyString())).thenReturn(mockProfileDocumentRef);
+        when(mockEventDocumentRef.collection("History")).thenReturn(mockHistoryCollection);
+        when(mockHistoryCollection.document(anyString())).thenReturn(mockHistoryDocumentRef);
+        when(mockEventDocumentRef.collection(ShardedEntrants.COLLECTION)).thenReturn(mockEntrantsCollection);
+        when(mockEntrantsCollection.document(EMAIL)).thenReturn(mockEntrantDocumentRef);
+
+        when(mockTransaction.get(mockEventDocumentRef)).thenReturn(mockEventSnapshot);
+        when(mockEventSnapshot.toObject(Event.class)).thenReturn(event);
+        when(mockTransaction.get(mockEntrantDocumentRef)).thenReturn(mockEntrantSnapshot);
+
+        doAnswer(invocation -> {
+            @SuppressWarnings("unchecked")
+            Transaction.Function<Object> function = invocation.getArgument(0);
+            try {
+                return Tasks.forResult(function.apply(mockTransaction));
+            } catch (Exception e) {
+                return Tasks.forException(e);
+            }
+        }).when(mockFirestore).runTransaction(any(Transaction.Function.class));
+    }
+
+    private void mockCounterShard() {
+        when(mockEventDocumentRef.collection(ShardedCounter.COLLECTION)).thenReturn(mockCountersCollection);
+        when(mockCountersCollection.document(anyString())).thenReturn(mockShardDocumentRef);
+    }
+
+    private void mockSummary() {
+        when(mockFirestore.collection(EventSummary.COLLECTION)).thenReturn(mockSummariesCollection);
+        when(mockSummariesCollection.document(EVENT_ID)).thenReturn(mockSummaryDocumentRef);
+    }
+
+    private void mockEntrantStatus(MembershipIndex.Status status) {
+        when(mockEntrantSnapshot.exists()).thenReturn(status != null);
+        if (status != null) {
+            when(mockEntrantSnapshot.getString("status")).thenReturn(status.name());
+        }
+    }
+
+    /**
+     * The entrant and counter documents of one event, which commit a transaction only if none of
+     * the documents it read were written since, like Firestore, and retry it otherwise. The
+     * counter shards hold the number of waiting entrants counted in them. The first attempt of
+     * every transaction waits until all of them have read, so that they all race.
+     */
+    private final class OptimisticDocuments {
+        private final Map<String, DocumentReference> refs = new ConcurrentHashMap<>();
+        private final Map<DocumentReference, String> ids = new ConcurrentHashMap<>();
+        private final Map<DocumentReference, Long> versions = new HashMap<>();
+        private final Map<String, Map<String, Object>> entrants = new HashMap<>();
+        private final CyclicBarrier firstReads;
+        private final AtomicInteger conflicts = new AtomicInteger();
+
+        OptimisticDocuments(int transactions) {
+            firstReads = new CyclicBarrier(transactions);
+        }
+
+        DocumentReference ref(String kind, String id) {
+            return refs.computeIfAbsent(kind + "/" + id, key -> {
+                DocumentReference ref = mock(DocumentReference.class);
+                ids.put(ref, key);
+                return ref;
+            });
+        }
+
+        Task<Object> run(Transaction.Function<Object> function) throws Exception {
+            for (int attempt = 0; ; attempt++) {
+                Map<DocumentReference, Long> read = new HashMap<>();
+                Map<DocumentReference, Object> written = new HashMap<>();
+                Transaction transaction = mock(Transaction.class, invocation -> {
+                    String method = invocation.getMethod().getName();
+                    if (method.equals("get")) {
+                        return snapshot(invocation.getArgument(0), read);
+                    }
+                    if (method.equals("set") || method.equals("delete")) {
+                        DocumentReference ref = invocation.getArgument(0);
+                        written.put(ref, method.equals("set") ? invocation.getArgument(1) : null);
+                        return invocation.getMock();
+                    }
+                    return RETURNS_DEFAULTS.answer(invocation);
+                });
+                Object result;
+                try {
+                    result = function.apply(transaction);
+                } catch (Exception e) {
+                    return Tasks.forException(e);
+                } finally {
+                    if (attempt == 0) {
+                        firstReads.await(10, TimeUnit.SECONDS);
+                    }
+                }
+                if (commit(read, written)) {
+                    return Tasks.forResult(result);
+                }
+                conflicts.incrementAndGet();
+            }
+        }
+
+        private synchronized DocumentSnapshot snapshot(DocumentReference ref,
+                                                       Map<DocumentReference, Long> read) {
+            if (ref == mockEventDocumentRef) {
+                return mockEventSnapshot;
+            }
+            read.put(ref, versions.getOrDefault(ref, 0L));
+            String id = ids.get(ref);
+            Map<String, Object> data = new HashMap<>();
+            if (id.startsWith("entrant/") && entrants.containsKey(id)) {
+                data.putAll(entrants.get(id));
+            } else if (id.startsWith("counter/shard_")) {
+                long waiting = 0;
+                for (Map<String, Object> entrant : entrants.values()) {
+                    if (("counter/shard_" + entrant.get("shard")).equals(id)) {
+                        waiting++;
+                    }
+                }
+                data.put(MembershipIndex.Status.WAITING.name(), waiting);
+            }
+            return mock(DocumentSnapshot.class, invocation -> {
+                String method = invocation.getMethod().getName();
+                if (method.equals("exists")) {
+                    return !data.isEmpty();
+                }
+                if (method.equals("getString") || method.equals("getLong")) {
+                    return data.get((String) invocation.getArgument(0));
+                }
+                return RETURNS_DEFAULTS.answer(invocation);
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        private synchronized boolean commit(Map<DocumentReference, Long> read,
+                                            Map<DocumentReference, Object> written) {
+            for (Map.Entry<DocumentReference, Long> document : read.entrySet()) {
+                if (!versions.getOrDefault(document.getKey(), 0L).equals(document.getValue())) {
+                    return false;
+                }
+            }
+            for (Map.Entry<DocumentReference, Object> document : written.entrySet()) {
+                String id = ids.get(document.getKey());
+                if (id != null && id.startsWith("entrant/")) {
+                    entrants.put(id, (Map<String, Object>) document.getValue());
+                }
+                versions.merge(document.getKey(), 1L, Long::sum);
+            }
+            return true;
+        }
+
+        synchronized int waiting() {
+            return entrants.size();
+        }
+
+        int conflicts() {
+            return conflicts.get();
+        }
+    }
+
+    private <T> T awaitTask(Task<T> task) throws ExecutionException {
+        if (task.isSuccessful()) return task.getResult();
+        Exception e = task.getException();
+        if (e != null) throw new ExecutionException(e);
+        return null;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void addEntrant_WritesEntrantDocumentCounterAndSummaryCountOnly() throws Exception {
+        mockEntrantStatus(null);
+        mockCounterShard();
+        mockSummary();
+
+        awaitTask(eventService.addEntrantToWaitlist(EVENT_ID, EMAIL));
+
+        ArgumentCaptor<Map<String, Object>> entrant = ArgumentCaptor.forClass(Map.class);
+        verify(mockTransaction).set(eq(mockEntrantDocumentRef), entrant.capture());
+        assertEquals("WAITING", entrant.getValue().get("status"));
+
+        ArgumentCaptor<Map<String, Object>> shard = ArgumentCaptor.forClass(Map.class);
+        verify(mockTransaction).set(eq(mockShardDocumentRef), shard.capture(), any(SetOptions.class));
+        assertEquals(1, shard.getValue().size());
+
+        ArgumentCaptor<Map<String, Object>> summary = ArgumentCaptor.forClass(Map.class);
+        verify(mockTransaction).set(eq(mockSummaryDocumentRef), summary.capture(), any(SetOptions.class));
+        assertEquals(1, summary.getValue().size());
+        assertTrue(summary.getValue().get(EventSummary.WAITING_COUNT) instanceof FieldValue);
+
+        verify(mockTransaction, never()).set(eq(mockEventDocumentRef), any(Event.class));
+    }
+
+    @Test
+    public void addEntrant_AlreadyWaiting_Throws() throws Exception {
+        mockEntrantStatus(MembershipIndex.Status.WAITING);
+
+        try {
+            awaitTask(eventService.addEntrantToWaitlist(EVENT_ID, EMAIL));
+            fail("Expected exception");
+        } catch (ExecutionException ex) {
+            assertEquals("You have already joined this waiting list.", ex.getCause().getMessage());
+        }
+        verify(mockTransaction, never()).set(eq(mockEntrantDocumentRef), anyMap());
+    }
+
+    @Test
+    public void addEntrant_WaitingCounterAtLimit_Throws() throws Exception {
+        mockEntrantStatus(null);
+        mockCounterShard();
+        event.setWaitlistLimit(2);
+        DocumentSnapshot shard = mock(DocumentSnapshot.class);
+        when(shard.exists()).thenReturn(true);
+        when(shard.getLong(anyString())).thenReturn(0L);
+        when(shard.getLong(MembershipIndex.Status.WAITING.name())).thenReturn(1L);
+        when(mockTransaction.get(mockShardDocumentRef)).thenReturn(shard);
+
+        try {
+            awaitTask(eventService.addEntrantToWaitlist(EVENT_ID, EMAIL));
+            fail("Expected exception");
+        } catch (ExecutionException ex) {
+            assertEquals("This waiting list is full.", ex.getCause().getMessage());
+        }
+        verify(mockTransaction, never()).set(eq(mockEntrantDocumentRef), anyMap());
+    }
+
+    @Test
+    public void addEntrant_ConcurrentJoinsAtTheLimit_DoNotOvershoot() throws Exception {
+        int limit = 12;
+        int joins = 40;
+        event.setWaitlistLimit(limit);
+        OptimisticDocuments documents = new OptimisticDocuments(joins);
+        mockSummary();
+        when(mockEventDocumentRef.collection(ShardedCounter.COLLECTION)).thenReturn(mockCountersCollection);
+        when(mockCountersCollection.document(anyString()))
+                .thenAnswer(invocation -> documents.ref("counter", invocation.getArgument(0)));
+        when(mockEntrantsCollection.document(anyString()))
+                .thenAnswer(invocation -> documents.ref("entrant", invocation.getArgument(0)));
+        doAnswer(invocation -> documents.run(invocation.getArgument(0)))
+                .when(mockFirestore).runTransaction(any(Transaction.Function.class));
+
+        ExecutorService pool = Executors.newFixedThreadPool(joins);
+        List<Future<Task<Void>>> results = new ArrayList<>();
+        for (int i = 0; i < joins; i++) {
+            String email = "entrant" + i + "@example.com";
+            results.add(pool.submit(() -> eventService.addEntrantToWaitlist(EVENT_ID, email)));
+        }
+        int joined = 0;
+        for (Future<Task<Void>> result : results) {
+            Task<Void> task = result.get(10, TimeUnit.SECONDS);
+            if (task.isSuccessful()) {
+                joined++;
+            } else {
+                assertEquals("This waiting list is full.", task.getException().getMessage());
+            }
+        }
+        pool.shutdown();
+
+        assertEquals(limit, joined);
+        assertEquals(limit, documents.waiting());
+        // Every join read before any committed, so some of them had to be retried
+        assertTrue(documents.conflicts() > 0);
+    }
+
+    @Test
+    public void removeEntrant_DeletesEntrantDocument() throws Exception {
+        mockEntrantStatus(MembershipIndex.Status.WAITING);
+        mockCounterShard();
+        mockSummary();
+
+        awaitTask(eventService.removeEntrantFromWaitlist(EVENT_ID, EMAIL));
+
+        verify(mockTransaction).delete(mockEntrantDocumentRef);
+        verify(mockTransaction).set(eq(mockSummaryDocumentRef), anyMap(), any(SetOptions.class));
+        verify(mockTransaction, never()).set(eq(mockEventDocumentRef), any(Event.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void acceptInvitation_MovesChosenToPending() throws Exception {
+        mockEntrantStatus(MembershipIndex.Status.CHOSEN);
+        mockCounterShard();
+        when(mockEventDocumentRef.collection("Responses")).thenReturn(mockResponsesCollection);
+        when(mockResponsesCollection.document(EMAIL)).thenReturn(mockResponseDocumentRef);
+
+        awaitTask(eventService.acceptInvitation(EVENT_ID, EMAIL));
+
+        ArgumentCaptor<Map<String, Object>> entrant = ArgumentCaptor.forClass(Map.class);
+        verify(mockTransaction).set(eq(mockEntrantDocumentRef), entrant.capture());
+        assertEquals("PENDING", entrant.getValue().get("status"));
+        verify(mockTransaction, never()).set(eq(mockEventDocumentRef), any(Event.class));
+    }
+
+    @Test
+    public void acceptInvitation_NotChosen_Throws() throws Exception {
+        mockEntrantStatus(MembershipIndex.Status.WAITING);
+
+        try {
+            awaitTask(eventService.acceptInvitation(EVENT_ID, EMAIL));
+            fail("Expected exception");
+        } catch (ExecutionException ex) {
+            assertEquals("You were not selected for this event.", ex.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Make the query of the entrants with some statuses return the given emails.
+     *
+     * @return The query, to count how often it ran
+     */
+    private Query mockEntrantQuery(List<String> statuses, String... emails) {
+        Query query = mock(Query.class);
+        QuerySnapshot snapshot = mock(QuerySnapshot.class);
+        List<DocumentSnapshot> documents = new ArrayList<>();
+        for (String email : emails) {
+            DocumentSnapshot document = mock(DocumentSnapshot.class);
+            when(document.getId()).thenReturn(email);
+            documents.add(document);
+        }
+        when(snapshot.getDocuments()).thenReturn(documents);
+        when(mockEntrantsCollection.whereIn("status", statuses)).thenReturn(query);
+        when(query.get()).thenReturn(Tasks.forResult(snapshot));
+        return query;
+    }
+
+    /**
+     * Give an entrant a document with a status, counted in shard 0.
+     *
+     * @return The entrant's document
+     */
+    private DocumentReference mockEntrant(String email, MembershipIndex.Status status) throws Exception {
+        DocumentReference ref = mock(DocumentReference.class);
+        DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
+        when(snapshot.exists()).thenReturn(true);
+        when(snapshot.getString("status")).thenReturn(status.name());
+        when(snapshot.getLong("shard")).thenReturn(0L);
+        when(mockEntrantsCollection.document(email)).thenReturn(ref);
+        when(mockTransaction.get(ref)).thenReturn(snapshot);
+        return ref;
+    }
+
+    /**
+     * Stub the draw record, its recipients and the batches of the fan-out that follows a draw.
+     */
+    private void mockDrawRecords() {
+        CollectionReference draws = mock(CollectionReference.class);
+        DocumentReference drawRef = mock(DocumentReference.class);
+        when(mockEventDocumentRef.collection(LotteryDraw.COLLECTION)).thenReturn(draws);
+        when(draws.document()).thenReturn(drawRef);
+        when(draws.document("draw-1")).thenReturn(drawRef);
+        when(drawRef.getId()).thenReturn("draw-1");
+        CollectionReference chunks = mock(CollectionReference.class);
+        when(mockEventDocumentRef.collection(RecipientChunks.COLLECTION)).thenReturn(chunks);
+        when(chunks.document(anyString())).thenReturn(mock(DocumentReference.class));
+        CollectionReference entrantHistory = mock(CollectionReference.class);
+        when(mockProfileDocumentRef.collection(EntrantHistory.COLLECTION)).thenReturn(entrantHistory);
+        when(entrantHistory.document(EVENT_ID)).thenReturn(mock(DocumentReference.class));
+        WriteBatch batch = mock(WriteBatch.class);
+        when(mockFirestore.batch()).thenReturn(batch);
+        when(batch.commit()).thenReturn(Tasks.forResult(null));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void runLotteryDraw_MovesWinnersInTheirEntrantDocuments() throws Exception {
+        NotificationPreferenceResolver preferences = mock(NotificationPreferenceResolver.class);
+        when(preferences.resolve(anyCollection())).thenReturn(Tasks.forResult(new HashMap<>()));
+        eventService = new EventService(mockFirestore, preferences);
+        event.setCapacity(2);
+        List<DocumentReference> entrants = new ArrayList<>();
+        for (String email : WAITING) {
+            entrants.add(mockEntrant(email, MembershipIndex.Status.WAITING));
+        }
+        mockEntrantQuery(Collections.singletonList("WAITING"), WAITING);
+        mockCounterShard();
+        mockSummary();
+        mockDrawRecords();
+
+        awaitTask(eventService.runLotteryDraw(EVENT_ID));
+
+        ArgumentCaptor<Map<String, Object>> winners = ArgumentCaptor.forClass(Map.class);
+        verify(mockTransaction, times(2)).set(argThat(entrants::contains), winners.capture());
+        for (Map<String, Object> winner : winners.getAllValues()) {
+            assertEquals("CHOSEN", winner.get("status"));
+        }
+        // Every winner is counted in shard 0, which is written once for all of them
+        ArgumentCaptor<Map<String, Object>> shard = ArgumentCaptor.forClass(Map.class);
+        verify(mockTransaction).set(eq(mockShardDocumentRef), shard.capture(), eq(SetOptions.merge()));
+        assertEquals(2, shard.getValue().size());
+        verify(mockTransaction).set(eq(mockSummaryDocumentRef), any(EventSummary.class),
+                eq(EventSummary.writeOptions(event)));
+        verify(mockTransaction).set(eq(mockSummaryDocumentRef), anyMap(), eq(SetOptions.merge()));
+        verify(mockTransaction).set(mockEventDocumentRef, event);
+        assertTrue(event.isDrawComplete());
+    }
+
+    @Test
+    public void runLotteryDraw_WinnerNoLongerWaiting_ListsTheCandidatesAgain() throws Exception {
+        DocumentReference entrant = mockEntrant(EMAIL, MembershipIndex.Status.CHOSEN);
+        Query query = mockEntrantQuery(Collections.singletonList("WAITING"), EMAIL);
+        mockCounterShard();
+
+        try {
+            awaitTask(eventService.runLotteryDraw(EVENT_ID));
+            fail("Expected exception");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+        verify(query, times(EventService.SHARDED_DRAW_ATTEMPTS)).get();
+        verify(mockTransaction, never()).set(eq(entrant), anyMap());
+    }
+
+    @Test
+    public void shardedDrawLimit_KeepsTheDrawWithinTheWriteLimit() {
+        int candidates = 100_000;
+        int limit = EventService.shardedDrawLimit(candidates);
+
+        int writes = limit + ShardedCounter.SHARDS + 4 + RecipientChunks.count(candidates);
+        assertEquals(EventService.MAX_BATCH_WRITES, writes);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void cancelUnregisteredEntrants_CancelsOnlyEntrantsStillChosen() throws Exception {
+        DocumentReference chosen = mockEntrant("chosen@example.com", MembershipIndex.Status.CHOSEN);
+        DocumentReference accepted = mockEntrant("accepted@example.com", MembershipIndex.Status.PENDING);
+        mockEntrantQuery(Collections.singletonList("CHOSEN"), "accepted@example.com", "chosen@example.com");
+        mockCounterShard();
+
+        awaitTask(eventService.cancelUnregisteredEntrants(EVENT_ID));
+
+        ArgumentCaptor<Map<String, Object>> cancelled = ArgumentCaptor.forClass(Map.class);
+        verify(mockTransaction).set(eq(chosen), cancelled.capture());
+        assertEquals("CANCELLED", cancelled.getValue().get("status"));
+        verify(mockTransaction, never()).set(eq(accepted), anyMap());
+        verify(mockTransaction, never()).set(eq(mockEventDocumentRef), any(Event.class));
+    }
+
+    @Test
+    public void notifySelectedEntrants_BroadcastsToChosenAndAcceptedEntrantDocuments() throws Exception {
+        NotificationPreferenceResolver preferences = mock(NotificationPreferenceResolver.class);
+        // Delivery is left pending; only the queued broadcast is checked
+        when(preferences.resolve(anyCollection())).thenReturn(new TaskCompletionSource<Map<String, Boolean>>().getTask());
+        eventService = new EventService(mockFirestore, preferences);
+        mockEntrantQuery(Arrays.asList("CHOSEN", "PENDING"), "accepted@example.com", "chosen@example.com");
+        CollectionReference broadcasts = mock(CollectionReference.class);
+        DocumentReference broadcastRef = mock(DocumentReference.class);
+        when(mockEventDocumentRef.collection(Broadcast.COLLECTION)).thenReturn(broadcasts);
+        when(broadcasts.document()).thenReturn(broadcastRef);
+        when(broadcasts.document("broadcast-1")).thenReturn(broadcastRef);
+        when(broadcastRef.getId()).thenReturn("broadcast-1");
+        when(broadcastRef.getPath()).thenReturn("Events/" + EVENT_ID + "/Broadcasts/broadcast-1");
+        CollectionReference chunks = mock(CollectionReference.class);
+        when(mockEventDocumentRef.collection(RecipientChunks.COLLECTION)).thenReturn(chunks);
+        when(chunks.document(anyString())).thenReturn(mock(DocumentReference.class));
+
+        awaitTask(eventService.notifySelectedEntrants(EVENT_ID, "See you there"));
+
+        ArgumentCaptor<Broadcast> broadcast = ArgumentCaptor.forClass(Broadcast.class);
+        verify(mockTransaction).set(eq(broadcastRef), broadcast.capture());
+        assertEquals(2, broadcast.getValue().getRecipientCount());
+    }
+}
@@ -28,6 +28,8 @@ import static org.mockito.Mockito.*;
 public class EventServiceTest {
 
     @Mock private FirebaseFirestore mockFirestore;
+    @Mock private com.google.firebase.firestore.CollectionReference mockSummariesCollection;
+    @Mock private DocumentReference mockSummaryDocumentRef;
     @Mock private com.google.firebase.firestore.CollectionReference mockEventsCollection;
     @Mock private com.google.firebase.firestore.CollectionReference mockProfilesCollection;
     @Mock private DocumentReference mockEventDocumentRef;
@@ -103,9 +105,6 @@ public class EventServiceTest {
     public void setUp() throws FirebaseFirestoreException {
         MockitoAnnotations.initMocks(this);
 
-        // Disable QR generation so Event() does not touch Bitmap APIs in JVM tests
-        Event.setQrCodeGenerationEnabled(false);
-
         eventService = new EventService(mockFirestore);
 
         // Events collection + event document
@@ -116,10 +115,14 @@ public class EventServiceTest {
         when(mockFirestore.collection("Profiles")).thenReturn(mockProfilesCollection);
         when(mockProfilesCollection.document(anyString())).thenReturn(mockProfileDocumentRef);
 
+        // EventSummaries/{eventId}, rewritten alongside the event document
+        when(mockFirestore.collection(EventSummary.COLLECTION)).thenReturn(mockSummariesCollection);
+        when(mockSummariesCollection.document(anyString())).thenReturn(mockSummaryDocumentRef);
+
         // History subcollection (used by EventService.recordHistory)
         // Stub on both event and profile docs to be robust to implementation details
         when(mockEventDocumentRef.collection(anyString())).thenReturn(mockHistoryCollection);
-        when(mockHistoryCollection.document()).thenReturn(mockHistoryDocumentRef);
+        when(mockHistoryCollection.document(anyString())).thenReturn(mockHistoryDocumentRef);
     }
 
     // ---------- tests ----------
@@ -0,0 +1,215 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies that the EventSummaries projection is built from events and kept in step with the
+ * event documents EventService writes.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class EventSummaryTest {
+
+    @Mock private FirebaseFirestore mockFirestore;
+    @Mock private CollectionReference mockEventsCollection;
+    @Mock private CollectionReference mockSummariesCollection;
+    @Mock private CollectionReference mockProfilesCollection;
+    @Mock private CollectionReference mockHistoryCollection;
+    @Mock private DocumentReference mockEventDocumentRef;
+    @Mock private DocumentReference mockSummaryDocumentRef;
+    @Mock private DocumentReference mockProfileDocumentRef;
+    @Mock private DocumentReference mockHistoryDocumentRef;
+    @Mock private DocumentSnapshot mockEventSnapshot;
+    @Mock private Transaction mockTransaction;
+
+    private EventService eventService;
+
+    private static final String EVENT_ID = "summary-event";
+
+    @Before
+    public void setUp() {
+        eventService = new EventService(mockFirestore);
+    }
+
+    @Test
+    public void of_CopiesListFieldsAndWaitingCount() {
+        Event event = new Event("Pottery Night");
+        event.setEventId(EVENT_ID);
+        event.setCapacity(20);
+        event.setEventStartDate(new Date(1_000));
+        event.joinWaitingList("a@example.com");
+        event.joinWaitingList("b@example.com");
+
+        EventSummary summary = EventSummary.of(event);
+
+        assertEquals(EVENT_ID, summary.getEventId());
+        assertEquals("Pottery Night", summary.getName());
+        assertEquals(20, summary.getCapacity());
+        assertEquals(new Date(1_000), summary.getEventStartDate());
+        assertEquals(2, summary.getWaitingCount());
+    }
+
+    @Test
+    public void writeOptions_ListEveryFieldButTheShardedWaitingCount() throws Exception {
+        Event sharded = new Event("Flash Sale");
+        sharded.setShardedEntrants(true);
+        List<String> fields = new ArrayList<>();
+        for (Field field : EventSummary.class.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers())) {
+                fields.add(field.getName());
+            }
+        }
+        fields.remove(EventSummary.WAITING_COUNT);
+
+        assertEquals(SetOptions.mergeFields(fields.toArray(new String[0])),
+                EventSummary.writeOptions(sharded));
+        assertEquals(SetOptions.merge(), EventSummary.writeOptions(new Event("Pottery Night")));
+    }
+
+    @Test
+    public void addEntrantToWaitlist_RewritesSummaryWithEvent() throws Exception {
+        Event event = new Event("Pottery Night");
+        event.setEventId(EVENT_ID);
+        event.setCapacity(20);
+        when(mockFirestore.collection("Events")).thenReturn(mockEventsCollection);
+        when(mockEventsCollection.document(EVENT_ID)).thenReturn(mockEventDocumentRef);
+        when(mockFirestore.collection(EventSummary.COLLECTION)).thenReturn(mockSummariesCollection);
+        when(mockSummariesCollection.document(EVENT_ID)).thenReturn(mockSummaryDocumentRef);
+        when(mockFirestore.collection("Profiles")).thenReturn(mockProfilesCollection);
+        when(mockProfilesCollection.document(anyString())).thenReturn(mockProfileDocumentRef);
+        when(mockEventDocumentRef.collection("History")).thenReturn(mockHistoryCollection);
+        when(mockHistoryCollection.document(anyString())).thenReturn(mockHistoryDocumentRef);
+        when(mockTransaction.get(mockEventDocumentRef)).thenReturn(mockEventSnapshot);
+        when(mockEventSnapshot.toObject(Event.class)).thenReturn(event);
+        doAnswer(invocation -> {
+            @SuppressWarnings("unchecked")
+            Transaction.Function<Void> function = invocation.getArgument(0);
+            function.apply(mockTransaction);
+            return Tasks.forResult(null);
+        }).when(mockFirestore).runTransaction(any(Transaction.Function.class));
+
+        eventService.addEntrantToWaitlist(EVENT_ID, "entrant@example.com");
+
+        ArgumentCaptor<EventSummary> summary = ArgumentCaptor.forClass(EventSummary.class);
+        verify(mockTransaction).set(eq(mockSummaryDocumentRef), summary.capture());
+        assertEquals(1, summary.getValue().getWaitingCount());
+        verify(mockTransaction).set(mockEventDocumentRef, event);
+    }
+
+    @Test
+    public void backfillEventSummaries_MergesOnlyMissingSummaries() {
+        WriteBatch mockBatch = mock(WriteBatch.class);
+        when(mockFirestore.batch()).thenReturn(mockBatch);
+        when(mockBatch.commit()).thenReturn(Tasks.forResult(null));
+        when(mockFirestore.collection(EventSummary.COLLECTION)).thenReturn(mockSummariesCollection);
+        when(mockSummariesCollection.document("second")).thenReturn(mockSummaryDocumentRef);
+        // The first event already has a summary, e.g. one marked as being deleted
+        QuerySnapshot summaries = mock(QuerySnapshot.class);
+        DocumentSnapshot existing = mock(DocumentSnapshot.class);
+        when(existing.getId()).thenReturn("first");
+        when(summaries.getDocuments()).thenReturn(Collections.singletonList(existing));
+        when(mockSummariesCollection.get()).thenReturn(Tasks.forResult(summaries));
+        DocumentSnapshot first = mock(DocumentSnapshot.class);
+        when(first.getId()).thenReturn("first");
+
+        assertTrue(eventService.backfillEventSummaries(Arrays.asList(
+                first, eventSnapshot("second"))).isSuccessful());
+
+        verify(mockBatch, times(1)).set(eq(mockSummaryDocumentRef), any(EventSummary.class),
+                any(SetOptions.class));
+        verify(first, never()).toObject(Event.class);
+        verify(mockBatch, times(1)).commit();
+    }
+
+    @Test
+    public void migrateEventDocuments_AlreadyCompleted_ReadsNoEvents() {
+        CollectionReference migrations = mock(CollectionReference.class);
+        DocumentReference marker = mock(DocumentReference.class);
+        DocumentSnapshot completed = mock(DocumentSnapshot.class);
+        when(mockFirestore.collection(EventService.MIGRATIONS)).thenReturn(migrations);
+        when(migrations.document(EventService.EVENT_DOCUMENTS_MIGRATION)).thenReturn(marker);
+        when(marker.get()).thenReturn(Tasks.forResult(completed));
+        when(completed.exists()).thenReturn(true);
+
+        assertTrue(eventService.migrateEventDocuments().isSuccessful());
+
+        verify(mockFirestore, never()).collection("Events");
+        verify(marker, never()).set(anyMap());
+    }
+
+    @Test
+    public void migrateEventDocuments_FirstRun_RecordsCompletion() {
+        CollectionReference migrations = mock(CollectionReference.class);
+        DocumentReference marker = mock(DocumentReference.class);
+        DocumentSnapshot notYet = mock(DocumentSnapshot.class);
+        QuerySnapshot noDocuments = mock(QuerySnapshot.class);
+        when(mockFirestore.collection(EventService.MIGRATIONS)).thenReturn(migrations);
+        when(migrations.document(EventService.EVENT_DOCUMENTS_MIGRATION)).thenReturn(marker);
+        when(marker.get()).thenReturn(Tasks.forResult(notYet));
+        when(mockFirestore.collection("Events")).thenReturn(mockEventsCollection);
+        when(mockEventsCollection.get()).thenReturn(Tasks.forResult(noDocuments));
+        when(noDocuments.iterator()).thenAnswer(invocation -> Collections.emptyIterator());
+        when(mockFirestore.collection(EventSummary.COLLECTION)).thenReturn(mockSummariesCollection);
+        when(mockSummariesCollection.get()).thenReturn(Tasks.forResult(noDocuments));
+        when(marker.set(anyMap())).thenReturn(Tasks.forResult(null));
+
+        assertTrue(eventService.migrateEventDocuments().isSuccessful());
+
+        verify(marker).set(anyMap());
+    }
+
+    @Test
+    public void statusOf_MapsHistoryToCurrentList() {
+        assertEquals(MembershipIndex.Status.WAITING, EventService.statusOf("WAITLISTED"));
+        assertEquals(MembershipIndex.Status.WAITING, EventService.statusOf("NOT_SELECTED"));
+        assertEquals(MembershipIndex.Status.CHOSEN, EventService.statusOf("SELECTED"));
+        assertEquals(MembershipIndex.Status.PENDING, EventService.statusOf("CONFIRMED"));
+        assertEquals(MembershipIndex.Status.CANCELLED, EventService.statusOf("DECLINED"));
+        assertNull(EventService.statusOf("LEAVE"));
+        assertNull(EventService.statusOf(null));
+    }
+
+    private DocumentSnapshot eventSnapshot(String id) {
+        Event event = new Event("Event " + id);
+        DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
+        when(snapshot.toObject(Event.class)).thenReturn(event);
+        when(snapshot.getId()).thenReturn(id);
+        return snapshot;
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies that history changes are coalesced per entrant, written in batches on size or after a
+ * delay, and written again when a batch fails unless a newer change replaced them.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class HistoryRecorderTest {
+
+    @Mock private FirebaseFirestore mockFirestore;
+    @Mock private WriteBatch mockBatch;
+    @Mock private DocumentReference mockHistoryRef;
+    @Mock private CollectionReference mockEntrantHistoryCollection;
+    @Mock private DocumentReference mockEntrantHistoryRef;
+    @Mock private DocumentReference mockProfileRef;
+    @Mock private ScheduledExecutorService mockScheduler;
+
+    private HistoryRecorder recorder;
+
+    private static final String EVENT_ID = "recorded-event";
+
+    @Before
+    public void setUp() {
+        recorder = new HistoryRecorder(mockFirestore, mockScheduler);
+    }
+
+    private void mockBatch(Task<Void> commit) {
+        when(mockFirestore.batch()).thenReturn(mockBatch);
+        when(mockBatch.commit()).thenReturn(commit);
+        when(mockProfileRef.collection(EntrantHistory.COLLECTION)).thenReturn(mockEntrantHistoryCollection);
+        when(mockEntrantHistoryCollection.document(EVENT_ID)).thenReturn(mockEntrantHistoryRef);
+    }
+
+    private HistoryRecorder.Change change(String email, String status) {
+        Map<String, Object> history = new HashMap<>();
+        history.put("status", status);
+        return new HistoryRecorder.Change(EVENT_ID, email, mockHistoryRef, history,
+                mockProfileRef, new HashMap<>());
+    }
+
+    @Test
+    public void record_CoalescesChangesOfAnEntrantIntoTheLatest() {
+        mockBatch(Tasks.forResult(null));
+        HistoryRecorder.Change selected = change("a@example.com", "SELECTED");
+
+        recorder.record(Arrays.asList(change("a@example.com", "WAITLISTED"),
+                change("b@example.com", "WAITLISTED")));
+        recorder.record(Collections.singletonList(selected));
+
+        assertEquals(2, recorder.pendingCount());
+        // One delayed flush for the whole buffer
+        verify(mockScheduler, times(1)).schedule(any(Runnable.class), eq(HistoryRecorder.FLUSH_DELAY_MS),
+                eq(TimeUnit.MILLISECONDS));
+
+        assertTrue(recorder.flush().isSuccessful());
+        verify(mockFirestore, times(1)).batch();
+        verify(mockBatch, times(2)).set(eq(mockHistoryRef), anyMap());
+        verify(mockBatch).set(mockHistoryRef, selected.history);
+        verify(mockBatch).set(mockEntrantHistoryRef, selected.history);
+        verify(mockBatch, times(2)).set(eq(mockProfileRef), anyMap(), any(SetOptions.class));
+        assertEquals(0, recorder.pendingCount());
+    }
+
+    @Test
+    public void record_FlushesOnceTheBufferIsFull() {
+        mockBatch(Tasks.forResult(null));
+        List<HistoryRecorder.Change> changes = new ArrayList<>();
+        for (int i = 0; i < HistoryRecorder.FLUSH_SIZE; i++) {
+            changes.add(change("entrant" + i + "@example.com", "WAITLISTED"));
+        }
+
+        recorder.record(changes);
+
+        verify(mockBatch, times(HistoryRecorder.FLUSH_SIZE)).set(eq(mockHistoryRef), anyMap());
+        verify(mockBatch, times(1)).commit();
+        verify(mockScheduler, never()).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+        assertEquals(0, recorder.pendingCount());
+    }
+
+    @Test
+    public void flush_FailedBatchIsBufferedAgainUntilAttemptsRunOut() {
+        mockBatch(Tasks.forException(new IllegalStateException("offline")));
+        recorder.record(Collections.singletonList(change("a@example.com", "WAITLISTED")));
+
+        for (int attempt = 1; attempt < HistoryRecorder.MAX_ATTEMPTS; attempt++) {
+            assertFalse(recorder.flush().isSuccessful());
+            assertEquals(1, recorder.pendingCount());
+        }
+        assertFalse(recorder.flush().isSuccessful());
+
+        assertEquals(0, recorder.pendingCount());
+        verify(mockBatch, times(HistoryRecorder.MAX_ATTEMPTS)).commit();
+    }
+}
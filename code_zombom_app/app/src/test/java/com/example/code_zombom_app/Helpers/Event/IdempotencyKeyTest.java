@@ -0,0 +1,196 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies that the documents written by a request get ids derived from its idempotency key, that
+ * a retried transaction reuses them, that the transaction applying a request marks it as applied,
+ * and that a replayed request writes nothing.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class IdempotencyKeyTest {
+
+    @Mock private FirebaseFirestore mockFirestore;
+    @Mock private CollectionReference mockEventsCollection;
+    @Mock private CollectionReference mockSummariesCollection;
+    @Mock private CollectionReference mockProfilesCollection;
+    @Mock private CollectionReference mockHistoryCollection;
+    @Mock private DocumentReference mockEventDocumentRef;
+    @Mock private DocumentReference mockSummaryDocumentRef;
+    @Mock private DocumentReference mockProfileDocumentRef;
+    @Mock private CollectionReference mockEntrantHistoryCollection;
+    @Mock private DocumentReference mockEntrantHistoryRef;
+    @Mock private DocumentReference mockHistoryDocumentRef;
+    @Mock private CollectionReference mockRequestsCollection;
+    @Mock private DocumentReference mockRequestDocumentRef;
+    @Mock private DocumentSnapshot mockRequestSnapshot;
+    @Mock private DocumentSnapshot mockEventSnapshot;
+    @Mock private Transaction mockTransaction;
+    @Mock private WriteBatch mockBatch;
+
+    private EventService eventService;
+    private Event event;
+
+    private static final String EVENT_ID = "keyed-event";
+    private static final String EMAIL = "entrant@example.com";
+
+    @Before
+    public void setUp() throws Exception {
+        eventService = new EventService(mockFirestore);
+
+        event = new Event("Keyed");
+        event.setEventId(EVENT_ID);
+        event.setCapacity(10);
+
+        when(mockFirestore.collection("Events")).thenReturn(mockEventsCollection);
+        when(mockEventsCollection.document(EVENT_ID)).thenReturn(mockEventDocumentRef);
+        when(mockEventDocumentRef.collection("History")).thenReturn(mockHistoryCollection);
+        when(mockHistoryCollection.document(anyString())).thenReturn(mockHistoryDocumentRef);
+        when(mockEventDocumentRef.collection(EventService.REQUESTS)).thenReturn(mockRequestsCollection);
+        when(mockRequestsCollection.document(anyString())).thenReturn(mockRequestDocumentRef);
+        when(mockTransaction.get(mockEventDocumentRef)).thenReturn(mockEventSnapshot);
+        when(mockEventSnapshot.toObject(Event.class)).thenReturn(event);
+    }
+
+    private void mockWrites() {
+        when(mockFirestore.collection(EventSummary.COLLECTION)).thenReturn(mockSummariesCollection);
+        when(mockSummariesCollection.document(EVENT_ID)).thenReturn(mockSummaryDocumentRef);
+        when(mockFirestore.collection("Profiles")).thenReturn(mockProfilesCollection);
+        when(mockProfilesCollection.document(anyString())).thenReturn(mockProfileDocumentRef);
+    }
+
+    /**
+     * Runs the transaction function as many times as given, like Firestore does when the
+     * documents it read change before it commits.
+     */
+    private void mockTransaction(int runs) {
+        doAnswer(invocation -> {
+            @SuppressWarnings("unchecked")
+            Transaction.Function<Object> function = invocation.getArgument(0);
+            try {
+                Object result = null;
+                for (int run = 0; run < runs; run++) {
+                    result = function.apply(mockTransaction);
+                }
+                return Tasks.forResult(result);
+            } catch (Exception e) {
+                return Tasks.forException(e);
+            }
+        }).when(mockFirestore).runTransaction(any(Transaction.Function.class));
+    }
+
+    @Test
+    public void documentId_IsStableAndSeparatesParts() {
+        String id = IdempotencyKey.documentId("request", EMAIL);
+
+        assertEquals(id, IdempotencyKey.documentId("request", EMAIL));
+        assertEquals(40, id.length());
+        assertTrue(id.matches("[0-9a-f]+"));
+        assertNotEquals(id, IdempotencyKey.documentId("other-request", EMAIL));
+        assertNotEquals(IdempotencyKey.documentId("r", "ab", "c"), IdempotencyKey.documentId("r", "a", "bc"));
+        assertNotEquals(IdempotencyKey.newKey(), IdempotencyKey.newKey());
+    }
+
+    @Test
+    public void retriedTransaction_WritesHistoryUnderTheSameId() {
+        mockWrites();
+        mockTransaction(2);
+        // Every attempt reads the event as it is stored, without the writes of the attempt before
+        when(mockEventSnapshot.toObject(Event.class)).thenAnswer(invocation -> {
+            Event stored = new Event("Keyed");
+            stored.setEventId(EVENT_ID);
+            stored.setCapacity(10);
+            return stored;
+        });
+
+        assertTrue(eventService.addEntrantToWaitlist(EVENT_ID, EMAIL).isSuccessful());
+
+        ArgumentCaptor<String> ids = ArgumentCaptor.forClass(String.class);
+        verify(mockHistoryCollection, times(2)).document(ids.capture());
+        assertEquals(ids.getAllValues().get(0), ids.getAllValues().get(1));
+    }
+
+    @Test
+    public void keyedRequest_MarksItselfAndWritesHistoryUnderDerivedId() throws Exception {
+        mockWrites();
+        mockTransaction(1);
+        when(mockTransaction.get(mockRequestDocumentRef)).thenReturn(mockRequestSnapshot);
+        when(mockRequestSnapshot.exists()).thenReturn(false);
+
+        assertTrue(eventService.addEntrantToWaitlist(EVENT_ID, EMAIL, "join-1").isSuccessful());
+
+        String expected = IdempotencyKey.documentId("join-1", EMAIL);
+        // Read and written under the same id, in the transaction that applies the request
+        verify(mockRequestsCollection, times(2)).document(expected);
+        verify(mockTransaction).set(eq(mockRequestDocumentRef), anyMap());
+        verify(mockHistoryCollection).document(expected);
+        verify(mockTransaction, never()).set(eq(mockHistoryDocumentRef), anyMap());
+
+        when(mockFirestore.batch()).thenReturn(mockBatch);
+        when(mockBatch.commit()).thenReturn(Tasks.forResult(null));
+        when(mockProfileDocumentRef.collection(EntrantHistory.COLLECTION)).thenReturn(mockEntrantHistoryCollection);
+        when(mockEntrantHistoryCollection.document(EVENT_ID)).thenReturn(mockEntrantHistoryRef);
+        assertTrue(eventService.flushHistory().isSuccessful());
+        verify(mockBatch).set(eq(mockHistoryDocumentRef), anyMap());
+    }
+
+    @Test
+    public void replayedRequest_BeforeHistoryIsWritten_WritesNothing() throws Exception {
+        mockWrites();
+        mockTransaction(1);
+        when(mockTransaction.get(mockRequestDocumentRef)).thenReturn(mockRequestSnapshot);
+        // The first run commits the marker, which the replay then reads
+        when(mockRequestSnapshot.exists()).thenReturn(false, true);
+        assertTrue(eventService.addEntrantToWaitlist(EVENT_ID, EMAIL, "join-1").isSuccessful());
+
+        // The history entry is still buffered, so only the marker can recognise the replay
+        assertTrue(eventService.addEntrantToWaitlist(EVENT_ID, EMAIL, "join-1").isSuccessful());
+
+        verify(mockTransaction, times(2)).get(mockRequestDocumentRef);
+        verify(mockTransaction, times(1)).set(eq(mockEventDocumentRef), any());
+        verify(mockTransaction, times(1)).set(eq(mockRequestDocumentRef), anyMap());
+        verify(mockHistoryCollection, never()).get();
+    }
+
+    @Test
+    public void replayedRequest_WritesNothing() throws Exception {
+        event.addChosenEntrant(EMAIL);
+        event.addPendingEntrant(EMAIL);
+        mockTransaction(1);
+        when(mockTransaction.get(mockRequestDocumentRef)).thenReturn(mockRequestSnapshot);
+        when(mockRequestSnapshot.exists()).thenReturn(true);
+
+        // Accepting again would fail; a replay of the request that accepted succeeds quietly
+        assertTrue(eventService.acceptInvitation(EVENT_ID, EMAIL, "accept-1").isSuccessful());
+
+        verify(mockTransaction, never()).set(any(DocumentReference.class), any());
+        verify(mockTransaction, never()).set(any(DocumentReference.class), any(), any(SetOptions.class));
+    }
+}
@@ -0,0 +1,1389 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.Exclude;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.PropertyName;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
+
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * A Firestore database kept in memory, so that {@link EventService} and its helpers run
+ * unchanged on a plain JVM.
+ * <p>
+ * {@link #getInstance()} hands out a {@link FirebaseFirestore} whose references, queries,
+ * batches and transactions work on the documents kept here, and whose tasks are already complete
+ * when returned. Beans are mapped to and from documents by their getters, setters and public
+ * fields, honouring {@link Exclude} and {@link PropertyName}, as the SDK does. Field values such
+ * as increments and array unions are applied when a write is committed.
+ * <p>
+ * Transactions are optimistic, like Firestore's: the version of every document read is kept, and
+ * the commit fails if any of them changed since. The transaction then runs again, up to
+ * {@link #MAX_ATTEMPTS} attempts, and fails with {@link FirebaseFirestoreException.Code#ABORTED}.
+ * As in Firestore, a transaction may not read a document once it has written one.
+ * <p>
+ * Every document and query read and every commit may be delayed by a round trip, and is counted
+ * for the current tag of the {@link Connection} it was made through.
+ *
+ * @version 1.0.0
+ */
+final class InMemoryFirestore {
+    // Attempts of a transaction before it fails with ABORTED, as many as the SDK makes
+    static final int MAX_ATTEMPTS = 5;
+
+    // Tag of the calls made while a connection was not tagged, e.g. delayed history flushes
+    static final String UNTAGGED = "(background)";
+
+    private static final String AUTO_ID_CHARS =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+    private static final int AUTO_ID_LENGTH = 20;
+    // Field path of a document's id in queries
+    private static final String DOCUMENT_ID = "__name__";
+    // Written in place of a field that a write deletes
+    private static final Object DELETED = new Object();
+    private static final Map<Class<?>, Bean> BEANS = new ConcurrentHashMap<>();
+
+    private final Runnable roundTrip;
+    private final Connection shared;
+    // Latest state of every document ever written, by path. A deleted document is kept with no
+    // fields, so that a transaction that read it notices when it is written again.
+    private final Map<String, Document> documents = new ConcurrentHashMap<>();
+    // Ids of the documents in each collection, by path of the collection
+    private final Map<String, Set<String>> collections = new ConcurrentHashMap<>();
+    // Paths of the collections with each id, for collection group queries
+    private final Map<String, Set<String>> groups = new ConcurrentHashMap<>();
+    // Held by every commit, so that it checks its reads and applies its writes atomically
+    private final Object commits = new Object();
+    private final Map<String, Usage> usages = new ConcurrentHashMap<>();
+    private long clock;
+
+    /**
+     * A database that answers without delay.
+     */
+    InMemoryFirestore() {
+        this(() -> { });
+    }
+
+    /**
+     * @param roundTrip Run before every read, query and commit, e.g. to wait for a simulated
+     *                  network round trip
+     */
+    InMemoryFirestore(@NonNull Runnable roundTrip) {
+        this.roundTrip = roundTrip;
+        this.shared = new Connection();
+    }
+
+    /**
+     * @return A round trip that parks the calling thread for the given time
+     */
+    static Runnable roundTrip(long millis) {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(millis);
+        return () -> {
+            if (nanos > 0) {
+                LockSupport.parkNanos(nanos);
+            }
+        };
+    }
+
+    /**
+     * @return A Firestore instance backed by this database, whose calls are never tagged
+     */
+    FirebaseFirestore getInstance() {
+        return shared.getInstance();
+    }
+
+    /**
+     * @return A new client of this database, whose calls can be tagged
+     */
+    Connection connect() {
+        return new Connection();
+    }
+
+    /**
+     * @return What the calls made under a tag cost, so far
+     */
+    @NonNull
+    Usage getUsage(@NonNull String tag) {
+        Usage usage = usages.get(tag);
+        return usage == null ? new Usage() : usage;
+    }
+
+    /**
+     * @return Every tag that calls were counted for
+     */
+    @NonNull
+    Set<String> getTags() {
+        return Collections.unmodifiableSet(new TreeMap<>(usages).keySet());
+    }
+
+    /**
+     * @return The fields of a document, or null if it does not exist
+     */
+    @Nullable
+    Map<String, Object> getData(@NonNull String path) {
+        Document document = documents.get(path);
+        return document == null || document.fields == null ? null : copy(document.fields);
+    }
+
+    /**
+     * What the calls counted for one tag cost: requests sent, documents read and written, and
+     * transactions run with their attempts.
+     */
+    static final class Usage {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder reads = new LongAdder();
+        private final LongAdder writes = new LongAdder();
+        private final LongAdder transactions = new LongAdder();
+        private final LongAdder attempts = new LongAdder();
+
+        long getRequests() {
+            return requests.sum();
+        }
+
+        /**
+         * @return Documents read, where a query that matched nothing counts as one read
+         */
+        long getReads() {
+            return reads.sum();
+        }
+
+        /**
+         * @return Documents written by commits that succeeded
+         */
+        long getWrites() {
+            return writes.sum();
+        }
+
+        long getTransactions() {
+            return transactions.sum();
+        }
+
+        long getAttempts() {
+            return attempts.sum();
+        }
+    }
+
+    private Usage usage(@Nullable String tag) {
+        return usages.computeIfAbsent(tag == null ? UNTAGGED : tag, ignored -> new Usage());
+    }
+
+    // The state of a document once some commit was applied. Fields are never changed in place.
+    private static final class Document {
+        @Nullable final Map<String, Object> fields;
+        final long version;
+
+        Document(@Nullable Map<String, Object> fields, long version) {
+            this.fields = fields;
+            this.version = version;
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Fakes of the SDK's classes
+    // ---------------------------------------------------------------------------------------
+
+    private static <T> T fake(Class<T> type, Answer<?> answer) {
+        return Mockito.mock(type, Mockito.withSettings().stubOnly().defaultAnswer(answer));
+    }
+
+    /**
+     * Answers toString, and refuses the methods the fakes do not support.
+     */
+    private static Object common(InvocationOnMock invocation, Object identity) {
+        if (invocation.getMethod().getName().equals("toString")) {
+            return String.valueOf(identity);
+        }
+        throw new UnsupportedOperationException("InMemoryFirestore does not support "
+                + invocation.getMethod());
+    }
+
+    /**
+     * A client of the database, as the app on one device. Its instance counts every call it is
+     * asked for under its current tag, whichever thread makes it.
+     */
+    final class Connection {
+        private final FirebaseFirestore instance;
+        // One reference per path, since mocks are only equal to themselves and references are
+        // used as keys, e.g. by ShardedCounter
+        private final Map<String, DocumentReference> references = new ConcurrentHashMap<>();
+        @Nullable private volatile String tag;
+
+        private Connection() {
+            instance = fake(FirebaseFirestore.class, this::firestore);
+        }
+
+        /**
+         * @return The Firestore instance of this client
+         */
+        FirebaseFirestore getInstance() {
+            return instance;
+        }
+
+        /**
+         * Counts the calls made from now on for a tag, e.g. the operation a user is waiting for.
+         *
+         * @param tag The tag, or null to count them as {@link #UNTAGGED}
+         */
+        void tag(@Nullable String tag) {
+            this.tag = tag;
+        }
+
+        private Object firestore(InvocationOnMock invocation) throws Throwable {
+            Object[] args = invocation.getArguments();
+            switch (invocation.getMethod().getName()) {
+                case "collection":
+                    return collection(trim((String) args[0]));
+                case "document":
+                    return document(trim((String) args[0]));
+                case "collectionGroup":
+                    return query(new Spec(null, (String) args[0]));
+                case "batch":
+                    return batch();
+                case "runTransaction":
+                    return runTransaction((Transaction.Function<?>) args[args.length - 1]);
+                default:
+                    return common(invocation, "InMemoryFirestore");
+            }
+        }
+
+        private CollectionReference collection(String path) {
+            Spec spec = new Spec(path, null);
+            return fake(CollectionReference.class, invocation -> {
+                Object[] args = invocation.getArguments();
+                switch (invocation.getMethod().getName()) {
+                    case "document":
+                        return document(path + "/" + (args.length == 0 ? autoId() : trim((String) args[0])));
+                    case "getId":
+                        return idOf(path);
+                    case "getPath":
+                        return path;
+                    case "getParent":
+                        return path.indexOf('/') < 0 ? null : document(parentOf(path));
+                    default:
+                        return query(spec, invocation, path);
+                }
+            });
+        }
+
+        private DocumentReference document(String path) {
+            return references.computeIfAbsent(path, this::newDocument);
+        }
+
+        private DocumentReference newDocument(String path) {
+            return fake(DocumentReference.class, invocation -> {
+                Object[] args = invocation.getArguments();
+                switch (invocation.getMethod().getName()) {
+                    case "getId":
+                        return idOf(path);
+                    case "getPath":
+                        return path;
+                    case "getParent":
+                        return collection(parentOf(path));
+                    case "collection":
+                        return collection(path + "/" + trim((String) args[0]));
+                    case "getFirestore":
+                        return instance;
+                    case "get":
+                        return get(path);
+                    case "set":
+                    case "update":
+                    case "delete":
+                        return commit(Collections.singletonList(write(invocation, path, 0)));
+                    default:
+                        return common(invocation, path);
+                }
+            });
+        }
+
+        private Query query(Spec spec) {
+            return fake(Query.class, invocation -> query(spec, invocation, spec));
+        }
+
+        private Object query(Spec spec, InvocationOnMock invocation, Object identity) {
+            Object[] args = invocation.getArguments();
+            switch (invocation.getMethod().getName()) {
+                case "whereEqualTo":
+                    return query(spec.where(fieldOf(args[0]), Collections.singletonList(args[1])));
+                case "whereIn":
+                    return query(spec.where(fieldOf(args[0]), (List<?>) args[1]));
+                case "orderBy":
+                    return query(spec.orderBy(fieldOf(args[0]),
+                            args.length > 1 && args[1] == Query.Direction.DESCENDING));
+                case "limit":
+                    return query(spec.limit(((Number) args[0]).longValue()));
+                case "startAfter":
+                    return query(spec.startAfter(args[0] instanceof DocumentSnapshot
+                            ? (DocumentSnapshot) args[0] : null, args));
+                case "get":
+                    return get(spec);
+                case "getFirestore":
+                    return instance;
+                default:
+                    return common(invocation, identity);
+            }
+        }
+
+        private QueryDocumentSnapshot snapshot(String path, @Nullable Map<String, Object> fields) {
+            return fake(QueryDocumentSnapshot.class, invocation -> {
+                Object[] args = invocation.getArguments();
+                String name = invocation.getMethod().getName();
+                switch (name) {
+                    case "exists":
+                        return fields != null;
+                    case "getId":
+                        return idOf(path);
+                    case "getReference":
+                        return document(path);
+                    case "getMetadata":
+                        return null;
+                    case "getData":
+                        return fields == null ? null : copy(fields);
+                    case "toObject":
+                        return fields == null ? null : decode(fields, (Class<?>) args[0]);
+                    case "contains":
+                        return fields != null && contains(fields, split(fieldOf(args[0])));
+                    case "get":
+                    case "getString":
+                    case "getLong":
+                    case "getDouble":
+                    case "getBoolean":
+                    case "getDate":
+                    case "getTimestamp":
+                        Object value = fields == null ? null : copy(valueAt(fields, split(fieldOf(args[0]))));
+                        return read(name, value);
+                    default:
+                        return common(invocation, path);
+                }
+            });
+        }
+
+        private static Object read(String getter, @Nullable Object value) {
+            if (value == null) {
+                return null;
+            }
+            switch (getter) {
+                case "getLong":
+                    return ((Number) value).longValue();
+                case "getDouble":
+                    return ((Number) value).doubleValue();
+                case "getDate":
+                    return ((Timestamp) value).toDate();
+                default:
+                    return value;
+            }
+        }
+
+        private QuerySnapshot querySnapshot(List<QueryDocumentSnapshot> results) {
+            List<DocumentSnapshot> documents = Collections.unmodifiableList(new ArrayList<>(results));
+            return fake(QuerySnapshot.class, invocation -> {
+                switch (invocation.getMethod().getName()) {
+                    case "getDocuments":
+                        return documents;
+                    case "size":
+                        return results.size();
+                    case "isEmpty":
+                        return results.isEmpty();
+                    case "iterator":
+                        return Collections.unmodifiableList(results).iterator();
+                    case "forEach":
+                        Consumer<Object> action = invocation.getArgument(0);
+                        results.forEach(action);
+                        return null;
+                    case "toObjects":
+                        List<Object> objects = new ArrayList<>();
+                        for (QueryDocumentSnapshot result : results) {
+                            objects.add(result.toObject((Class<?>) invocation.getArgument(0)));
+                        }
+                        return objects;
+                    case "getMetadata":
+                        return null;
+                    default:
+                        return common(invocation, "QuerySnapshot" + documents);
+                }
+            });
+        }
+
+        private WriteBatch batch() {
+            List<Write> writes = new ArrayList<>();
+            boolean[] committed = {false};
+            return fake(WriteBatch.class, invocation -> {
+                String name = invocation.getMethod().getName();
+                switch (name) {
+                    case "set":
+                    case "update":
+                    case "delete":
+                        if (committed[0]) {
+                            throw new IllegalStateException("A write batch can no longer be used after commit() has been called.");
+                        }
+                        DocumentReference ref = invocation.getArgument(0);
+                        writes.add(write(invocation, ref.getPath(), 1));
+                        return invocation.getMock();
+                    case "commit":
+                        committed[0] = true;
+                        return commit(writes);
+                    default:
+                        return common(invocation, "WriteBatch" + writes.size());
+                }
+            });
+        }
+
+        private Task<DocumentSnapshot> get(String path) {
+            roundTrip.run();
+            Usage usage = usage(tag);
+            usage.requests.increment();
+            usage.reads.increment();
+            Document document = documents.get(path);
+            return Tasks.forResult(snapshot(path, document == null ? null : document.fields));
+        }
+
+        private Task<QuerySnapshot> get(Spec spec) {
+            roundTrip.run();
+            List<QueryDocumentSnapshot> results = new ArrayList<>();
+            for (Map.Entry<String, Map<String, Object>> match : run(spec)) {
+                results.add(snapshot(match.getKey(), match.getValue()));
+            }
+            Usage usage = usage(tag);
+            usage.requests.increment();
+            usage.reads.add(Math.max(1, results.size()));
+            return Tasks.forResult(querySnapshot(results));
+        }
+
+        private Task<Void> commit(List<Write> writes) {
+            try {
+                apply(writes, Collections.emptyMap(), usage(tag));
+                return Tasks.forResult(null);
+            } catch (FirebaseFirestoreException e) {
+                return Tasks.forException(e);
+            }
+        }
+
+        private <T> Task<T> runTransaction(Transaction.Function<T> function) {
+            Usage usage = usage(tag);
+            usage.transactions.increment();
+            for (int attempt = 1; ; attempt++) {
+                usage.attempts.increment();
+                Map<String, Long> reads = new HashMap<>();
+                List<Write> writes = new ArrayList<>();
+                T result;
+                try {
+                    result = function.apply(transaction(reads, writes));
+                    if (apply(writes, reads, usage)) {
+                        return Tasks.forResult(result);
+                    }
+                } catch (Exception e) {
+                    return Tasks.forException(e);
+                }
+                if (attempt >= MAX_ATTEMPTS) {
+                    return Tasks.forException(new FirebaseFirestoreException(
+                            "Transaction failed all retries.", FirebaseFirestoreException.Code.ABORTED));
+                }
+            }
+        }
+
+        private Transaction transaction(Map<String, Long> reads, List<Write> writes) {
+            return fake(Transaction.class, invocation -> {
+                String name = invocation.getMethod().getName();
+                switch (name) {
+                    case "get":
+                        if (!writes.isEmpty()) {
+                            throw new FirebaseFirestoreException(
+                                    "Firestore transactions require all reads to be executed before all writes.",
+                                    FirebaseFirestoreException.Code.INVALID_ARGUMENT);
+                        }
+                        String path = ((DocumentReference) invocation.getArgument(0)).getPath();
+                        roundTrip.run();
+                        Usage usage = usage(tag);
+                        usage.requests.increment();
+                        usage.reads.increment();
+                        Document document = documents.get(path);
+                        reads.putIfAbsent(path, document == null ? 0 : document.version);
+                        return snapshot(path, document == null ? null : document.fields);
+                    case "set":
+                    case "update":
+                    case "delete":
+                        DocumentReference ref = invocation.getArgument(0);
+                        writes.add(write(invocation, ref.getPath(), 1));
+                        return invocation.getMock();
+                    default:
+                        return common(invocation, "Transaction" + reads.keySet());
+                }
+            });
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Reads
+    // ---------------------------------------------------------------------------------------
+
+    private List<Map.Entry<String, Map<String, Object>>> run(Spec spec) {
+        List<String> parents = new ArrayList<>();
+        if (spec.group == null) {
+            parents.add(spec.collection);
+        } else {
+            parents.addAll(groups.getOrDefault(spec.group, Collections.emptySet()));
+        }
+        List<Map.Entry<String, Map<String, Object>>> matches = new ArrayList<>();
+        for (String parent : parents) {
+            for (String id : collections.getOrDefault(parent, Collections.emptySet())) {
+                String path = parent + "/" + id;
+                Document document = documents.get(path);
+                if (document != null && document.fields != null && spec.matches(path, document.fields)) {
+                    matches.add(new AbstractMap.SimpleImmutableEntry<>(path, document.fields));
+                }
+            }
+        }
+        Comparator<Map.Entry<String, Map<String, Object>>> order = (a, b) -> {
+            int compared = spec.orderField == null ? 0 : compare(
+                    spec.value(a.getKey(), a.getValue()), spec.value(b.getKey(), b.getValue()));
+            return compared != 0 ? compared : a.getKey().compareTo(b.getKey());
+        };
+        matches.sort(spec.descending ? order.reversed() : order);
+        if (spec.anchored) {
+            List<Map.Entry<String, Map<String, Object>>> after = new ArrayList<>();
+            for (Map.Entry<String, Map<String, Object>> match : matches) {
+                if (spec.isAfterAnchor(match.getKey(), match.getValue())) {
+                    after.add(match);
+                }
+            }
+            matches = after;
+        }
+        if (spec.limit > 0 && matches.size() > spec.limit) {
+            matches = new ArrayList<>(matches.subList(0, (int) spec.limit));
+        }
+        return matches;
+    }
+
+    /**
+     * A query: the collection or collection group it reads, its filters, order, start and limit.
+     */
+    private static final class Spec {
+        @Nullable final String collection;
+        @Nullable final String group;
+        final List<Map.Entry<String, List<Object>>> filters;
+        @Nullable final String orderField;
+        final boolean descending;
+        final long limit;
+        final boolean anchored;
+        @Nullable final Object anchorValue;
+        @Nullable final String anchorPath;
+
+        Spec(@Nullable String collection, @Nullable String group) {
+            this(collection, group, Collections.emptyList(), null, false, 0, false, null, null);
+        }
+
+        private Spec(@Nullable String collection, @Nullable String group,
+                     List<Map.Entry<String, List<Object>>> filters, @Nullable String orderField,
+                     boolean descending, long limit, boolean anchored, @Nullable Object anchorValue,
+                     @Nullable String anchorPath) {
+            this.collection = collection;
+            this.group = group;
+            this.filters = filters;
+            this.orderField = orderField;
+            this.descending = descending;
+            this.limit = limit;
+            this.anchored = anchored;
+            this.anchorValue = anchorValue;
+            this.anchorPath = anchorPath;
+        }
+
+        Spec where(String field, List<?> values) {
+            List<Object> encoded = new ArrayList<>();
+            for (Object value : values) {
+                encoded.add(encode(value));
+            }
+            List<Map.Entry<String, List<Object>>> added = new ArrayList<>(filters);
+            added.add(new AbstractMap.SimpleImmutableEntry<>(field, encoded));
+            return new Spec(collection, group, added, orderField, descending, limit, anchored,
+                    anchorValue, anchorPath);
+        }
+
+        Spec orderBy(String field, boolean descending) {
+            return new Spec(collection, group, filters, field, descending, limit, anchored,
+                    anchorValue, anchorPath);
+        }
+
+        Spec limit(long limit) {
+            return new Spec(collection, group, filters, orderField, descending, limit, anchored,
+                    anchorValue, anchorPath);
+        }
+
+        Spec startAfter(@Nullable DocumentSnapshot snapshot, Object[] values) {
+            if (snapshot == null) {
+                return new Spec(collection, group, filters, orderField, descending, limit, true,
+                        encode(values[0]), null);
+            }
+            String path = snapshot.getReference().getPath();
+            Object value = orderField == null ? null
+                    : DOCUMENT_ID.equals(orderField) ? idOf(path) : encode(snapshot.get(orderField));
+            return new Spec(collection, group, filters, orderField, descending, limit, true,
+                    value, path);
+        }
+
+        boolean matches(String path, Map<String, Object> fields) {
+            for (Map.Entry<String, List<Object>> filter : filters) {
+                Object value = DOCUMENT_ID.equals(filter.getKey()) ? idOf(path)
+                        : valueAt(fields, split(filter.getKey()));
+                if (value == null || !containsValue(filter.getValue(), value)) {
+                    return false;
+                }
+            }
+            // Documents without the ordered field are left out, as in Firestore
+            return orderField == null || DOCUMENT_ID.equals(orderField)
+                    || valueAt(fields, split(orderField)) != null;
+        }
+
+        Object value(String path, Map<String, Object> fields) {
+            return DOCUMENT_ID.equals(orderField) ? idOf(path) : valueAt(fields, split(orderField));
+        }
+
+        boolean isAfterAnchor(String path, Map<String, Object> fields) {
+            int compared = orderField == null ? 0 : compare(value(path, fields), anchorValue);
+            if (compared == 0) {
+                if (anchorPath == null) {
+                    return false;
+                }
+                compared = path.compareTo(anchorPath);
+            }
+            return descending ? compared < 0 : compared > 0;
+        }
+
+        @Override
+        public String toString() {
+            return "Query(" + (group == null ? collection : "group " + group) + ", " + filters
+                    + (orderField == null ? "" : ", orderBy " + orderField + (descending ? " desc" : ""))
+                    + (limit > 0 ? ", limit " + limit : "") + ")";
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Writes and transactions
+    // ---------------------------------------------------------------------------------------
+
+    private enum Kind { SET, MERGE, UPDATE, DELETE }
+
+    /**
+     * A write to one document, with its data already mapped. The fields of a merge are all those
+     * of the data, or only those of its mask.
+     */
+    private static final class Write {
+        final String path;
+        final Kind kind;
+        final Map<String, Object> data;
+        @Nullable final List<String> mask;
+
+        Write(String path, Kind kind, Map<String, Object> data, @Nullable List<String> mask) {
+            this.path = path;
+            this.kind = kind;
+            this.data = data;
+            this.mask = mask;
+        }
+
+        @Nullable
+        Map<String, Object> applyTo(@Nullable Map<String, Object> current) throws FirebaseFirestoreException {
+            switch (kind) {
+                case DELETE:
+                    return null;
+                case SET:
+                    return merge(new LinkedHashMap<>(), data);
+                case MERGE:
+                    Map<String, Object> merged = current == null ? new LinkedHashMap<>() : copy(current);
+                    if (mask == null) {
+                        return merge(merged, data);
+                    }
+                    for (String field : mask) {
+                        List<String> path = split(field);
+                        if (contains(data, path)) {
+                            put(merged, path, valueAt(data, path));
+                        }
+                    }
+                    return merged;
+                default:
+                    if (current == null) {
+                        throw new FirebaseFirestoreException("No document to update: " + path,
+                                FirebaseFirestoreException.Code.NOT_FOUND);
+                    }
+                    Map<String, Object> updated = copy(current);
+                    for (Map.Entry<String, Object> entry : data.entrySet()) {
+                        put(updated, split(entry.getKey()), entry.getValue());
+                    }
+                    return updated;
+            }
+        }
+    }
+
+    /**
+     * Maps the arguments of a set, update or delete call.
+     *
+     * @param first Index of the argument after the document reference, if any
+     */
+    @SuppressWarnings("unchecked")
+    private static Write write(InvocationOnMock invocation, String path, int first) {
+        Object[] args = invocation.getArguments();
+        switch (invocation.getMethod().getName()) {
+            case "delete":
+                return new Write(path, Kind.DELETE, Collections.emptyMap(), null);
+            case "set":
+                Map<String, Object> data = fieldsOf(args[first]);
+                if (args.length == first + 1) {
+                    return new Write(path, Kind.SET, data, null);
+                }
+                SetOptions options = (SetOptions) args[first + 1];
+                if (!(Boolean) internal(options, "isMerge")) {
+                    return new Write(path, Kind.SET, data, null);
+                }
+                Object fieldMask = internal(options, "getFieldMask");
+                if (fieldMask == null) {
+                    return new Write(path, Kind.MERGE, data, null);
+                }
+                List<String> mask = new ArrayList<>();
+                for (Object field : (Collection<?>) internal(fieldMask, "getMask")) {
+                    mask.add((String) internal(field, "canonicalString"));
+                }
+                return new Write(path, Kind.MERGE, data, mask);
+            default:
+                Map<String, Object> fields = new LinkedHashMap<>();
+                if (args[first] instanceof Map) {
+                    for (Map.Entry<String, Object> entry : ((Map<String, Object>) args[first]).entrySet()) {
+                        fields.put(entry.getKey(), encode(entry.getValue()));
+                    }
+                } else {
+                    // Mockito spreads the varargs of update(field, value, moreFieldsAndValues)
+                    for (int i = first; i + 1 < args.length; i += 2) {
+                        fields.put(fieldOf(args[i]), encode(args[i + 1]));
+                    }
+                }
+                return new Write(path, Kind.UPDATE, fields, null);
+        }
+    }
+
+    /**
+     * Applies the writes together, if none of the documents read changed since.
+     *
+     * @param reads Version of every document read, 0 for one that never existed
+     * @param usage Where the request and the documents written are counted
+     * @return false if a document read changed, and nothing was written
+     */
+    private boolean apply(List<Write> writes, Map<String, Long> reads, Usage usage)
+            throws FirebaseFirestoreException {
+        roundTrip.run();
+        usage.requests.increment();
+        synchronized (commits) {
+            for (Map.Entry<String, Long> read : reads.entrySet()) {
+                if (versionOf(read.getKey()) != read.getValue()) {
+                    return false;
+                }
+            }
+            Map<String, Map<String, Object>> staged = new LinkedHashMap<>();
+            for (Write write : writes) {
+                Map<String, Object> current;
+                if (staged.containsKey(write.path)) {
+                    current = staged.get(write.path);
+                } else {
+                    Document document = documents.get(write.path);
+                    current = document == null ? null : document.fields;
+                }
+                staged.put(write.path, write.applyTo(current));
+            }
+            long version = ++clock;
+            for (Map.Entry<String, Map<String, Object>> entry : staged.entrySet()) {
+                store(entry.getKey(), entry.getValue(), version);
+            }
+        }
+        usage.writes.add(writes.size());
+        return true;
+    }
+
+    private long versionOf(String path) {
+        Document document = documents.get(path);
+        return document == null ? 0 : document.version;
+    }
+
+    private void store(String path, @Nullable Map<String, Object> fields, long version) {
+        documents.put(path, new Document(fields, version));
+        String parent = parentOf(path);
+        if (fields == null) {
+            Set<String> ids = collections.get(parent);
+            if (ids != null) {
+                ids.remove(idOf(path));
+            }
+            return;
+        }
+        collections.computeIfAbsent(parent, collection -> {
+            groups.computeIfAbsent(idOf(collection), id -> ConcurrentHashMap.newKeySet()).add(collection);
+            return ConcurrentHashMap.newKeySet();
+        }).add(idOf(path));
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Field values
+    // ---------------------------------------------------------------------------------------
+
+    /**
+     * Merges data into fields, key by key into nested maps.
+     *
+     * @return The fields
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> merge(Map<String, Object> fields, Map<String, Object> data) {
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof Map) {
+                Object existing = fields.get(entry.getKey());
+                Map<String, Object> nested = existing instanceof Map
+                        ? (Map<String, Object>) existing : new LinkedHashMap<>();
+                fields.put(entry.getKey(), merge(nested, (Map<String, Object>) value));
+            } else {
+                put(fields, Collections.singletonList(entry.getKey()), value);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Writes a value at a field path, resolving field values against what is there, and making
+     * the maps on the way.
+     */
+    @SuppressWarnings("unchecked")
+    private static void put(Map<String, Object> fields, List<String> path, Object value) {
+        Map<String, Object> parent = fields;
+        for (String segment : path.subList(0, path.size() - 1)) {
+            Object child = parent.get(segment);
+            if (!(child instanceof Map)) {
+                child = new LinkedHashMap<String, Object>();
+                parent.put(segment, child);
+            }
+            parent = (Map<String, Object>) child;
+        }
+        String last = path.get(path.size() - 1);
+        Object resolved = resolve(value, parent.get(last));
+        if (resolved == DELETED) {
+            parent.remove(last);
+        } else {
+            parent.put(last, resolved);
+        }
+    }
+
+    private static Object resolve(Object value, @Nullable Object existing) {
+        if (value instanceof Map) {
+            return merge(new LinkedHashMap<>(), castMap(value));
+        }
+        if (!(value instanceof FieldValue)) {
+            return value;
+        }
+        String method = (String) internal(value, "getMethodName");
+        switch (method) {
+            case "FieldValue.delete":
+                return DELETED;
+            case "FieldValue.serverTimestamp":
+                return Timestamp.now();
+            case "FieldValue.increment":
+                Object operand = encode(internal(value, "getOperand"));
+                if (existing instanceof Long && operand instanceof Long) {
+                    return (Long) existing + (Long) operand;
+                }
+                if (existing instanceof Number) {
+                    return ((Number) existing).doubleValue() + ((Number) operand).doubleValue();
+                }
+                return operand;
+            case "FieldValue.arrayUnion":
+            case "FieldValue.arrayRemove":
+                List<Object> array = existing instanceof List
+                        ? new ArrayList<>((List<?>) existing) : new ArrayList<>();
+                for (Object element : (List<?>) internal(value, "getElements")) {
+                    Object encoded = encode(element);
+                    if (method.equals("FieldValue.arrayUnion")) {
+                        if (!containsValue(array, encoded)) {
+                            array.add(encoded);
+                        }
+                    } else {
+                        array.removeIf(item -> equalValues(item, encoded));
+                    }
+                }
+                return array;
+            default:
+                throw new UnsupportedOperationException("InMemoryFirestore does not support " + method);
+        }
+    }
+
+    /**
+     * Calls a package-private method of the SDK, to read a field value or set options.
+     */
+    private static Object internal(Object target, String method) {
+        for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+            try {
+                Method declared = type.getDeclaredMethod(method);
+                declared.setAccessible(true);
+                return declared.invoke(target);
+            } catch (NoSuchMethodException e) {
+                // Declared by a superclass
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot call " + method + " on " + target, e);
+            }
+        }
+        throw new IllegalStateException(target.getClass() + " has no method " + method);
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Values and paths
+    // ---------------------------------------------------------------------------------------
+
+    private static String trim(String path) {
+        String trimmed = path;
+        while (trimmed.startsWith("/")) {
+            trimmed = trimmed.substring(1);
+        }
+        while (trimmed.endsWith("/")) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1);
+        }
+        return trimmed;
+    }
+
+    private static String idOf(String path) {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    private static String parentOf(String path) {
+        return path.substring(0, Math.max(0, path.lastIndexOf('/')));
+    }
+
+    private static String autoId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder id = new StringBuilder(AUTO_ID_LENGTH);
+        for (int i = 0; i < AUTO_ID_LENGTH; i++) {
+            id.append(AUTO_ID_CHARS.charAt(random.nextInt(AUTO_ID_CHARS.length())));
+        }
+        return id.toString();
+    }
+
+    private static String fieldOf(Object field) {
+        if (field instanceof String) {
+            return (String) field;
+        }
+        if (FieldPath.documentId().equals(field)) {
+            return DOCUMENT_ID;
+        }
+        throw new UnsupportedOperationException("InMemoryFirestore only supports field paths "
+                + "written as strings, and FieldPath.documentId()");
+    }
+
+    private static List<String> split(String field) {
+        return Arrays.asList(field.split("\\."));
+    }
+
+    @Nullable
+    private static Object valueAt(Map<String, Object> fields, List<String> path) {
+        Object value = fields;
+        for (String segment : path) {
+            if (!(value instanceof Map)) {
+                return null;
+            }
+            value = ((Map<?, ?>) value).get(segment);
+        }
+        return value;
+    }
+
+    private static boolean contains(Map<String, Object> fields, List<String> path) {
+        Object parent = valueAt(fields, path.subList(0, path.size() - 1));
+        return parent instanceof Map && ((Map<?, ?>) parent).containsKey(path.get(path.size() - 1));
+    }
+
+    private static boolean containsValue(List<?> values, Object value) {
+        for (Object candidate : values) {
+            if (equalValues(candidate, value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean equalValues(@Nullable Object a, @Nullable Object b) {
+        if (a instanceof Number && b instanceof Number) {
+            return compare(a, b) == 0;
+        }
+        if (a instanceof Timestamp && b instanceof Timestamp) {
+            return ((Timestamp) a).toDate().equals(((Timestamp) b).toDate());
+        }
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * Orders values as Firestore does: null, booleans, numbers, timestamps, strings, then the rest.
+     */
+    private static int compare(@Nullable Object a, @Nullable Object b) {
+        int rank = Integer.compare(rank(a), rank(b));
+        if (rank != 0) {
+            return rank;
+        }
+        if (a instanceof Boolean) {
+            return Boolean.compare((Boolean) a, (Boolean) b);
+        }
+        if (a instanceof Number) {
+            if (a instanceof Long && b instanceof Long) {
+                return Long.compare((Long) a, (Long) b);
+            }
+            return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+        }
+        if (a instanceof Timestamp) {
+            return ((Timestamp) a).toDate().compareTo(((Timestamp) b).toDate());
+        }
+        if (a instanceof String) {
+            return ((String) a).compareTo((String) b);
+        }
+        return 0;
+    }
+
+    private static int rank(@Nullable Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Boolean) {
+            return 1;
+        }
+        if (value instanceof Number) {
+            return 2;
+        }
+        if (value instanceof Timestamp) {
+            return 3;
+        }
+        return value instanceof String ? 4 : 5;
+    }
+
+    /**
+     * @return A copy of a stored value whose maps and lists can be changed freely
+     */
+    @Nullable
+    private static <T> T copy(@Nullable T value) {
+        Object copied = value;
+        if (value instanceof Map) {
+            Map<String, Object> map = new HashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                map.put((String) entry.getKey(), copy(entry.getValue()));
+            }
+            copied = map;
+        } else if (value instanceof List) {
+            List<Object> list = new ArrayList<>();
+            for (Object element : (List<?>) value) {
+                list.add(copy(element));
+            }
+            copied = list;
+        }
+        @SuppressWarnings("unchecked")
+        T result = (T) copied;
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> castMap(Object value) {
+        return (Map<String, Object>) value;
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Mapping of beans
+    // ---------------------------------------------------------------------------------------
+
+    private static Map<String, Object> fieldsOf(Object data) {
+        Object encoded = encode(data);
+        if (!(encoded instanceof Map)) {
+            throw new IllegalArgumentException("Invalid data. Data must be a Map<String, Object> or a "
+                    + "suitable POJO object, but it was of type: " + data.getClass().getName());
+        }
+        return castMap(encoded);
+    }
+
+    /**
+     * Maps a value to what Firestore stores: longs, doubles, booleans, strings, timestamps, lists
+     * and maps. Field values and document references are kept for the commit.
+     */
+    @Nullable
+    private static Object encode(@Nullable Object value) {
+        if (value == null || value instanceof String || value instanceof Boolean
+                || value instanceof Long || value instanceof Double || value instanceof Timestamp
+                || value instanceof FieldValue || value instanceof DocumentReference) {
+            return value;
+        }
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Float) {
+            return ((Float) value).doubleValue();
+        }
+        if (value instanceof Date) {
+            return new Timestamp(new Date(((Date) value).getTime()));
+        }
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+        if (value instanceof Collection) {
+            List<Object> list = new ArrayList<>();
+            for (Object element : (Collection<?>) value) {
+                list.add(encode(element));
+            }
+            return list;
+        }
+        if (value.getClass().isArray()) {
+            throw new IllegalArgumentException("Serializing Arrays is not supported, please use Lists instead");
+        }
+        if (value instanceof Map) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                map.put((String) entry.getKey(), encode(entry.getValue()));
+            }
+            return map;
+        }
+        Bean bean = bean(value.getClass());
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (Map.Entry<String, AccessibleObject> reader : bean.readers.entrySet()) {
+            try {
+                AccessibleObject member = reader.getValue();
+                Object property = member instanceof Method
+                        ? ((Method) member).invoke(value) : ((Field) member).get(value);
+                map.put(reader.getKey(), encode(property));
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot read " + reader.getKey() + " of " + value, e);
+            }
+        }
+        return map;
+    }
+
+    private static <T> T decode(Map<String, Object> fields, Class<T> type) {
+        return type.cast(convert(fields, type));
+    }
+
+    @Nullable
+    private static Object convert(@Nullable Object value, Type type) {
+        if (value == null) {
+            return null;
+        }
+        Class<?> raw = rawType(type);
+        if (raw == Object.class) {
+            return value;
+        }
+        if (raw == String.class) {
+            if (!(value instanceof String)) {
+                throw new IllegalArgumentException("Failed to convert value of type "
+                        + value.getClass().getName() + " to String");
+            }
+            return value;
+        }
+        if (raw == boolean.class || raw == Boolean.class) {
+            return value;
+        }
+        if (raw == long.class || raw == Long.class) {
+            return ((Number) value).longValue();
+        }
+        if (raw == int.class || raw == Integer.class) {
+            return ((Number) value).intValue();
+        }
+        if (raw == double.class || raw == Double.class) {
+            return ((Number) value).doubleValue();
+        }
+        if (raw == float.class || raw == Float.class) {
+            return ((Number) value).floatValue();
+        }
+        if (raw == Date.class) {
+            return ((Timestamp) value).toDate();
+        }
+        if (raw == Timestamp.class) {
+            return value;
+        }
+        if (raw.isEnum()) {
+            return enumValue(raw, (String) value);
+        }
+        if (Collection.class.isAssignableFrom(raw)) {
+            Type element = typeArgument(type, 0);
+            List<Object> list = new ArrayList<>();
+            for (Object item : (List<?>) value) {
+                list.add(convert(item, element));
+            }
+            return list;
+        }
+        if (Map.class.isAssignableFrom(raw)) {
+            Type element = typeArgument(type, 1);
+            Map<String, Object> map = new HashMap<>();
+            for (Map.Entry<String, Object> entry : castMap(value).entrySet()) {
+                map.put(entry.getKey(), convert(entry.getValue(), element));
+            }
+            return map;
+        }
+        Bean bean = bean(raw);
+        if (bean.constructor == null) {
+            throw new IllegalArgumentException("Class " + raw.getName()
+                    + " does not define a no-argument constructor.");
+        }
+        try {
+            Object instance = bean.constructor.newInstance();
+            for (Map.Entry<String, Object> entry : castMap(value).entrySet()) {
+                AccessibleObject writer = bean.writers.get(entry.getKey());
+                if (writer instanceof Method) {
+                    Method setter = (Method) writer;
+                    setter.invoke(instance, convert(entry.getValue(), setter.getGenericParameterTypes()[0]));
+                } else if (writer instanceof Field) {
+                    Field field = (Field) writer;
+                    field.set(instance, convert(entry.getValue(), field.getGenericType()));
+                }
+            }
+            return instance;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot map a document to " + raw.getName(), e);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object enumValue(Class<?> type, String name) {
+        return Enum.valueOf((Class<Enum>) type, name);
+    }
+
+    private static Class<?> rawType(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        }
+        if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        }
+        return Object.class;
+    }
+
+    private static Type typeArgument(Type type, int index) {
+        if (type instanceof ParameterizedType) {
+            Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+            if (index < arguments.length) {
+                return arguments[index];
+            }
+        }
+        return Object.class;
+    }
+
+    private static Bean bean(Class<?> type) {
+        return BEANS.computeIfAbsent(type, Bean::new);
+    }
+
+    /**
+     * How a class is mapped: the getters and public fields that are written, and the setters and
+     * public fields that are read back, by property name.
+     */
+    private static final class Bean {
+        @Nullable final Constructor<?> constructor;
+        final Map<String, AccessibleObject> readers = new LinkedHashMap<>();
+        final Map<String, AccessibleObject> writers = new HashMap<>();
+
+        Bean(Class<?> type) {
+            Constructor<?> noArgs;
+            try {
+                noArgs = type.getDeclaredConstructor();
+                noArgs.setAccessible(true);
+            } catch (NoSuchMethodException e) {
+                noArgs = null;
+            }
+            constructor = noArgs;
+            for (Method method : type.getMethods()) {
+                if (isGetter(method)) {
+                    readers.putIfAbsent(propertyName(method, method.getName().startsWith("is") ? 2 : 3), method);
+                }
+            }
+            for (Field field : type.getFields()) {
+                if (isProperty(field)) {
+                    readers.putIfAbsent(propertyName(field, 0), field);
+                    writers.putIfAbsent(propertyName(field, 0), field);
+                }
+            }
+            for (Class<?> current = type; current != null && current != Object.class;
+                 current = current.getSuperclass()) {
+                for (Method method : current.getDeclaredMethods()) {
+                    if (isSetter(method)) {
+                        method.setAccessible(true);
+                        writers.putIfAbsent(propertyName(method, 3), method);
+                    }
+                }
+            }
+        }
+
+        private static boolean isGetter(Method method) {
+            String name = method.getName();
+            return (name.startsWith("get") && name.length() > 3 || name.startsWith("is") && name.length() > 2)
+                    && method.getDeclaringClass() != Object.class
+                    && !Modifier.isStatic(method.getModifiers())
+                    && method.getParameterCount() == 0
+                    && method.getReturnType() != void.class
+                    && !method.isBridge() && !method.isSynthetic()
+                    && !method.isAnnotationPresent(Exclude.class);
+        }
+
+        private static boolean isSetter(Method method) {
+            String name = method.getName();
+            return name.startsWith("set") && name.length() > 3
+                    && !Modifier.isStatic(method.getModifiers())
+                    && method.getParameterCount() == 1
+                    && method.getReturnType() == void.class
+                    && !method.isBridge() && !method.isSynthetic()
+                    && !method.isAnnotationPresent(Exclude.class);
+        }
+
+        private static boolean isProperty(Field field) {
+            int modifiers = field.getModifiers();
+            return !Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)
+                    && !field.isAnnotationPresent(Exclude.class);
+        }
+
+        /**
+         * @param prefix Length of the get, is or set prefix of the member's name
+         */
+        private static String propertyName(Member member, int prefix) {
+            PropertyName annotation = ((AccessibleObject) member).getAnnotation(PropertyName.class);
+            if (annotation != null) {
+                return annotation.value();
+            }
+            char[] chars = member.getName().substring(prefix).toCharArray();
+            for (int i = 0; i < chars.length && Character.isUpperCase(chars[i]); i++) {
+                chars[i] = Character.toLowerCase(chars[i]);
+            }
+            return new String(chars);
+        }
+    }
+}
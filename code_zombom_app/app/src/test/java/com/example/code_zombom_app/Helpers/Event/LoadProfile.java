@@ -0,0 +1,245 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import androidx.annotation.NonNull;
+
+/**
+ * The traffic {@link LoadSimulator} replays: how many events and virtual users there are, what
+ * the users do and how fast, and which backend they do it against. Every setter returns the
+ * profile so a scenario reads as one expression.
+ *
+ * @version 1.0.0
+ */
+final class LoadProfile {
+
+    /**
+     * Where the simulated traffic goes.
+     */
+    enum Backend {
+        /** {@link InMemoryFirestore} answering immediately */
+        IN_MEMORY,
+        /** {@link InMemoryFirestore} taking a round trip for every read and commit, like the emulator */
+        EMULATOR
+    }
+
+    private Backend backend = Backend.IN_MEMORY;
+    private long roundTripMillis = 2;
+    private int events = 8;
+    private int capacity = 20;
+    private int waitlistLimit = 10_000;
+    private int virtualUsers = 32;
+    private int joinsPerUser = 20;
+    private int scanBursts = 3;
+    private double notificationReadRatio = 0.2;
+    private double acceptRatio = 0.7;
+    private double ratePerUser = 0;
+    private long seed = 1;
+
+    /**
+     * Read a profile from arguments such as {@code users=64 backend=emulator rate=20}. Keys that
+     * are not given keep their default.
+     *
+     * @param args key=value pairs named after the setters of this class
+     * @return The profile
+     * @throws IllegalArgumentException If an argument is not a known key=value pair
+     */
+    @NonNull
+    static LoadProfile parse(@NonNull String[] args) {
+        LoadProfile profile = new LoadProfile();
+        for (String arg : args) {
+            int split = arg.indexOf('=');
+            if (split <= 0) {
+                throw new IllegalArgumentException("Expected key=value but got " + arg);
+            }
+            String value = arg.substring(split + 1).trim();
+            switch (arg.substring(0, split).trim()) {
+                case "backend":
+                    profile.backend(Backend.valueOf(value.toUpperCase()));
+                    break;
+                case "roundTripMillis":
+                    profile.roundTripMillis(Long.parseLong(value));
+                    break;
+                case "events":
+                    profile.events(Integer.parseInt(value));
+                    break;
+                case "capacity":
+                    profile.capacity(Integer.parseInt(value));
+                    break;
+                case "waitlistLimit":
+                    profile.waitlistLimit(Integer.parseInt(value));
+                    break;
+                case "users":
+                    profile.virtualUsers(Integer.parseInt(value));
+                    break;
+                case "joins":
+                    profile.joinsPerUser(Integer.parseInt(value));
+                    break;
+                case "bursts":
+                    profile.scanBursts(Integer.parseInt(value));
+                    break;
+                case "reads":
+                    profile.notificationReadRatio(Double.parseDouble(value));
+                    break;
+                case "accept":
+                    profile.acceptRatio(Double.parseDouble(value));
+                    break;
+                case "rate":
+                    profile.ratePerUser(Double.parseDouble(value));
+                    break;
+                case "seed":
+                    profile.seed(Long.parseLong(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown setting " + arg);
+            }
+        }
+        return profile;
+    }
+
+    LoadProfile backend(@NonNull Backend backend) {
+        this.backend = backend;
+        return this;
+    }
+
+    /**
+     * @param roundTripMillis Time every read and commit takes on the {@link Backend#EMULATOR}
+     */
+    LoadProfile roundTripMillis(long roundTripMillis) {
+        this.roundTripMillis = Math.max(0, roundTripMillis);
+        return this;
+    }
+
+    LoadProfile events(int events) {
+        this.events = Math.max(1, events);
+        return this;
+    }
+
+    /**
+     * @param capacity Winners drawn per event, 0 to draw the whole waiting list
+     */
+    LoadProfile capacity(int capacity) {
+        this.capacity = Math.max(0, capacity);
+        return this;
+    }
+
+    /**
+     * @param waitlistLimit Entrants each waiting list takes, 0 to take as many as the capacity
+     */
+    LoadProfile waitlistLimit(int waitlistLimit) {
+        this.waitlistLimit = Math.max(0, waitlistLimit);
+        return this;
+    }
+
+    LoadProfile virtualUsers(int virtualUsers) {
+        this.virtualUsers = Math.max(1, virtualUsers);
+        return this;
+    }
+
+    /**
+     * @param joinsPerUser Actions each user takes while the waiting lists are open; most of them
+     *                     join a waiting list as a new entrant
+     */
+    LoadProfile joinsPerUser(int joinsPerUser) {
+        this.joinsPerUser = Math.max(1, joinsPerUser);
+        return this;
+    }
+
+    /**
+     * @param scanBursts Times every user scans the QR code of the same event at the same moment,
+     *                   spread over the registration
+     */
+    LoadProfile scanBursts(int scanBursts) {
+        this.scanBursts = Math.max(0, scanBursts);
+        return this;
+    }
+
+    /**
+     * @param notificationReadRatio Share of the actions of a user that read their notifications
+     */
+    LoadProfile notificationReadRatio(double notificationReadRatio) {
+        this.notificationReadRatio = Math.min(1, Math.max(0, notificationReadRatio));
+        return this;
+    }
+
+    /**
+     * @param acceptRatio Share of the winners who accept and register; the others decline
+     */
+    LoadProfile acceptRatio(double acceptRatio) {
+        this.acceptRatio = Math.min(1, Math.max(0, acceptRatio));
+        return this;
+    }
+
+    /**
+     * @param ratePerUser Actions per second each user is paced to, 0 to go as fast as possible
+     */
+    LoadProfile ratePerUser(double ratePerUser) {
+        this.ratePerUser = Math.max(0, ratePerUser);
+        return this;
+    }
+
+    LoadProfile seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    Backend getBackend() {
+        return backend;
+    }
+
+    long getRoundTripMillis() {
+        return backend == Backend.EMULATOR ? roundTripMillis : 0;
+    }
+
+    int getEvents() {
+        return events;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    int getWaitlistLimit() {
+        return waitlistLimit;
+    }
+
+    int getVirtualUsers() {
+        return virtualUsers;
+    }
+
+    int getJoinsPerUser() {
+        return joinsPerUser;
+    }
+
+    int getScanBursts() {
+        return Math.min(scanBursts, joinsPerUser);
+    }
+
+    double getNotificationReadRatio() {
+        return notificationReadRatio;
+    }
+
+    double getAcceptRatio() {
+        return acceptRatio;
+    }
+
+    /**
+     * @return Nanoseconds between two actions of a user, 0 if they are not paced
+     */
+    long getPacingNanos() {
+        return ratePerUser == 0 ? 0 : (long) (1e9 / ratePerUser);
+    }
+
+    long getSeed() {
+        return seed;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return backend + (backend == Backend.EMULATOR ? " (" + roundTripMillis + " ms round trip)" : "")
+                + ", " + events + " events of capacity " + capacity
+                + " and waitlist limit " + waitlistLimit
+                + ", " + virtualUsers + " users x " + joinsPerUser + " actions"
+                + ", " + scanBursts + " QR bursts"
+                + (ratePerUser > 0 ? ", " + ratePerUser + " actions/s per user" : ", unpaced");
+    }
+}
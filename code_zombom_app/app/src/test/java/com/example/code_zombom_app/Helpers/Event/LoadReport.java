@@ -0,0 +1,195 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * What a {@link LoadSimulator} run measured, one row per operation.
+ * <p>
+ * Latencies are measured by the virtual users, from the call to the completion of its task, so
+ * they include the retries of a transaction. The documents read and written are counted by
+ * {@link InMemoryFirestore} for everything the call did, and retries come from the
+ * {@link TransactionMetrics} of {@link EventService}.
+ * <p>
+ * Transactions the service ran within a call, such as the replacement draw after a decline, get
+ * rows of their own from {@link TransactionMetrics}, with its coarser latencies; what they read
+ * and wrote is also counted in the row of the call. The {@link InMemoryFirestore#UNTAGGED} row
+ * counts the work no user waited for, such as setting up the events and flushing the buffered
+ * history, per request sent.
+ *
+ * @version 1.0.0
+ */
+final class LoadReport {
+
+    /**
+     * Measurements of one operation.
+     */
+    static final class Row {
+        private final String operation;
+        private final long calls;
+        private final long failures;
+        private final long p50Micros;
+        private final long p99Micros;
+        private final long retries;
+        private final long reads;
+        private final long writes;
+
+        Row(String operation, long calls, long failures, long p50Micros, long p99Micros,
+            long retries, long reads, long writes) {
+            this.operation = operation;
+            this.calls = calls;
+            this.failures = failures;
+            this.p50Micros = p50Micros;
+            this.p99Micros = p99Micros;
+            this.retries = retries;
+            this.reads = reads;
+            this.writes = writes;
+        }
+
+        String getOperation() {
+            return operation;
+        }
+
+        long getCalls() {
+            return calls;
+        }
+
+        long getFailures() {
+            return failures;
+        }
+
+        long getP50Micros() {
+            return p50Micros;
+        }
+
+        long getP99Micros() {
+            return p99Micros;
+        }
+
+        long getRetries() {
+            return retries;
+        }
+
+        long getReads() {
+            return reads;
+        }
+
+        long getWrites() {
+            return writes;
+        }
+
+        double getReadsPerCall() {
+            return calls == 0 ? 0 : (double) reads / calls;
+        }
+
+        double getWritesPerCall() {
+            return calls == 0 ? 0 : (double) writes / calls;
+        }
+    }
+
+    private final String profile;
+    private final long elapsedNanos;
+    private final List<Row> rows;
+    private final List<String> hotEvents;
+
+    LoadReport(@NonNull String profile, long elapsedNanos, @NonNull List<Row> rows,
+               @NonNull List<String> hotEvents) {
+        this.profile = profile;
+        this.elapsedNanos = elapsedNanos;
+        this.rows = Collections.unmodifiableList(new ArrayList<>(rows));
+        this.hotEvents = Collections.unmodifiableList(new ArrayList<>(hotEvents));
+    }
+
+    /**
+     * @return One row per operation, in the order they were first called
+     */
+    @NonNull
+    List<Row> getRows() {
+        return rows;
+    }
+
+    /**
+     * @param operation Name of the operation, e.g. "addEntrantToWaitlist"
+     * @return Its row, or null if it was never called
+     */
+    @Nullable
+    Row get(@NonNull String operation) {
+        for (Row row : rows) {
+            if (row.operation.equals(operation)) {
+                return row;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return Ids of the events whose transactions retried the most, most contended first
+     */
+    @NonNull
+    List<String> getHotEvents() {
+        return hotEvents;
+    }
+
+    long getElapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+
+    /**
+     * @param sorted   Latencies in nanoseconds, sorted
+     * @param count    Number of latencies in {@code sorted}
+     * @param quantile Between 0 and 1, e.g. 0.99
+     * @return The latency at that quantile in microseconds, 0 if there is none
+     */
+    static long percentileMicros(@NonNull long[] sorted, int count, double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(quantile * count);
+        return sorted[Math.max(0, Math.min(count, rank) - 1)] / 1000;
+    }
+
+    /**
+     * Write the report to a file, making its directory if needed.
+     *
+     * @throws IOException If the file could not be written
+     */
+    void writeTo(@NonNull File file) throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            out.write(toString());
+        }
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        out.append(profile).append('\n');
+        out.append(String.format(Locale.US, "%d ms%n", getElapsedMillis()));
+        out.append(String.format(Locale.US, "%-26s %8s %8s %10s %10s %8s %8s %8s%n", "operation",
+                "calls", "failed", "p50 us", "p99 us", "retries", "reads/op", "writes/op"));
+        for (Row row : rows) {
+            out.append(String.format(Locale.US, "%-26s %8d %8d %10d %10d %8d %8.2f %8.2f%n",
+                    row.operation, row.calls, row.failures, row.p50Micros, row.p99Micros,
+                    row.retries, row.getReadsPerCall(), row.getWritesPerCall()));
+        }
+        if (!hotEvents.isEmpty()) {
+            out.append("most contended: ").append(hotEvents).append('\n');
+        }
+        return out.toString();
+    }
+}
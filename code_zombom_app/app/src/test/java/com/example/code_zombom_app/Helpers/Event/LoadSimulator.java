@@ -0,0 +1,467 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.code_zombom_app.Helpers.Users.NotificationPreferenceResolver;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.Query;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Replays the traffic of an event's life against {@link EventService}, with one thread per
+ * virtual user, and reports what each operation cost.
+ * <p>
+ * A run goes through three phases:
+ * <ol>
+ *     <li>Registration: every user joins waiting lists as new entrants and now and then reads
+ *     their notifications. At each QR burst every user scans the code of the first event at the
+ *     same moment, loading it and joining its waiting list.</li>
+ *     <li>Draw: an organizer per event runs its lottery while the users read their
+ *     notifications.</li>
+ *     <li>Responses: the users answer the invitations of the winners, accepting and registering
+ *     or declining, which draws a replacement.</li>
+ * </ol>
+ * Every user has a service of its own, as if on its own device, and all of them work on one
+ * {@link InMemoryFirestore}, so their transactions conflict and retry as they would against
+ * Firestore. {@link LoadProfile.Backend#EMULATOR} stands in for the emulator by adding a round
+ * trip to every read and commit.
+ * <p>
+ * The documents an operation read and wrote are counted by the database, for everything the
+ * call sent through the user's connection before its task completed: the transaction with its
+ * retries, the fan-out and the replacement draws. Buffered history is written in the background.
+ * <p>
+ * Run {@link #main(String[])} from the IDE with e.g. {@code users=64 backend=emulator rate=20}.
+ * The report is written to {@code build/results/load/}, named after the time of the run.
+ *
+ * @version 1.0.0
+ * @see LoadProfile
+ * @see LoadReport
+ */
+final class LoadSimulator {
+    private static final String EVENT_PREFIX = "load-event-";
+    // Where main writes its reports, next to the JMH results of the benchmarks module
+    private static final File RESULTS = new File("build/results/load");
+
+    private final LoadProfile profile;
+    private final TransactionMetrics metrics = new TransactionMetrics();
+    private final InMemoryFirestore database;
+    // Samples of every user and organizer, merged once the run is over
+    private final List<Samples> samples = Collections.synchronizedList(new ArrayList<>());
+    // Services of every user and organizer, whose history is flushed once the run is over
+    private final List<EventService> services = Collections.synchronizedList(new ArrayList<>());
+
+    LoadSimulator(@NonNull LoadProfile profile) {
+        this(profile, null);
+    }
+
+    /**
+     * @param roundTrip Run on every read and commit of the database instead of the profile's
+     *                  round trip, or null to use the profile's
+     */
+    LoadSimulator(@NonNull LoadProfile profile, @Nullable Runnable roundTrip) {
+        this.profile = profile;
+        this.database = new InMemoryFirestore(roundTrip == null
+                ? InMemoryFirestore.roundTrip(profile.getRoundTripMillis()) : roundTrip);
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadReport report = new LoadSimulator(LoadProfile.parse(args)).run();
+        report.writeTo(new File(RESULTS, "load-" + System.currentTimeMillis() + ".txt"));
+    }
+
+    /**
+     * @return The database the traffic went to, to check its state after a run
+     */
+    @NonNull
+    InMemoryFirestore getFirestore() {
+        return database;
+    }
+
+    @NonNull
+    static String eventId(int index) {
+        return EVENT_PREFIX + index;
+    }
+
+    /**
+     * Run the three phases one after the other.
+     *
+     * @return What every operation cost
+     * @throws Exception If a virtual user was interrupted or broke
+     */
+    @NonNull
+    LoadReport run() throws Exception {
+        long start = System.nanoTime();
+        openEvents();
+        register();
+        draw();
+        respond();
+        flushHistory();
+        return report(System.nanoTime() - start);
+    }
+
+    private void openEvents() {
+        EventService organizer = newService();
+        for (int i = 0; i < profile.getEvents(); i++) {
+            Event event = new Event("Load Event " + i);
+            event.setEventId(eventId(i));
+            event.setCapacity(profile.getCapacity());
+            event.setWaitlistLimit(profile.getWaitlistLimit());
+            event.setAutoReplaceDeclines(true);
+            organizer.saveEvent(event);
+        }
+    }
+
+    private void register() throws Exception {
+        int joins = profile.getJoinsPerUser();
+        Set<Integer> bursts = new HashSet<>();
+        for (int b = 0; b < profile.getScanBursts(); b++) {
+            bursts.add(b * joins / profile.getScanBursts());
+        }
+        CyclicBarrier burst = new CyclicBarrier(profile.getVirtualUsers());
+        List<Callable<Void>> actors = new ArrayList<>();
+        for (VirtualUser user : users()) {
+            actors.add(() -> {
+                for (int i = 0; i < joins; i++) {
+                    user.pace();
+                    if (bursts.contains(i)) {
+                        burst.await();
+                        user.scan(eventId(0));
+                    } else if (user.hasJoined()
+                            && user.random.nextDouble() < profile.getNotificationReadRatio()) {
+                        user.readNotifications(user.anyIdentity());
+                    } else {
+                        user.join(eventId(user.random.nextInt(profile.getEvents())));
+                    }
+                }
+                return null;
+            });
+        }
+        runConcurrently(actors);
+    }
+
+    private void draw() throws Exception {
+        int reads = Math.max(1, (int) Math.round(
+                profile.getJoinsPerUser() * profile.getNotificationReadRatio()));
+        List<Callable<Void>> actors = new ArrayList<>();
+        for (int i = 0; i < profile.getEvents(); i++) {
+            String eventId = eventId(i);
+            VirtualUser organizer = new VirtualUser(-1 - i);
+            actors.add(() -> {
+                organizer.call("runLotteryDraw", () -> organizer.service.runLotteryDraw(eventId));
+                return null;
+            });
+        }
+        for (VirtualUser user : users()) {
+            actors.add(() -> {
+                for (int i = 0; i < reads; i++) {
+                    user.pace();
+                    user.readNotifications("user" + user.random.nextInt(profile.getVirtualUsers())
+                            + "." + user.random.nextInt(profile.getJoinsPerUser()) + "@load.test");
+                }
+                return null;
+            });
+        }
+        runConcurrently(actors);
+    }
+
+    private void respond() throws Exception {
+        Queue<String[]> invitations = new ConcurrentLinkedQueue<>();
+        EventService organizer = newService();
+        for (int i = 0; i < profile.getEvents(); i++) {
+            Task<Event> loaded = organizer.loadEvent(eventId(i));
+            if (loaded.isSuccessful()) {
+                for (String winner : loaded.getResult().getChosenListView()) {
+                    invitations.add(new String[]{eventId(i), winner});
+                }
+            }
+        }
+        List<Callable<Void>> actors = new ArrayList<>();
+        for (VirtualUser user : users()) {
+            actors.add(() -> {
+                String[] invitation;
+                while ((invitation = invitations.poll()) != null) {
+                    user.pace();
+                    user.answer(invitation[0], invitation[1]);
+                    if (user.random.nextDouble() < profile.getNotificationReadRatio()) {
+                        user.readNotifications(invitation[1]);
+                    }
+                }
+                return null;
+            });
+        }
+        runConcurrently(actors);
+    }
+
+    /**
+     * Write the history every user still buffers, so the run leaves the database complete.
+     */
+    private void flushHistory() {
+        synchronized (services) {
+            for (EventService service : services) {
+                service.flushHistory();
+            }
+        }
+    }
+
+    private EventService newService() {
+        return newService(database.connect());
+    }
+
+    /**
+     * @param connection The device's client of the database
+     * @return A service of a device of its own, recording its transactions with the others'.
+     *     Its history is written in the background, whenever its buffer is flushed.
+     */
+    private EventService newService(InMemoryFirestore.Connection connection) {
+        EventService service = new EventService(connection.getInstance(),
+                new NotificationPreferenceResolver(connection.getInstance()),
+                new HistoryRecorder(database.getInstance()), metrics);
+        services.add(service);
+        return service;
+    }
+
+    private List<VirtualUser> users() {
+        List<VirtualUser> users = new ArrayList<>();
+        for (int i = 0; i < profile.getVirtualUsers(); i++) {
+            users.add(new VirtualUser(i));
+        }
+        return users;
+    }
+
+    private static void runConcurrently(List<Callable<Void>> actors) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(actors.size());
+        try {
+            List<Future<Void>> done = pool.invokeAll(actors);
+            for (Future<Void> future : done) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private LoadReport report(long elapsedNanos) {
+        Map<String, Samples.Log> merged = new LinkedHashMap<>();
+        synchronized (samples) {
+            for (Samples actor : samples) {
+                for (Map.Entry<String, Samples.Log> entry : actor.logs.entrySet()) {
+                    Samples.Log log = merged.get(entry.getKey());
+                    if (log == null) {
+                        log = new Samples.Log();
+                        merged.put(entry.getKey(), log);
+                    }
+                    log.addAll(entry.getValue());
+                }
+            }
+        }
+        List<LoadReport.Row> rows = new ArrayList<>();
+        for (Map.Entry<String, Samples.Log> entry : merged.entrySet()) {
+            Samples.Log log = entry.getValue();
+            long[] sorted = Arrays.copyOf(log.nanos, log.count);
+            Arrays.sort(sorted);
+            TransactionMetrics.Snapshot transactions = metrics.get(entry.getKey());
+            InMemoryFirestore.Usage usage = database.getUsage(entry.getKey());
+            rows.add(new LoadReport.Row(entry.getKey(), log.count, log.failures,
+                    LoadReport.percentileMicros(sorted, log.count, 0.5),
+                    LoadReport.percentileMicros(sorted, log.count, 0.99),
+                    transactions == null ? 0 : transactions.getRetries(),
+                    usage.getReads(), usage.getWrites()));
+        }
+        // Transactions the service ran within the calls above, such as the replacement draw of a
+        // decline. What they read and wrote is already counted in the row of that call.
+        for (TransactionMetrics.Snapshot transactions : metrics.snapshot()) {
+            if (!merged.containsKey(transactions.getOperation())) {
+                rows.add(new LoadReport.Row(transactions.getOperation(), transactions.getCalls(),
+                        transactions.getFailures() + transactions.getContentionAborts(),
+                        transactions.percentileMillis(0.5) * 1000,
+                        transactions.percentileMillis(0.99) * 1000,
+                        transactions.getRetries(), transactions.getReads(),
+                        transactions.getWrites()));
+            }
+        }
+        // Work no user waited for: history flushed after a delay or at the end of the run, and
+        // the backed-off rounds of contended transactions
+        InMemoryFirestore.Usage background = database.getUsage(InMemoryFirestore.UNTAGGED);
+        if (background.getRequests() > 0) {
+            rows.add(new LoadReport.Row(InMemoryFirestore.UNTAGGED, background.getRequests(), 0,
+                    0, 0, 0, background.getReads(), background.getWrites()));
+        }
+        return new LoadReport(profile.toString(), elapsedNanos, rows, metrics.hotEvents(3));
+    }
+
+    /**
+     * Latencies and failures of the operations of one thread, so recording them takes no lock.
+     */
+    private static final class Samples {
+        final Map<String, Log> logs = new LinkedHashMap<>();
+
+        Log log(String operation) {
+            Log log = logs.get(operation);
+            if (log == null) {
+                log = new Log();
+                logs.put(operation, log);
+            }
+            return log;
+        }
+
+        static final class Log {
+            long[] nanos = new long[64];
+            int count;
+            long failures;
+
+            void add(long latencyNanos, boolean successful) {
+                if (count == nanos.length) {
+                    nanos = Arrays.copyOf(nanos, count * 2);
+                }
+                nanos[count++] = latencyNanos;
+                if (!successful) {
+                    failures++;
+                }
+            }
+
+            void addAll(Log other) {
+                if (count + other.count > nanos.length) {
+                    nanos = Arrays.copyOf(nanos, Math.max(nanos.length * 2, count + other.count));
+                }
+                System.arraycopy(other.nanos, 0, nanos, count, other.count);
+                count += other.count;
+                failures += other.failures;
+            }
+        }
+    }
+
+    /**
+     * One entrant, or an organizer when its index is negative. Every waiting list it joins, it
+     * joins under a new email so the waiting lists keep growing.
+     */
+    private final class VirtualUser {
+        final int index;
+        final Random random;
+        final InMemoryFirestore.Connection connection = database.connect();
+        final EventService service = newService(connection);
+        final Samples own = new Samples();
+        private int identities;
+        private long nextAction;
+
+        VirtualUser(int index) {
+            this.index = index;
+            this.random = new Random(profile.getSeed() * 31 + index);
+            samples.add(own);
+        }
+
+        /**
+         * Wait until this user's next action is due, if the profile paces them.
+         */
+        void pace() {
+            long pacing = profile.getPacingNanos();
+            if (pacing == 0) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (nextAction == 0) {
+                nextAction = now;
+            }
+            if (nextAction > now) {
+                LockSupport.parkNanos(nextAction - now);
+            }
+            nextAction += pacing;
+        }
+
+        boolean hasJoined() {
+            return identities > 0;
+        }
+
+        String newIdentity() {
+            return "user" + index + "." + identities++ + "@load.test";
+        }
+
+        String anyIdentity() {
+            return "user" + index + "." + random.nextInt(identities) + "@load.test";
+        }
+
+        void join(String eventId) throws InterruptedException {
+            String email = newIdentity();
+            call("addEntrantToWaitlist",
+                    () -> service.addEntrantToWaitlist(eventId, email, IdempotencyKey.newKey()));
+        }
+
+        void scan(String eventId) throws InterruptedException {
+            Task<Event> loaded = call("loadEvent", () -> service.loadEvent(eventId));
+            if (loaded.isSuccessful()) {
+                join(eventId);
+            }
+        }
+
+        /**
+         * Read the notifications of an entrant with the query of the notifications screen.
+         */
+        void readNotifications(String email) throws InterruptedException {
+            call("loadNotifications", () -> connection.getInstance()
+                    .collectionGroup("Notifications")
+                    .whereEqualTo("recipientEmail", email.trim().toLowerCase())
+                    .orderBy("createdAt", Query.Direction.DESCENDING)
+                    .get());
+        }
+
+        void answer(String eventId, String email) throws InterruptedException {
+            if (random.nextDouble() < profile.getAcceptRatio()) {
+                Task<Void> accepted = call("acceptInvitation",
+                        () -> service.acceptInvitation(eventId, email, IdempotencyKey.newKey()));
+                if (accepted.isSuccessful()) {
+                    call("completeRegistration", () ->
+                            service.completeRegistration(eventId, email, IdempotencyKey.newKey()));
+                }
+            } else {
+                call("declineInvitation",
+                        () -> service.declineInvitation(eventId, email, IdempotencyKey.newKey()));
+            }
+        }
+
+        /**
+         * Make a request and wait for its task, recording how long it took and counting what it
+         * read and wrote for the operation.
+         */
+        <T> Task<T> call(String operation, Supplier<Task<T>> request) throws InterruptedException {
+            connection.tag(operation);
+            try {
+                long start = System.nanoTime();
+                Task<T> task = request.get();
+                if (!task.isComplete()) {
+                    CountDownLatch done = new CountDownLatch(1);
+                    task.addOnCompleteListener(LotteryFanOut.DIRECT, t -> done.countDown());
+                    done.await();
+                }
+                own.log(operation).add(System.nanoTime() - start, task.isSuccessful());
+                return task;
+            } finally {
+                connection.tag(null);
+            }
+        }
+    }
+}
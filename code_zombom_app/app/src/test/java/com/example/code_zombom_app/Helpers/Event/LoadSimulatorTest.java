@@ -0,0 +1,104 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import org.junit.Test;
+
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs small scenarios through {@link LoadSimulator} and checks that the report accounts for
+ * every phase and that the events stayed consistent under the load.
+ */
+public class LoadSimulatorTest {
+
+    @Test
+    public void run_InMemory_ReportsEveryPhase() throws Exception {
+        LoadProfile profile = new LoadProfile().events(3).capacity(5).virtualUsers(8)
+                .joinsPerUser(10).scanBursts(2);
+        LoadReport report = new LoadSimulator(profile).run();
+
+        assertEquals(8 * 2, report.get("loadEvent").getCalls());
+        assertEquals(3, report.get("runLotteryDraw").getCalls());
+        LoadReport.Row joins = report.get("addEntrantToWaitlist");
+        assertNotNull(joins);
+        assertTrue(joins.getP50Micros() <= joins.getP99Micros());
+        assertEquals(0, joins.getFailures());
+        assertEquals(3.0, joins.getWritesPerCall(), 0.0);
+        assertEquals(1.0, report.get("loadEvent").getReadsPerCall(), 0.0);
+        assertTrue(report.get("loadNotifications").getReadsPerCall() >= 1);
+        LoadReport.Row accepted = report.get("acceptInvitation");
+        LoadReport.Row declined = report.get("declineInvitation");
+        long answered = (accepted == null ? 0 : accepted.getCalls())
+                + (declined == null ? 0 : declined.getCalls());
+        assertEquals(3 * 5, answered);
+    }
+
+    @Test
+    public void run_WaitlistLimit_NeverExceeded() throws Exception {
+        LoadProfile profile = new LoadProfile().events(2).capacity(3).waitlistLimit(10)
+                .virtualUsers(6).joinsPerUser(8).notificationReadRatio(0);
+        LoadSimulator simulator = new LoadSimulator(profile);
+        LoadReport report = simulator.run();
+
+        assertTrue(report.get("addEntrantToWaitlist").getFailures() > 0);
+        for (int i = 0; i < 2; i++) {
+            Event event = new EventService(simulator.getFirestore().getInstance())
+                    .loadEvent(LoadSimulator.eventId(i)).getResult();
+            int entrants = event.countEntrants(MembershipIndex.Status.WAITING)
+                    + event.countEntrants(MembershipIndex.Status.CHOSEN)
+                    + event.countEntrants(MembershipIndex.Status.PENDING)
+                    + event.countEntrants(MembershipIndex.Status.REGISTERED)
+                    + event.countEntrants(MembershipIndex.Status.CANCELLED);
+            assertTrue(entrants <= 10);
+        }
+    }
+
+    @Test
+    public void run_ScanBurst_RetriesOnTheScannedEvent() throws Exception {
+        int users = 8;
+        // Every user's only action is the scan, which loads the event, then reads it and the
+        // request's marker and commits in the join. Holding each of these round trips until every user reached it makes
+        // all of them read the same version, so all but one commit have to retry.
+        CyclicBarrier lockstep = new CyclicBarrier(users);
+        AtomicInteger roundTrips = new AtomicInteger();
+        Runnable roundTrip = () -> {
+            int roundTripIndex = roundTrips.incrementAndGet();
+            if (roundTripIndex > 0 && roundTripIndex <= 4 * users) {
+                try {
+                    lockstep.await(10, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+        LoadProfile profile = new LoadProfile().events(2).capacity(2).virtualUsers(users)
+                .joinsPerUser(1).scanBursts(1);
+        // The events and their summaries are saved with a round trip each before the users start
+        roundTrips.set(-2 * profile.getEvents());
+        LoadReport report = new LoadSimulator(profile, roundTrip).run();
+
+        assertEquals(users, report.get("loadEvent").getCalls());
+        assertTrue(report.get("addEntrantToWaitlist").getRetries() >= users - 1);
+        assertEquals(LoadSimulator.eventId(0), report.getHotEvents().get(0));
+    }
+
+    @Test
+    public void parse_ReadsKeyValuePairs() {
+        LoadProfile profile = LoadProfile.parse(new String[]{"users=4", "backend=emulator",
+                "rate=10"});
+
+        assertEquals(4, profile.getVirtualUsers());
+        assertEquals(LoadProfile.Backend.EMULATOR, profile.getBackend());
+        assertEquals(100_000_000L, profile.getPacingNanos());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_UnknownKey_Throws() {
+        LoadProfile.parse(new String[]{"threads=4"});
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import com.example.code_zombom_app.Helpers.Users.NotificationPreferenceResolver;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies that the history and notifications of a draw are written in chunks that each advance
+ * the draw's checkpoint, and that an interrupted fan-out only writes the remaining entrants.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class LotteryFanOutTest {
+
+    @Mock private FirebaseFirestore mockFirestore;
+    @Mock private CollectionReference mockEventsCollection;
+    @Mock private CollectionReference mockDrawsCollection;
+    @Mock private CollectionReference mockHistoryCollection;
+    @Mock private CollectionReference mockNotificationsCollection;
+    @Mock private CollectionReference mockProfilesCollection;
+    @Mock private DocumentReference mockEventDocumentRef;
+    @Mock private DocumentReference mockDrawDocumentRef;
+    @Mock private DocumentReference mockHistoryDocumentRef;
+    @Mock private DocumentReference mockNotificationDocumentRef;
+    @Mock private DocumentReference mockProfileDocumentRef;
+    @Mock private CollectionReference mockEntrantHistoryCollection;
+    @Mock private DocumentReference mockEntrantHistoryRef;
+    @Mock private NotificationPreferenceResolver mockPreferences;
+    @Mock private WriteBatch mockBatch;
+
+    // Recipients whose notifications are turned off
+    private final Set<String> optedOut = new HashSet<>();
+
+    private LotteryFanOut fanOut;
+
+    private static final String EVENT_ID = "fan-out-event";
+
+    @Before
+    public void setUp() {
+        fanOut = new LotteryFanOut(mockFirestore, mockPreferences);
+
+        when(mockFirestore.collection("Events")).thenReturn(mockEventsCollection);
+        when(mockEventsCollection.document(EVENT_ID)).thenReturn(mockEventDocumentRef);
+        when(mockEventDocumentRef.collection(LotteryDraw.COLLECTION)).thenReturn(mockDrawsCollection);
+        when(mockDrawsCollection.document("draw-1")).thenReturn(mockDrawDocumentRef);
+        when(mockEventDocumentRef.collection("History")).thenReturn(mockHistoryCollection);
+        when(mockHistoryCollection.document(anyString())).thenReturn(mockHistoryDocumentRef);
+        when(mockEventDocumentRef.collection("Notifications")).thenReturn(mockNotificationsCollection);
+        when(mockNotificationsCollection.document(anyString())).thenReturn(mockNotificationDocumentRef);
+        when(mockFirestore.collection("Profiles")).thenReturn(mockProfilesCollection);
+        when(mockProfilesCollection.document(anyString())).thenReturn(mockProfileDocumentRef);
+        when(mockProfileDocumentRef.collection(EntrantHistory.COLLECTION)).thenReturn(mockEntrantHistoryCollection);
+        when(mockEntrantHistoryCollection.document(EVENT_ID)).thenReturn(mockEntrantHistoryRef);
+        when(mockPreferences.resolve(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> emails = invocation.getArgument(0);
+            Map<String, Boolean> enabled = new HashMap<>();
+            for (String email : emails) {
+                enabled.put(email, !optedOut.contains(email));
+            }
+            return Tasks.forResult(enabled);
+        });
+
+        when(mockFirestore.batch()).thenReturn(mockBatch);
+        when(mockBatch.commit()).thenReturn(Tasks.forResult(null));
+    }
+
+    private LotteryDraw draw(int winners, int losers) {
+        Event event = new Event("Fan Out");
+        event.setEventId(EVENT_ID);
+        List<String> won = new ArrayList<>();
+        for (int i = 0; i < winners; i++) {
+            won.add("winner" + i + "@example.com");
+        }
+        List<String> lost = new ArrayList<>();
+        for (int i = 0; i < losers; i++) {
+            lost.add("loser" + i + "@example.com");
+        }
+        LotteryDraw draw = LotteryDraw.of(event, won, lost);
+        draw.setDrawId("draw-1");
+        return draw;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void run_WritesEveryRecipientInCheckpointedChunks() {
+        int total = LotteryFanOut.CHUNK_SIZE + 34;
+        LotteryDraw draw = draw(10, total - 10);
+
+        assertTrue(fanOut.run(draw).isSuccessful());
+
+        verify(mockBatch, times(total)).set(eq(mockHistoryDocumentRef), anyMap());
+        verify(mockBatch, times(total)).set(eq(mockEntrantHistoryRef), anyMap());
+        verify(mockBatch, times(total)).set(eq(mockNotificationDocumentRef), anyMap());
+        verify(mockBatch, times(2)).commit();
+
+        ArgumentCaptor<Map<String, Object>> checkpoints = ArgumentCaptor.forClass(Map.class);
+        verify(mockBatch, times(2)).update(eq(mockDrawDocumentRef), checkpoints.capture());
+        assertEquals(LotteryFanOut.CHUNK_SIZE, checkpoints.getAllValues().get(0).get("fannedOut"));
+        assertEquals(false, checkpoints.getAllValues().get(0).get("complete"));
+        assertEquals(total, checkpoints.getAllValues().get(1).get("fannedOut"));
+        assertEquals(true, checkpoints.getAllValues().get(1).get("complete"));
+        assertTrue(draw.isComplete());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void run_ResumesFromCheckpoint() {
+        LotteryDraw draw = draw(2, 8);
+        draw.setFannedOut(6);
+
+        assertTrue(fanOut.run(draw).isSuccessful());
+
+        ArgumentCaptor<Map<String, Object>> notifications = ArgumentCaptor.forClass(Map.class);
+        verify(mockBatch, times(4)).set(eq(mockNotificationDocumentRef), notifications.capture());
+        for (Map<String, Object> payload : notifications.getAllValues()) {
+            // Only the last four losers had not been written
+            assertEquals("lose", payload.get("type"));
+        }
+        verify(mockProfilesCollection, never()).document("winner0@example.com");
+        verify(mockBatch).commit();
+    }
+
+    @Test
+    public void run_OptedOutRecipientStillGetsHistory() {
+        optedOut.add("winner0@example.com");
+
+        assertTrue(fanOut.run(draw(1, 0)).isSuccessful());
+
+        verify(mockBatch).set(eq(mockHistoryDocumentRef), anyMap());
+        verify(mockBatch).set(eq(mockEntrantHistoryRef), anyMap());
+        verify(mockBatch).set(eq(mockProfileDocumentRef), anyMap(), any(SetOptions.class));
+        verify(mockBatch, never()).set(eq(mockNotificationDocumentRef), anyMap());
+    }
+
+    @Test
+    public void run_CompleteDraw_WritesNothing() {
+        LotteryDraw draw = draw(1, 1);
+        draw.setFannedOut(2);
+        draw.setComplete(true);
+
+        assertTrue(fanOut.run(draw).isSuccessful());
+
+        verify(mockFirestore, never()).batch();
+    }
+}
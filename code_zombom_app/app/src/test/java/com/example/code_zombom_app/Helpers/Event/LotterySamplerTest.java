@@ -0,0 +1,156 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies that the lottery sampler picks distinct winners, uniformly or in proportion to their
+ * weights, and that uniform draws can be replayed from the seed.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class LotterySamplerTest {
+
+    private static List<String> entrants(int count) {
+        List<String> entrants = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            entrants.add("entrant" + i + "@example.com");
+        }
+        return entrants;
+    }
+
+    @Test
+    public void pick_SameSeedPicksSamePositions() {
+        assertArrayEquals(new LotterySampler(42L).pick(30_000, 10),
+                new LotterySampler(42L).pick(30_000, 10));
+    }
+
+    @Test
+    public void pick_PositionsAreDistinctAndInRange() {
+        int[] positions = new LotterySampler(7L).pick(50, 50);
+
+        Set<Integer> distinct = new HashSet<>();
+        for (int position : positions) {
+            assertTrue(position >= 0 && position < 50);
+            distinct.add(position);
+        }
+        assertEquals(50, distinct.size());
+        assertEquals(3, new LotterySampler(7L).pick(3, 10).length);
+        assertEquals(0, new LotterySampler(7L).pick(0, 10).length);
+    }
+
+    @Test
+    public void pick_EveryPositionIsEquallyLikely() {
+        int[] wins = new int[10];
+        for (long seed = 0; seed < 20_000; seed++) {
+            for (int position : new LotterySampler(seed).pick(10, 2)) {
+                wins[position]++;
+            }
+        }
+        // Each position is expected to win 4000 times
+        for (int count : wins) {
+            assertTrue("Unbalanced draw: " + Arrays.toString(wins), count > 3600 && count < 4400);
+        }
+    }
+
+    @Test
+    public void pickWeighted_FavoursHeavierCandidates() {
+        double[] weights = {9, 1, 1, 1, 1, 1, 1, 1, 1, 1};
+        int heavyWins = 0;
+        for (long seed = 0; seed < 20_000; seed++) {
+            if (new LotterySampler(seed).pick(weights, 1)[0] == 0) {
+                heavyWins++;
+            }
+        }
+        // The heavy candidate holds half of the weight
+        assertTrue("Heavy candidate won " + heavyWins + " times", heavyWins > 9_400 && heavyWins < 10_600);
+    }
+
+    @Test
+    public void pickWeighted_DrawsWithoutReplacement() {
+        double[] weights = new double[30_000];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = 1 + (i % 7);
+        }
+
+        int[] positions = new LotterySampler(99L).pick(weights, 20_000);
+
+        Set<Integer> distinct = new HashSet<>();
+        for (int position : positions) {
+            assertTrue(position >= 0 && position < weights.length);
+            distinct.add(position);
+        }
+        assertEquals(20_000, distinct.size());
+        assertArrayEquals(positions, new LotterySampler(99L).pick(weights, 20_000));
+        assertEquals(3, new LotterySampler(99L).pick(new double[]{1, 2, 3}, 5).length);
+    }
+
+    @Test
+    public void split_KeepsLosersInOrder() {
+        List<String> winners = new ArrayList<>();
+        List<String> losers = new ArrayList<>();
+
+        LotterySampler.split(Arrays.asList("a", "b", "c", "d", "e"), new int[]{3, 1}, winners, losers);
+
+        assertEquals(Arrays.asList("d", "b"), winners);
+        assertEquals(Arrays.asList("a", "c", "e"), losers);
+    }
+
+    @Test
+    public void replay_ReproducesRecordedDraw() {
+        List<String> candidates = entrants(200);
+        LotterySampler sampler = new LotterySampler(123456789L);
+        int[] positions = sampler.pick(candidates.size(), 15);
+        List<String> winners = new ArrayList<>();
+        List<String> losers = new ArrayList<>();
+        LotterySampler.split(candidates, positions, winners, losers);
+
+        LotteryDraw draw = LotteryDraw.of(new Event("Replay"), winners, losers);
+        draw.setSeed(sampler.getSeed());
+        List<Integer> winnerPositions = new ArrayList<>();
+        for (int position : positions) {
+            winnerPositions.add(position);
+        }
+        draw.setWinnerPositions(winnerPositions);
+
+        assertEquals(candidates, draw.candidates());
+        assertEquals(winners, LotterySampler.replay(draw));
+    }
+
+    @Test
+    public void replay_DrawLoadedFromFirestore_UsesRestoredRecipients() {
+        List<String> candidates = entrants(50);
+        LotterySampler sampler = new LotterySampler(42L);
+        int[] positions = sampler.pick(candidates.size(), 4);
+        List<String> winners = new ArrayList<>();
+        List<String> losers = new ArrayList<>();
+        LotterySampler.split(candidates, positions, winners, losers);
+        List<String> recipients = new ArrayList<>(winners);
+        recipients.addAll(losers);
+        List<Integer> winnerPositions = new ArrayList<>();
+        for (int position : positions) {
+            winnerPositions.add(position);
+        }
+
+        // The stored record only holds the counts; the lists come back from its recipient chunks
+        LotteryDraw stored = new LotteryDraw();
+        stored.setSeed(sampler.getSeed());
+        stored.setWinnerCount(winners.size());
+        stored.setLoserCount(losers.size());
+        stored.restoreRecipients(recipients, winnerPositions);
+
+        assertEquals(losers, stored.getLosers());
+        assertEquals(candidates, stored.candidates());
+        assertEquals(winners, LotterySampler.replay(stored));
+    }
+}
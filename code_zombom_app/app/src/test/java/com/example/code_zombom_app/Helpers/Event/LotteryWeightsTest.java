@@ -0,0 +1,90 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies that the weights of a prior losses draw count the draws each candidate lost in other
+ * events, reading the profiles in chunks.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class LotteryWeightsTest {
+
+    @Mock private FirebaseFirestore mockFirestore;
+    @Mock private CollectionReference mockProfilesCollection;
+    @Mock private Query mockQuery;
+    @Mock private QuerySnapshot mockSnapshot;
+
+    private LotteryWeights weights;
+
+    @Before
+    public void setUp() {
+        weights = new LotteryWeights(mockFirestore);
+        when(mockFirestore.collection("Profiles")).thenReturn(mockProfilesCollection);
+        when(mockProfilesCollection.whereIn(any(FieldPath.class), anyList())).thenReturn(mockQuery);
+        when(mockQuery.get()).thenReturn(Tasks.forResult(mockSnapshot));
+    }
+
+    private static DocumentSnapshot profile(String email, Map<String, Object> history) {
+        DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
+        when(snapshot.getId()).thenReturn(email);
+        when(snapshot.get("eventHistory")).thenReturn(history);
+        return snapshot;
+    }
+
+    @Test
+    public void load_CountsLostDrawsOfOtherEvents() {
+        Map<String, Object> history = new HashMap<>();
+        history.put("event-a", "NOT_SELECTED");
+        history.put("event-b", "NOT_SELECTED");
+        history.put("event-c", "SELECTED");
+        history.put("this-event", "NOT_SELECTED");
+        DocumentSnapshot loser = profile("loser@example.com", history);
+        DocumentSnapshot winner = profile("winner@example.com", new HashMap<>());
+        when(mockSnapshot.getDocuments()).thenReturn(Arrays.asList(loser, winner));
+
+        Map<String, Double> loaded = weights.load("this-event",
+                Arrays.asList("loser@example.com ", "winner@example.com")).getResult();
+
+        assertEquals(Double.valueOf(3.0), loaded.get("loser@example.com "));
+        assertFalse(loaded.containsKey("winner@example.com"));
+    }
+
+    @Test
+    public void load_ReadsProfilesInChunks() {
+        List<String> candidates = new ArrayList<>();
+        for (int i = 0; i < 2 * LotteryWeights.MAX_IN_VALUES + 1; i++) {
+            candidates.add("entrant" + i + "@example.com");
+        }
+
+        weights.load("this-event", candidates);
+
+        verify(mockProfilesCollection, times(3)).whereIn(any(FieldPath.class), anyList());
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.Transaction;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies that recipient lists are split into bounded chunks beside their draw or broadcast and
+ * read back in order.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class RecipientChunksTest {
+
+    @Mock private DocumentReference mockEventRef;
+    @Mock private CollectionReference mockRecipients;
+    @Mock private DocumentReference mockChunkRef;
+    @Mock private Transaction mockTransaction;
+
+    @Before
+    public void setUp() {
+        when(mockEventRef.collection(RecipientChunks.COLLECTION)).thenReturn(mockRecipients);
+    }
+
+    private static List<String> emails(int count) {
+        List<String> emails = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            emails.add("entrant" + i + "@example.com");
+        }
+        return emails;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void write_SplitsRecipientsAndKeepsPositionsWithTheirChunk() {
+        when(mockRecipients.document(anyString())).thenReturn(mockChunkRef);
+        List<String> recipients = emails(RecipientChunks.PER_CHUNK + 5);
+
+        RecipientChunks.write(new TrackedTransaction(mockTransaction), mockEventRef, "draw-1",
+                recipients, Arrays.asList(4, 0, 9));
+
+        ArgumentCaptor<Map<String, Object>> chunks = ArgumentCaptor.forClass(Map.class);
+        verify(mockTransaction, times(2)).set(eq(mockChunkRef), chunks.capture());
+        verify(mockRecipients).document("draw-1_0");
+        verify(mockRecipients).document("draw-1_1");
+        Map<String, Object> first = chunks.getAllValues().get(0);
+        Map<String, Object> second = chunks.getAllValues().get(1);
+        assertEquals(RecipientChunks.PER_CHUNK, ((List<?>) first.get("recipients")).size());
+        assertEquals(Arrays.asList(4, 0, 9), first.get("positions"));
+        assertEquals(5, ((List<?>) second.get("recipients")).size());
+        assertFalse(second.containsKey("positions"));
+    }
+
+    @Test
+    public void read_JoinsChunksInOrder() {
+        List<String> recipients = emails(RecipientChunks.PER_CHUNK + 2);
+        DocumentSnapshot first = chunk(recipients.subList(0, RecipientChunks.PER_CHUNK),
+                Arrays.asList(3L, 1L));
+        DocumentSnapshot second = chunk(recipients.subList(RecipientChunks.PER_CHUNK,
+                recipients.size()), null);
+        stubChunk("draw-1_0", Tasks.forResult(first));
+        stubChunk("draw-1_1", Tasks.forResult(second));
+
+        List<String> read = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        Task<Void> task = RecipientChunks.read(mockEventRef, "draw-1", recipients.size(), read,
+                positions);
+
+        assertTrue(task.isSuccessful());
+        assertEquals(recipients, read);
+        assertEquals(Arrays.asList(3, 1), positions);
+    }
+
+    @Test
+    public void read_MissingChunk_Fails() {
+        DocumentSnapshot missing = mock(DocumentSnapshot.class);
+        stubChunk("broadcast-1_0", Tasks.forResult(missing));
+
+        Task<Void> task = RecipientChunks.read(mockEventRef, "broadcast-1", 3, new ArrayList<>(), null);
+
+        assertFalse(task.isSuccessful());
+    }
+
+    private void stubChunk(String id, Task<DocumentSnapshot> result) {
+        DocumentReference chunkRef = mock(DocumentReference.class);
+        when(mockRecipients.document(id)).thenReturn(chunkRef);
+        when(chunkRef.get()).thenReturn(result);
+    }
+
+    private static DocumentSnapshot chunk(List<String> recipients, List<Long> positions) {
+        DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
+        when(snapshot.get("recipients")).thenReturn(new ArrayList<>(recipients));
+        if (positions != null) {
+            when(snapshot.get("positions")).thenReturn(positions);
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies the writes, the places taken under a limit and the cached summed reads of
+ * {@link ShardedCounter}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class ShardedCounterTest {
+
+    @Mock private DocumentReference mockEventRef;
+    @Mock private CollectionReference mockCounters;
+    @Mock private DocumentReference mockShardRef;
+    @Mock private Transaction mockTransaction;
+
+    private ShardedCounter counter;
+    private TrackedTransaction tracked;
+
+    @Before
+    public void setUp() {
+        counter = new ShardedCounter();
+        tracked = new TrackedTransaction(mockTransaction);
+        when(mockEventRef.collection(ShardedCounter.COLLECTION)).thenReturn(mockCounters);
+        when(mockCounters.document(anyString())).thenReturn(mockShardRef);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void move_IncrementsBothStatusesOnOneShard() {
+        counter.move(tracked, mockEventRef, MembershipIndex.Status.WAITING, 3,
+                MembershipIndex.Status.CHOSEN, 3);
+
+        ArgumentCaptor<Map<String, Object>> update = ArgumentCaptor.forClass(Map.class);
+        verify(mockTransaction).set(eq(mockShardRef), update.capture(), any(SetOptions.class));
+        assertEquals(2, update.getValue().size());
+        verify(mockCounters).document("shard_3");
+    }
+
+    @Test
+    public void move_ToPending_CountsItInTotals() {
+        counter.move(tracked, mockEventRef, MembershipIndex.Status.CHOSEN, 3,
+                MembershipIndex.Status.PENDING, 3);
+
+        verify(mockCounters).document("shard_3");
+        verify(mockCounters).document(ShardedCounter.TOTALS);
+        verify(mockTransaction, times(2)).set(eq(mockShardRef), any(Map.class), any(SetOptions.class));
+    }
+
+    @Test
+    public void move_SameStatus_WritesNothing() {
+        counter.move(tracked, mockEventRef, MembershipIndex.Status.WAITING, 3,
+                MembershipIndex.Status.WAITING, 3);
+
+        verify(mockTransaction, never()).set(any(DocumentReference.class), any(Map.class), any(SetOptions.class));
+    }
+
+    @Test
+    public void moveAll_WritesEachShardOnce() {
+        int[] perShard = new int[ShardedCounter.SHARDS];
+        perShard[1] = 4;
+        perShard[7] = 2;
+
+        counter.moveAll(tracked, mockEventRef, MembershipIndex.Status.WAITING,
+                MembershipIndex.Status.CHOSEN, perShard);
+
+        verify(mockCounters).document("shard_1");
+        verify(mockCounters).document("shard_7");
+        verify(mockTransaction, times(2)).set(eq(mockShardRef), any(Map.class), any(SetOptions.class));
+    }
+
+    @Test
+    public void moveAll_ToPending_AddsUpTotalsInOneWrite() {
+        int[] perShard = new int[ShardedCounter.SHARDS];
+        perShard[1] = 4;
+        perShard[7] = 2;
+
+        counter.moveAll(tracked, mockEventRef, MembershipIndex.Status.CHOSEN,
+                MembershipIndex.Status.PENDING, perShard);
+
+        verify(mockCounters, times(1)).document(ShardedCounter.TOTALS);
+        verify(mockTransaction, times(3)).set(eq(mockShardRef), any(Map.class), any(SetOptions.class));
+    }
+
+    @Test
+    public void quota_AddsUpToTheLimit() {
+        for (long limit = 0; limit <= 3 * ShardedCounter.SHARDS + 1; limit++) {
+            long total = 0;
+            for (int shard = 0; shard < ShardedCounter.SHARDS; shard++) {
+                total += ShardedCounter.quota(limit, shard);
+            }
+            assertEquals(limit, total);
+        }
+    }
+
+    @Test
+    public void reserve_FarFromLimit_ReadsOneShard() throws Exception {
+        DocumentSnapshot snapshot = shard(1L, null);
+        when(mockTransaction.get(mockShardRef)).thenReturn(snapshot);
+
+        int shard = counter.reserve(tracked, mockEventRef, 100);
+
+        assertTrue(shard >= 0 && shard < ShardedCounter.SHARDS);
+        verify(mockTransaction, times(1)).get(mockShardRef);
+    }
+
+    @Test
+    public void reserve_EveryQuotaTaken_ReturnsNoShard() throws Exception {
+        DocumentSnapshot snapshot = shard(2L, null);
+        when(mockTransaction.get(mockShardRef)).thenReturn(snapshot);
+
+        assertEquals(-1, counter.reserve(tracked, mockEventRef, 2 * ShardedCounter.SHARDS));
+        verify(mockTransaction, times(ShardedCounter.SHARDS)).get(mockShardRef);
+    }
+
+    @Test
+    public void reserve_NoLimit_ReadsNothing() throws Exception {
+        int shard = counter.reserve(tracked, mockEventRef, 0);
+
+        assertTrue(shard >= 0 && shard < ShardedCounter.SHARDS);
+        verify(mockTransaction, never()).get(any(DocumentReference.class));
+    }
+
+    @Test
+    public void sum_AddsFieldsOfEveryShard() {
+        DocumentSnapshot first = shard(3L, 1L);
+        DocumentSnapshot second = shard(2L, null);
+        DocumentSnapshot missing = mock(DocumentSnapshot.class);
+
+        Map<MembershipIndex.Status, Long> counts = ShardedCounter.sum(Arrays.asList(first, second, missing, null));
+
+        assertEquals(Long.valueOf(5), counts.get(MembershipIndex.Status.WAITING));
+        assertEquals(Long.valueOf(1), counts.get(MembershipIndex.Status.CHOSEN));
+        assertEquals(Long.valueOf(0), counts.get(MembershipIndex.Status.REGISTERED));
+    }
+
+    @Test
+    public void load_ReusesFreshSumWithoutReadingShardsAgain() {
+        mockShards(shard(1L, null), shard(2L, null));
+
+        Map<MembershipIndex.Status, Long> first = counter.load(mockEventRef).getResult();
+        Map<MembershipIndex.Status, Long> second = counter.load(mockEventRef).getResult();
+
+        assertEquals(Long.valueOf(3), first.get(MembershipIndex.Status.WAITING));
+        assertEquals(first, second);
+        verify(mockCounters, times(1)).get();
+        assertEquals(Long.valueOf(3), counter.peek(mockEventRef, MembershipIndex.Status.WAITING));
+    }
+
+    @Test
+    public void invalidate_DropsCachedSum() {
+        mockShards(shard(1L, null));
+        counter.load(mockEventRef);
+
+        counter.invalidate(mockEventRef);
+
+        assertNull(counter.peek(mockEventRef, MembershipIndex.Status.WAITING));
+    }
+
+    private void mockShards(DocumentSnapshot... shards) {
+        QuerySnapshot snapshot = mock(QuerySnapshot.class);
+        when(snapshot.getDocuments()).thenReturn(Arrays.asList(shards));
+        when(mockCounters.get()).thenReturn(Tasks.forResult(snapshot));
+    }
+
+    private DocumentSnapshot shard(Long waiting, Long chosen) {
+        DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
+        when(snapshot.exists()).thenReturn(true);
+        when(snapshot.getLong(MembershipIndex.Status.WAITING.name())).thenReturn(waiting);
+        if (chosen != null) {
+            when(snapshot.getLong(MembershipIndex.Status.CHOSEN.name())).thenReturn(chosen);
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.Transaction;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies that transactions are recorded with their attempts, reads, writes and outcome, that
+ * only contention is retried with a bounded random backoff, and that contended events are ranked.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class TransactionRunnerTest {
+
+    @Mock private FirebaseFirestore mockFirestore;
+    @Mock private Transaction mockTransaction;
+    @Mock private DocumentReference mockEventRef;
+    @Mock private DocumentReference mockHistoryRef;
+    @Mock private DocumentSnapshot mockSnapshot;
+    @Mock private ScheduledExecutorService mockScheduler;
+
+    private TransactionMetrics metrics;
+    private TransactionRunner runner;
+
+    private static final String EVENT_ID = "runner-event";
+
+    @Before
+    public void setUp() {
+        metrics = new TransactionMetrics();
+        runner = new TransactionRunner(mockFirestore, metrics, mockScheduler);
+    }
+
+    /**
+     * Runs the transaction function as many times as given, then fails every call with the
+     * errors given, in order, before succeeding.
+     */
+    private void mockTransaction(int runs, Exception... failures) {
+        AtomicInteger calls = new AtomicInteger();
+        doAnswer(invocation -> {
+            @SuppressWarnings("unchecked")
+            Transaction.Function<Object> function = invocation.getArgument(0);
+            int call = calls.getAndIncrement();
+            try {
+                Object result = null;
+                for (int run = 0; run < runs; run++) {
+                    result = function.apply(mockTransaction);
+                }
+                return call < failures.length ? Tasks.forException(failures[call]) : Tasks.forResult(result);
+            } catch (Exception e) {
+                return Tasks.forException(e);
+            }
+        }).when(mockFirestore).runTransaction(any(Transaction.Function.class));
+    }
+
+    private void runScheduledImmediately() {
+        when(mockScheduler.schedule(any(Runnable.class), anyLong(), any(TimeUnit.class)))
+                .thenAnswer(invocation -> {
+                    ((Runnable) invocation.getArgument(0)).run();
+                    return null;
+                });
+    }
+
+    private static FirebaseFirestoreException aborted() {
+        return new FirebaseFirestoreException("Transaction aborted",
+                FirebaseFirestoreException.Code.ABORTED);
+    }
+
+    private Task<String> readAndWrite() {
+        return runner.run("join", EVENT_ID, transaction -> {
+            transaction.get(mockEventRef);
+            transaction.set(mockHistoryRef, new HashMap<String, Object>());
+            transaction.delete(mockHistoryRef);
+            return "done";
+        });
+    }
+
+    @Test
+    public void run_RecordsAttemptsReadsAndWrites() throws Exception {
+        when(mockTransaction.get(mockEventRef)).thenReturn(mockSnapshot);
+        mockTransaction(2);
+
+        Task<String> task = readAndWrite();
+
+        assertTrue(task.isSuccessful());
+        assertEquals("done", task.getResult());
+        TransactionMetrics.Snapshot join = metrics.get("join");
+        assertNotNull(join);
+        assertEquals(1, join.getCalls());
+        assertEquals(2, join.getAttempts());
+        assertEquals(1, join.getRetries());
+        // Reads of every attempt are billed; only the writes of the attempt that committed are
+        assertEquals(2, join.getReads());
+        assertEquals(2, join.getWrites());
+        assertEquals(0, join.getContentionAborts());
+        assertEquals(Arrays.asList(EVENT_ID), metrics.hotEvents(5));
+    }
+
+    @Test
+    public void run_RetriesContentionAfterJitteredBackoff() throws Exception {
+        when(mockTransaction.get(mockEventRef)).thenReturn(mockSnapshot);
+        runScheduledImmediately();
+        mockTransaction(1, aborted(), aborted());
+
+        Task<String> task = readAndWrite();
+
+        assertTrue(task.isSuccessful());
+        ArgumentCaptor<Long> delays = ArgumentCaptor.forClass(Long.class);
+        verify(mockScheduler, times(2)).schedule(any(Runnable.class), delays.capture(),
+                eq(TimeUnit.MILLISECONDS));
+        assertTrue(delays.getAllValues().get(0) <= TransactionRunner.BASE_BACKOFF_MS);
+        assertTrue(delays.getAllValues().get(1) <= 2 * TransactionRunner.BASE_BACKOFF_MS);
+        TransactionMetrics.Snapshot join = metrics.get("join");
+        assertEquals(1, join.getCalls());
+        assertEquals(3, join.getAttempts());
+        assertEquals(0, join.getContentionAborts());
+    }
+
+    @Test
+    public void run_GivesUpOnContentionAfterRetries() throws Exception {
+        when(mockTransaction.get(mockEventRef)).thenReturn(mockSnapshot);
+        runScheduledImmediately();
+        runner.setContentionRetries(1);
+        mockTransaction(1, aborted(), aborted(), aborted());
+
+        Task<String> task = readAndWrite();
+
+        assertFalse(task.isSuccessful());
+        assertTrue(TransactionRunner.isContention(task.getException()));
+        verify(mockScheduler, times(1)).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+        TransactionMetrics.Snapshot join = metrics.get("join");
+        assertEquals(1, join.getContentionAborts());
+        assertEquals(0, join.getFailures());
+    }
+
+    @Test
+    public void run_DoesNotRetryOtherFailures() {
+        mockTransaction(1);
+
+        Task<String> task = runner.run("accept", EVENT_ID, transaction -> {
+            throw new IllegalArgumentException("Entrant is not on the chosen list");
+        });
+
+        assertFalse(task.isSuccessful());
+        assertTrue(task.getException() instanceof IllegalArgumentException);
+        verify(mockScheduler, never()).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+        TransactionMetrics.Snapshot accept = metrics.get("accept");
+        assertEquals(1, accept.getFailures());
+        assertEquals(0, accept.getContentionAborts());
+        // A failure that is not contention does not make an event hot
+        assertTrue(metrics.hotEvents(5).isEmpty());
+    }
+
+    @Test
+    public void metrics_ReportPercentilesFromHistogram() {
+        for (int i = 0; i < 98; i++) {
+            metrics.record("join", null, 1, 1, 1, TimeUnit.MICROSECONDS.toNanos(500),
+                    TransactionMetrics.Outcome.SUCCESS);
+        }
+        metrics.record("join", null, 1, 1, 1, TimeUnit.MILLISECONDS.toNanos(40),
+                TransactionMetrics.Outcome.SUCCESS);
+        metrics.record("join", null, 1, 1, 1, TimeUnit.SECONDS.toNanos(1000),
+                TransactionMetrics.Outcome.SUCCESS);
+
+        TransactionMetrics.Snapshot join = metrics.get("join");
+        assertEquals(1, join.percentileMillis(0.5));
+        assertEquals(64, join.percentileMillis(0.99));
+        assertEquals(1L << (TransactionMetrics.LATENCY_BUCKETS - 1), join.percentileMillis(1));
+        assertEquals(0, TransactionMetrics.bucketOf(TimeUnit.MICROSECONDS.toNanos(900)));
+        assertEquals(1, TransactionMetrics.bucketOf(TimeUnit.MILLISECONDS.toNanos(1)));
+        assertEquals(3, TransactionMetrics.bucketOf(TimeUnit.MILLISECONDS.toNanos(7)));
+    }
+
+    @Test
+    public void hotEvents_RankAbortsAboveRetries() {
+        metrics.record("join", "calm", 1, 1, 1, 0, TransactionMetrics.Outcome.SUCCESS);
+        metrics.record("join", "retried", 4, 4, 1, 0, TransactionMetrics.Outcome.SUCCESS);
+        metrics.record("join", "aborted", 2, 2, 0, 0, TransactionMetrics.Outcome.CONTENTION);
+        metrics.record("leave", "retried", 2, 2, 1, 0, TransactionMetrics.Outcome.SUCCESS);
+
+        assertEquals(Arrays.asList("aborted", "retried"), metrics.hotEvents(5));
+        assertEquals(Arrays.asList("aborted"), metrics.hotEvents(1));
+
+        metrics.reset();
+        assertTrue(metrics.hotEvents(5).isEmpty());
+        assertTrue(metrics.snapshot().isEmpty());
+    }
+}
@@ -1,6 +1,5 @@
 package com.example.code_zombom_app.Helpers.Event;
 
-import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.junit.MockitoJUnitRunner;
@@ -14,11 +13,6 @@ import static org.junit.Assert.assertTrue;
 @RunWith(MockitoJUnitRunner.class)
 public class WaitlistCountAndGuidelinesTest {
 
-    @Before
-    public void disableQr() {
-        Event.setQrCodeGenerationEnabled(false);
-    }
-
     @Test
     public void getNumberOfWaiting_ReflectsJoinLeaveOperations() {
         Event event = new Event("Count Test");
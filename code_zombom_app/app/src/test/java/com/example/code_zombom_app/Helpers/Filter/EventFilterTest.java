@@ -17,7 +17,6 @@ import static org.junit.Assert.assertTrue;
  *
  * This test class does NOT touch Firestore or Android UI:
  * - Uses the real Event model.
- * - Disables QR generation via Event.setQrCodeGenerationEnabled(false) to avoid Bitmap APIs.
  */
 @RunWith(MockitoJUnitRunner.class)
 public class EventFilterTest {
@@ -29,8 +28,6 @@ public class EventFilterTest {
 
     @Before
     public void setUp() {
-        // Disable QR generation so Event() doesn't touch Bitmap APIs in JVM tests
-        Event.setQrCodeGenerationEnabled(false);
         eventFilter = new EventFilter();
     }
 
@@ -0,0 +1,47 @@
+package com.example.code_zombom_app.Helpers.Metrics;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Verifies the document sizes against the storage size example of the Firestore documentation.
+ */
+public class DocumentSizeTest {
+
+    @Test
+    public void nameOf_CountsEverySegmentPlusSixteen() {
+        assertEquals(6 + 5 + 6 + 11 + 16, DocumentSize.nameOf("users/jeff/tasks/my_task_id"));
+    }
+
+    @Test
+    public void of_DocumentationExample() {
+        Map<String, Object> task = new LinkedHashMap<>();
+        task.put("type", "Personal");
+        task.put("done", false);
+        task.put("priority", 1);
+        task.put("description", "Learn Cloud Firestore");
+
+        assertEquals(147, DocumentSize.of("users/jeff/tasks/my_task_id", task));
+    }
+
+    @Test
+    public void of_NestedValues() {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("tags", Arrays.asList("a", "bc"));
+        fields.put("owner", Collections.singletonMap("id", 7L));
+
+        // tags: 5 + 2 + 3, owner: 6 + (3 + 8), name: 2 + 2 + 16, document: 32
+        assertEquals(10 + 17 + 20 + 32, DocumentSize.of("E/x", fields));
+    }
+
+    @Test
+    public void of_NoFields_CountsTheName() {
+        assertEquals(DocumentSize.nameOf("Events/abc") + 32, DocumentSize.of("Events/abc", null));
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.code_zombom_app.Helpers.Metrics;
+
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SnapshotMetadata;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies that the ledger bills server reads but not cached ones, bills listeners only for the
+ * documents that changed, and flags the calls that read more than their budget.
+ */
+public class FirestoreCostsTest {
+
+    private final FirestoreCosts costs = new FirestoreCosts();
+
+    @Test
+    public void read_Query_BillsEveryDocumentWithItsSize() {
+        costs.read("Screen.load", query(false, 3));
+
+        FirestoreCosts.Usage usage = costs.get("Screen.load");
+        assertEquals(1, usage.getCalls());
+        assertEquals(3, usage.getReads());
+        assertEquals(3 * DocumentSize.of("Events/e", Collections.singletonMap("name", "x")),
+                usage.getBytesRead());
+        assertEquals(3, usage.getMaxReads());
+    }
+
+    @Test
+    public void read_EmptyQuery_BillsOneRead() {
+        costs.read("Screen.load", query(false, 0));
+
+        assertEquals(1, costs.get("Screen.load").getReads());
+    }
+
+    @Test
+    public void read_FromCache_NotBilled() {
+        costs.read("Screen.load", query(true, 4));
+
+        FirestoreCosts.Usage usage = costs.get("Screen.load");
+        assertEquals(0, usage.getReads());
+        assertEquals(4, usage.getCached());
+    }
+
+    @Test
+    public void read_OverBudget_Flagged() {
+        costs.setReadBudget(5);
+        costs.setReadBudget("Admin.scan", 2);
+
+        costs.read("Admin.scan", query(false, 3));
+        costs.read("Entrant.load", query(false, 3));
+
+        List<FirestoreCosts.Usage> flagged = costs.overBudget();
+        assertEquals(1, flagged.size());
+        assertEquals("Admin.scan", flagged.get(0).getTag());
+        assertEquals(1, flagged.get(0).getOverBudget());
+        assertTrue(flagged.get(0).toString().contains("OVER BUDGET"));
+    }
+
+    @Test
+    public void listened_BillsOnlyChangedDocuments() {
+        costs.listened("Screen.listen", changes(false, DocumentChange.Type.ADDED,
+                DocumentChange.Type.MODIFIED, DocumentChange.Type.REMOVED));
+        // A snapshot that only changed its metadata bills nothing
+        costs.listened("Screen.listen", changes(false));
+
+        FirestoreCosts.Usage usage = costs.get("Screen.listen");
+        assertEquals(1, usage.getCalls());
+        assertEquals(2, usage.getReads());
+    }
+
+    @Test
+    public void listened_FromCache_NotBilled() {
+        costs.listened("Screen.listen", changes(true, DocumentChange.Type.ADDED));
+
+        FirestoreCosts.Usage usage = costs.get("Screen.listen");
+        assertEquals(0, usage.getReads());
+        assertEquals(1, usage.getCached());
+    }
+
+    @Test
+    public void wrote_CountsTheFieldsWritten() {
+        DocumentReference document = mock(DocumentReference.class);
+        when(document.getPath()).thenReturn("Events/e");
+
+        costs.wrote("Admin.remove", document, Collections.singletonMap("posterUrl", null));
+
+        FirestoreCosts.Usage usage = costs.get("Admin.remove");
+        assertEquals(1, usage.getWrites());
+        assertEquals(DocumentSize.nameOf("Events/e") + 10 + 1 + 32, usage.getBytesWritten());
+    }
+
+    @Test
+    public void snapshot_MostReadFirst() {
+        costs.record("small", 1, 0, 0, 0);
+        costs.record("large", 50, 0, 0, 0);
+
+        assertEquals("large", costs.snapshot().get(0).getTag());
+    }
+
+    @Test
+    public void reset_StartsANewSession() {
+        costs.setReadBudget("Admin.scan", 2);
+        costs.record("Admin.scan", 9, 0, 0, 0);
+
+        costs.reset();
+
+        assertNull(costs.get("Admin.scan"));
+        assertEquals(2, costs.getReadBudget("Admin.scan"));
+    }
+
+    private static QuerySnapshot changes(boolean fromCache, DocumentChange.Type... types) {
+        List<DocumentChange> changes = new ArrayList<>();
+        for (DocumentChange.Type type : types) {
+            DocumentChange change = mock(DocumentChange.class);
+            when(change.getType()).thenReturn(type);
+            if (type != DocumentChange.Type.REMOVED) {
+                when(change.getDocument()).thenReturn(mock(QueryDocumentSnapshot.class));
+            }
+            changes.add(change);
+        }
+        SnapshotMetadata metadata = mock(SnapshotMetadata.class);
+        when(metadata.isFromCache()).thenReturn(fromCache);
+        QuerySnapshot snapshot = mock(QuerySnapshot.class);
+        when(snapshot.getDocumentChanges()).thenReturn(changes);
+        when(snapshot.getMetadata()).thenReturn(metadata);
+        return snapshot;
+    }
+
+    private static QuerySnapshot query(boolean fromCache, int documents) {
+        List<DocumentSnapshot> docs = new ArrayList<>();
+        for (int i = 0; i < documents; i++) {
+            DocumentSnapshot doc = mock(DocumentSnapshot.class);
+            DocumentReference reference = mock(DocumentReference.class);
+            when(reference.getPath()).thenReturn("Events/e");
+            when(doc.getReference()).thenReturn(reference);
+            when(doc.getData()).thenReturn(Collections.singletonMap("name", "x"));
+            docs.add(doc);
+        }
+        SnapshotMetadata metadata = mock(SnapshotMetadata.class);
+        when(metadata.isFromCache()).thenReturn(fromCache);
+        QuerySnapshot snapshot = mock(QuerySnapshot.class);
+        when(snapshot.getDocuments()).thenReturn(docs);
+        when(snapshot.getMetadata()).thenReturn(metadata);
+        return snapshot;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.code_zombom_app.Helpers.Metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies that the histogram keeps every value within 1/16 of itself and reports percentiles
+ * from its buckets.
+ */
+public class HistogramTest {
+
+    @Test
+    public void bucketOf_SmallValues_GetABucketEach() {
+        for (int value = 0; value < 16; value++) {
+            assertEquals(value, Histogram.bucketOf(value));
+            assertEquals(value, Histogram.lowestOf(value));
+        }
+    }
+
+    @Test
+    public void bucketOf_LargeValues_StayWithinASixteenth() {
+        for (long value = 16; value < 1L << 36; value = value * 3 + 7) {
+            long lowest = Histogram.lowestOf(Histogram.bucketOf(value));
+            assertTrue(lowest <= value);
+            assertTrue(value - lowest <= value / 16);
+        }
+    }
+
+    @Test
+    public void bucketOf_HugeValues_ShareTheLastBucket() {
+        assertEquals(Histogram.BUCKETS - 1, Histogram.bucketOf(1L << Histogram.MAX_EXPONENT));
+        assertEquals(Histogram.BUCKETS - 1, Histogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void percentile_ReportsTheBucketOfTheRank() {
+        Histogram histogram = new Histogram();
+        for (int value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+        Histogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(500_500, snapshot.getSum());
+        assertEquals(1000, snapshot.getMax());
+        assertEquals(500, snapshot.percentile(0.5), 500 / 16.0);
+        assertEquals(990, snapshot.percentile(0.99), 990 / 16.0);
+        assertEquals(1000, snapshot.percentile(1));
+    }
+
+    @Test
+    public void percentile_NeverAboveTheMax() {
+        Histogram histogram = new Histogram();
+        histogram.record(1000);
+
+        assertEquals(1000, histogram.snapshot().percentile(0.5));
+    }
+
+    @Test
+    public void record_Negative_CountsAsZero() {
+        Histogram histogram = new Histogram();
+        histogram.record(-5);
+
+        assertEquals(0, histogram.snapshot().getSum());
+        assertEquals(0, histogram.snapshot().percentile(0.5));
+    }
+
+    @Test
+    public void reset_ClearsEverything() {
+        Histogram histogram = new Histogram();
+        histogram.record(42);
+        histogram.reset();
+
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMax());
+        assertEquals(0, snapshot.percentile(0.99));
+    }
+}
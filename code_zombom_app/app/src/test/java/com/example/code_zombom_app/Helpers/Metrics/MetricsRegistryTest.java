@@ -0,0 +1,77 @@
+package com.example.code_zombom_app.Helpers.Metrics;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies that the registry hands out one metric per name and that its snapshot, export and
+ * reset cover every metric.
+ */
+public class MetricsRegistryTest {
+
+    private final MetricsRegistry registry = new MetricsRegistry();
+
+    @Test
+    public void counter_SameName_SameCounter() {
+        assertSame(registry.counter("a"), registry.counter("a"));
+        assertSame(registry.timer("a"), registry.timer("a"));
+        assertSame(registry.histogram("a"), registry.histogram("a"));
+    }
+
+    @Test
+    public void snapshot_SortedByName() {
+        registry.counter("b").add(3);
+        registry.histogram("a").record(7);
+
+        List<MetricSnapshot> snapshot = registry.snapshot();
+
+        assertEquals(2, snapshot.size());
+        assertEquals("a", snapshot.get(0).getName());
+        assertEquals(MetricSnapshot.Type.HISTOGRAM, snapshot.get(0).getType());
+        assertEquals(7, snapshot.get(0).getMax());
+        assertEquals("b", snapshot.get(1).getName());
+        assertEquals(3, snapshot.get(1).getCount());
+    }
+
+    @Test
+    public void operation_RecordsUnderItsSuffixes() {
+        OperationMetrics operation = registry.operation("Model.load");
+        operation.succeeded(operation.start(), 12);
+        operation.deserialized(operation.start());
+        operation.failed(operation.start());
+
+        assertEquals(2, registry.timer("Model.load" + OperationMetrics.LATENCY).snapshot().getCount());
+        assertEquals(12, registry.histogram("Model.load" + OperationMetrics.DOCUMENTS).snapshot().getMax());
+        assertEquals(1, registry.timer("Model.load" + OperationMetrics.DESERIALIZATION)
+                .snapshot().getCount());
+        assertEquals(1, registry.counter("Model.load" + OperationMetrics.FAILURES).get());
+    }
+
+    @Test
+    public void export_WritesEveryMetricAsJson() {
+        registry.counter("load.failures").increment();
+        registry.histogram("load \"all\"").record(4);
+
+        assertEquals("{\"load \\\"all\\\"\":{\"type\":\"HISTOGRAM\",\"count\":1,\"sum\":4,"
+                        + "\"max\":4,\"p50\":4,\"p90\":4,\"p99\":4},"
+                        + "\"load.failures\":{\"type\":\"COUNTER\",\"count\":1}}",
+                registry.export());
+    }
+
+    @Test
+    public void reset_KeepsMetricsButZeroesThem() {
+        Counter counter = registry.counter("c");
+        counter.add(5);
+
+        registry.reset();
+        counter.increment();
+
+        assertEquals(1, registry.counter("c").get());
+        assertTrue(registry.export().contains("\"c\""));
+    }
+}
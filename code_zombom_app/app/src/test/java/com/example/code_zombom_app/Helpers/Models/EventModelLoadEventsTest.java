@@ -8,6 +8,7 @@ import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
 import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -50,12 +51,21 @@ public class EventModelLoadEventsTest {
     @Before
     public void setup() {
         MockitoAnnotations.openMocks(this);
-        Event.setQrCodeGenerationEnabled(false);
 
         when(mockFirestore.collection("Events")).thenReturn(mockEventsCollection);
+        mockCacheMiss();
         eventModel = new TestableEventModel(mockFirestore);
     }
 
+    // Nothing is cached yet, so every read goes on to the server
+    private void mockCacheMiss() {
+        Task<QuerySnapshot> task = mock(Task.class);
+        when(mockEventsCollection.get(Source.CACHE)).thenReturn(task);
+        doAnswer(inv -> task).when(task).addOnSuccessListener(any(OnSuccessListener.class));
+        doAnswer(inv -> { ((OnFailureListener)inv.getArgument(0)).onFailure(new Exception("Not cached")); return task; })
+                .when(task).addOnFailureListener(any(OnFailureListener.class));
+    }
+
     private Task<QuerySnapshot> mockSuccessTask(QuerySnapshot snapshot) {
         Task<QuerySnapshot> task = mock(Task.class);
         when(mockEventsCollection.get()).thenReturn(task);
@@ -6,6 +6,7 @@ import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
 import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -63,12 +64,21 @@ public class EventModelTest {
         // but calling this again is harmless if you want to keep it.
         MockitoAnnotations.initMocks(this);
 
-        // IMPORTANT: disable QR generation so Event() doesn't touch Bitmap APIs in JVM tests
-        Event.setQrCodeGenerationEnabled(false);
-
         // Setup Firestore collection mock
         when(mockFirestore.collection("Events")).thenReturn(mockEventsCollection);
 
+        // Nothing is cached yet, so every read goes on to the server
+        Task<QuerySnapshot> cacheMiss = mock(Task.class);
+        when(mockEventsCollection.get(Source.CACHE)).thenReturn(cacheMiss);
+        when(cacheMiss.addOnSuccessListener(any())).thenReturn(cacheMiss);
+        when(cacheMiss.addOnFailureListener(any()))
+                .thenAnswer((Answer<Task<QuerySnapshot>>) invocation -> {
+                    com.google.android.gms.tasks.OnFailureListener failureListener =
+                            invocation.getArgument(0);
+                    failureListener.onFailure(new Exception("Not cached"));
+                    return cacheMiss;
+                });
+
         // Use DI constructor so we NEVER call FirebaseFirestore.getInstance() in tests
         eventModel = new EventModel(mockFirestore);
     }
@@ -0,0 +1,200 @@
+package com.example.code_zombom_app.Helpers.Offline;
+
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies that reads are answered from the cache, refreshed from the server once older than the
+ * staleness budget, and sent to the server when the cache cannot answer them.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class CacheFirstReaderTest {
+
+    @Mock private DocumentReference mockDocument;
+    @Mock private DocumentSnapshot mockCachedSnapshot;
+    @Mock private DocumentSnapshot mockServerSnapshot;
+    @Mock private Query mockQuery;
+    @Mock private QuerySnapshot mockCachedResult;
+    @Mock private QuerySnapshot mockServerResult;
+
+    private static final String KEY = "Events/event-1";
+    private static final long STALENESS_MS = 1_000;
+
+    private final AtomicLong now = new AtomicLong(10_000);
+    private final List<Object> results = new ArrayList<>();
+    private final List<Exception> failures = new ArrayList<>();
+
+    private CacheFirstReader reader;
+
+    @Before
+    public void setUp() {
+        reader = new CacheFirstReader(STALENESS_MS, now::get);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Task<T> succeeded(T result) {
+        Task<T> task = mock(Task.class);
+        when(task.addOnSuccessListener(any())).thenAnswer(invocation -> {
+            ((OnSuccessListener<T>) invocation.getArgument(0)).onSuccess(result);
+            return task;
+        });
+        when(task.addOnFailureListener(any())).thenReturn(task);
+        return task;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Task<T> failed(Exception e) {
+        Task<T> task = mock(Task.class);
+        when(task.addOnSuccessListener(any())).thenReturn(task);
+        when(task.addOnFailureListener(any())).thenAnswer(invocation -> {
+            ((OnFailureListener) invocation.getArgument(0)).onFailure(e);
+            return task;
+        });
+        return task;
+    }
+
+    private void readDocument() {
+        reader.read(KEY, mockDocument, results::add, failures::add);
+    }
+
+    @Test
+    public void read_CacheMiss_ReadsFromServer() {
+        Task<DocumentSnapshot> cache = succeeded(mockCachedSnapshot);
+        Task<DocumentSnapshot> server = succeeded(mockServerSnapshot);
+        when(mockCachedSnapshot.exists()).thenReturn(false);
+        when(mockDocument.get(Source.CACHE)).thenReturn(cache);
+        when(mockDocument.get()).thenReturn(server);
+
+        readDocument();
+
+        assertEquals(1, results.size());
+        assertSame(mockServerSnapshot, results.get(0));
+        assertTrue(reader.isFresh(KEY));
+    }
+
+    @Test
+    public void read_FreshCacheHit_DoesNotReadFromServer() {
+        Task<DocumentSnapshot> missing = failed(new Exception("Not cached"));
+        Task<DocumentSnapshot> server = succeeded(mockServerSnapshot);
+        Task<DocumentSnapshot> cached = succeeded(mockCachedSnapshot);
+        when(mockCachedSnapshot.exists()).thenReturn(true);
+        when(mockDocument.get(Source.CACHE)).thenReturn(missing, cached);
+        when(mockDocument.get()).thenReturn(server);
+        readDocument();
+        results.clear();
+
+        now.addAndGet(STALENESS_MS);
+        readDocument();
+
+        assertEquals(1, results.size());
+        assertSame(mockCachedSnapshot, results.get(0));
+        verify(mockDocument, never()).get(Source.SERVER);
+    }
+
+    @Test
+    public void read_StaleCacheHit_DeliversCachedThenServerResult() {
+        Task<DocumentSnapshot> cached = succeeded(mockCachedSnapshot);
+        Task<DocumentSnapshot> refreshed = succeeded(mockServerSnapshot);
+        when(mockCachedSnapshot.exists()).thenReturn(true);
+        when(mockDocument.get(Source.CACHE)).thenReturn(cached);
+        when(mockDocument.get(Source.SERVER)).thenReturn(refreshed);
+
+        readDocument();
+
+        assertEquals(2, results.size());
+        assertSame(mockCachedSnapshot, results.get(0));
+        assertSame(mockServerSnapshot, results.get(1));
+        assertTrue(reader.isFresh(KEY));
+    }
+
+    @Test
+    public void read_FailedRefresh_KeepsCachedResultWithoutFailure() {
+        Task<DocumentSnapshot> cached = succeeded(mockCachedSnapshot);
+        Task<DocumentSnapshot> offline = failed(new Exception("offline"));
+        when(mockCachedSnapshot.exists()).thenReturn(true);
+        when(mockDocument.get(Source.CACHE)).thenReturn(cached);
+        when(mockDocument.get(Source.SERVER)).thenReturn(offline);
+
+        readDocument();
+
+        assertEquals(1, results.size());
+        assertTrue(failures.isEmpty());
+        assertFalse(reader.isFresh(KEY));
+    }
+
+    @Test
+    public void read_CacheAndServerFail_ReportsServerFailure() {
+        Exception offline = new Exception("offline");
+        Task<DocumentSnapshot> missing = failed(new Exception("Not cached"));
+        Task<DocumentSnapshot> server = failed(offline);
+        when(mockDocument.get(Source.CACHE)).thenReturn(missing);
+        when(mockDocument.get()).thenReturn(server);
+
+        readDocument();
+
+        assertTrue(results.isEmpty());
+        assertEquals(1, failures.size());
+        assertSame(offline, failures.get(0));
+    }
+
+    @Test
+    public void read_EmptyCachedQuery_ReadsFromServer() {
+        Task<QuerySnapshot> cache = succeeded(mockCachedResult);
+        Task<QuerySnapshot> server = succeeded(mockServerResult);
+        when(mockCachedResult.isEmpty()).thenReturn(true);
+        when(mockQuery.get(Source.CACHE)).thenReturn(cache);
+        when(mockQuery.get()).thenReturn(server);
+
+        reader.read("Events", mockQuery, results::add, failures::add);
+
+        assertEquals(1, results.size());
+        assertSame(mockServerResult, results.get(0));
+    }
+
+    @Test
+    public void setStalenessBudget_Zero_RefreshesEveryRead() {
+        reader.setStalenessBudget(0);
+        Task<QuerySnapshot> cache = succeeded(mockCachedResult);
+        Task<QuerySnapshot> refreshed = succeeded(mockServerResult);
+        when(mockCachedResult.isEmpty()).thenReturn(false);
+        when(mockQuery.get(Source.CACHE)).thenReturn(cache);
+        when(mockQuery.get(Source.SERVER)).thenReturn(refreshed);
+
+        reader.read("Events", mockQuery, results::add, failures::add);
+        now.incrementAndGet();
+        reader.read("Events", mockQuery, results::add, failures::add);
+
+        assertEquals(4, results.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setStalenessBudget_Negative_Throws() {
+        reader.setStalenessBudget(-1);
+    }
+}
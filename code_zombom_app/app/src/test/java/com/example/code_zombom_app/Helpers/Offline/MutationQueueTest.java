@@ -0,0 +1,257 @@
+package com.example.code_zombom_app.Helpers.Offline;
+
+import androidx.annotation.NonNull;
+
+import com.example.code_zombom_app.Helpers.Event.EventService;
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies that mutations which cannot reach the server are stored and sent again in order, and
+ * that mutations the server rejects are reported rather than retried.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class MutationQueueTest {
+
+    @Mock private EventService mockEventService;
+
+    private static final String EVENT_ID = "queued-event";
+    private static final String EMAIL = "entrant@example.com";
+
+    private final MemoryStore store = new MemoryStore();
+
+    /**
+     * Keeps the queue in memory in place of shared preferences.
+     */
+    private static class MemoryStore implements MutationQueue.Store {
+        List<String> saved = new ArrayList<>();
+
+        @NonNull
+        @Override
+        public List<String> load() {
+            return new ArrayList<>(saved);
+        }
+
+        @Override
+        public void save(@NonNull List<String> mutations) {
+            saved = new ArrayList<>(mutations);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Task<Void> succeeded() {
+        Task<Void> task = mock(Task.class);
+        when(task.addOnSuccessListener(any())).thenAnswer(invocation -> {
+            ((OnSuccessListener<Void>) invocation.getArgument(0)).onSuccess(null);
+            return task;
+        });
+        when(task.addOnFailureListener(any())).thenReturn(task);
+        return task;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Task<Void> failed(Exception e) {
+        Task<Void> task = mock(Task.class);
+        when(task.addOnSuccessListener(any())).thenReturn(task);
+        when(task.addOnFailureListener(any())).thenAnswer(invocation -> {
+            ((OnFailureListener) invocation.getArgument(0)).onFailure(e);
+            return task;
+        });
+        return task;
+    }
+
+    private static Exception offline() {
+        return new FirebaseFirestoreException("offline", FirebaseFirestoreException.Code.UNAVAILABLE);
+    }
+
+    private static MutationQueue.Mutation mutation(MutationQueue.Type type, String requestId) {
+        return new MutationQueue.Mutation(type, EVENT_ID, EMAIL, requestId);
+    }
+
+    @Test
+    public void submit_Online_AppliesMutation() {
+        Task<Void> joined = succeeded();
+        when(mockEventService.addEntrantToWaitlist(EVENT_ID, EMAIL, "join-1")).thenReturn(joined);
+        MutationQueue queue = new MutationQueue(mockEventService, store);
+
+        Task<MutationQueue.Outcome> outcome =
+                queue.submit(mutation(MutationQueue.Type.JOIN, "join-1"));
+
+        assertSame(MutationQueue.Outcome.APPLIED, outcome.getResult());
+        assertEquals(0, queue.size());
+        assertTrue(store.saved.isEmpty());
+    }
+
+    @Test
+    public void submit_Offline_QueuesAndStoresMutation() {
+        Task<Void> unavailable = failed(offline());
+        when(mockEventService.acceptInvitation(EVENT_ID, EMAIL, "accept-1")).thenReturn(unavailable);
+        MutationQueue queue = new MutationQueue(mockEventService, store);
+
+        Task<MutationQueue.Outcome> outcome =
+                queue.submit(mutation(MutationQueue.Type.ACCEPT, "accept-1"));
+
+        assertSame(MutationQueue.Outcome.QUEUED, outcome.getResult());
+        assertEquals(1, queue.size());
+        assertEquals(Collections.singletonList("ACCEPT\t" + EVENT_ID + "\t" + EMAIL + "\taccept-1"),
+                store.saved);
+    }
+
+    @Test
+    public void submit_Rejected_ReportsFailureWithoutQueueing() {
+        IllegalStateException full = new IllegalStateException("Waiting list is full");
+        Task<Void> rejected = failed(full);
+        when(mockEventService.addEntrantToWaitlist(EVENT_ID, EMAIL, "join-1")).thenReturn(rejected);
+        MutationQueue queue = new MutationQueue(mockEventService, store);
+
+        Task<MutationQueue.Outcome> outcome =
+                queue.submit(mutation(MutationQueue.Type.JOIN, "join-1"));
+
+        assertSame(full, outcome.getException());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void submit_WhileOthersQueued_WaitsBehindThem() {
+        Task<Void> unavailable = failed(offline());
+        when(mockEventService.addEntrantToWaitlist(EVENT_ID, EMAIL, "join-1")).thenReturn(unavailable);
+        MutationQueue queue = new MutationQueue(mockEventService, store);
+        queue.submit(mutation(MutationQueue.Type.JOIN, "join-1"));
+
+        Task<MutationQueue.Outcome> outcome =
+                queue.submit(mutation(MutationQueue.Type.LEAVE, "leave-1"));
+
+        assertSame(MutationQueue.Outcome.QUEUED, outcome.getResult());
+        assertEquals(2, queue.size());
+        verify(mockEventService, never()).removeEntrantFromWaitlist(EVENT_ID, EMAIL, "leave-1");
+    }
+
+    @Test
+    public void replay_AppliesStoredMutationsInOrder() {
+        store.saved.add(mutation(MutationQueue.Type.JOIN, "join-1").encode());
+        store.saved.add(mutation(MutationQueue.Type.LEAVE, "leave-1").encode());
+        Task<Void> joined = succeeded();
+        Task<Void> left = succeeded();
+        when(mockEventService.addEntrantToWaitlist(EVENT_ID, EMAIL, "join-1")).thenReturn(joined);
+        when(mockEventService.removeEntrantFromWaitlist(EVENT_ID, EMAIL, "leave-1")).thenReturn(left);
+        MutationQueue queue = new MutationQueue(mockEventService, store);
+
+        queue.replay();
+
+        InOrder order = inOrder(mockEventService);
+        order.verify(mockEventService).addEntrantToWaitlist(EVENT_ID, EMAIL, "join-1");
+        order.verify(mockEventService).removeEntrantFromWaitlist(EVENT_ID, EMAIL, "leave-1");
+        assertEquals(0, queue.size());
+        assertTrue(store.saved.isEmpty());
+    }
+
+    @Test
+    public void replay_StillOffline_KeepsMutationsQueued() {
+        store.saved.add(mutation(MutationQueue.Type.DECLINE, "decline-1").encode());
+        store.saved.add(mutation(MutationQueue.Type.REGISTER, "register-1").encode());
+        Task<Void> unavailable = failed(offline());
+        when(mockEventService.declineInvitation(EVENT_ID, EMAIL, "decline-1")).thenReturn(unavailable);
+        MutationQueue queue = new MutationQueue(mockEventService, store);
+
+        queue.replay();
+
+        assertEquals(2, queue.size());
+        verify(mockEventService, never()).completeRegistration(EVENT_ID, EMAIL, "register-1");
+    }
+
+    @Test
+    public void replay_RejectedMutation_IsDroppedAndRestSent() {
+        store.saved.add(mutation(MutationQueue.Type.JOIN, "join-1").encode());
+        store.saved.add(mutation(MutationQueue.Type.ACCEPT, "accept-1").encode());
+        Task<Void> rejected = failed(new IllegalStateException("Waiting list is full"));
+        Task<Void> accepted = succeeded();
+        when(mockEventService.addEntrantToWaitlist(EVENT_ID, EMAIL, "join-1")).thenReturn(rejected);
+        when(mockEventService.acceptInvitation(EVENT_ID, EMAIL, "accept-1")).thenReturn(accepted);
+        MutationQueue queue = new MutationQueue(mockEventService, store);
+
+        queue.replay();
+
+        verify(mockEventService).acceptInvitation(EVENT_ID, EMAIL, "accept-1");
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void replay_RejectedMutation_IsKeptForTheScreen() {
+        store.saved.add(mutation(MutationQueue.Type.JOIN, "join-1").encode());
+        IllegalStateException full = new IllegalStateException("Waiting list is full");
+        Task<Void> rejected = failed(full);
+        when(mockEventService.addEntrantToWaitlist(EVENT_ID, EMAIL, "join-1")).thenReturn(rejected);
+        MutationQueue queue = new MutationQueue(mockEventService, store);
+
+        queue.replay();
+
+        List<MutationQueue.Rejection> rejections = queue.takeRejections();
+        assertEquals(1, rejections.size());
+        assertSame(full, rejections.get(0).getError());
+        assertSame(MutationQueue.Type.JOIN, rejections.get(0).getMutation().getType());
+        assertEquals(EVENT_ID, rejections.get(0).getMutation().getEventId());
+        assertTrue(queue.takeRejections().isEmpty());
+    }
+
+    @Test
+    public void replay_RejectedMutation_IsHandedToListener() {
+        store.saved.add(mutation(MutationQueue.Type.DECLINE, "decline-1").encode());
+        IllegalArgumentException notSelected = new IllegalArgumentException("You were not selected for this event.");
+        Task<Void> rejected = failed(notSelected);
+        when(mockEventService.declineInvitation(EVENT_ID, EMAIL, "decline-1")).thenReturn(rejected);
+        MutationQueue queue = new MutationQueue(mockEventService, store);
+        List<MutationQueue.Rejection> heard = new ArrayList<>();
+        queue.addRejectionListener(heard::add);
+
+        queue.replay();
+
+        assertEquals(1, heard.size());
+        assertSame(notSelected, heard.get(0).getError());
+        assertTrue(queue.takeRejections().isEmpty());
+    }
+
+    @Test
+    public void constructor_DropsUnreadableStoredMutations() {
+        store.saved.add("not a mutation");
+        store.saved.add(mutation(MutationQueue.Type.LEAVE, "leave-1").encode());
+
+        MutationQueue queue = new MutationQueue(mockEventService, store);
+
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    public void mutation_WithoutRequestId_GetsNewKey() {
+        MutationQueue.Mutation mutation =
+                new MutationQueue.Mutation(MutationQueue.Type.JOIN, EVENT_ID, " " + EMAIL + " ", null);
+
+        MutationQueue.Mutation decoded = MutationQueue.Mutation.decode(mutation.encode());
+
+        assertNotNull(decoded);
+        assertEquals(EMAIL, decoded.email);
+        assertEquals(mutation.requestId, decoded.requestId);
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.code_zombom_app.Helpers.Users;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies that notification preferences are resolved with chunked queries for opted-out
+ * recipients only, and that results are cached until invalidated unless their query failed.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class NotificationPreferenceResolverTest {
+
+    @Mock private FirebaseFirestore mockFirestore;
+    @Mock private CollectionReference mockPreferencesCollection;
+    @Mock private CollectionReference mockProfilesCollection;
+    @Mock private Query mockPreferencesQuery;
+    @Mock private Query mockProfilesQuery;
+    @Mock private QuerySnapshot mockPreferencesSnapshot;
+    @Mock private QuerySnapshot mockProfilesSnapshot;
+
+    private NotificationPreferenceResolver resolver;
+
+    @Before
+    public void setUp() {
+        resolver = new NotificationPreferenceResolver(mockFirestore);
+
+        when(mockFirestore.collection(NotificationPreferenceResolver.COLLECTION)).thenReturn(mockPreferencesCollection);
+        when(mockPreferencesCollection.whereIn(any(FieldPath.class), anyList())).thenReturn(mockPreferencesQuery);
+        when(mockPreferencesQuery.whereEqualTo("notificationEnabled", false)).thenReturn(mockPreferencesQuery);
+        when(mockPreferencesQuery.get()).thenReturn(Tasks.forResult(mockPreferencesSnapshot));
+
+        when(mockFirestore.collection("Profiles")).thenReturn(mockProfilesCollection);
+        when(mockProfilesCollection.whereIn(any(FieldPath.class), anyList())).thenReturn(mockProfilesQuery);
+        when(mockProfilesQuery.whereEqualTo("notificationEnabled", false)).thenReturn(mockProfilesQuery);
+        when(mockProfilesQuery.get()).thenReturn(Tasks.forResult(mockProfilesSnapshot));
+    }
+
+    private static DocumentSnapshot document(String id) {
+        DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
+        when(snapshot.getId()).thenReturn(id);
+        return snapshot;
+    }
+
+    private static List<String> emails(int count) {
+        List<String> emails = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            emails.add("entrant" + i + "@example.com");
+        }
+        return emails;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void resolve_QueriesOptedOutRecipientsInChunks() {
+        List<String> emails = emails(65);
+        DocumentSnapshot optedOut = document("entrant7@example.com");
+        when(mockPreferencesSnapshot.getDocuments()).thenReturn(Collections.singletonList(optedOut));
+
+        Task<Map<String, Boolean>> task = resolver.resolve(emails);
+
+        Map<String, Boolean> enabled = task.getResult();
+        assertEquals(65, enabled.size());
+        assertFalse(enabled.get("entrant7@example.com"));
+        assertTrue(enabled.get("entrant8@example.com"));
+
+        ArgumentCaptor<List<String>> chunks = ArgumentCaptor.forClass(List.class);
+        verify(mockPreferencesCollection, times(3)).whereIn(any(FieldPath.class), chunks.capture());
+        assertEquals(Arrays.asList(30, 30, 5), Arrays.asList(chunks.getAllValues().get(0).size(),
+                chunks.getAllValues().get(1).size(), chunks.getAllValues().get(2).size()));
+        verify(mockProfilesCollection, times(3)).whereIn(any(FieldPath.class), anyList());
+    }
+
+    @Test
+    public void resolve_ProfileOptOutIsMatchedWhateverTheCase() {
+        DocumentSnapshot profile = document("Mixed@Example.com");
+        when(mockProfilesSnapshot.getDocuments()).thenReturn(Collections.singletonList(profile));
+
+        assertFalse(resolver.resolve(" Mixed@Example.com ").getResult());
+    }
+
+    @Test
+    public void resolve_CachedUntilInvalidated() {
+        resolver.resolve(emails(3));
+        resolver.resolve(emails(3));
+        verify(mockPreferencesQuery, times(1)).get();
+
+        resolver.invalidate("entrant1@example.com");
+        resolver.resolve(emails(3));
+
+        ArgumentCaptor<List<?>> chunk = ArgumentCaptor.forClass(List.class);
+        verify(mockPreferencesCollection, times(2)).whereIn(any(FieldPath.class), chunk.capture());
+        assertEquals(Collections.singletonList("entrant1@example.com"), chunk.getValue());
+    }
+
+    @Test
+    public void resolve_FailedQueryKeepsRecipientsNotified() {
+        when(mockPreferencesQuery.get()).thenReturn(Tasks.forException(new Exception("offline")));
+
+        assertTrue(resolver.resolve("entrant@example.com").getResult());
+    }
+
+    @Test
+    public void resolve_FailedQueryIsNotCached() {
+        when(mockPreferencesQuery.get()).thenReturn(
+                Tasks.forException(new Exception("offline")),
+                Tasks.forResult(mockPreferencesSnapshot));
+        DocumentSnapshot optedOut = document("entrant@example.com");
+        when(mockPreferencesSnapshot.getDocuments()).thenReturn(Collections.singletonList(optedOut));
+
+        assertTrue(resolver.resolve("entrant@example.com").getResult());
+        assertFalse(resolver.resolve("entrant@example.com").getResult());
+        verify(mockPreferencesQuery, times(2)).get();
+        assertFalse(resolver.resolve("entrant@example.com").getResult());
+        verify(mockPreferencesQuery, times(2)).get();
+    }
+
+    @Test
+    public void resolve_BlankEmailIsNeverNotified() {
+        assertFalse(resolver.resolve("  ").getResult());
+        verify(mockFirestore, never()).collection(NotificationPreferenceResolver.COLLECTION);
+    }
+}
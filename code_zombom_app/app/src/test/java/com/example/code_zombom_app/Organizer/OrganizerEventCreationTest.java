@@ -50,7 +50,6 @@ public class OrganizerEventCreationTest {
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
-        Event.setQrCodeGenerationEnabled(false);
 
         eventService = new EventService(mockFirestore);
         when(mockFirestore.collection("Events")).thenReturn(mockEventsCollection);
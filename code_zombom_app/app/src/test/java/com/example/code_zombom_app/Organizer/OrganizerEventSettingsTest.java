@@ -3,7 +3,6 @@ package com.example.code_zombom_app.Organizer;
 import com.example.code_zombom_app.Helpers.Event.Event;
 import com.example.code_zombom_app.Helpers.Location.Location;
 
-import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
@@ -21,11 +20,6 @@ import static org.junit.Assert.assertNotNull;
 @RunWith(MockitoJUnitRunner.class)
 public class OrganizerEventSettingsTest {
 
-    @Before
-    public void setUp() {
-        Event.setQrCodeGenerationEnabled(false);
-    }
-
     @Test
     public void setRegistrationPeriod_StartAndEndDatesPersisted() {
         Event event = new Event("Period Test");
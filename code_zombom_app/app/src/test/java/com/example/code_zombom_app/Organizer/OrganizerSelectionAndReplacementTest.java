@@ -1,33 +1,53 @@
 package com.example.code_zombom_app.Organizer;
 
+import com.example.code_zombom_app.Helpers.Event.EntrantHistory;
 import com.example.code_zombom_app.Helpers.Event.Event;
 import com.example.code_zombom_app.Helpers.Event.EventService;
+import com.example.code_zombom_app.Helpers.Event.EventSummary;
+import com.example.code_zombom_app.Helpers.Event.LotteryDraw;
+import com.example.code_zombom_app.Helpers.Users.NotificationPreferenceResolver;
 
 import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
 import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -41,6 +61,12 @@ public class OrganizerSelectionAndReplacementTest {
     @Mock
     private FirebaseFirestore mockFirestore;
 
+    @Mock
+    private CollectionReference mockSummariesCollection;
+
+    @Mock
+    private DocumentReference mockSummaryDocumentRef;
+
     @Mock
     private CollectionReference mockEventsCollection;
 
@@ -66,6 +92,12 @@ public class OrganizerSelectionAndReplacementTest {
     @Mock
     private DocumentReference mockProfileDocumentRef;
 
+    @Mock
+    private CollectionReference mockEntrantHistoryCollection;
+
+    @Mock
+    private DocumentReference mockEntrantHistoryDocumentRef;
+
     @Mock
     private CollectionReference mockResponsesCollection;
 
@@ -79,10 +111,22 @@ public class OrganizerSelectionAndReplacementTest {
     private DocumentReference mockNotificationDocumentRef;
 
     @Mock
-    private CollectionReference mockNotificationPrefsCollection;
+    private NotificationPreferenceResolver mockPreferences;
+
+    @Mock
+    private CollectionReference mockDrawsCollection;
+
+    @Mock
+    private DocumentReference mockDrawDocumentRef;
+
+    @Mock
+    private CollectionReference mockRecipientsCollection;
 
     @Mock
-    private DocumentReference mockNotificationPrefDocumentRef;
+    private DocumentReference mockRecipientsDocumentRef;
+
+    @Mock
+    private WriteBatch mockWriteBatch;
     // 🔼 END new mocks
 
     private EventService eventService;
@@ -92,19 +136,18 @@ public class OrganizerSelectionAndReplacementTest {
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
-        Event.setQrCodeGenerationEnabled(false);
 
-        eventService = new EventService(mockFirestore);
+        eventService = new EventService(mockFirestore, mockPreferences);
 
         // Existing wiring
         when(mockFirestore.collection("Events")).thenReturn(mockEventsCollection);
         when(mockEventsCollection.document(EVENT_ID)).thenReturn(mockEventDocumentRef);
 
-        // 🔽 NEW wiring so recordHistory / isNotificationsEnabled don’t NPE
+        // 🔽 NEW wiring so recordHistory / notifications don’t NPE
 
         // Events/{eventId}/History
         when(mockEventDocumentRef.collection("History")).thenReturn(mockHistoryCollection);
-        when(mockHistoryCollection.document()).thenReturn(mockHistoryDocumentRef);
+        when(mockHistoryCollection.document(anyString())).thenReturn(mockHistoryDocumentRef);
 
         // Events/{eventId}/Responses
         when(mockEventDocumentRef.collection("Responses")).thenReturn(mockResponsesCollection);
@@ -112,42 +155,61 @@ public class OrganizerSelectionAndReplacementTest {
 
         // Events/{eventId}/Notifications
         when(mockEventDocumentRef.collection("Notifications")).thenReturn(mockNotificationsCollection);
-        when(mockNotificationsCollection.document()).thenReturn(mockNotificationDocumentRef);
+        when(mockNotificationsCollection.document(anyString())).thenReturn(mockNotificationDocumentRef);
 
         // Profiles/{email}
         when(mockFirestore.collection("Profiles")).thenReturn(mockProfilesCollection);
         when(mockProfilesCollection.document(anyString())).thenReturn(mockProfileDocumentRef);
+        when(mockProfileDocumentRef.collection(EntrantHistory.COLLECTION)).thenReturn(mockEntrantHistoryCollection);
+        when(mockEntrantHistoryCollection.document(anyString())).thenReturn(mockEntrantHistoryDocumentRef);
 
-        // NotificationPreferences/{email}
-        when(mockFirestore.collection("NotificationPreferences")).thenReturn(mockNotificationPrefsCollection);
-        when(mockNotificationPrefsCollection.document(anyString())).thenReturn(mockNotificationPrefDocumentRef);
+        // EventSummaries/{eventId}, rewritten alongside the event document
+        when(mockFirestore.collection(EventSummary.COLLECTION)).thenReturn(mockSummariesCollection);
+        when(mockSummariesCollection.document(anyString())).thenReturn(mockSummaryDocumentRef);
+
+        // Events/{eventId}/Draws, the record a lottery draw commits with its winners
+        when(mockEventDocumentRef.collection(LotteryDraw.COLLECTION)).thenReturn(mockDrawsCollection);
+        when(mockDrawsCollection.document()).thenReturn(mockDrawDocumentRef);
         // 🔼 END wiring
     }
 
     /**
-     * Make transaction.get(eventDoc) return our in-memory Event via mockEventSnapshot,
-     * and also make transaction.get(profile/prefs docs) return a harmless snapshot so
-     * isNotificationsEnabled() doesn't crash.
+     * Make transaction.get(eventDoc) return our in-memory Event via mockEventSnapshot.
      */
     private void mockTransactionGet(Event event) throws Exception {
         // For the event document
         when(mockTransaction.get(mockEventDocumentRef)).thenReturn(mockEventSnapshot);
         when(mockEventSnapshot.toObject(Event.class)).thenReturn(event);
+    }
 
-        // For NotificationPreferences and Profiles, just return the same snapshot
-        // with `exists() == false` so isNotificationsEnabled falls back to default (true).
-        when(mockTransaction.get(mockNotificationPrefDocumentRef)).thenReturn(mockEventSnapshot);
-        when(mockTransaction.get(mockProfileDocumentRef)).thenReturn(mockEventSnapshot);
-        when(mockEventSnapshot.exists()).thenReturn(false);
+    /**
+     * Wire the batched writes that notify the winners and losers once a draw is committed, with
+     * notifications enabled for every entrant.
+     */
+    private void mockLotteryFanOut() {
+        when(mockDrawDocumentRef.getId()).thenReturn("draw-1");
+        when(mockDrawsCollection.document("draw-1")).thenReturn(mockDrawDocumentRef);
+        // Events/{eventId}/Recipients, the chunks the draw's winners and losers are stored in
+        when(mockEventDocumentRef.collection("Recipients")).thenReturn(mockRecipientsCollection);
+        when(mockRecipientsCollection.document(anyString())).thenReturn(mockRecipientsDocumentRef);
+        when(mockFirestore.batch()).thenReturn(mockWriteBatch);
+        when(mockWriteBatch.commit()).thenReturn(Tasks.forResult(null));
+
+        when(mockPreferences.resolve(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> emails = invocation.getArgument(0);
+            Map<String, Boolean> enabled = new HashMap<>();
+            for (String email : emails) {
+                enabled.put(email, true);
+            }
+            return Tasks.forResult(enabled);
+        });
     }
 
     private void mockSuccessfulTransaction() {
         doAnswer(invocation -> {
-            @SuppressWarnings("unchecked")
-            Transaction.Function<Void> fn = invocation.getArgument(0);
+            Transaction.Function<?> fn = invocation.getArgument(0);
             try {
-                fn.apply(mockTransaction);
-                return Tasks.forResult(null);
+                return Tasks.forResult(fn.apply(mockTransaction));
             } catch (Exception e) {
                 return Tasks.forException(e);
             }
@@ -190,6 +252,7 @@ public class OrganizerSelectionAndReplacementTest {
         event.joinWaitingList("d@example.com");
 
         mockTransactionGet(event);
+        mockLotteryFanOut();
         mockSuccessfulTransaction();
 
         Task<Void> task = eventService.runLotteryDraw(EVENT_ID);
@@ -212,6 +275,115 @@ public class OrganizerSelectionAndReplacementTest {
                 chosen.size() + waiting.size() == 4);
 
         assertTrue("Draw should be marked complete", event.isDrawComplete());
+
+        // The transaction commits the winners, a draw record and the chunk listing its recipients
+        verify(mockTransaction).set(eq(mockDrawDocumentRef), any(LotteryDraw.class));
+        verify(mockRecipientsCollection).document("draw-1_0");
+        verify(mockTransaction).set(eq(mockRecipientsDocumentRef), any(Map.class));
+        verify(mockTransaction, never()).set(eq(mockHistoryDocumentRef), any(Map.class));
+        verify(mockTransaction, never()).set(eq(mockNotificationDocumentRef), any(Map.class));
+
+        // Every entrant gets history and a notification, committed with the draw's checkpoint
+        verify(mockWriteBatch, times(4)).set(eq(mockHistoryDocumentRef), any(Map.class));
+        verify(mockWriteBatch, times(4))
+                .set(eq(mockProfileDocumentRef), any(Map.class), any(SetOptions.class));
+        verify(mockWriteBatch, times(4)).set(eq(mockNotificationDocumentRef), any(Map.class));
+        verify(mockWriteBatch).update(eq(mockDrawDocumentRef), any(Map.class));
+    }
+
+    @Test
+    public void runLotteryDraw_PriorLossesMode_LoadsWeightsBeforeDrawing() throws Exception {
+        Event event = new Event("Weighted Lottery Test");
+        event.setEventId(EVENT_ID);
+        event.setCapacity(1);
+        event.setLotteryMode(Event.LotteryMode.PRIOR_LOSSES);
+        event.joinWaitingList("lost-before@example.com");
+        event.joinWaitingList("new@example.com");
+
+        Map<String, Object> history = new HashMap<>();
+        history.put("earlier-event", "NOT_SELECTED");
+        history.put(EVENT_ID, "WAITLISTED");
+        DocumentSnapshot profile = mock(DocumentSnapshot.class);
+        when(profile.getId()).thenReturn("lost-before@example.com");
+        when(profile.get("eventHistory")).thenReturn(history);
+        QuerySnapshot profiles = mock(QuerySnapshot.class);
+        when(profiles.getDocuments()).thenReturn(Collections.singletonList(profile));
+        Query profileQuery = mock(Query.class);
+        when(profileQuery.get()).thenReturn(Tasks.forResult(profiles));
+        when(mockProfilesCollection.whereIn(any(FieldPath.class), anyList())).thenReturn(profileQuery);
+
+        mockTransactionGet(event);
+        mockLotteryFanOut();
+        mockSuccessfulTransaction();
+
+        awaitTask(eventService.runLotteryDraw(EVENT_ID));
+
+        // One transaction collects the candidates, the second one draws with their weights
+        verify(mockFirestore, times(2)).runTransaction(any(Transaction.Function.class));
+        verify(mockProfilesCollection).whereIn(any(FieldPath.class), anyList());
+        ArgumentCaptor<LotteryDraw> draw = ArgumentCaptor.forClass(LotteryDraw.class);
+        verify(mockTransaction).set(eq(mockDrawDocumentRef), draw.capture());
+        assertTrue(draw.getValue().isWeighted());
+        assertEquals(1, event.getChosenList().size());
+        assertEquals(1, event.getWaitingList().size());
+    }
+
+    @Test
+    public void drawReplacements_DrawsOnlyNewWinnersWithoutLosers() throws Exception {
+        Event event = new Event("Replacement Draw Test");
+        event.setEventId(EVENT_ID);
+        event.setCapacity(3);
+        event.addChosenEntrant("a@example.com");
+        event.addPendingEntrant("b@example.com");
+        event.addCancelledEntrant("declined@example.com");
+        for (int i = 0; i < 20; i++) {
+            event.joinWaitingList("waiting" + i + "@example.com");
+        }
+
+        mockTransactionGet(event);
+        mockLotteryFanOut();
+        mockSuccessfulTransaction();
+
+        awaitTask(eventService.drawReplacements(EVENT_ID, 5));
+
+        // Only the one free seat is filled
+        assertEquals(2, event.getChosenList().size());
+        assertEquals(19, event.getWaitingList().size());
+        ArgumentCaptor<LotteryDraw> draw = ArgumentCaptor.forClass(LotteryDraw.class);
+        verify(mockTransaction).set(eq(mockDrawDocumentRef), draw.capture());
+        assertTrue(draw.getValue().isReplacement());
+        assertTrue(draw.getValue().getLosers().isEmpty());
+
+        // Entrants still waiting are not told again that they lost
+        verify(mockWriteBatch, times(1)).set(eq(mockHistoryDocumentRef), any(Map.class));
+        verify(mockWriteBatch, times(1)).set(eq(mockNotificationDocumentRef), any(Map.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void drawReplacements_RejectsNonPositiveCount() {
+        eventService.drawReplacements(EVENT_ID, 0);
+    }
+
+    @Test
+    public void declineInvitation_AutoReplace_DrawsOneReplacement() throws Exception {
+        Event event = new Event("Auto Replace Test");
+        event.setEventId(EVENT_ID);
+        event.setCapacity(1);
+        event.setAutoReplaceDeclines(true);
+        event.addChosenEntrant("decliner@example.com");
+        event.joinWaitingList("next1@example.com");
+        event.joinWaitingList("next2@example.com");
+
+        mockTransactionGet(event);
+        mockLotteryFanOut();
+        mockSuccessfulTransaction();
+
+        awaitTask(eventService.declineInvitation(EVENT_ID, "decliner@example.com"));
+
+        assertTrue(event.getCancelledList().contains("decliner@example.com"));
+        assertEquals(1, event.getChosenList().size());
+        assertEquals(1, event.getWaitingList().size());
+        verify(mockWriteBatch, times(1)).set(eq(mockNotificationDocumentRef), any(Map.class));
     }
 
     @Test
@@ -0,0 +1,43 @@
+// JMH benchmarks for the domain classes of the app, run on the JVM with ./gradlew :benchmarks:jmh
+plugins {
+    `java-library`
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+// The benchmarked classes only need the JDK and org.json at run time, so they are taken from
+// the app's compiled classes instead of its Android dependencies.
+val appClasses = files(
+    project(":app").layout.buildDirectory.dir(
+        "intermediates/javac/debug/compileDebugJavaWithJavac/classes"
+    )
+).builtBy(":app:compileDebugJavaWithJavac")
+
+dependencies {
+    jmhImplementation(appClasses)
+    jmhImplementation(libs.json)
+}
+
+// Results are named after the commit they were measured on, so two runs can be compared with
+// e.g. https://jmh.morethan.io or by diffing the "primaryMetric" of each benchmark.
+val commit = providers.exec {
+    commandLine("git", "rev-parse", "--short", "HEAD")
+    isIgnoreExitValue = true
+}.standardOutput.asText.map { it.trim().ifEmpty { "local" } }
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file(commit.map { "results/jmh/$it.json" }))
+    // Run a subset with e.g. -PjmhIncludes=LotteryDrawBenchmark
+    providers.gradleProperty("jmhIncludes").orNull?.let { includes.add(it) }
+    // Allocations per operation are reported as gc.alloc.rate.norm
+    profilers.add("gc")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+}
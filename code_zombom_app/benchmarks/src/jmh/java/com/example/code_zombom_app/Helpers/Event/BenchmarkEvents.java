@@ -0,0 +1,71 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Events shared by the benchmarks, built the same way for every run so results can be compared
+ * between commits.
+ *
+ * @version 1.0.0
+ */
+public final class BenchmarkEvents {
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    private static final String[] GENRES = {"Sport", "Music", "Art", "Food", "Education"};
+
+    private BenchmarkEvents() {
+    }
+
+    /**
+     * @param index Position of the entrant
+     * @return The email address of the entrant at that position
+     */
+    public static String entrant(int index) {
+        return "entrant" + index + "@example.com";
+    }
+
+    /**
+     * @param waitlistSize Number of entrants on the waiting list
+     * @return An event without capacity or waitlist limit whose waiting list holds
+     * {@link #entrant(int)} 0 to waitlistSize - 1, in that order
+     */
+    public static Event withWaitlist(int waitlistSize) {
+        Event event = new Event("Benchmark Event");
+        event.setEventId("benchmark-event");
+        event.setGenre(GENRES[0]);
+        event.setCreatedDate(new Date(0));
+        event.setEventStartDate(new Date(DAY_MILLIS));
+        event.setEventEndDate(new Date(2 * DAY_MILLIS));
+        for (int i = 0; i < waitlistSize; i++) {
+            event.joinWaitingList(entrant(i));
+        }
+        return event;
+    }
+
+    /**
+     * @param count Number of events
+     * @param seed  Seed of the genres, dates and waiting list sizes of the events
+     * @return Events as an entrant would browse them, each with a waiting list of up to 7 entrants
+     */
+    public static List<Event> browsable(int count, long seed) {
+        Random random = new Random(seed);
+        List<Event> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Event event = new Event("Event " + i);
+            event.setEventId("event-" + i);
+            event.setGenre(GENRES[random.nextInt(GENRES.length)]);
+            long start = random.nextInt(365) * DAY_MILLIS;
+            event.setCreatedDate(new Date(start - random.nextInt(30) * DAY_MILLIS));
+            event.setEventStartDate(new Date(start));
+            event.setEventEndDate(new Date(start + (1 + random.nextInt(7)) * DAY_MILLIS));
+            int waiting = random.nextInt(8);
+            for (int j = 0; j < waiting; j++) {
+                event.joinWaitingList(entrant(j));
+            }
+            events.add(event);
+        }
+        return events;
+    }
+}
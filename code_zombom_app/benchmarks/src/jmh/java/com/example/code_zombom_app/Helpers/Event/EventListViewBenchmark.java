@@ -0,0 +1,51 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One bind of a list row that reads every entrant list of an event, through the copying getters
+ * of {@link Event} and through its live read-only views. The allocations of each are reported by
+ * the gc profiler as gc.alloc.rate.norm, in bytes per bind.
+ *
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EventListViewBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int waitlistSize;
+
+    private Event event;
+
+    @Setup
+    public void setUp() {
+        event = BenchmarkEvents.withWaitlist(waitlistSize);
+        event.addChosenEntrant(BenchmarkEvents.entrant(waitlistSize));
+    }
+
+    @Benchmark
+    public int copies() {
+        return event.getWaitingList().size()
+                + event.getChosenList().size()
+                + event.getPendingList().size()
+                + event.getRegisteredList().size();
+    }
+
+    @Benchmark
+    public int views() {
+        return event.getWaitingListView().size()
+                + event.getChosenListView().size()
+                + event.getPendingListView().size()
+                + event.getRegisteredListView().size();
+    }
+}
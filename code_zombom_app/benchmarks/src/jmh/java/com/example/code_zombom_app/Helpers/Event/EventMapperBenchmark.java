@@ -0,0 +1,40 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import com.example.code_zombom_app.organizer.EventForOrg;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link EventMapper#toDto(Event)}, which shares the live entrant views of the event, so its time
+ * and allocations should not grow with the waiting list.
+ *
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EventMapperBenchmark {
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int waitlistSize;
+
+    private Event event;
+
+    @Setup
+    public void setUp() {
+        event = BenchmarkEvents.withWaitlist(waitlistSize);
+    }
+
+    @Benchmark
+    public EventForOrg toDto() {
+        return EventMapper.toDto(event);
+    }
+}
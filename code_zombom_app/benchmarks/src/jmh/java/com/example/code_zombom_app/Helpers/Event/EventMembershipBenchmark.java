@@ -0,0 +1,61 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Membership operations of {@link Event}, on an event whose waiting list holds
+ * {@code waitlistSize} entrants. Every benchmark leaves the event as it found it.
+ *
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EventMembershipBenchmark {
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int waitlistSize;
+
+    private Event event;
+    private String member;
+    private String newcomer;
+
+    @Setup
+    public void setUp() {
+        event = BenchmarkEvents.withWaitlist(waitlistSize);
+        member = BenchmarkEvents.entrant(waitlistSize / 2);
+        newcomer = BenchmarkEvents.entrant(waitlistSize);
+    }
+
+    @Benchmark
+    public boolean isInWaitingList() {
+        return event.isInWaitingList(member);
+    }
+
+    @Benchmark
+    public boolean joinThenLeave() {
+        event.joinWaitingList(newcomer);
+        event.leaveWaitingList(newcomer);
+        return event.isInWaitingList(newcomer);
+    }
+
+    @Benchmark
+    public boolean chooseThenReturn() {
+        event.moveEntrant(member, MembershipIndex.Status.WAITING, MembershipIndex.Status.CHOSEN);
+        return event.moveEntrant(member, MembershipIndex.Status.CHOSEN,
+                MembershipIndex.Status.WAITING);
+    }
+
+    @Benchmark
+    public int countWaiting() {
+        return event.countEntrants(MembershipIndex.Status.WAITING);
+    }
+}
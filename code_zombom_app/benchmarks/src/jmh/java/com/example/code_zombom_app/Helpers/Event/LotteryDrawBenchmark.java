@@ -0,0 +1,76 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The selection {@link EventService#runLotteryDraw(String)} makes inside its transaction:
+ * computing the candidates, picking the winners and splitting them from the losers. A tenth of
+ * the waiting list already won, so the candidates have to be filtered. {@link #shuffleDraw()} is
+ * the draw as it was first written, kept as the baseline the sampler is compared against.
+ *
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LotteryDrawBenchmark {
+    private static final int SEATS = 100;
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int waitlistSize;
+
+    private Event event;
+    private LotterySampler sampler;
+    private Random random;
+
+    @Setup
+    public void setUp() {
+        event = BenchmarkEvents.withWaitlist(waitlistSize);
+        for (int i = 0; i < waitlistSize; i += 10) {
+            event.addChosenEntrant(BenchmarkEvents.entrant(i));
+        }
+        sampler = new LotterySampler(waitlistSize);
+        random = new Random(waitlistSize);
+    }
+
+    @Benchmark
+    public List<String> candidates() {
+        return LotterySampler.candidates(event);
+    }
+
+    @Benchmark
+    public List<String> draw() {
+        List<String> candidates = LotterySampler.candidates(event);
+        int[] positions = sampler.pick(candidates.size(), SEATS);
+        List<String> winners = new ArrayList<>(positions.length);
+        List<String> losers = new ArrayList<>(candidates.size() - positions.length);
+        LotterySampler.split(candidates, positions, winners, losers);
+        return winners;
+    }
+
+    /**
+     * Copies the waiting list, removes chosen and registered entrants with list scans, then
+     * shuffles every candidate.
+     */
+    @Benchmark
+    public List<String> shuffleDraw() {
+        List<String> candidates = new ArrayList<>(event.getWaitingList());
+        candidates.removeAll(event.getChosenList());
+        candidates.removeAll(event.getRegisteredList());
+        Collections.shuffle(candidates, random);
+        return new ArrayList<>(candidates.subList(0, Math.min(SEATS, candidates.size())));
+    }
+}
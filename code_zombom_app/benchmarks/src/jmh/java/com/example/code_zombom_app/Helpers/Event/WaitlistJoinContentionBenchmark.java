@@ -0,0 +1,111 @@
+package com.example.code_zombom_app.Helpers.Event;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Concurrent joins to one waiting list, made the way
+ * {@link EventService#addEntrantToWaitlist(String, String)} makes them (read the whole document
+ * and write it back if nobody wrote it in between) and the way
+ * {@link EventService#addEntrantToWaitlistFast(String, String)} makes them for an event without
+ * limits (a single arrayUnion the server applies to whatever the document holds).
+ * <p>
+ * The event document is a model of the server's commit rule with a fixed round trip, not
+ * Firestore itself, so only the ratio between the two benchmarks means anything. A transaction
+ * that loses its race {@link #MAX_TRANSACTION_ATTEMPTS} times gives up like Firestore does, and
+ * counts as an operation that joined nobody.
+ *
+ * @version 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(16)
+public class WaitlistJoinContentionBenchmark {
+    private static final long ROUND_TRIP_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+    // Firestore gives up a transaction after 5 attempts
+    private static final int MAX_TRANSACTION_ATTEMPTS = 5;
+
+    private final AtomicLong entrants = new AtomicLong();
+    private EventDocument document;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        document = new EventDocument();
+    }
+
+    @Benchmark
+    public boolean transactionJoin() {
+        String email = BenchmarkEvents.entrant((int) entrants.incrementAndGet());
+        for (int attempt = 0; attempt < MAX_TRANSACTION_ATTEMPTS; attempt++) {
+            LockSupport.parkNanos(ROUND_TRIP_NANOS);
+            EventDocument.Snapshot read = document.read();
+            read.waitingList.add(email);
+            LockSupport.parkNanos(ROUND_TRIP_NANOS);
+            if (document.commitIfUnchanged(read)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Benchmark
+    public boolean transformJoin() {
+        String email = BenchmarkEvents.entrant((int) entrants.incrementAndGet());
+        LockSupport.parkNanos(ROUND_TRIP_NANOS);
+        return document.arrayUnion(email);
+    }
+
+    /**
+     * Server side of an event document, which commits a transaction only if the document has not
+     * changed since the transaction read it.
+     */
+    private static final class EventDocument {
+        private long version;
+        private List<String> waitingList = new ArrayList<>();
+
+        static final class Snapshot {
+            final long version;
+            final List<String> waitingList;
+
+            Snapshot(long version, List<String> waitingList) {
+                this.version = version;
+                this.waitingList = waitingList;
+            }
+        }
+
+        synchronized Snapshot read() {
+            return new Snapshot(version, new ArrayList<>(waitingList));
+        }
+
+        synchronized boolean commitIfUnchanged(Snapshot snapshot) {
+            if (version != snapshot.version) {
+                return false;
+            }
+            waitingList = snapshot.waitingList;
+            version++;
+            return true;
+        }
+
+        synchronized boolean arrayUnion(String email) {
+            version++;
+            if (waitingList.contains(email)) {
+                return false;
+            }
+            return waitingList.add(email);
+        }
+    }
+}
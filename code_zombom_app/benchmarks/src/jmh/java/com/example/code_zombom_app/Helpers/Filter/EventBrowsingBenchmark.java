@@ -0,0 +1,72 @@
+package com.example.code_zombom_app.Helpers.Filter;
+
+import com.example.code_zombom_app.Helpers.Event.BenchmarkEvents;
+import com.example.code_zombom_app.Helpers.Event.Event;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filtering and sorting the events an entrant browses. Their cost grows with the number of
+ * events rather than with the waiting lists, so these are run over {@code eventCount} events.
+ * The sorts include the copy of the list they sort.
+ *
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EventBrowsingBenchmark {
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int eventCount;
+
+    private List<Event> events;
+    private EventFilter filter;
+
+    @Setup
+    public void setUp() {
+        events = BenchmarkEvents.browsable(eventCount, eventCount);
+        filter = new EventFilter();
+        filter.setFilterGenre("Music");
+        filter.setFilterStartDate(new Date(30 * DAY_MILLIS));
+        filter.setFilterEndDate(new Date(90 * DAY_MILLIS));
+    }
+
+    @Benchmark
+    public int passFilter() {
+        int passed = 0;
+        for (Event event : events) {
+            if (filter.passFilter(event)) {
+                passed++;
+            }
+        }
+        return passed;
+    }
+
+    @Benchmark
+    public List<Event> sortMostTrendy() {
+        List<Event> sorted = new ArrayList<>(events);
+        sorted.sort(new Event.SortEventMostTrendy());
+        return sorted;
+    }
+
+    @Benchmark
+    public List<Event> sortNewestToOldest() {
+        List<Event> sorted = new ArrayList<>(events);
+        sorted.sort(new Event.SortEventNewestToOldest());
+        return sorted;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.code_zombom_app.Helpers.Location;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Location#getComponent(JSONObject, String)} on a Google Geocoding result, for the first
+ * component of the result and for one that is only found at its end.
+ *
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LocationBenchmark {
+    private static final String RESULT = "{\"address_components\":["
+            + "{\"long_name\":\"116\",\"short_name\":\"116\",\"types\":[\"street_number\"]},"
+            + "{\"long_name\":\"St NW\",\"short_name\":\"St NW\",\"types\":[\"route\"]},"
+            + "{\"long_name\":\"Garneau\",\"short_name\":\"Garneau\","
+            + "\"types\":[\"neighborhood\",\"political\"]},"
+            + "{\"long_name\":\"Edmonton\",\"short_name\":\"Edmonton\","
+            + "\"types\":[\"locality\",\"political\"]},"
+            + "{\"long_name\":\"Division No. 11\",\"short_name\":\"Division No. 11\","
+            + "\"types\":[\"administrative_area_level_2\",\"political\"]},"
+            + "{\"long_name\":\"Alberta\",\"short_name\":\"AB\","
+            + "\"types\":[\"administrative_area_level_1\",\"political\"]},"
+            + "{\"long_name\":\"Canada\",\"short_name\":\"CA\",\"types\":[\"country\",\"political\"]},"
+            + "{\"long_name\":\"T6G 2R3\",\"short_name\":\"T6G 2R3\",\"types\":[\"postal_code\"]}"
+            + "],\"formatted_address\":\"116 St NW, Edmonton, AB T6G 2R3, Canada\"}";
+
+    private JSONObject result;
+
+    @Setup
+    public void setUp() throws JSONException {
+        result = new JSONObject(RESULT);
+    }
+
+    @Benchmark
+    public String streetNumber() {
+        return Location.getComponent(result, "street_number");
+    }
+
+    @Benchmark
+    public String postalCode() {
+        return Location.getComponent(result, "postal_code");
+    }
+
+    /**
+     * Parsing the response as well, as {@code Location} does for every geocoding request.
+     */
+    @Benchmark
+    public String parseThenPostalCode() throws JSONException {
+        return Location.getComponent(new JSONObject(RESULT), "postal_code");
+    }
+}
@@ -21,3 +21,4 @@ dependencyResolutionManagement {
 
 rootProject.name = "code_zombom_app"
 include(":app")
+include(":benchmarks")